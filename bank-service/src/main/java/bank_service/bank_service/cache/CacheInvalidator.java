@@ -0,0 +1,108 @@
+package bank_service.bank_service.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Xóa nhiều entry của các cache có tên trong một round trip: một script Lua xóa mọi key L2 rồi phát một thông báo
+ * (mỗi dòng một key) để mọi instance xóa L1, thay cho DEL + PUBLISH riêng cho từng key.
+ *
+ * Tag: cache khai báo cache.near.specs.{tên}.tags, entry có key k thuộc tag "{tag}:{k}". Các cache theo tài khoản
+ * đều dùng accountId làm key nên key của một tag suy ra được từ cấu hình, không cần set đăng ký trên Redis
+ * (không tốn thêm lệnh khi ghi, không có set phải dọn).
+ *
+ * Như TieredCacheManager (transaction-aware): gọi trong transaction thì chỉ xóa sau khi commit.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CacheInvalidator {
+
+    // KEYS: các key L2; ARGV: kênh pub/sub, thông báo ('' = không phát)
+    private static final DefaultRedisScript<Long> INVALIDATE_SCRIPT = new DefaultRedisScript<>("""
+            local deleted = 0
+            for i = 1, #KEYS, 500 do
+                deleted = deleted + redis.call('DEL', unpack(KEYS, i, math.min(i + 499, #KEYS)))
+            end
+            if ARGV[2] ~= '' then
+                redis.call('PUBLISH', ARGV[1], ARGV[2])
+            end
+            return deleted
+            """, Long.class);
+
+    private final NearCacheProperties properties;
+    private final NearCache nearCache;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final MeterRegistry meterRegistry;
+
+    private record Entry(String cacheName, String redisKey) {}
+
+    /**
+     * Xóa mọi entry thuộc tag "{tag}:{value}" với từng value, ở mọi cache khai báo tag đó
+     * (VD: evictTag("account", ids) xóa account, balance, cards, categories của các tài khoản)
+     */
+    public void evictTag(String tag, Collection<String> values) {
+        List<Entry> entries = new ArrayList<>();
+        properties.getSpecs().forEach((cacheName, spec) -> {
+            if (spec.getTags().contains(tag)) {
+                values.forEach(value -> entries.add(new Entry(cacheName, spec.keyPrefixFor(cacheName) + value)));
+            }
+        });
+        afterCommit(() -> invalidate(entries));
+    }
+
+    /**
+     * Xóa các key của một cache (VD: balance của mọi tài khoản vừa hết hạn giao dịch)
+     */
+    public void evict(String cacheName, Collection<?> keys) {
+        String prefix = properties.spec(cacheName).keyPrefixFor(cacheName);
+        List<Entry> entries = keys.stream().map(key -> new Entry(cacheName, prefix + key)).toList();
+        afterCommit(() -> invalidate(entries));
+    }
+
+    private void invalidate(List<Entry> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        // L1 của instance này trước, như NearCache.evict
+        entries.forEach(entry -> nearCache.evictLocal(entry.cacheName(), entry.redisKey()));
+        String message = properties.isEnabled()
+                ? entries.stream().map(e -> NearCache.message(e.cacheName(), e.redisKey())).collect(Collectors.joining("\n"))
+                : "";
+        try {
+            stringRedisTemplate.execute(INVALIDATE_SCRIPT, entries.stream().map(Entry::redisKey).toList(),
+                    properties.getChannel(), message);
+        } catch (DataAccessException e) {
+            log.warn("Cannot invalidate {} cache entries: {}", entries.size(), e.getMessage());
+        }
+        Map<String, Long> perCache = entries.stream().collect(Collectors.groupingBy(Entry::cacheName, Collectors.counting()));
+        perCache.forEach((cacheName, count) ->
+                meterRegistry.counter("cache.tiered.evictions", "cache", cacheName).increment(count));
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
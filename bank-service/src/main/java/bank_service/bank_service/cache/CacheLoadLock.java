@@ -0,0 +1,67 @@
+package bank_service.bank_service.cache;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Khóa ngắn trên Redis cho lần load khi miss (cache:load-lock:{key Redis của entry}): chỉ một instance chạy method
+ * (đọc DB) cho một key, các instance khác chờ giá trị xuất hiện trên L2. Khóa có TTL nên instance chết giữa chừng
+ * chỉ giữ khóa tối đa TTL đó.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CacheLoadLock {
+
+    static final String KEY_PREFIX = "cache:load-lock:";
+
+    // Token trả về khi không dùng khóa (tắt, hoặc Redis lỗi thì L2 cũng không đọc được nên chờ vô ích)
+    static final String UNLOCKED = "";
+
+    // Chỉ xóa khóa của chính mình (khóa đã hết hạn và instance khác đang giữ thì bỏ qua)
+    private static final DefaultRedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('GET', KEYS[1]) == ARGV[1] then
+                return redis.call('DEL', KEYS[1])
+            end
+            return 0
+            """, Long.class);
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * Token nếu lấy được khóa (hoặc UNLOCKED khi load không cần khóa), null nếu instance khác đang load key này
+     */
+    public String tryAcquire(String key, Duration ttl) {
+        if (ttl.isZero()) {
+            return UNLOCKED;
+        }
+        String token = UUID.randomUUID().toString();
+        try {
+            return Boolean.TRUE.equals(stringRedisTemplate.opsForValue().setIfAbsent(KEY_PREFIX + key, token, ttl))
+                    ? token : null;
+        } catch (DataAccessException e) {
+            log.warn("Cannot acquire cache load lock {}: {}", key, e.getMessage());
+            return UNLOCKED;
+        }
+    }
+
+    public void release(String key, String token) {
+        if (UNLOCKED.equals(token)) {
+            return;
+        }
+        try {
+            stringRedisTemplate.execute(RELEASE_SCRIPT, List.of(KEY_PREFIX + key), token);
+        } catch (DataAccessException e) {
+            // Khóa tự hết hạn theo TTL
+            log.warn("Cannot release cache load lock {}: {}", key, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package bank_service.bank_service.cache;
+
+import java.time.Duration;
+
+/**
+ * Tầng L2 (Redis) của một cache có tên. Lỗi Redis được xử lý bên trong: đọc lỗi coi như miss,
+ * ghi lỗi thì xóa key để lần đọc sau lấy lại từ DB.
+ */
+public interface CacheStore {
+
+    Object read(String key);
+
+    /**
+     * Như read() kèm thời gian sống còn lại của key, trong cùng một round trip (dùng cho làm mới sớm); null nếu miss
+     */
+    Entry readEntry(String key);
+
+    void write(String key, Object value, Duration ttl);
+
+    void delete(String key);
+
+    /**
+     * Xóa mọi key bắt đầu bằng prefix (dùng cho clear()); prefix của các cache không được lồng nhau
+     */
+    void deleteByPrefix(String prefix);
+
+    /**
+     * @param ttlMillis thời gian sống còn lại (ms), âm nếu key không có TTL
+     */
+    record Entry(Object value, long ttlMillis) {}
+}
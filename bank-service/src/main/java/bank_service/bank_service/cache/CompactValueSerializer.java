@@ -0,0 +1,125 @@
+package bank_service.bank_service.cache;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import com.fasterxml.jackson.dataformat.smile.SmileParser;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Exception;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Serializer cho giá trị cache có kiểu cố định (VD: Balance, List&lt;Card&gt;): Smile (JSON nhị phân),
+ * không ghi tên class vào dữ liệu; kiểu đọc ra do cache quyết định. Accessor được sinh bằng Blackbird thay vì reflection.
+ *
+ * Định dạng: 1 byte đầu cho biết cách lưu
+ *   0: phần còn lại là Smile
+ *   1: 4 byte độ dài gốc + Smile nén LZ4 (chỉ khi giá trị lớn hơn ngưỡng và nén thực sự nhỏ hơn)
+ * Byte đầu khác (VD: dữ liệu JSON cũ) -> SerializationException, store coi như miss.
+ * Byte 2 dành cho marker negative cache của RedisValueStore (không đi qua serializer).
+ */
+public class CompactValueSerializer<T> implements RedisSerializer<T> {
+
+    public static final ObjectMapper MAPPER = SmileMapper.builder()
+            .addModule(new JavaTimeModule())
+            .addModule(new BlackbirdModule())
+            // Thêm field mới vào entity không làm hỏng cache đang có
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+            .disable(SmileGenerator.Feature.WRITE_HEADER)
+            .disable(SmileParser.Feature.REQUIRE_HEADER)
+            .build();
+
+    private static final byte PLAIN = 0;
+    private static final byte LZ4 = 1;
+    private static final LZ4Compressor COMPRESSOR = LZ4Factory.fastestInstance().fastCompressor();
+    private static final LZ4FastDecompressor DECOMPRESSOR = LZ4Factory.fastestInstance().fastDecompressor();
+
+    private final ObjectWriter writer;
+    private final ObjectReader reader;
+    private final int compressAbove;
+
+    /**
+     * @param compressAbove nén LZ4 khi dữ liệu lớn hơn số byte này; 0 để tắt
+     */
+    public CompactValueSerializer(JavaType type, int compressAbove) {
+        this.writer = MAPPER.writerFor(type);
+        this.reader = MAPPER.readerFor(type);
+        this.compressAbove = compressAbove;
+    }
+
+    public static <T> CompactValueSerializer<T> of(Class<T> type, int compressAbove) {
+        return new CompactValueSerializer<>(MAPPER.constructType(type), compressAbove);
+    }
+
+    public static <T> CompactValueSerializer<List<T>> listOf(Class<T> elementType, int compressAbove) {
+        return new CompactValueSerializer<>(
+                MAPPER.getTypeFactory().constructCollectionType(List.class, elementType), compressAbove);
+    }
+
+    @Override
+    public byte[] serialize(T value) {
+        if (value == null) {
+            return null;
+        }
+        byte[] body;
+        try {
+            body = writer.writeValueAsBytes(value);
+        } catch (IOException e) {
+            throw new SerializationException("Cannot serialize " + value.getClass().getSimpleName(), e);
+        }
+        if (compressAbove > 0 && body.length > compressAbove) {
+            byte[] compressed = compress(body);
+            if (compressed.length < body.length + 1) {
+                return compressed;
+            }
+        }
+        byte[] out = new byte[body.length + 1];
+        out[0] = PLAIN;
+        System.arraycopy(body, 0, out, 1, body.length);
+        return out;
+    }
+
+    private static byte[] compress(byte[] body) {
+        int headerLength = 1 + Integer.BYTES;
+        byte[] out = new byte[headerLength + COMPRESSOR.maxCompressedLength(body.length)];
+        out[0] = LZ4;
+        ByteBuffer.wrap(out, 1, Integer.BYTES).putInt(body.length);
+        int length = COMPRESSOR.compress(body, 0, body.length, out, headerLength);
+        return Arrays.copyOf(out, headerLength + length);
+    }
+
+    @Override
+    public T deserialize(byte[] bytes) {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        try {
+            return switch (bytes[0]) {
+                case PLAIN -> reader.readValue(bytes, 1, bytes.length - 1);
+                case LZ4 -> {
+                    int length = ByteBuffer.wrap(bytes, 1, Integer.BYTES).getInt();
+                    byte[] body = new byte[length];
+                    DECOMPRESSOR.decompress(bytes, 1 + Integer.BYTES, body, 0, length);
+                    yield reader.readValue(body);
+                }
+                default -> throw new SerializationException("Unknown cache value format: " + bytes[0]);
+            };
+        } catch (IOException | LZ4Exception e) {
+            throw new SerializationException("Cannot deserialize cache value", e);
+        }
+    }
+}
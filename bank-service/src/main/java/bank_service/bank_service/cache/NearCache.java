@@ -0,0 +1,141 @@
+package bank_service.bank_service.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.support.NullValue;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Cache hai tầng: L1 Caffeine nhỏ, có giới hạn trong từng instance, đứng trước Redis (L2).
+ *
+ * Đọc: L1 -> loader (thường là Redis, rồi DB). Ghi: service ghi Redis/DB như cũ rồi gọi evict(),
+ * L1 của instance hiện tại bị xóa ngay và thông báo được phát qua Redis pub/sub để các instance khác cùng xóa.
+ * Mỗi vùng cache có bộ đếm invalidation: nếu có evict trong lúc đang load thì kết quả load không được đưa vào L1,
+ * tránh giữ lại giá trị cũ đọc từ L2 trước khi bản ghi mới được ghi. Nếu mất thông báo (Redis mất kết nối)
+ * thì TTL của L1 là giới hạn thời gian dữ liệu cũ.
+ *
+ * Negative entry (NullValue) hết hạn sau negative-ttl nếu ngắn hơn ttl của vùng.
+ *
+ * Giá trị trong L1 được dùng chung giữa các request, người gọi không được sửa đối tượng trả về.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class NearCache implements MessageListener {
+
+    private static final char SEPARATOR = '|';
+    private static final String ALL_KEYS = "*";
+
+    private final NearCacheProperties properties;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final MeterRegistry meterRegistry;
+
+    private record Region(Cache<String, Object> entries, AtomicLong invalidations) {}
+
+    private final Map<String, Region> regions = new ConcurrentHashMap<>();
+
+    @SuppressWarnings("unchecked")
+    public <T> T get(String cacheName, String key, Supplier<T> loader) {
+        if (!properties.isEnabled()) {
+            return loader.get();
+        }
+        Region region = region(cacheName);
+        Object cached = region.entries().getIfPresent(key);
+        if (cached != null) {
+            return (T) cached;
+        }
+        long generation = region.invalidations().get();
+        T value = loader.get();
+        if (value != null && region.invalidations().get() == generation) {
+            region.entries().put(key, value);
+        }
+        return value;
+    }
+
+    /**
+     * Xóa key khỏi L1 của instance này và phát thông báo cho các instance khác
+     */
+    public void evict(String cacheName, String key) {
+        evictLocal(cacheName, key);
+        publish(message(cacheName, key));
+    }
+
+    public void clear(String cacheName) {
+        evict(cacheName, ALL_KEYS);
+    }
+
+    /**
+     * Nội dung thông báo xóa một key; nhiều key được gửi trong một thông báo, mỗi dòng một key (CacheInvalidator)
+     */
+    static String message(String cacheName, String key) {
+        return cacheName + SEPARATOR + key;
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        for (String line : body.split("\n")) {
+            int separator = line.indexOf(SEPARATOR);
+            if (separator > 0) {
+                evictLocal(line.substring(0, separator), line.substring(separator + 1));
+            }
+        }
+    }
+
+    void evictLocal(String cacheName, String key) {
+        Region region = regions.get(cacheName);
+        if (region == null) {
+            return;
+        }
+        // Tăng bộ đếm trước khi xóa để lần load đang chạy không ghi lại giá trị cũ
+        region.invalidations().incrementAndGet();
+        if (ALL_KEYS.equals(key)) {
+            region.entries().invalidateAll();
+        } else {
+            region.entries().invalidate(key);
+        }
+    }
+
+    private void publish(String message) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        try {
+            stringRedisTemplate.convertAndSend(properties.getChannel(), message);
+        } catch (DataAccessException e) {
+            log.warn("Cannot publish near-cache invalidation {}: {}", message, e.getMessage());
+        }
+    }
+
+    private Region region(String cacheName) {
+        return regions.computeIfAbsent(cacheName, name -> {
+            NearCacheProperties.Spec spec = properties.spec(name);
+            Duration negativeTtl = spec.getNegativeTtl().isZero() || spec.getNegativeTtl().compareTo(spec.getTtl()) > 0
+                    ? spec.getTtl() : spec.getNegativeTtl();
+            Cache<String, Object> entries = Caffeine.newBuilder()
+                    .maximumSize(spec.getMaxSize())
+                    .expireAfter(Expiry.<String, Object>writing((key, value) ->
+                            value == NullValue.INSTANCE ? negativeTtl : spec.getTtl()))
+                    .recordStats()
+                    .build();
+            CaffeineCacheMetrics.monitor(meterRegistry, entries, name, "tier", "l1");
+            return new Region(entries, new AtomicLong());
+        });
+    }
+}
@@ -0,0 +1,58 @@
+package bank_service.bank_service.cache;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Cấu hình từng cache có tên: cache.near.specs.{tên}
+ *   max-size, ttl: L1 (Caffeine trong từng instance)
+ *   redis-ttl, key-prefix: L2 trên Redis (mặc định key-prefix là "{tên}::")
+ *   compress-above: nén LZ4 giá trị L2 lớn hơn ngưỡng này (0 = không nén)
+ *   load-lock-ttl: khóa Redis khi load lúc miss, cũng là thời gian tối đa instance khác chờ (0 = không khóa)
+ *   early-refresh-beta: hệ số làm mới sớm theo xác suất, lớn hơn thì làm mới sớm hơn (0 = tắt)
+ *   negative-ttl: thời gian giữ kết quả "không tồn tại" (method trả về null/Optional rỗng) ở cả L1 và L2 (0 = không cache)
+ *   tags: entry có key k thuộc tag "{tag}:{k}" (VD: tags: [account] cho cache theo accountId), xem CacheInvalidator
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "cache.near")
+public class NearCacheProperties {
+
+    private boolean enabled = true;
+
+    // Kênh Redis pub/sub phát thông báo xóa L1 cho mọi instance
+    private String channel = "cache:invalidate";
+
+    private Spec defaults = new Spec();
+
+    private Map<String, Spec> specs = new HashMap<>();
+
+    @Data
+    public static class Spec {
+        private long maxSize = 1000;
+        private Duration ttl = Duration.ofSeconds(60);
+        private Duration redisTtl = Duration.ofMinutes(10);
+        private String keyPrefix;
+        private DataSize compressAbove = DataSize.ofBytes(0);
+        private Duration loadLockTtl = Duration.ofSeconds(2);
+        private double earlyRefreshBeta = 1.0;
+        private Duration negativeTtl = Duration.ZERO;
+        private Set<String> tags = new HashSet<>();
+
+        public String keyPrefixFor(String cacheName) {
+            return keyPrefix != null ? keyPrefix : cacheName + "::";
+        }
+    }
+
+    public Spec spec(String cacheName) {
+        return specs.getOrDefault(cacheName, defaults);
+    }
+}
@@ -0,0 +1,137 @@
+package bank_service.bank_service.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.support.NullValue;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * L2 mặc định: một key Redis dạng string cho mỗi entry, có TTL.
+ * Giá trị được serialize bằng serializer riêng của cache (VD: CompactValueSerializer theo kiểu của cache).
+ * NullValue (negative cache: key không tồn tại trong DB) được lưu bằng một byte ABSENT, không qua serializer.
+ */
+@Slf4j
+public class RedisValueStore implements CacheStore {
+
+    private static final int SCAN_BATCH = 500;
+
+    // Không trùng dữ liệu của serializer nào: CompactValueSerializer bắt đầu bằng byte 0/1, JSON bằng ký tự in được
+    static final byte[] ABSENT = {2};
+
+    private final RedisTemplate<String, byte[]> redisTemplate;
+    private final RedisSerializer<Object> serializer;
+
+    @SuppressWarnings("unchecked")
+    public RedisValueStore(RedisTemplate<String, byte[]> redisTemplate, RedisSerializer<?> serializer) {
+        this.redisTemplate = redisTemplate;
+        this.serializer = (RedisSerializer<Object>) serializer;
+    }
+
+    @Override
+    public Object read(String key) {
+        byte[] bytes;
+        try {
+            bytes = redisTemplate.opsForValue().get(key);
+        } catch (DataAccessException e) {
+            log.warn("Cannot read cache {}: {}", key, e.getMessage());
+            return null;
+        }
+        return deserialize(key, bytes);
+    }
+
+    @Override
+    public Entry readEntry(String key) {
+        List<Object> replies;
+        try {
+            replies = redisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public <K, V> Object execute(RedisOperations<K, V> operations) {
+                    RedisOperations<String, byte[]> ops = (RedisOperations<String, byte[]>) operations;
+                    ops.opsForValue().get(key);
+                    ops.getExpire(key, TimeUnit.MILLISECONDS);
+                    return null;
+                }
+            });
+        } catch (DataAccessException e) {
+            log.warn("Cannot read cache {}: {}", key, e.getMessage());
+            return null;
+        }
+        return entry(key, (byte[]) replies.get(0), (Long) replies.get(1));
+    }
+
+    Entry entry(String key, byte[] bytes, Long ttlMillis) {
+        Object value = deserialize(key, bytes);
+        return value == null ? null : new Entry(value, ttlMillis != null ? ttlMillis : -1);
+    }
+
+    /**
+     * Dữ liệu không đọc được (VD: định dạng cũ trước khi đổi serializer) -> coi như miss và xóa key
+     */
+    Object deserialize(String key, byte[] bytes) {
+        if (Arrays.equals(bytes, ABSENT)) {
+            return NullValue.INSTANCE;
+        }
+        try {
+            return serializer.deserialize(bytes);
+        } catch (SerializationException e) {
+            log.warn("Dropping unreadable cache value {}: {}", key, e.getMessage());
+            delete(key);
+            return null;
+        }
+    }
+
+    byte[] serialize(Object value) {
+        return value == NullValue.INSTANCE ? ABSENT : serializer.serialize(value);
+    }
+
+    @Override
+    public void write(String key, Object value, Duration ttl) {
+        try {
+            redisTemplate.opsForValue().set(key, serialize(value), ttl);
+        } catch (DataAccessException | SerializationException e) {
+            log.warn("Cannot write cache {}: {}", key, e.getMessage());
+            delete(key);
+        }
+    }
+
+    @Override
+    public void delete(String key) {
+        try {
+            redisTemplate.delete(key);
+        } catch (DataAccessException e) {
+            log.warn("Cannot delete cache {}: {}", key, e.getMessage());
+        }
+    }
+
+    @Override
+    public void deleteByPrefix(String prefix) {
+        List<String> keys = new ArrayList<>();
+        try (Cursor<String> cursor = redisTemplate.scan(ScanOptions.scanOptions().match(prefix + "*").count(SCAN_BATCH).build())) {
+            while (cursor.hasNext()) {
+                keys.add(cursor.next());
+                if (keys.size() == SCAN_BATCH) {
+                    redisTemplate.delete(keys);
+                    keys.clear();
+                }
+            }
+            if (!keys.isEmpty()) {
+                redisTemplate.delete(keys);
+            }
+        } catch (DataAccessException e) {
+            log.warn("Cannot clear cache prefix {}: {}", prefix, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package bank_service.bank_service.cache;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Identity map trong phạm vi một HTTP request: cùng (loại entity, id) chỉ được đọc một lần dù nhiều service cùng hỏi
+ * (VD: duyệt giao dịch rồi BudgetService đọc lại tài khoản; mỗi budget hỏi lại category của nó). Kết quả rỗng cũng được nhớ.
+ *
+ * Khác persistence context của open-in-view: các câu @Modifying(clearAutomatically = true) (trừ/cộng số dư, hold,
+ * compare-and-set trạng thái) xóa sạch persistence context giữa request, còn memo thì giữ nguyên.
+ *
+ * Lưu trong attribute của request hiện tại (RequestContextHolder), nên thread ngoài request (scheduler, JMS, @Async)
+ * không có memo và luôn đọc trực tiếp. Chỉ dùng cho lần đọc để kiểm tra/hiển thị; lần đọc để sửa (khóa dòng,
+ * compare-and-set, sửa rồi save) vẫn đi thẳng DB. Service ghi entity gọi remember/evict để các lần đọc sau trong request
+ * thấy giá trị mới.
+ *
+ * Metric: request.memo.lookups{entity, result=hit|miss}; request.memo.saved: số lần đọc DB thực sự tiết kiệm được
+ * của mỗi request, tức các hit mà findById cũng phải chạy SQL (entity không còn trong persistence context, hoặc kết quả rỗng)
+ */
+@Component
+@RequiredArgsConstructor
+public class RequestMemo {
+
+    private static final String ATTRIBUTE = RequestMemo.class.getName();
+
+    private final MeterRegistry meterRegistry;
+    private final EntityManager entityManager;
+
+    private record Key(Class<?> type, Object id) {}
+
+    // Chỉ thread của request truy cập nên không cần đồng bộ
+    private static final class Entries {
+        private final Map<Key, Optional<?>> values = new HashMap<>();
+        private int saved;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> Optional<T> find(Class<T> type, Object id, Supplier<Optional<T>> loader) {
+        Entries entries = entries();
+        if (entries == null) {
+            return loader.get();
+        }
+        Key key = new Key(type, id);
+        Optional<?> cached = entries.values.get(key);
+        if (cached != null) {
+            count(type, "hit");
+            if (cached.isEmpty() || !entityManager.contains(cached.get())) {
+                entries.saved++;
+            }
+            return (Optional<T>) cached;
+        }
+        count(type, "miss");
+        // Loader lỗi thì không nhớ gì, lần sau đọc lại
+        Optional<T> value = loader.get();
+        entries.values.put(key, value);
+        return value;
+    }
+
+    /**
+     * Giá trị vừa ghi (hoặc null nếu vừa xóa) cho các lần đọc sau trong request
+     */
+    public void remember(Class<?> type, Object id, Object value) {
+        Entries entries = entries();
+        if (entries != null) {
+            entries.values.put(new Key(type, id), Optional.ofNullable(value));
+        }
+    }
+
+    /**
+     * Bỏ giá trị đã nhớ khi entity bị đổi không qua đối tượng đang giữ (VD: câu UPDATE hàng loạt)
+     */
+    public void evict(Class<?> type, Object id) {
+        Entries entries = entries();
+        if (entries != null) {
+            entries.values.remove(new Key(type, id));
+        }
+    }
+
+    private Entries entries() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return null;
+        }
+        Entries entries = (Entries) attributes.getAttribute(ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (entries == null) {
+            Entries created = new Entries();
+            attributes.setAttribute(ATTRIBUTE, created, RequestAttributes.SCOPE_REQUEST);
+            // Chạy khi request kết thúc
+            attributes.registerDestructionCallback(ATTRIBUTE, () -> saved().record(created.saved),
+                    RequestAttributes.SCOPE_REQUEST);
+            entries = created;
+        }
+        return entries;
+    }
+
+    private void count(Class<?> type, String result) {
+        meterRegistry.counter("request.memo.lookups", "entity", type.getSimpleName(), "result", result).increment();
+    }
+
+    private DistributionSummary saved() {
+        return DistributionSummary.builder("request.memo.saved")
+                .description("Lookups served from the request memo, per request")
+                .register(meterRegistry);
+    }
+}
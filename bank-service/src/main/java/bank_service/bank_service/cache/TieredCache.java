@@ -0,0 +1,283 @@
+package bank_service.bank_service.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.cache.support.AbstractValueAdaptingCache;
+import org.springframework.cache.support.NullValue;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Cache có tên cho @Cacheable: L1 (NearCache, trong instance) trước L2 (CacheStore trên Redis).
+ * Key Redis = keyPrefix + key của annotation, nên key của từng cache giữ nguyên dạng cũ (VD: account:{id}).
+ *
+ * Với @Cacheable(sync = true), miss chỉ chạy method một lần cho mỗi key:
+ *   - trong instance: các request cùng key chờ future của lần load đang chạy
+ *   - giữa các instance: CacheLoadLock (load-lock-ttl), instance không giữ khóa chờ giá trị xuất hiện trên L2
+ * và entry L2 sắp hết hạn được làm mới sớm theo xác suất (XFetch): lần đọc L2 tính lại nếu
+ * thời gian load trung bình * early-refresh-beta * -ln(random) >= TTL còn lại, nên key nóng được thay trước khi hết hạn
+ * mà không cần hẹn giờ, và thường chỉ một request làm việc đó.
+ *
+ * negative-ttl > 0: method trả về null (Optional rỗng) thì NullValue được cache với TTL ngắn đó, nên key không tồn tại
+ * (VD: accountId ngẫu nhiên) không xuống DB mỗi lần; tạo bản ghi thì service xóa entry (CacheInvalidator.evictTag).
+ *
+ * Metric theo tên cache:
+ *   cache.tiered.gets{cache, tier=l1|l2, result=hit|negative} và {tier=none, result=miss}
+ *   cache.tiered.load{cache}: thời gian chạy method khi miss (chỉ với @Cacheable(sync = true))
+ *   cache.tiered.coalesced{cache, scope=local|remote}: miss không chạy method vì đã có lần load khác
+ *   cache.tiered.early.refreshes{cache}
+ *   cache.tiered.puts{cache}, cache.tiered.evictions{cache}
+ */
+public class TieredCache extends AbstractValueAdaptingCache {
+
+    private static final Duration LOCK_POLL_INTERVAL = Duration.ofMillis(20);
+
+    private final String name;
+    private final String keyPrefix;
+    private final Duration ttl;
+    private final CacheStore store;
+    private final NearCache nearCache;
+    private final CacheLoadLock loadLock;
+    private final Duration loadLockTtl;
+    private final double earlyRefreshBeta;
+    private final Duration negativeTtl;
+
+    // Các lần load đang chạy trong instance, theo key Redis
+    private final Map<String, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    // Trung bình trượt thời gian load (ns), 0 khi chưa load lần nào
+    private volatile long loadNanos;
+
+    private final Counter l1Hits;
+    private final Counter l2Hits;
+    private final Counter l1NegativeHits;
+    private final Counter l2NegativeHits;
+    private final Counter misses;
+    private final Counter puts;
+    private final Counter evictions;
+    private final Counter localCoalesced;
+    private final Counter remoteCoalesced;
+    private final Counter earlyRefreshes;
+    private final Timer loadTimer;
+
+    public TieredCache(String name, NearCacheProperties.Spec spec, CacheStore store,
+                       NearCache nearCache, CacheLoadLock loadLock, MeterRegistry meterRegistry) {
+        // NullValue là negative entry: get(key) trả về wrapper chứa null (có cache, không tồn tại)
+        super(true);
+        this.name = name;
+        this.keyPrefix = spec.keyPrefixFor(name);
+        this.ttl = spec.getRedisTtl();
+        this.store = store;
+        this.nearCache = nearCache;
+        this.loadLock = loadLock;
+        this.loadLockTtl = spec.getLoadLockTtl();
+        this.earlyRefreshBeta = spec.getEarlyRefreshBeta();
+        this.negativeTtl = spec.getNegativeTtl();
+        this.l1Hits = gets(meterRegistry, "l1", "hit");
+        this.l2Hits = gets(meterRegistry, "l2", "hit");
+        this.l1NegativeHits = gets(meterRegistry, "l1", "negative");
+        this.l2NegativeHits = gets(meterRegistry, "l2", "negative");
+        this.misses = gets(meterRegistry, "none", "miss");
+        this.puts = meterRegistry.counter("cache.tiered.puts", "cache", name);
+        this.evictions = meterRegistry.counter("cache.tiered.evictions", "cache", name);
+        this.localCoalesced = meterRegistry.counter("cache.tiered.coalesced", "cache", name, "scope", "local");
+        this.remoteCoalesced = meterRegistry.counter("cache.tiered.coalesced", "cache", name, "scope", "remote");
+        this.earlyRefreshes = meterRegistry.counter("cache.tiered.early.refreshes", "cache", name);
+        this.loadTimer = Timer.builder("cache.tiered.load").tag("cache", name).register(meterRegistry);
+    }
+
+    private Counter gets(MeterRegistry meterRegistry, String tier, String result) {
+        return Counter.builder("cache.tiered.gets")
+                .tag("cache", name)
+                .tag("tier", tier)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return store;
+    }
+
+    @Override
+    protected Object lookup(Object key) {
+        return read(redisKey(key), false).value();
+    }
+
+    // refresh = true: giá trị đọc từ L2 sắp hết hạn và lần đọc này được chọn để làm mới sớm
+    private record Lookup(Object value, boolean refresh) {}
+
+    private Lookup read(String redisKey, boolean allowEarlyRefresh) {
+        CacheStore.Entry[] l2Entry = {null};
+        boolean[] loadedFromL2 = {false};
+        Object value = nearCache.get(name, redisKey, () -> {
+            loadedFromL2[0] = true;
+            l2Entry[0] = store.readEntry(redisKey);
+            return l2Entry[0] != null ? l2Entry[0].value() : null;
+        });
+        if (value == null) {
+            misses.increment();
+            return new Lookup(null, false);
+        }
+        boolean negative = value == NullValue.INSTANCE;
+        if (!loadedFromL2[0]) {
+            (negative ? l1NegativeHits : l1Hits).increment();
+            return new Lookup(value, false);
+        }
+        (negative ? l2NegativeHits : l2Hits).increment();
+        // Negative entry hết hạn nhanh, không làm mới sớm
+        boolean refresh = !negative && allowEarlyRefresh && shouldRefreshEarly(l2Entry[0].ttlMillis());
+        if (refresh) {
+            earlyRefreshes.increment();
+        }
+        return new Lookup(value, refresh);
+    }
+
+    boolean shouldRefreshEarly(long ttlMillis) {
+        long delta = loadNanos;
+        if (earlyRefreshBeta <= 0 || ttlMillis < 0 || delta == 0) {
+            return false;
+        }
+        double gapMillis = delta / 1_000_000.0 * earlyRefreshBeta * -Math.log(1 - ThreadLocalRandom.current().nextDouble());
+        return gapMillis >= ttlMillis;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        String redisKey = redisKey(key);
+        Lookup cached = read(redisKey, true);
+        if (cached.value() != null && !cached.refresh()) {
+            return (T) fromStoreValue(cached.value());
+        }
+        CompletableFuture<Object> flight = new CompletableFuture<>();
+        CompletableFuture<Object> running = inFlight.putIfAbsent(redisKey, flight);
+        if (running != null) {
+            localCoalesced.increment();
+            return (T) await(running, key, valueLoader);
+        }
+        try {
+            Object value = load(key, redisKey, valueLoader, cached.value());
+            flight.complete(value);
+            return (T) value;
+        } catch (RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(redisKey, flight);
+        }
+    }
+
+    private Object await(CompletableFuture<Object> running, Object key, Callable<?> valueLoader) {
+        try {
+            return running.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ValueRetrievalException(key, valueLoader, e);
+        } catch (ExecutionException e) {
+            // Lần load kia lỗi: người chờ nhận cùng lỗi (thường đã là ValueRetrievalException)
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new ValueRetrievalException(key, valueLoader, e.getCause());
+        }
+    }
+
+    /**
+     * Load khi miss hoặc làm mới sớm (current là giá trị đang cache). Instance khác đang giữ khóa thì:
+     * làm mới sớm -> dùng giá trị hiện có; miss -> chờ giá trị trên L2, hết TTL của khóa thì tự load.
+     */
+    private Object load(Object key, String redisKey, Callable<?> valueLoader, Object current) {
+        long deadline = System.nanoTime() + loadLockTtl.toNanos();
+        String token;
+        while ((token = loadLock.tryAcquire(redisKey, loadLockTtl)) == null) {
+            if (current != null) {
+                remoteCoalesced.increment();
+                return current;
+            }
+            if (System.nanoTime() - deadline > 0) {
+                break;
+            }
+            try {
+                Thread.sleep(LOCK_POLL_INTERVAL);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ValueRetrievalException(key, valueLoader, e);
+            }
+            Object loaded = store.read(redisKey);
+            if (loaded != null) {
+                remoteCoalesced.increment();
+                return fromStoreValue(loaded);
+            }
+        }
+        try {
+            return loadAndPut(key, valueLoader);
+        } finally {
+            if (token != null) {
+                loadLock.release(redisKey, token);
+            }
+        }
+    }
+
+    private Object loadAndPut(Object key, Callable<?> valueLoader) {
+        Object value;
+        Timer.Sample sample = Timer.start();
+        try {
+            value = valueLoader.call();
+        } catch (Exception e) {
+            throw new ValueRetrievalException(key, valueLoader, e);
+        } finally {
+            long elapsed = sample.stop(loadTimer);
+            long previous = loadNanos;
+            loadNanos = previous == 0 ? elapsed : (previous * 7 + elapsed) / 8;
+        }
+        put(key, value);
+        return value;
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        if (value == null || value == NullValue.INSTANCE) {
+            if (negativeTtl.isZero()) {
+                // Không cache null (VD: Optional rỗng); xóa bản cũ nếu có
+                evict(key);
+                return;
+            }
+            value = NullValue.INSTANCE;
+        }
+        String redisKey = redisKey(key);
+        store.write(redisKey, value, value == NullValue.INSTANCE ? negativeTtl : ttl);
+        nearCache.evict(name, redisKey);
+        puts.increment();
+    }
+
+    @Override
+    public void evict(Object key) {
+        String redisKey = redisKey(key);
+        store.delete(redisKey);
+        nearCache.evict(name, redisKey);
+        evictions.increment();
+    }
+
+    @Override
+    public void clear() {
+        store.deleteByPrefix(keyPrefix);
+        nearCache.clear(name);
+        evictions.increment();
+    }
+
+    String redisKey(Object key) {
+        return keyPrefix + key;
+    }
+}
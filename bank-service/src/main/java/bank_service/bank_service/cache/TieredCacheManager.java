@@ -0,0 +1,56 @@
+package bank_service.bank_service.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.cache.Cache;
+import org.springframework.cache.transaction.AbstractTransactionSupportingCacheManager;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Tạo TieredCache theo cấu hình cache.near.specs; cache không khai báo dùng cache.near.defaults.
+ * Mặc định transaction-aware: put/evict trong transaction chỉ chạy sau commit.
+ */
+public class TieredCacheManager extends AbstractTransactionSupportingCacheManager {
+
+    private final NearCacheProperties properties;
+    private final NearCache nearCache;
+    private final CacheStore defaultStore;
+    private final CacheLoadLock loadLock;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, CacheStore> stores = new HashMap<>();
+
+    public TieredCacheManager(NearCacheProperties properties, NearCache nearCache,
+                              CacheStore defaultStore, CacheLoadLock loadLock, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.nearCache = nearCache;
+        this.defaultStore = defaultStore;
+        this.loadLock = loadLock;
+        this.meterRegistry = meterRegistry;
+        setTransactionAware(true);
+    }
+
+    /**
+     * Dùng L2 riêng cho một cache (VD: VersionedHashStore cho balance)
+     */
+    public TieredCacheManager withStore(String cacheName, CacheStore store) {
+        stores.put(cacheName, store);
+        return this;
+    }
+
+    @Override
+    protected Collection<? extends Cache> loadCaches() {
+        return properties.getSpecs().keySet().stream().map(this::createCache).toList();
+    }
+
+    @Override
+    protected Cache getMissingCache(String name) {
+        return createCache(name);
+    }
+
+    private Cache createCache(String name) {
+        return new TieredCache(name, properties.spec(name), stores.getOrDefault(name, defaultStore),
+                nearCache, loadLock, meterRegistry);
+    }
+}
@@ -0,0 +1,124 @@
+package bank_service.bank_service.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.support.NullValue;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.serializer.GenericToStringSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongFunction;
+
+/**
+ * L2 cho entity có version (@Version): hash {key} gồm v (version) và d (giá trị đã serialize).
+ * Mọi lần ghi đi qua script compare-and-set, chỉ thay khi version mới hơn bản đang cache,
+ * nên hai giao dịch hoàn tất theo thứ tự bất kỳ cũng không để lại giá trị cũ trên cache.
+ * Negative entry (NullValue) có version -1: bản ghi thật đầu tiên luôn thay được nó.
+ */
+@Slf4j
+public class VersionedHashStore implements CacheStore {
+
+    private static final String DATA_FIELD = "d";
+
+    private static final long ABSENT_VERSION = -1;
+
+    // Trả về 1 nếu đã ghi, 0 nếu cache đang giữ version mới hơn hoặc bằng.
+    // Key định dạng cũ (string) bị xóa rồi ghi lại dạng hash. TYPE là status reply ({ok = 'hash'}) trên Redis,
+    // nhưng là chuỗi thường trên một số server tương thích (VD: jedis-mock của load test)
+    private static final DefaultRedisScript<Long> CAS_WRITE_SCRIPT = new DefaultRedisScript<>("""
+            local keyType = redis.call('TYPE', KEYS[1])
+            if type(keyType) == 'table' then keyType = keyType.ok end
+            if keyType ~= 'hash' then
+                redis.call('DEL', KEYS[1])
+            end
+            local current = redis.call('HGET', KEYS[1], 'v')
+            if current and tonumber(current) >= tonumber(ARGV[1]) then
+                return 0
+            end
+            redis.call('HSET', KEYS[1], 'v', ARGV[1], 'd', ARGV[2])
+            redis.call('PEXPIRE', KEYS[1], ARGV[3])
+            return 1
+            """, Long.class);
+
+    private final RedisTemplate<String, byte[]> redisTemplate;
+    private final ToLongFunction<Object> versionOf;
+    private final RedisValueStore plain;
+
+    public VersionedHashStore(RedisTemplate<String, byte[]> redisTemplate, RedisSerializer<?> serializer,
+                              ToLongFunction<Object> versionOf) {
+        this.redisTemplate = redisTemplate;
+        this.versionOf = versionOf;
+        this.plain = new RedisValueStore(redisTemplate, serializer);
+    }
+
+    @Override
+    public Object read(String key) {
+        Object bytes;
+        try {
+            bytes = redisTemplate.opsForHash().get(key, DATA_FIELD);
+        } catch (DataAccessException e) {
+            // VD: key cũ dạng string từ phiên bản trước (WRONGTYPE) -> coi như miss, không xóa ở đây:
+            // lần ghi sau (CAS_WRITE_SCRIPT) thấy key không phải hash thì xóa rồi ghi lại dạng hash
+            log.warn("Cannot read versioned cache {}: {}", key, e.getMessage());
+            return null;
+        }
+        // Trường d không giải mã được (serializer cũ) -> miss và xóa key, như RedisValueStore
+        return plain.deserialize(key, (byte[]) bytes);
+    }
+
+    @Override
+    public Entry readEntry(String key) {
+        List<Object> replies;
+        try {
+            replies = redisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public <K, V> Object execute(RedisOperations<K, V> operations) {
+                    RedisOperations<String, byte[]> ops = (RedisOperations<String, byte[]>) operations;
+                    ops.opsForHash().get(key, DATA_FIELD);
+                    ops.getExpire(key, TimeUnit.MILLISECONDS);
+                    return null;
+                }
+            });
+        } catch (DataAccessException e) {
+            log.warn("Cannot read versioned cache {}: {}", key, e.getMessage());
+            return null;
+        }
+        return plain.entry(key, (byte[]) replies.get(0), (Long) replies.get(1));
+    }
+
+    @Override
+    public void write(String key, Object value, Duration ttl) {
+        try {
+            redisTemplate.execute(CAS_WRITE_SCRIPT,
+                    RedisSerializer.byteArray(),
+                    new GenericToStringSerializer<>(Long.class),
+                    List.of(key),
+                    String.valueOf(value == NullValue.INSTANCE ? ABSENT_VERSION : versionOf.applyAsLong(value)).getBytes(StandardCharsets.UTF_8),
+                    plain.serialize(value),
+                    String.valueOf(ttl.toMillis()).getBytes(StandardCharsets.UTF_8));
+        } catch (DataAccessException | SerializationException e) {
+            // Cache lỗi không làm hỏng giao dịch; xóa key để lần đọc sau lấy từ DB
+            log.warn("Cannot write versioned cache {}: {}", key, e.getMessage());
+            plain.delete(key);
+        }
+    }
+
+    @Override
+    public void delete(String key) {
+        plain.delete(key);
+    }
+
+    @Override
+    public void deleteByPrefix(String prefix) {
+        plain.deleteByPrefix(prefix);
+    }
+}
@@ -0,0 +1,72 @@
+package bank_service.bank_service.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Cấu hình các thread pool bất đồng bộ.
+ * mailExecutor: pool riêng cho việc gửi email OTP để SMTP chậm không chiếm thread request
+ * (EmailService đưa việc vào trực tiếp; hàng đợi đầy thì từ chối, không bao giờ gửi trên thread gọi).
+ * cacheWarmupExecutor: nạp trước cache (CacheWarmupService), pool nhỏ để warm-up không chiếm hết kết nối DB.
+ * Khi bật spring.threads.virtual.enabled, các worker là virtual thread; pool-size vẫn giới hạn số kết nối SMTP đồng thời.
+ * Executor mặc định cho @Async, Tomcat và JMS listener do Spring Boot tự chuyển sang virtual thread.
+ */
+@Configuration
+@EnableAsync
+public class AsyncConfig {
+
+    @Value("${mail.otp.pool-size:4}")
+    private int mailPoolSize;
+
+    @Value("${mail.otp.queue-capacity:500}")
+    private int mailQueueCapacity;
+
+    @Value("${cache.warmup.parallelism:4}")
+    private int warmupPoolSize;
+
+    @Value("${cache.warmup.queue-capacity:1000}")
+    private int warmupQueueCapacity;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    @Bean(name = "mailExecutor")
+    public Executor mailExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(mailPoolSize);
+        executor.setMaxPoolSize(mailPoolSize);
+        executor.setQueueCapacity(mailQueueCapacity);
+        executor.setThreadNamePrefix("smtp-");
+        if (virtualThreads) {
+            executor.setThreadFactory(Thread.ofVirtual().name("smtp-", 0).factory());
+        }
+        // Hàng đợi đầy -> TaskRejectedException, EmailService đếm mail.otp.rejected (không gửi SMTP trên thread request)
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+
+    @Bean(name = "cacheWarmupExecutor")
+    public Executor cacheWarmupExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(warmupPoolSize);
+        executor.setMaxPoolSize(warmupPoolSize);
+        executor.setQueueCapacity(warmupQueueCapacity);
+        executor.setThreadNamePrefix("cache-warmup-");
+        if (virtualThreads) {
+            executor.setThreadFactory(Thread.ofVirtual().name("cache-warmup-", 0).factory());
+        }
+        // Hàng đợi đầy -> TaskRejectedException, CacheWarmupService bỏ qua lần nạp đó (không chặn request đăng nhập)
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.initialize();
+        return executor;
+    }
+}
@@ -0,0 +1,67 @@
+package bank_service.bank_service.config;
+
+import bank_service.bank_service.cache.CacheLoadLock;
+import bank_service.bank_service.cache.CacheStore;
+import bank_service.bank_service.cache.CompactValueSerializer;
+import bank_service.bank_service.cache.NearCache;
+import bank_service.bank_service.cache.NearCacheProperties;
+import bank_service.bank_service.cache.RedisValueStore;
+import bank_service.bank_service.cache.TieredCacheManager;
+import bank_service.bank_service.cache.VersionedHashStore;
+import bank_service.bank_service.model.Account;
+import bank_service.bank_service.model.Balance;
+import bank_service.bank_service.model.Card;
+import bank_service.bank_service.model.Category;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.core.RedisTemplate;
+
+/**
+ * Bật @Cacheable/@CachePut/@CacheEvict với các cache hai tầng (L1 Caffeine + Redis) khai báo trong cache.near.specs.
+ * Mỗi cache có kiểu giá trị cố định nên L2 dùng CompactValueSerializer theo kiểu đó (Smile, không ghi tên class).
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    public static final String ACCOUNT_CACHE = "account";
+    public static final String BALANCE_CACHE = "balance";
+    public static final String CARDS_CACHE = "cards";
+    public static final String CATEGORIES_CACHE = "categories";
+
+    // Tag của các cache có key là accountId (cache.near.specs.*.tags), dùng với CacheInvalidator.evictTag
+    public static final String ACCOUNT_TAG = "account";
+
+    @Bean
+    public CacheManager cacheManager(NearCacheProperties properties, NearCache nearCache, CacheLoadLock loadLock,
+                                     RedisTemplate<String, byte[]> binaryRedisTemplate, MeterRegistry meterRegistry) {
+        StoreFactory stores = new StoreFactory(properties, binaryRedisTemplate);
+        return new TieredCacheManager(properties, nearCache,
+                new RedisValueStore(binaryRedisTemplate, RedisConfig.jsonValueSerializer()), loadLock, meterRegistry)
+                .withStore(ACCOUNT_CACHE, stores.of(ACCOUNT_CACHE, Account.class))
+                .withStore(CARDS_CACHE, stores.listOf(CARDS_CACHE, Card.class))
+                .withStore(CATEGORIES_CACHE, stores.listOf(CATEGORIES_CACHE, Category.class))
+                // Balance được ghi cache sau mỗi giao dịch: chỉ nhận bản có version mới hơn
+                .withStore(BALANCE_CACHE, new VersionedHashStore(binaryRedisTemplate,
+                        CompactValueSerializer.of(Balance.class, stores.compressAbove(BALANCE_CACHE)),
+                        value -> ((Balance) value).getVersion()));
+    }
+
+    private record StoreFactory(NearCacheProperties properties, RedisTemplate<String, byte[]> redisTemplate) {
+
+        CacheStore of(String cacheName, Class<?> type) {
+            return new RedisValueStore(redisTemplate, CompactValueSerializer.of(type, compressAbove(cacheName)));
+        }
+
+        CacheStore listOf(String cacheName, Class<?> elementType) {
+            return new RedisValueStore(redisTemplate, CompactValueSerializer.listOf(elementType, compressAbove(cacheName)));
+        }
+
+        int compressAbove(String cacheName) {
+            return (int) properties.spec(cacheName).getCompressAbove().toBytes();
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package bank_service.bank_service.config;
 
+import bank_service.bank_service.cache.NearCache;
+import bank_service.bank_service.cache.NearCacheProperties;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.databind.jsontype.impl.LaissezFaireSubTypeValidator;
@@ -10,7 +12,10 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
 @Configuration
@@ -21,6 +26,21 @@ public class RedisConfig {
         RedisTemplate<String, Object> template = new RedisTemplate<>();
         template.setConnectionFactory(connectionFactory);
 
+        GenericJackson2JsonRedisSerializer serializer = jsonValueSerializer();
+
+        // Cấu hình key / value
+        template.setKeySerializer(new StringRedisSerializer());
+        template.setValueSerializer(serializer);
+        template.setHashKeySerializer(new StringRedisSerializer());
+        template.setHashValueSerializer(serializer);
+
+        template.afterPropertiesSet();
+        return template;
+    }
+    /**
+     * JSON kèm tên class (default typing): dùng cho giá trị không cố định kiểu, VD: cache không khai báo trong CacheConfig
+     */
+    public static GenericJackson2JsonRedisSerializer jsonValueSerializer() {
         // Tạo ObjectMapper cho Redis
         ObjectMapper mapper = new ObjectMapper();
         mapper.registerModule(new JavaTimeModule());
@@ -31,22 +51,37 @@ public class RedisConfig {
         );
 
         // Serializer mới (không deprecated)
-        GenericJackson2JsonRedisSerializer serializer =
-                new GenericJackson2JsonRedisSerializer(mapper);
+        return new GenericJackson2JsonRedisSerializer(mapper);
+    }
 
-        // Cấu hình key / value
+    // Giá trị dạng byte[] đã được serialize sẵn theo kiểu của từng cache (CacheConfig)
+    @Bean
+    public RedisTemplate<String, byte[]> binaryRedisTemplate(RedisConnectionFactory connectionFactory) {
+        RedisTemplate<String, byte[]> template = new RedisTemplate<>();
+        template.setConnectionFactory(connectionFactory);
         template.setKeySerializer(new StringRedisSerializer());
-        template.setValueSerializer(serializer);
+        template.setValueSerializer(RedisSerializer.byteArray());
         template.setHashKeySerializer(new StringRedisSerializer());
-        template.setHashValueSerializer(serializer);
-
+        template.setHashValueSerializer(RedisSerializer.byteArray());
         template.afterPropertiesSet();
         return template;
     }
+
     @Bean
     public StringRedisTemplate stringRedisTemplate(RedisConnectionFactory cf) {
         return new StringRedisTemplate(cf); // StringRedisSerializer cho cả key & value
     }
+
+    // Nhận thông báo xóa L1 từ các instance khác (NearCache)
+    @Bean
+    public RedisMessageListenerContainer nearCacheListenerContainer(RedisConnectionFactory cf,
+                                                                    NearCache nearCache,
+                                                                    NearCacheProperties properties) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(cf);
+        container.addMessageListener(nearCache, new ChannelTopic(properties.getChannel()));
+        return container;
+    }
 //
 //    @Bean
 //    public RedisTemplate<String, Balance> balanceRedisTemplate() {
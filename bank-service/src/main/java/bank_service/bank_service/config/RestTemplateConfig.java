@@ -1,14 +1,26 @@
 package bank_service.bank_service.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 
 @Configuration
 public class RestTemplateConfig {
 
+    // Có timeout để payment-service chậm không giữ request (nhất là virtual thread) vô thời hạn
+    @Value("${payment.service.connect-timeout-ms:2000}")
+    private int connectTimeoutMs;
+
+    @Value("${payment.service.read-timeout-ms:10000}")
+    private int readTimeoutMs;
+
     @Bean
     public RestTemplate restTemplate() {
-        return new RestTemplate();
+        SimpleClientHttpRequestFactory factory = new SimpleClientHttpRequestFactory();
+        factory.setConnectTimeout(connectTimeoutMs);
+        factory.setReadTimeout(readTimeoutMs);
+        return new RestTemplate(factory);
     }
 }
@@ -1,16 +1,20 @@
 package bank_service.bank_service.controller;
 
+import bank_service.bank_service.dto.AccountSummaryDTO;
 import bank_service.bank_service.exception.AppException;
 import bank_service.bank_service.model.Account;
+import bank_service.bank_service.model.Role;
 import bank_service.bank_service.service.AccountService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.web.PageableDefault;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.List;
 import java.util.Optional;
 
 @RestController
@@ -41,10 +45,14 @@ public class AccountController {
         return account.map(ResponseEntity::ok)
                 .orElseGet(() -> ResponseEntity.notFound().build());
     }
+    // Danh sách tài khoản cho admin, sắp theo tên: ?role=USER&q=nguyen&page=0&size=20
     @GetMapping
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<List<Account>> getAllAccounts() {
-        return ResponseEntity.ok(accountService.getAllAccounts());
+    public ResponseEntity<Page<AccountSummaryDTO>> getAllAccounts(
+            @RequestParam(required = false) Role role,
+            @RequestParam(required = false) String q,
+            @PageableDefault(size = 20) Pageable pageable) {
+        return ResponseEntity.ok(accountService.listAccounts(role, q, pageable));
     }
 
     @PutMapping("/{id}")
@@ -0,0 +1,52 @@
+package bank_service.bank_service.controller;
+
+import bank_service.bank_service.model.AutoApprovalRule;
+import bank_service.bank_service.service.AutoApprovalService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * Quản lý rule tự động duyệt giao dịch (chỉ ADMIN).
+ * Mọi thay đổi được biên dịch lại ngay, không cần khởi động lại service.
+ */
+@RestController
+@RequestMapping("/api/admin/auto-approval-rules")
+@PreAuthorize("hasRole('ADMIN')")
+@RequiredArgsConstructor
+public class AutoApprovalRuleController {
+
+    private final AutoApprovalService autoApprovalService;
+
+    @GetMapping
+    public ResponseEntity<List<AutoApprovalRule>> getAllRules() {
+        return ResponseEntity.ok(autoApprovalService.getAllRules());
+    }
+
+    @PostMapping
+    public ResponseEntity<AutoApprovalRule> createRule(@RequestBody AutoApprovalRule rule) {
+        return ResponseEntity.status(HttpStatus.CREATED).body(autoApprovalService.createRule(rule));
+    }
+
+    @PutMapping("/{id}")
+    public ResponseEntity<AutoApprovalRule> updateRule(@PathVariable Long id, @RequestBody AutoApprovalRule rule) {
+        return ResponseEntity.ok(autoApprovalService.updateRule(id, rule));
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> deleteRule(@PathVariable Long id) {
+        autoApprovalService.deleteRule(id);
+        return ResponseEntity.noContent().build();
+    }
+
+    // Nạp lại rule từ DB (VD: sau khi sửa trực tiếp trong DB)
+    @PostMapping("/reload")
+    public ResponseEntity<Void> reload() {
+        autoApprovalService.reload();
+        return ResponseEntity.noContent().build();
+    }
+}
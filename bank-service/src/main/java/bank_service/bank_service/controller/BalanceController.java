@@ -1,6 +1,8 @@
 package bank_service.bank_service.controller;
 
 import bank_service.bank_service.model.Balance;
+import bank_service.bank_service.model.BalanceHold;
+import bank_service.bank_service.service.BalanceHoldService;
 import bank_service.bank_service.service.BalanceService;
 import lombok.*;
 
@@ -12,6 +14,7 @@ import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
 
 import java.math.BigDecimal;
+import java.util.List;
 
 @RestController
 @RequestMapping("/api/balances")
@@ -19,6 +22,7 @@ import java.math.BigDecimal;
 public class BalanceController {
 
     private final BalanceService balanceService;
+    private final BalanceHoldService balanceHoldService;
 
     @GetMapping
     public ResponseEntity<Balance> getBalance() {
@@ -29,6 +33,13 @@ public class BalanceController {
                 .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
     }
+
+    // Các giao dịch đang giữ tiền (tạo nên holdBalance)
+    @GetMapping("/holds")
+    public ResponseEntity<List<BalanceHold>> getHolds() {
+        UserDetails userDetails = (UserDetails) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        return ResponseEntity.ok(balanceHoldService.getHolds(userDetails.getUsername()));
+    }
 //
 //    @PutMapping("/deposit/{accountId}")
 //    public ResponseEntity<?> deposit(
@@ -2,6 +2,7 @@ package bank_service.bank_service.controller;
 
 import bank_service.bank_service.dto.report.*;
 import bank_service.bank_service.service.ReportService;
+import bank_service.bank_service.service.TransactionHistoryProjector;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -36,6 +37,9 @@ import java.util.List;
  * 6. GET /api/reports/summary?year={year}
  *    - Tổng hợp báo cáo tài chính
  *    - Params: year (bắt buộc)
+ *
+ * Các API 1, 2, 3, 6 nhận thêm consistent=true để chờ lịch sử giao dịch (ghi bất đồng bộ)
+ * bắt kịp các giao dịch đã commit trên instance này trước khi tính báo cáo; quá thời gian chờ thì trả 503.
  */
 @RestController
 @RequestMapping("/api/reports")
@@ -43,6 +47,7 @@ import java.util.List;
 public class ReportController {
 
     private final ReportService reportService;
+    private final TransactionHistoryProjector transactionHistoryProjector;
 
     /**
      * 1. API Báo cáo thu/chi theo tháng
@@ -59,8 +64,10 @@ public class ReportController {
     public ResponseEntity<List<MonthlyReportDTO>> getMonthlyReport(
             @RequestParam int year,
             @RequestParam(required = false) Integer month,
+            @RequestParam(defaultValue = "false") boolean consistent,
             Authentication authentication
     ) {
+        awaitHistoryIfRequested(consistent);
         String accountId = authentication.getName();
         List<MonthlyReportDTO> report = reportService.getMonthlyReport(accountId, year, month);
         return ResponseEntity.ok(report);
@@ -82,8 +89,10 @@ public class ReportController {
             @RequestParam int year,
             @RequestParam(required = false) Integer month,
             @RequestParam(required = false) String type,
+            @RequestParam(defaultValue = "false") boolean consistent,
             Authentication authentication
     ) {
+        awaitHistoryIfRequested(consistent);
         String accountId = authentication.getName();
         List<CategoryExpenseDTO> report = reportService.getCategoryExpenseReport(accountId, year, month, type);
         return ResponseEntity.ok(report);
@@ -106,8 +115,10 @@ public class ReportController {
     public ResponseEntity<CashFlowDTO> getCashFlowReport(
             @RequestParam int year,
             @RequestParam(required = false) Integer month,
+            @RequestParam(defaultValue = "false") boolean consistent,
             Authentication authentication
     ) {
+        awaitHistoryIfRequested(consistent);
         String accountId = authentication.getName();
         CashFlowDTO report = reportService.getCashFlowReport(accountId, year, month);
         return ResponseEntity.ok(report);
@@ -160,8 +171,10 @@ public class ReportController {
     @GetMapping("/summary")
     public ResponseEntity<FinancialSummaryDTO> getFinancialSummary(
             @RequestParam int year,
+            @RequestParam(defaultValue = "false") boolean consistent,
             Authentication authentication
     ) {
+        awaitHistoryIfRequested(consistent);
         String accountId = authentication.getName();
         FinancialSummaryDTO summary = reportService.getFinancialSummary(accountId, year);
         return ResponseEntity.ok(summary);
@@ -226,4 +239,11 @@ public class ReportController {
         FinancialSummaryDTO summary = reportService.getFinancialSummary(accountId, year);
         return ResponseEntity.ok(summary);
     }
+
+    // Chờ trước khi ReportService mở transaction; hết thời gian chờ thì 503 thay vì trả báo cáo thiếu giao dịch
+    private void awaitHistoryIfRequested(boolean consistent) {
+        if (consistent) {
+            transactionHistoryProjector.requireCaughtUp();
+        }
+    }
 }
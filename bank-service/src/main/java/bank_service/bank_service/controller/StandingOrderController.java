@@ -0,0 +1,62 @@
+package bank_service.bank_service.controller;
+
+import bank_service.bank_service.dto.standingorder.StandingOrderRequest;
+import bank_service.bank_service.model.StandingOrder;
+import bank_service.bank_service.service.StandingOrderService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.web.PageableDefault;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * Lệnh chuyển khoản hẹn giờ (ONCE) hoặc định kỳ (DAILY/WEEKLY/MONTHLY) của người dùng hiện tại
+ */
+@RestController
+@RequestMapping("/standing-orders")
+@RequiredArgsConstructor
+public class StandingOrderController {
+
+    private final StandingOrderService standingOrderService;
+
+    @PostMapping
+    public ResponseEntity<StandingOrder> createStandingOrder(
+            @RequestBody StandingOrderRequest request,
+            Authentication authentication
+    ) {
+        StandingOrder order = standingOrderService.createStandingOrder(authentication.getName(), request);
+        return ResponseEntity.status(HttpStatus.CREATED).body(order);
+    }
+
+    @GetMapping
+    public ResponseEntity<Page<StandingOrder>> getMyStandingOrders(
+            @PageableDefault(page = 0, size = 10, sort = "createdAt", direction = Sort.Direction.DESC) Pageable pageable,
+            Authentication authentication
+    ) {
+        return ResponseEntity.ok(standingOrderService.getMyStandingOrders(authentication.getName(), pageable));
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<StandingOrder> getStandingOrder(@PathVariable Long id, Authentication authentication) {
+        return ResponseEntity.ok(standingOrderService.getStandingOrder(id, authentication.getName()));
+    }
+
+    @PostMapping("/{id}/pause")
+    public ResponseEntity<StandingOrder> pauseStandingOrder(@PathVariable Long id, Authentication authentication) {
+        return ResponseEntity.ok(standingOrderService.pauseStandingOrder(id, authentication.getName()));
+    }
+
+    @PostMapping("/{id}/resume")
+    public ResponseEntity<StandingOrder> resumeStandingOrder(@PathVariable Long id, Authentication authentication) {
+        return ResponseEntity.ok(standingOrderService.resumeStandingOrder(id, authentication.getName()));
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<StandingOrder> cancelStandingOrder(@PathVariable Long id, Authentication authentication) {
+        return ResponseEntity.ok(standingOrderService.cancelStandingOrder(id, authentication.getName()));
+    }
+}
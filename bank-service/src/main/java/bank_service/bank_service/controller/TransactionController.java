@@ -1,13 +1,21 @@
 package bank_service.bank_service.controller;
 
+import bank_service.bank_service.dto.transaction.BatchDecisionRequest;
+import bank_service.bank_service.dto.transaction.BatchTransferRequest;
+import bank_service.bank_service.dto.transaction.BulkDecisionRequest;
+import bank_service.bank_service.dto.transaction.BulkDecisionResult;
+import bank_service.bank_service.dto.transaction.TransferBatchSummary;
 import bank_service.bank_service.model.Category;
 import bank_service.bank_service.model.CategoryType;
 import bank_service.bank_service.model.Transaction;
 import bank_service.bank_service.model.TransactionHistory;
 import bank_service.bank_service.model.TransactionStatus;
 import bank_service.bank_service.model.TransactionType;
+import bank_service.bank_service.model.TransferBatch;
 import bank_service.bank_service.repository.CategoryRepository;
+import bank_service.bank_service.service.TransactionHistoryProjector;
 import bank_service.bank_service.service.TransactionService;
+import bank_service.bank_service.service.TransferBatchService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
@@ -21,6 +29,7 @@ import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
 import java.math.BigDecimal;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
@@ -32,6 +41,8 @@ public class TransactionController {
 
     private final TransactionService transactionService;
     private final CategoryRepository categoryRepository;
+    private final TransactionHistoryProjector transactionHistoryProjector;
+    private final TransferBatchService transferBatchService;
 
     // 1. Người dùng tạo giao dịch
     @PostMapping("/create")
@@ -86,6 +97,93 @@ public class TransactionController {
         return ResponseEntity.ok(tx);
     }
 
+    // 5. Admin duyệt hàng loạt giao dịch
+    @PreAuthorize("hasRole('ADMIN')")
+    @PostMapping("/bulk-approve")
+    public ResponseEntity<List<BulkDecisionResult>> bulkApproveTransactions(@RequestBody BulkDecisionRequest request) {
+        return ResponseEntity.ok(transactionService.bulkApproveTransactions(request.getTransactionIds()));
+    }
+
+    // 6. Admin từ chối hàng loạt giao dịch
+    @PreAuthorize("hasRole('ADMIN')")
+    @PostMapping("/bulk-reject")
+    public ResponseEntity<List<BulkDecisionResult>> bulkRejectTransactions(@RequestBody BulkDecisionRequest request) {
+        return ResponseEntity.ok(transactionService.bulkRejectTransactions(request.getTransactionIds()));
+    }
+
+    // 7. Người dùng tạo lô chuyển khoản (trả lương...): một lần hold, một OTP cho cả lô
+    @PostMapping("/batch")
+    public ResponseEntity<TransferBatch> submitBatch(
+            @RequestBody BatchTransferRequest request,
+            Authentication authentication
+    ) {
+        TransferBatch batch = transferBatchService.submitBatch(authentication.getName(), request);
+        return ResponseEntity.ok(batch);
+    }
+
+    // 8. Người dùng nhập OTP xác nhận cả lô
+    @PostMapping("/batch/{batchId}/verify")
+    public ResponseEntity<TransferBatch> verifyBatch(
+            @PathVariable String batchId,
+            @RequestBody Map<String, String> request
+    ) {
+        TransferBatch batch = transferBatchService.verifyBatch(batchId, request.get("verificationCode"));
+        return ResponseEntity.ok(batch);
+    }
+
+    // 9. Admin duyệt lô, có thể từ chối một số dòng
+    @PreAuthorize("hasRole('ADMIN')")
+    @PostMapping("/batch/{batchId}/approve")
+    public ResponseEntity<TransferBatchSummary> approveBatch(
+            @PathVariable String batchId,
+            @RequestBody(required = false) BatchDecisionRequest request
+    ) {
+        List<String> rejectIds = request != null ? request.getRejectTransactionIds() : null;
+        return ResponseEntity.ok(transferBatchService.approveBatch(batchId, rejectIds));
+    }
+
+    // 10. Admin từ chối cả lô
+    @PreAuthorize("hasRole('ADMIN')")
+    @PostMapping("/batch/{batchId}/reject")
+    public ResponseEntity<TransferBatchSummary> rejectBatch(@PathVariable String batchId) {
+        return ResponseEntity.ok(transferBatchService.rejectBatch(batchId));
+    }
+
+    @GetMapping("/batch/{batchId}")
+    public ResponseEntity<TransferBatchSummary> getBatch(
+            @PathVariable String batchId,
+            Authentication authentication
+    ) {
+        return ResponseEntity.ok(transferBatchService.getBatch(batchId, authentication.getName(), isAdmin(authentication)));
+    }
+
+    // Trạng thái từng dòng trong lô
+    @GetMapping("/batch/{batchId}/items")
+    public ResponseEntity<Page<Transaction>> getBatchItems(
+            @PathVariable String batchId,
+            @PageableDefault(page = 0, size = 50, sort = "id") Pageable pageable,
+            Authentication authentication
+    ) {
+        return ResponseEntity.ok(transferBatchService.getBatchItems(
+                batchId, authentication.getName(), isAdmin(authentication), pageable));
+    }
+
+    @GetMapping("/batch/mine")
+    public ResponseEntity<Page<TransferBatch>> getMyBatches(
+            @PageableDefault(page = 0, size = 10, sort = "createdAt", direction = Sort.Direction.DESC) Pageable pageable,
+            Authentication authentication
+    ) {
+        return ResponseEntity.ok(transferBatchService.getMyBatches(authentication.getName(), pageable));
+    }
+
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping("/batch/awaiting-approval")
+    public ResponseEntity<Page<TransferBatch>> getAwaitingApprovalBatches(
+            @PageableDefault(page = 0, size = 10, sort = "createdAt") Pageable pageable
+    ) {
+        return ResponseEntity.ok(transferBatchService.getAwaitingApprovalBatches(pageable));
+    }
+
     @PreAuthorize("hasRole('ADMIN')")
     @GetMapping("/awaiting-approval")
     public ResponseEntity<Page<Transaction>> getAwaitingApprovalTransactions(
@@ -182,12 +280,24 @@ public class TransactionController {
     @GetMapping("/my-history")
     public ResponseEntity<Page<TransactionHistory>> getMyTransactionHistory(
             @PageableDefault(page = 0, size = 10, sort = "completedAt", direction = Sort.Direction.DESC) Pageable pageable,
+            @RequestParam(defaultValue = "false") boolean consistent,
             Authentication authentication
     ) {
         String userId = authentication.getName(); // Lấy ID người dùng từ context
+        if (consistent) {
+            // Chờ trước khi mở transaction đọc; chưa bắt kịp thì 503
+            transactionHistoryProjector.requireCaughtUp();
+        }
         Page<TransactionHistory> history = transactionService.getMyTransactionHistory(userId, pageable);
         return ResponseEntity.ok(history);
     }
+
+    // Watermark của lịch sử bất đồng bộ: published (đã commit) / applied (đã ghi vào transaction_history)
+    @GetMapping("/history/watermark")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Long>> getHistoryWatermark() {
+        return ResponseEntity.ok(transactionHistoryProjector.watermarks());
+    }
     @GetMapping("/all")
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<Page<Transaction>> getAllTransactionsForAdmin(
@@ -198,4 +308,9 @@ public class TransactionController {
         Page<Transaction> transactions = transactionService.getAllTransactions(transactionType, status, pageable);
         return ResponseEntity.ok(transactions);
     }
+
+    private boolean isAdmin(Authentication authentication) {
+        return authentication.getAuthorities().stream()
+                .anyMatch(auth -> auth.getAuthority().equals("ROLE_ADMIN"));
+    }
 }
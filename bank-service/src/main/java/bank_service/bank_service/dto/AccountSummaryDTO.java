@@ -0,0 +1,31 @@
+package bank_service.bank_service.dto;
+
+import bank_service.bank_service.model.Account;
+import bank_service.bank_service.model.Role;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Thông tin tài khoản cho danh sách admin (không có mật khẩu)
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class AccountSummaryDTO {
+    private String accountId;
+    private String customerName;
+    private String email;
+    private String phoneNumber;
+    private Role role;
+
+    public static AccountSummaryDTO from(Account account) {
+        return AccountSummaryDTO.builder()
+                .accountId(account.getAccountId())
+                .customerName(account.getCustomerName())
+                .email(account.getEmail())
+                .phoneNumber(account.getPhoneNumber())
+                .role(account.getRole())
+                .build();
+    }
+}
@@ -0,0 +1,17 @@
+package bank_service.bank_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// Phản hồi POST /payments/batch: payment-service gửi theo thứ tự và dừng ở phần tử lỗi đầu tiên
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class PaymentBatchResult {
+    private List<String> sentPaymentIds;
+    private String failedPaymentId;
+    private String error;
+}
@@ -0,0 +1,33 @@
+package bank_service.bank_service.dto.standingorder;
+
+import bank_service.bank_service.model.StandingOrderFrequency;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StandingOrderRequest {
+
+    private String toAccountId;
+
+    private String fromCardId;
+
+    private String toCardId;
+
+    private BigDecimal amount;
+
+    private String categoryId;
+
+    private StandingOrderFrequency frequency;
+
+    private LocalDateTime startAt;
+
+    private LocalDateTime endAt;
+}
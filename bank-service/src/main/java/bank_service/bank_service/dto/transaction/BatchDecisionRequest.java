@@ -0,0 +1,20 @@
+package bank_service.bank_service.dto.transaction;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Duyệt lô chuyển khoản; các dòng trong rejectTransactionIds bị từ chối và hoàn tiền riêng
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BatchDecisionRequest {
+
+    private List<String> rejectTransactionIds;
+}
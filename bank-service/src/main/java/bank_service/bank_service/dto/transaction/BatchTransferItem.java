@@ -0,0 +1,24 @@
+package bank_service.bank_service.dto.transaction;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Một dòng trong lô chuyển khoản
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BatchTransferItem {
+
+    private String toAccountId;
+
+    private String toCardId;
+
+    private BigDecimal amount;
+}
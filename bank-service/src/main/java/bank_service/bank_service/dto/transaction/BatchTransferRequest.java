@@ -0,0 +1,21 @@
+package bank_service.bank_service.dto.transaction;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BatchTransferRequest {
+
+    private String fromCardId;
+
+    private String categoryId;
+
+    private List<BatchTransferItem> items;
+}
@@ -0,0 +1,25 @@
+package bank_service.bank_service.dto.transaction;
+
+import bank_service.bank_service.model.TransactionStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Kết quả duyệt/từ chối của từng giao dịch trong một yêu cầu hàng loạt
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BulkDecisionResult {
+
+    private String transactionId;
+
+    private boolean success;
+
+    private TransactionStatus status; // Trạng thái sau khi xử lý (null nếu không tìm thấy)
+
+    private String message;
+}
@@ -0,0 +1,24 @@
+package bank_service.bank_service.dto.transaction;
+
+import bank_service.bank_service.model.TransactionStatus;
+import bank_service.bank_service.model.TransferBatch;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * Trạng thái lô chuyển khoản kèm số dòng theo từng trạng thái
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TransferBatchSummary {
+
+    private TransferBatch batch;
+
+    private Map<TransactionStatus, Long> lineStatusCounts;
+}
@@ -0,0 +1,9 @@
+package bank_service.bank_service.event;
+
+import bank_service.bank_service.model.TransactionHistory;
+
+/**
+ * Sự kiện giao dịch đã hoàn tất (chế độ lịch sử bất đồng bộ),
+ * TransactionHistoryProjector ghi bản ghi lịch sử sau khi transaction commit.
+ */
+public record TransactionCompletedEvent(TransactionHistory history) {}
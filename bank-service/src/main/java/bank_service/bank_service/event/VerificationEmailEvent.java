@@ -0,0 +1,12 @@
+package bank_service.bank_service.event;
+
+/**
+ * Sự kiện yêu cầu gửi email OTP, được phát trong transaction
+ * và chỉ xử lý sau khi transaction commit thành công.
+ */
+public record VerificationEmailEvent(
+        String transactionId,
+        String toEmail,
+        String subject,
+        String verificationCode
+) {}
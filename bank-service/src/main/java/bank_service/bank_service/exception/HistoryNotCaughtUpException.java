@@ -0,0 +1,11 @@
+package bank_service.bank_service.exception;
+
+/**
+ * Lịch sử giao dịch bất đồng bộ chưa ghi kịp các giao dịch đã commit trong thời gian chờ (consistent=true).
+ * Trả về 503 để client thử lại thay vì nhận dữ liệu cũ.
+ */
+public class HistoryNotCaughtUpException extends RuntimeException {
+    public HistoryNotCaughtUpException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,14 @@
+package bank_service.bank_service.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Không tìm thấy đối tượng theo id trong đường dẫn. Trả về 404 thay vì 400 như AppException.
+ */
+@ResponseStatus(HttpStatus.NOT_FOUND)
+public class NotFoundException extends AppException {
+    public NotFoundException(String message) {
+        super(message);
+    }
+}
@@ -1,5 +1,6 @@
 package bank_service.bank_service.model;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
 import lombok.*;
 
@@ -15,6 +16,8 @@ public class Account {
     private String customerName;
     private String email;
     private String phoneNumber;
+    // Chỉ nhận từ request, không bao giờ xuất ra response hay cache
+    @JsonProperty(access = JsonProperty.Access.WRITE_ONLY)
     private String password;
     @Enumerated(EnumType.STRING)
     private Role role;
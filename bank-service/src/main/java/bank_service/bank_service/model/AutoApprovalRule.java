@@ -0,0 +1,63 @@
+package bank_service.bank_service.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Chính sách tự động duyệt giao dịch chuyển khoản.
+ * Mọi điều kiện khác null của một rule phải thỏa (AND); chỉ cần một rule bật thỏa là giao dịch được tự duyệt (OR).
+ */
+@Entity
+@Table(name = "auto_approval_rules")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AutoApprovalRule {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private String name;
+
+    @Column(nullable = false)
+    @Builder.Default
+    private Boolean enabled = true;
+
+    // Rule có priority nhỏ hơn được xét trước
+    @Column(nullable = false)
+    @Builder.Default
+    private Integer priority = 100;
+
+    // Số tiền tối đa của một giao dịch
+    @Column(precision = 19, scale = 2)
+    private BigDecimal maxAmount;
+
+    // Chỉ tự duyệt khi người nhận đã từng nhận tiền thành công từ người gửi
+    @Column(nullable = false)
+    @Builder.Default
+    private Boolean knownCounterpartyOnly = false;
+
+    // Số giao dịch chuyển đi tối đa trong ngày (tính cả giao dịch hiện tại)
+    private Integer maxDailyCount;
+
+    // Tổng tiền chuyển đi tối đa trong ngày (tính cả giao dịch hiện tại)
+    @Column(precision = 19, scale = 2)
+    private BigDecimal maxDailyAmount;
+
+    @CreationTimestamp
+    private LocalDateTime createdAt;
+
+    @UpdateTimestamp
+    private LocalDateTime updatedAt;
+}
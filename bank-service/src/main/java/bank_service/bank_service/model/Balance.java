@@ -2,6 +2,7 @@ package bank_service.bank_service.model;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Formula;
 
 import java.math.BigDecimal;
 
@@ -18,6 +19,12 @@ public class Balance {
     @Column(nullable = false)
     private BigDecimal availableBalance;
 
-    @Column(nullable = false)
+    // Tổng các khoản đang giữ, tính từ bảng balance_hold (chỉ đọc)
+    @Formula("(SELECT COALESCE(SUM(h.amount), 0) FROM balance_hold h WHERE h.account_id = account_id)")
     private BigDecimal holdBalance;
+
+    // Tăng sau mỗi lần cập nhật; dùng làm version khi ghi cache (VersionedHashStore)
+    @Version
+    @Column(nullable = false)
+    private long version;
 }
@@ -0,0 +1,39 @@
+package bank_service.bank_service.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Một khoản tiền đang bị giữ cho một giao dịch chuyển khoản.
+ * Balance.holdBalance là tổng các dòng này của tài khoản.
+ */
+@Entity
+@Table(name = "balance_hold", indexes = {
+        @Index(name = "idx_balance_hold_account", columnList = "accountId"),
+        @Index(name = "idx_balance_hold_expires_at", columnList = "expiresAt")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BalanceHold {
+
+    @Id
+    private String transactionId;
+
+    @Column(nullable = false)
+    private String accountId;
+
+    @Column(nullable = false)
+    private BigDecimal amount;
+
+    // Hết hạn cùng OTP; null khi giao dịch đã xác nhận và đang chờ duyệt
+    private LocalDateTime expiresAt;
+
+    @CreationTimestamp
+    private LocalDateTime createdAt;
+}
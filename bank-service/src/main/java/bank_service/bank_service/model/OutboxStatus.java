@@ -0,0 +1,6 @@
+package bank_service.bank_service.model;
+
+public enum OutboxStatus {
+    PENDING,    // Chờ relay gửi sang payment-service
+    SENT        // Đã gửi thành công
+}
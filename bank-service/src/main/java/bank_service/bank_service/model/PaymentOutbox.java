@@ -0,0 +1,59 @@
+package bank_service.bank_service.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Bản ghi outbox cho sự kiện thanh toán.
+ * Được ghi cùng transaction với nghiệp vụ, PaymentOutboxRelay sẽ gửi sang payment-service sau.
+ */
+@Entity
+@Table(name = "payment_outbox", indexes = {
+        @Index(name = "idx_payment_outbox_status_id", columnList = "status, id")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PaymentOutbox {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private String paymentId;
+
+    private String fromAccountId;
+    private String toAccountId;
+
+    private String fromCardId;
+    private String toCardId;
+
+    @Column(nullable = false)
+    private BigDecimal amount;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private OutboxStatus status;
+
+    // Số lần gửi thất bại
+    private int attempts;
+
+    // Thời điểm sớm nhất được gửi lại (backoff)
+    private LocalDateTime nextAttemptAt;
+
+    private String lastError;
+
+    @CreationTimestamp
+    private LocalDateTime createdAt;
+
+    private LocalDateTime sentAt;
+}
@@ -0,0 +1,82 @@
+package bank_service.bank_service.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Lệnh chuyển khoản định kỳ / hẹn giờ
+ */
+@Entity
+@Table(name = "standing_order", indexes = {
+        // Dùng cho StandingOrderScheduler nhận các lệnh đến hạn
+        @Index(name = "idx_standing_order_status_next_run", columnList = "status, nextRunAt"),
+        @Index(name = "idx_standing_order_from_account", columnList = "fromAccountId")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StandingOrder {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private String fromAccountId;
+    private String toAccountId;
+
+    private String fromCardId;
+    private String toCardId;
+
+    @Column(nullable = false)
+    private BigDecimal amount;
+
+    @Column(nullable = false)
+    private String categoryId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private StandingOrderFrequency frequency;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private StandingOrderStatus status;
+
+    // Lần chạy đầu tiên; các lần sau tính từ startAt theo frequency
+    @Column(nullable = false)
+    private LocalDateTime startAt;
+
+    // Không chạy sau thời điểm này (null = không giới hạn)
+    private LocalDateTime endAt;
+
+    private LocalDateTime nextRunAt;
+
+    // Số lần đã đến hạn (kể cả lần thất bại hoặc bị bỏ qua)
+    private int occurrence;
+
+    private int successCount;
+
+    private int failureCount;
+
+    private LocalDateTime lastRunAt;
+
+    private String lastTransactionId;
+
+    private String lastError;
+
+    // Instance đang xử lý lệnh và hạn giữ (hết hạn thì instance khác được nhận lại)
+    private String claimedBy;
+
+    private LocalDateTime claimedUntil;
+
+    @CreationTimestamp
+    private LocalDateTime createdAt;
+
+    @UpdateTimestamp
+    private LocalDateTime updatedAt;
+}
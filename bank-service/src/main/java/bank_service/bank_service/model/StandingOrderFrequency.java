@@ -0,0 +1,23 @@
+package bank_service.bank_service.model;
+
+import java.time.LocalDateTime;
+
+public enum StandingOrderFrequency {
+    ONCE,       // Chạy một lần tại startAt
+    DAILY,
+    WEEKLY,
+    MONTHLY;
+
+    /**
+     * Thời điểm của lần chạy thứ n (n = 0 là startAt). Tính từ startAt để không bị trôi ngày
+     * (VD: lệnh ngày 31 vẫn chạy ngày 31 ở các tháng có 31 ngày).
+     */
+    public LocalDateTime occurrence(LocalDateTime startAt, int n) {
+        return switch (this) {
+            case ONCE -> startAt;
+            case DAILY -> startAt.plusDays(n);
+            case WEEKLY -> startAt.plusWeeks(n);
+            case MONTHLY -> startAt.plusMonths(n);
+        };
+    }
+}
@@ -0,0 +1,9 @@
+package bank_service.bank_service.model;
+
+public enum StandingOrderStatus {
+    ACTIVE,
+    PAUSED,
+    COMPLETED,  // Đã chạy hết (ONCE hoặc quá endAt)
+    FAILED,     // Lệnh ONCE chạy thất bại
+    CANCELLED
+}
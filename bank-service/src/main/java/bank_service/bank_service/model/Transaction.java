@@ -1,5 +1,6 @@
 package bank_service.bank_service.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.*;
 import org.hibernate.annotations.CreationTimestamp;
@@ -10,6 +11,15 @@ import java.time.LocalDateTime;
 import java.util.UUID;
 
 @Entity
+@Table(indexes = {
+        // Dùng cho PendingTransactionSweeper tìm giao dịch PENDING đã hết hạn
+        @Index(name = "idx_transaction_status_expired_at", columnList = "status, expiredAt"),
+        @Index(name = "idx_transaction_batch_id", columnList = "batchId"),
+        // Dùng cho CacheWarmupService tìm tài khoản có giao dịch gần đây
+        @Index(name = "idx_transaction_created_at", columnList = "createdAt"),
+        // Dùng cho AutoApprovalService tính hạn mức trong ngày của người gửi
+        @Index(name = "idx_transaction_from_status_created_at", columnList = "fromAccountId, status, createdAt")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -36,15 +46,23 @@ public class Transaction {
     @Column(nullable = false)
     private TransactionStatus status;
 
-    // Mã xác thực gửi qua email
+    // Mã xác thực của giao dịch tạo trước khi OTP chuyển sang Redis (OtpChallengeStore); giao dịch mới để trống.
+    // verifyTransaction vẫn kiểm tra mã này cho các giao dịch PENDING cũ và xóa khi đã dùng
+    @JsonIgnore
     private String verificationCode;
 
     // Thời gian hết hạn mã (VD: 5 phút)
     private LocalDateTime expiredAt;
 
-    // Số lần thử nhập mã
+    // Số lần thử nhập mã (chỉ ghi khi giao dịch bị khóa; số lần thử hiện tại nằm trên Redis)
     private int attempts;
 
+    // Tên rule đã tự động duyệt giao dịch (null nếu admin duyệt)
+    private String autoApprovalRule;
+
+    // Lô chuyển khoản chứa giao dịch này (null nếu là giao dịch đơn lẻ)
+    private String batchId;
+
     @CreationTimestamp
     private LocalDateTime createdAt;
 
@@ -0,0 +1,55 @@
+package bank_service.bank_service.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Lô chuyển khoản (VD: trả lương): một lần hold tổng tiền, một OTP cho cả lô.
+ * Mỗi dòng là một Transaction có batchId trỏ về lô này và có trạng thái riêng.
+ */
+@Entity
+@Table(name = "transfer_batch", indexes = {
+        @Index(name = "idx_transfer_batch_status_expired_at", columnList = "status, expiredAt"),
+        @Index(name = "idx_transfer_batch_from_account", columnList = "fromAccountId")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TransferBatch {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private String id;
+
+    private String fromAccountId;
+
+    private String fromCardId;
+
+    private String categoryId;
+
+    // Tổng tiền đã hold cho cả lô
+    @Column(nullable = false)
+    private BigDecimal totalAmount;
+
+    private int itemCount;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private TransactionStatus status;
+
+    private LocalDateTime expiredAt;
+
+    private int attempts;
+
+    @CreationTimestamp
+    private LocalDateTime createdAt;
+
+    @UpdateTimestamp
+    private LocalDateTime updatedAt;
+}
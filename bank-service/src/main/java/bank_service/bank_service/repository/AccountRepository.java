@@ -1,13 +1,28 @@
 package bank_service.bank_service.repository;
 
 import bank_service.bank_service.model.Account;
+import bank_service.bank_service.model.Role;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.Optional;
 
 public interface AccountRepository extends JpaRepository<Account, String> {
     boolean existsByEmail(String email);
     boolean existsByPhoneNumber(String phoneNumber);
     Optional<Account> findByEmail(String email);
+
+    // Đếm số tài khoản tồn tại trong danh sách (kiểm tra người nhận của lô chuyển khoản)
+    @Query("SELECT COUNT(a) FROM Account a WHERE a.accountId IN :ids")
+    long countByAccountIdIn(@Param("ids") Collection<String> ids);
+
+    // Danh sách admin khi AccountIndex trên Redis chưa sẵn sàng; q là mẫu LIKE đã viết thường
+    @Query("SELECT a FROM Account a WHERE (:role IS NULL OR a.role = :role) AND (:q IS NULL " +
+            "OR LOWER(a.customerName) LIKE :q OR LOWER(a.email) LIKE :q OR a.phoneNumber LIKE :q OR a.accountId LIKE :q)")
+    Page<Account> search(@Param("role") Role role, @Param("q") String q, Pageable pageable);
 }
 
@@ -0,0 +1,17 @@
+package bank_service.bank_service.repository;
+
+import bank_service.bank_service.model.AutoApprovalRule;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface AutoApprovalRuleRepository extends JpaRepository<AutoApprovalRule, Long> {
+
+    List<AutoApprovalRule> findByEnabledTrueOrderByPriorityAscIdAsc();
+
+    // Dùng để phát hiện thay đổi rule từ instance khác
+    @Query("SELECT MAX(r.updatedAt) FROM AutoApprovalRule r")
+    LocalDateTime findLastUpdatedAt();
+}
@@ -0,0 +1,46 @@
+package bank_service.bank_service.repository;
+
+import bank_service.bank_service.model.BalanceHold;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface BalanceHoldRepository extends JpaRepository<BalanceHold, String> {
+
+    List<BalanceHold> findByAccountIdOrderByCreatedAtDesc(String accountId);
+
+    // INSERT trực tiếp (id do giao dịch cấp sẵn nên save() sẽ SELECT trước khi INSERT)
+    @Modifying
+    @Query(value = "INSERT INTO balance_hold (transaction_id, account_id, amount, expires_at, created_at) " +
+            "VALUES (:transactionId, :accountId, :amount, :expiresAt, :now)", nativeQuery = true)
+    int insertHold(@Param("transactionId") String transactionId,
+                   @Param("accountId") String accountId,
+                   @Param("amount") BigDecimal amount,
+                   @Param("expiresAt") LocalDateTime expiresAt,
+                   @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("DELETE FROM BalanceHold h WHERE h.transactionId IN :transactionIds")
+    int deleteByTransactionIds(@Param("transactionIds") Collection<String> transactionIds);
+
+    // Giao dịch đã xác nhận OTP: hold được giữ tới khi admin duyệt/từ chối
+    @Modifying
+    @Query("UPDATE BalanceHold h SET h.expiresAt = NULL WHERE h.transactionId IN :transactionIds")
+    int clearExpiry(@Param("transactionIds") Collection<String> transactionIds);
+
+    // Tạo hold cho giao dịch đang chờ nhưng chưa có dòng hold (dữ liệu trước khi có bảng balance_hold)
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO balance_hold (transaction_id, account_id, amount, expires_at, created_at) " +
+            "SELECT t.id, t.from_account_id, t.amount, " +
+            "CASE WHEN t.status = 'PENDING' THEN t.expired_at END, NOW() " +
+            "FROM `transaction` t LEFT JOIN balance_hold h ON h.transaction_id = t.id " +
+            "WHERE t.status IN ('PENDING', 'AWAITING_APPROVAL') AND h.transaction_id IS NULL",
+            nativeQuery = true)
+    int backfillMissingHolds();
+}
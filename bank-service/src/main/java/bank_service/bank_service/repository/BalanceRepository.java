@@ -1,9 +1,58 @@
 package bank_service.bank_service.repository;
 import bank_service.bank_service.model.Balance;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 
 public interface BalanceRepository extends JpaRepository<Balance, String> {
     Optional<Balance> findByAccountId(String accountId);
+
+    // Khóa nhiều balance theo thứ tự accountId cố định để tránh deadlock.
+    // FORCE_INCREMENT: tăng version cả balance chỉ thay đổi hold (người gửi khi duyệt) để cache nhận bản mới
+    @Lock(LockModeType.PESSIMISTIC_FORCE_INCREMENT)
+    @Query("SELECT b FROM Balance b WHERE b.accountId IN :accountIds ORDER BY b.accountId")
+    List<Balance> findAllForUpdate(@Param("accountIds") Collection<String> accountIds);
+
+    // Khóa balance theo cùng thứ tự nhưng không tăng version: tuần tự hóa quyết định trên tài khoản
+    // (auto-approval) mà không làm cache phải ghi lại
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b FROM Balance b WHERE b.accountId IN :accountIds ORDER BY b.accountId")
+    List<Balance> lockAll(@Param("accountIds") Collection<String> accountIds);
+
+    // Trừ available khi tạo hold; chỉ thành công nếu đủ số dư (không cần đọc trước rồi ghi lại)
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Balance b SET b.availableBalance = b.availableBalance - :amount, b.version = b.version + 1 " +
+            "WHERE b.accountId = :accountId AND b.availableBalance >= :amount")
+    int debitAvailable(@Param("accountId") String accountId, @Param("amount") BigDecimal amount);
+
+    // Cộng available cho người nhận bằng một câu UPDATE (không đọc-sửa-ghi nên không xung đột version khi duyệt đồng thời)
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Balance b SET b.availableBalance = b.availableBalance + :amount, b.version = b.version + 1 " +
+            "WHERE b.accountId = :accountId")
+    int creditAvailable(@Param("accountId") String accountId, @Param("amount") BigDecimal amount);
+
+    // Hoàn tiền hold -> available cho tất cả hold của các giao dịch trong danh sách bằng một câu lệnh
+    // (subquery thay cho UPDATE ... JOIN để chạy được cả trên MySQL lẫn H2 của load test)
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "UPDATE balance b SET " +
+            "b.available_balance = b.available_balance + (SELECT SUM(h.amount) FROM balance_hold h " +
+            "WHERE h.account_id = b.account_id AND h.transaction_id IN (:transactionIds)), " +
+            "b.version = b.version + 1 " +
+            "WHERE b.account_id IN (SELECT h.account_id FROM balance_hold h WHERE h.transaction_id IN (:transactionIds))",
+            nativeQuery = true)
+    int creditHoldsForTransactions(@Param("transactionIds") Collection<String> transactionIds);
+
+    // Chỉ tăng version (hold thay đổi nhưng available không đổi) để cache chấp nhận bản mới
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Balance b SET b.version = b.version + 1 WHERE b.accountId IN :accountIds")
+    int bumpVersions(@Param("accountIds") Collection<String> accountIds);
 }
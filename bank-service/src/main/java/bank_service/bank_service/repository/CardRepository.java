@@ -1,14 +1,29 @@
 package bank_service.bank_service.repository;
 
-import bank_service.bank_service.dto.CardWithUsernameDTO;
+import bank_service.bank_service.dto.CardFullInfoDTO;
 import bank_service.bank_service.model.Card;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;import org.springframework.data.jpa.repository.Query;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 public interface CardRepository extends JpaRepository<Card, Long> {
-    @Query("SELECT new bank_service.bank_service.dto.CardWithUsernameDTO(c.cardId, c.accountId, a.customerName, c.cardType, c.expiryDate, c.status) " +
-            "FROM Card c JOIN Account a ON c.accountId = a.accountId")
-    List<CardWithUsernameDTO> findAllCardsWithUsername();
+    // Thẻ kèm tài khoản và số dư trong một câu join (thay cho findById account/balance theo từng thẻ)
+    String FULL_INFO_SELECT = "SELECT new bank_service.bank_service.dto.CardFullInfoDTO(c.cardId, c.accountId, " +
+            "a.customerName, a.email, a.phoneNumber, c.cardType, c.expiryDate, c.status, b.availableBalance, b.holdBalance) " +
+            "FROM Card c LEFT JOIN Account a ON a.accountId = c.accountId LEFT JOIN Balance b ON b.accountId = c.accountId";
+
+    @Query(FULL_INFO_SELECT)
+    List<CardFullInfoDTO> findFullInfo(Pageable pageable);
+
+    @Query(FULL_INFO_SELECT + " WHERE c.accountId = :accountId")
+    List<CardFullInfoDTO> findFullInfoByAccountId(String accountId);
+
+    @Query(FULL_INFO_SELECT + " WHERE c.cardId = :cardId")
+    Optional<CardFullInfoDTO> findFullInfoById(Long cardId);
+
     List<Card> findByAccountId(String accountId);
+    List<Card> findByAccountIdIn(Collection<String> accountIds);
     boolean existsByAccountIdAndStatus(String accountId, String status);
 }
@@ -0,0 +1,34 @@
+package bank_service.bank_service.repository;
+
+import bank_service.bank_service.model.OutboxStatus;
+import bank_service.bank_service.model.PaymentOutbox;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface PaymentOutboxRepository extends JpaRepository<PaymentOutbox, Long> {
+
+    // Lấy các bản ghi chờ gửi theo thứ tự ghi (giữ thứ tự theo account)
+    // Đọc theo thứ tự id sau id đã xét (keyset); trang đầu dùng afterId = 0
+    List<PaymentOutbox> findByStatusAndIdGreaterThanOrderByIdAsc(OutboxStatus status, Long afterId, Pageable pageable);
+
+    long countByStatus(OutboxStatus status);
+
+    @Query("SELECT MIN(o.createdAt) FROM PaymentOutbox o WHERE o.status = :status")
+    LocalDateTime findOldestCreatedAt(@Param("status") OutboxStatus status);
+
+    @Modifying
+    @Query("UPDATE PaymentOutbox o SET o.status = :status, o.sentAt = :sentAt WHERE o.id IN :ids")
+    int markSent(@Param("ids") List<Long> ids,
+                 @Param("status") OutboxStatus status,
+                 @Param("sentAt") LocalDateTime sentAt);
+
+    @Modifying
+    @Query("DELETE FROM PaymentOutbox o WHERE o.status = :status AND o.sentAt < :before")
+    int deleteSentBefore(@Param("status") OutboxStatus status, @Param("before") LocalDateTime before);
+}
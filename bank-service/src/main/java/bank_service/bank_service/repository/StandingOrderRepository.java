@@ -0,0 +1,44 @@
+package bank_service.bank_service.repository;
+
+import bank_service.bank_service.model.StandingOrder;
+import bank_service.bank_service.model.StandingOrderStatus;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface StandingOrderRepository extends JpaRepository<StandingOrder, Long> {
+
+    Page<StandingOrder> findByFromAccountId(String fromAccountId, Pageable pageable);
+
+    // Khóa dòng khi chạy / tạm dừng / hủy lệnh để scheduler và người dùng không ghi đè trạng thái của nhau
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT o FROM StandingOrder o WHERE o.id = :id")
+    Optional<StandingOrder> findByIdForUpdate(@Param("id") Long id);
+
+    // Lệnh sắp đến hạn để nạp vào timing wheel (chỉ đọc id + thời điểm, không khóa)
+    @Query("SELECT o.id, o.nextRunAt FROM StandingOrder o WHERE o.status = :status AND o.nextRunAt < :until")
+    List<Object[]> findUpcoming(@Param("status") StandingOrderStatus status, @Param("until") LocalDateTime until);
+
+    // Nhận một lô lệnh đến hạn; SKIP LOCKED để nhiều instance chia nhau xử lý
+    @Query(value = "SELECT o.id FROM standing_order o " +
+            "WHERE o.status = 'ACTIVE' AND o.next_run_at <= :now " +
+            "AND (o.claimed_until IS NULL OR o.claimed_until < :now) " +
+            "ORDER BY o.next_run_at LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<Long> lockDue(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    @Modifying
+    @Query("UPDATE StandingOrder o SET o.claimedBy = :owner, o.claimedUntil = :until WHERE o.id IN :ids")
+    int claim(@Param("ids") Collection<Long> ids,
+              @Param("owner") String owner,
+              @Param("until") LocalDateTime until);
+}
@@ -122,4 +122,4 @@ public interface TransactionHistoryRepository extends JpaRepository<TransactionH
             @Param("status") TransactionStatus status,
             @Param("startDate") LocalDateTime startDate,
             @Param("endDate") LocalDateTime endDate);
-}
\ No newline at end of file
+}
@@ -5,8 +5,16 @@ import bank_service.bank_service.model.TransactionStatus;
 import bank_service.bank_service.model.TransactionType;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -30,4 +38,94 @@ public interface TransactionRepository extends JpaRepository<Transaction, String
     Page<Transaction> findByTransactionTypeAndStatus(TransactionType transactionType, TransactionStatus status, Pageable pageable);
 
     Page<Transaction> findByTransactionType(TransactionType transactionType, Pageable pageable);
+
+    // Khóa nhiều giao dịch theo thứ tự id (dùng cho duyệt hàng loạt)
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT t FROM Transaction t WHERE t.id IN :ids ORDER BY t.id")
+    List<Transaction> findAllForUpdate(@Param("ids") Collection<String> ids);
+
+    // Chuyển trạng thái có điều kiện (compare-and-set), trả về số dòng được cập nhật (0 hoặc 1).
+    // Dòng của lô chuyển khoản (batchId khác null) chỉ đổi trạng thái theo lô, không qua các câu này
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Transaction t SET t.status = :newStatus, t.updatedAt = :now " +
+            "WHERE t.id = :id AND t.status = :expectedStatus AND t.batchId IS NULL")
+    int compareAndSetStatus(@Param("id") String id,
+                            @Param("expectedStatus") TransactionStatus expectedStatus,
+                            @Param("newStatus") TransactionStatus newStatus,
+                            @Param("now") LocalDateTime now);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Transaction t SET t.status = :newStatus, t.attempts = :attempts, t.updatedAt = :now " +
+            "WHERE t.id = :id AND t.status = :expectedStatus AND t.batchId IS NULL")
+    int compareAndSetStatusWithAttempts(@Param("id") String id,
+                                        @Param("expectedStatus") TransactionStatus expectedStatus,
+                                        @Param("newStatus") TransactionStatus newStatus,
+                                        @Param("attempts") int attempts,
+                                        @Param("now") LocalDateTime now);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Transaction t SET t.status = :newStatus, t.autoApprovalRule = :rule, t.updatedAt = :now " +
+            "WHERE t.id = :id AND t.status = :expectedStatus AND t.batchId IS NULL")
+    int compareAndSetStatusWithRule(@Param("id") String id,
+                                    @Param("expectedStatus") TransactionStatus expectedStatus,
+                                    @Param("newStatus") TransactionStatus newStatus,
+                                    @Param("rule") String rule,
+                                    @Param("now") LocalDateTime now);
+
+    // Tài khoản có giao dịch (gửi hoặc nhận) từ :since, mới nhất trước; dùng để nạp trước cache khi khởi động
+    @Query(value = "SELECT a.account_id FROM (" +
+            "SELECT t.from_account_id AS account_id, t.created_at FROM `transaction` t WHERE t.created_at >= :since " +
+            "UNION ALL " +
+            "SELECT t.to_account_id, t.created_at FROM `transaction` t WHERE t.created_at >= :since) a " +
+            "JOIN account acc ON acc.account_id = a.account_id " +
+            "GROUP BY a.account_id ORDER BY MAX(a.created_at) DESC LIMIT :limit", nativeQuery = true)
+    List<String> findRecentlyActiveAccountIds(@Param("since") LocalDateTime since, @Param("limit") int limit);
+
+    // Nhận một lô giao dịch PENDING đã hết hạn (id, from_account_id, batch_id);
+    // SKIP LOCKED để nhiều instance chạy song song không trùng nhau
+    @Query(value = "SELECT t.id, t.from_account_id, t.batch_id FROM `transaction` t " +
+            "WHERE t.status = 'PENDING' AND t.expired_at < :now " +
+            "ORDER BY t.expired_at LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<Object[]> claimExpiredPending(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    @Modifying
+    @Query("UPDATE Transaction t SET t.status = :newStatus WHERE t.id IN :ids AND t.status = :expectedStatus")
+    int updateStatusByIds(@Param("ids") Collection<String> ids,
+                          @Param("expectedStatus") TransactionStatus expectedStatus,
+                          @Param("newStatus") TransactionStatus newStatus);
+
+    // Giao dịch đã hoàn tất nhưng chưa có bản ghi lịch sử (dùng khi đối soát lịch sử bất đồng bộ)
+    @Query("SELECT t FROM Transaction t WHERE t.status IN :statuses AND t.updatedAt > :since " +
+            "AND NOT EXISTS (SELECT 1 FROM TransactionHistory h WHERE h.id = t.id)")
+    List<Transaction> findCompletedWithoutHistory(@Param("statuses") Collection<TransactionStatus> statuses,
+                                                  @Param("since") LocalDateTime since);
+
+    // Các dòng của một lô chuyển khoản
+    Page<Transaction> findByBatchId(String batchId, Pageable pageable);
+
+    // Khóa tất cả dòng của lô theo thứ tự id
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT t FROM Transaction t WHERE t.batchId = :batchId ORDER BY t.id")
+    List<Transaction> findByBatchIdForUpdate(@Param("batchId") String batchId);
+
+    @Query("SELECT t.status, COUNT(t) FROM Transaction t WHERE t.batchId = :batchId GROUP BY t.status")
+    List<Object[]> countStatusesByBatchId(@Param("batchId") String batchId);
+
+    // Số lượng và tổng tiền giao dịch đi đã duyệt của tài khoản, tạo từ :since (dùng cho auto-approval).
+    // Một câu aggregate trên idx_transaction_from_status_created_at; FOR SHARE để đọc bản commit mới nhất
+    // (kể cả giao dịch được duyệt khi đang chờ khóa balance) thay vì snapshot của REPEATABLE READ
+    @Query(value = "SELECT COUNT(*) AS count, COALESCE(SUM(t.amount), 0) AS amount FROM `transaction` t " +
+            "WHERE t.from_account_id = :accountId AND t.status = 'APPROVED' AND t.created_at >= :since FOR SHARE",
+            nativeQuery = true)
+    OutgoingTotals sumApprovedOutgoingForShare(@Param("accountId") String accountId,
+                                               @Param("since") LocalDateTime since);
+
+    interface OutgoingTotals {
+        long getCount();
+
+        BigDecimal getAmount();
+    }
+
+    // Người nhận đã từng nhận tiền từ người gửi chưa (dùng cho auto-approval)
+    boolean existsByFromAccountIdAndToAccountIdAndStatus(String fromAccountId, String toAccountId, TransactionStatus status);
 }
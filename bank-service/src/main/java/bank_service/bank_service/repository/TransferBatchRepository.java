@@ -0,0 +1,44 @@
+package bank_service.bank_service.repository;
+
+import bank_service.bank_service.model.TransactionStatus;
+import bank_service.bank_service.model.TransferBatch;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+
+public interface TransferBatchRepository extends JpaRepository<TransferBatch, String> {
+
+    Page<TransferBatch> findByStatus(TransactionStatus status, Pageable pageable);
+
+    Page<TransferBatch> findByFromAccountId(String fromAccountId, Pageable pageable);
+
+    // Chuyển trạng thái lô có điều kiện (compare-and-set), trả về 0 hoặc 1
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE TransferBatch b SET b.status = :newStatus, b.updatedAt = :now " +
+            "WHERE b.id = :id AND b.status = :expectedStatus")
+    int compareAndSetStatus(@Param("id") String id,
+                            @Param("expectedStatus") TransactionStatus expectedStatus,
+                            @Param("newStatus") TransactionStatus newStatus,
+                            @Param("now") LocalDateTime now);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE TransferBatch b SET b.status = :newStatus, b.attempts = :attempts, b.updatedAt = :now " +
+            "WHERE b.id = :id AND b.status = :expectedStatus")
+    int compareAndSetStatusWithAttempts(@Param("id") String id,
+                                        @Param("expectedStatus") TransactionStatus expectedStatus,
+                                        @Param("newStatus") TransactionStatus newStatus,
+                                        @Param("attempts") int attempts,
+                                        @Param("now") LocalDateTime now);
+
+    // Lô PENDING có dòng vừa được PendingTransactionSweeper cho hết hạn; chạy cùng transaction với các dòng
+    @Modifying
+    @Query("UPDATE TransferBatch b SET b.status = 'EXPIRED', b.updatedAt = :now " +
+            "WHERE b.id IN :ids AND b.status = 'PENDING'")
+    int expirePendingByIds(@Param("ids") Collection<String> ids, @Param("now") LocalDateTime now);
+}
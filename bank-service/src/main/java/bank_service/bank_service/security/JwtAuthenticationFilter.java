@@ -56,11 +56,8 @@ private final StringRedisTemplate redis;
         String token = authHeader.substring(7);
         String accountId = jwtService.extractAccountId(token);
         String role = jwtService.extractRole(token);
-        System.out.println("Token from client: " + token);
-        System.out.println("Account ID from token: " + accountId);
 
         String tokenInRedis = redis.opsForValue().get("token:" + accountId);
-        System.out.println("Token in Redis: " + tokenInRedis);
 
         if (tokenInRedis == null || !tokenInRedis.equals(token)) {
             throw new AppException("Invalid or expired token");
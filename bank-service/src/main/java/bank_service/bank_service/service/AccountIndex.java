@@ -0,0 +1,282 @@
+package bank_service.bank_service.service;
+
+import bank_service.bank_service.cache.CompactValueSerializer;
+import bank_service.bank_service.dto.AccountSummaryDTO;
+import bank_service.bank_service.model.Account;
+import bank_service.bank_service.model.Role;
+import bank_service.bank_service.repository.AccountRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.serializer.GenericToStringSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Chỉ mục tài khoản trên Redis cho danh sách admin, cập nhật từng tài khoản thay vì xóa cả danh sách:
+ *   accounts:index          hash accountId -> AccountSummaryDTO (Smile, không có mật khẩu)
+ *   accounts:index:order    sorted set (score 0, sắp theo member) của mọi tài khoản, member = tên|email|sđt|accountId
+ *   accounts:index:order:{ROLE}  như trên, theo từng role
+ *   accounts:index:members  hash accountId -> member hiện tại, để xóa member cũ khi tên/email/role đổi
+ * Mỗi lần ghi là một script Lua nên hash và các sorted set luôn khớp nhau.
+ *
+ * Index chỉ được đọc khi có marker accounts:index:ready (đặt sau khi dựng lại toàn bộ từ DB);
+ * Redis mất dữ liệu hoặc ghi lỗi thì marker bị xóa, danh sách đọc từ DB cho tới khi dựng lại xong.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AccountIndex {
+
+    static final String HASH_KEY = "accounts:index";
+    static final String MEMBERS_KEY = "accounts:index:members";
+    static final String ORDER_KEY = "accounts:index:order";
+    static final String READY_KEY = "accounts:index:ready";
+    static final String REBUILD_LOCK_KEY = "accounts:index:rebuild";
+
+    private static final char SEPARATOR = '\u001f';
+    private static final byte[] EMPTY = new byte[0];
+    private static final int SCAN_COUNT = 1000;
+    private static final int REBUILD_PAGE_SIZE = 500;
+
+    // KEYS của UPSERT_SCRIPT: hash, members, order rồi order:{role} của mọi role
+    private static final List<String> KEYS = Stream.concat(
+            Stream.of(HASH_KEY, MEMBERS_KEY, ORDER_KEY),
+            Arrays.stream(Role.values()).map(AccountIndex::orderKey)).toList();
+
+    private static final CompactValueSerializer<AccountSummaryDTO> SERIALIZER =
+            CompactValueSerializer.of(AccountSummaryDTO.class, 0);
+
+    // KEYS: hash, members, order, order:{role} theo thứ tự Role; ARGV: accountId, member ('' = xóa), order key của role ('' = không có), summary.
+    // Member cũ được xóa khỏi mọi order:{role} (ít role, ZREM không có member là no-op) nên không cần lưu role cũ.
+    private static final DefaultRedisScript<Long> UPSERT_SCRIPT = new DefaultRedisScript<>("""
+            local old = redis.call('HGET', KEYS[2], ARGV[1])
+            if old then
+                for i = 3, #KEYS do
+                    redis.call('ZREM', KEYS[i], old)
+                end
+            end
+            if ARGV[2] == '' then
+                redis.call('HDEL', KEYS[1], ARGV[1])
+                redis.call('HDEL', KEYS[2], ARGV[1])
+                return 0
+            end
+            redis.call('HSET', KEYS[1], ARGV[1], ARGV[4])
+            redis.call('HSET', KEYS[2], ARGV[1], ARGV[2])
+            redis.call('ZADD', KEYS[3], 0, ARGV[2])
+            for i = 4, #KEYS do
+                if KEYS[i] == ARGV[3] then
+                    redis.call('ZADD', KEYS[i], 0, ARGV[2])
+                end
+            end
+            return 1
+            """, Long.class);
+
+    private final RedisTemplate<String, byte[]> binaryRedisTemplate;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final AccountRepository accountRepository;
+
+    /**
+     * Cập nhật entry của tài khoản theo dữ liệu trong DB sau khi transaction hiện tại commit
+     * (đọc lại từ DB nên hai lần cập nhật commit gần nhau không để lại bản cũ)
+     */
+    public void refresh(String accountId) {
+        afterCommit(() -> {
+            try {
+                accountRepository.findById(accountId).ifPresentOrElse(this::put, () -> remove(accountId));
+            } catch (DataAccessException e) {
+                log.warn("Cannot update account index for {}: {}", accountId, e.getMessage());
+                markStale();
+            }
+        });
+    }
+
+    /**
+     * Một trang danh sách tài khoản, sắp theo tên; empty nếu index chưa sẵn sàng (người gọi đọc từ DB)
+     */
+    public Optional<Page<AccountSummaryDTO>> find(Role role, String query, Pageable pageable) {
+        try {
+            if (!Boolean.TRUE.equals(stringRedisTemplate.hasKey(READY_KEY))) {
+                return Optional.empty();
+            }
+            String orderKey = orderKey(role);
+            ZSetOperations<String, byte[]> zSet = binaryRedisTemplate.opsForZSet();
+            List<byte[]> members;
+            long total;
+            if (query == null || query.isBlank()) {
+                Long count = zSet.zCard(orderKey);
+                total = count == null ? 0 : count;
+                Set<byte[]> range = zSet.range(orderKey, pageable.getOffset(), pageable.getOffset() + pageable.getPageSize() - 1);
+                members = range == null ? List.of() : List.copyOf(range);
+            } else {
+                List<byte[]> matches = scan(orderKey, "*" + escapeGlob(normalize(query)) + "*");
+                // Cùng thứ tự với sorted set (so sánh byte)
+                matches.sort(Arrays::compareUnsigned);
+                total = matches.size();
+                int from = (int) Math.min(pageable.getOffset(), total);
+                members = matches.subList(from, (int) Math.min(from + (long) pageable.getPageSize(), total));
+            }
+            return Optional.of(new PageImpl<>(load(members), pageable, total));
+        } catch (DataAccessException | SerializationException e) {
+            log.warn("Cannot read account index: {}", e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    private List<byte[]> scan(String orderKey, String pattern) {
+        List<byte[]> matches = new ArrayList<>();
+        ScanOptions options = ScanOptions.scanOptions().match(pattern).count(SCAN_COUNT).build();
+        try (Cursor<ZSetOperations.TypedTuple<byte[]>> cursor = binaryRedisTemplate.opsForZSet().scan(orderKey, options)) {
+            cursor.forEachRemaining(tuple -> matches.add(tuple.getValue()));
+        }
+        return matches;
+    }
+
+    private List<AccountSummaryDTO> load(List<byte[]> members) {
+        if (members.isEmpty()) {
+            return List.of();
+        }
+        List<String> ids = members.stream().map(AccountIndex::accountIdOf).toList();
+        HashOperations<String, String, byte[]> hash = binaryRedisTemplate.opsForHash();
+        return hash.multiGet(HASH_KEY, ids).stream()
+                .filter(Objects::nonNull)
+                .map(SERIALIZER::deserialize)
+                .toList();
+    }
+
+    /**
+     * Dựng lại index từ DB khi chưa có marker (lần đầu chạy, Redis mất dữ liệu, ghi lỗi trước đó);
+     * khóa trên Redis để chỉ một instance dựng lại
+     */
+    @Scheduled(fixedDelayString = "${account.index.check-interval-ms:60000}")
+    public void ensureReady() {
+        try {
+            if (Boolean.TRUE.equals(stringRedisTemplate.hasKey(READY_KEY))
+                    || !Boolean.TRUE.equals(stringRedisTemplate.opsForValue().setIfAbsent(REBUILD_LOCK_KEY, "1", Duration.ofMinutes(5)))) {
+                return;
+            }
+        } catch (DataAccessException e) {
+            log.warn("Cannot check account index: {}", e.getMessage());
+            return;
+        }
+        try {
+            rebuild();
+        } catch (DataAccessException | SerializationException e) {
+            log.warn("Cannot rebuild account index: {}", e.getMessage());
+        } finally {
+            stringRedisTemplate.delete(REBUILD_LOCK_KEY);
+        }
+    }
+
+    private void rebuild() {
+        binaryRedisTemplate.delete(KEYS);
+
+        Pageable pageable = PageRequest.of(0, REBUILD_PAGE_SIZE, Sort.by("accountId"));
+        Page<Account> page;
+        do {
+            page = accountRepository.findAll(pageable);
+            page.forEach(this::put);
+            pageable = pageable.next();
+        } while (page.hasNext());
+        stringRedisTemplate.opsForValue().set(READY_KEY, "1");
+        log.info("Rebuilt account index with {} accounts", page.getTotalElements());
+    }
+
+    void put(Account account) {
+        AccountSummaryDTO summary = AccountSummaryDTO.from(account);
+        String roleKey = account.getRole() == null ? "" : orderKey(account.getRole());
+        write(account.getAccountId(), member(summary).getBytes(StandardCharsets.UTF_8),
+                roleKey.getBytes(StandardCharsets.UTF_8), SERIALIZER.serialize(summary));
+    }
+
+    void remove(String accountId) {
+        write(accountId, EMPTY, EMPTY, EMPTY);
+    }
+
+    // Lỗi Redis được ném ra: refresh đánh dấu stale, rebuild dừng và không đặt marker
+    private void write(String accountId, byte[] member, byte[] roleKey, byte[] summary) {
+        binaryRedisTemplate.execute(UPSERT_SCRIPT, RedisSerializer.byteArray(),
+                new GenericToStringSerializer<>(Long.class), KEYS, accountId.getBytes(StandardCharsets.UTF_8), member, roleKey, summary);
+    }
+
+    // Index lệch với DB: bỏ marker để danh sách đọc từ DB và lần kiểm tra sau dựng lại
+    private void markStale() {
+        try {
+            stringRedisTemplate.delete(READY_KEY);
+        } catch (DataAccessException e) {
+            log.warn("Cannot mark account index stale: {}", e.getMessage());
+        }
+    }
+
+    static String orderKey(Role role) {
+        return role == null ? ORDER_KEY : ORDER_KEY + ":" + role.name();
+    }
+
+    // Member sắp theo tên rồi email; accountId ở cuối để đọc lại id và để member là duy nhất
+    static String member(AccountSummaryDTO summary) {
+        return normalize(summary.getCustomerName()) + SEPARATOR
+                + normalize(summary.getEmail()) + SEPARATOR
+                + Objects.toString(summary.getPhoneNumber(), "") + SEPARATOR
+                + summary.getAccountId();
+    }
+
+    static String accountIdOf(byte[] member) {
+        String value = new String(member, StandardCharsets.UTF_8);
+        return value.substring(value.lastIndexOf(SEPARATOR) + 1);
+    }
+
+    static String normalize(String value) {
+        return value == null ? "" : value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    static String escapeGlob(String value) {
+        StringBuilder escaped = new StringBuilder(value.length());
+        for (char c : value.toCharArray()) {
+            if (c == '*' || c == '?' || c == '[' || c == ']' || c == '\\') {
+                escaped.append('\\');
+            }
+            escaped.append(c);
+        }
+        return escaped.toString();
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -1,5 +1,9 @@
 package bank_service.bank_service.service;
 
+import bank_service.bank_service.cache.CacheInvalidator;
+import bank_service.bank_service.cache.RequestMemo;
+import bank_service.bank_service.config.CacheConfig;
+import bank_service.bank_service.dto.AccountSummaryDTO;
 import bank_service.bank_service.exception.AppException;
 import bank_service.bank_service.model.Account;
 import bank_service.bank_service.model.Balance;
@@ -9,14 +13,18 @@ import bank_service.bank_service.repository.AccountRepository;
 import bank_service.bank_service.repository.BalanceRepository;
 import bank_service.bank_service.repository.CardRepository;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.cache.annotation.CachePut;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.util.List;
 import java.util.Optional;
-import java.util.concurrent.TimeUnit;
 
 @Service
 public class AccountService {
@@ -30,18 +38,24 @@ public class AccountService {
     private BalanceRepository balanceRepository;
 
     @Autowired
-    private RedisTemplate<String, Object> redisTemplate;
+    private AccountIndex accountIndex;
 
-    private final PasswordEncoder passwordEncoder;
+    @Autowired
+    private CardViewIndex cardViewIndex;
+
+    @Autowired
+    private CacheInvalidator cacheInvalidator;
 
-    private static final String ACCOUNT_KEY_PREFIX = "account:";
-    private static final String ALL_ACCOUNTS_KEY = "accounts:all";
-    private static final long CACHE_TTL = 10; // TTL 10 phút
+    @Autowired
+    private RequestMemo requestMemo;
+
+    private final PasswordEncoder passwordEncoder;
 
     public AccountService(PasswordEncoder passwordEncoder) {
         this.passwordEncoder = passwordEncoder;
     }
 
+@CachePut(cacheNames = CacheConfig.ACCOUNT_CACHE, key = "#result.accountId")
 public Account createAccount(Account account) {
     if (accountRepository.existsByEmail(account.getEmail())) {
         throw new AppException("Email is already in use");
@@ -63,41 +77,33 @@ public Account createAccount(Account account) {
     balance.setAvailableBalance(BigDecimal.ZERO);
     balance.setHoldBalance(BigDecimal.ZERO);
     balanceRepository.save(balance);
-
-    String key = ACCOUNT_KEY_PREFIX + saved.getAccountId();
-    redisTemplate.opsForValue().set(key, saved, CACHE_TTL, TimeUnit.MINUTES);
-    redisTemplate.delete(ALL_ACCOUNTS_KEY); // Xóa cache list
+    accountIndex.refresh(saved.getAccountId());
+    // Xóa negative entry của tài khoản (balance, cards...); account được @CachePut ghi lại sau đó
+    cacheInvalidator.evictTag(CacheConfig.ACCOUNT_TAG, List.of(saved.getAccountId()));
 
     return saved;
 }
 
+    // Optional rỗng được cache negative-ttl (cache.near.specs.account), xóa khi tạo tài khoản
+    @Cacheable(cacheNames = CacheConfig.ACCOUNT_CACHE, key = "#accountId", sync = true)
     public Optional<Account> getAccountById(String accountId) {
-        String key = ACCOUNT_KEY_PREFIX + accountId;
-
-        // Lấy từ Redis trước
-        Account cached = (Account) redisTemplate.opsForValue().get(key);
-        if (cached != null) {
-            return Optional.of(cached);
-        }
-
-        // Nếu không có, lấy từ DB và lưu cache
-        Optional<Account> account = accountRepository.findById(accountId);
-        account.ifPresent(acc -> redisTemplate.opsForValue().set(key, acc, CACHE_TTL, TimeUnit.MINUTES));
-
-        return account;
+        return accountRepository.findById(accountId);
     }
 
-    public List<Account> getAllAccounts() {
-        List<Account> cachedList = (List<Account>) redisTemplate.opsForValue().get(ALL_ACCOUNTS_KEY);
-        if (cachedList != null) {
-            return cachedList;
-        }
-
-        List<Account> accounts = accountRepository.findAll();
-        redisTemplate.opsForValue().set(ALL_ACCOUNTS_KEY, accounts, CACHE_TTL, TimeUnit.MINUTES);
-        return accounts;
+    /**
+     * Danh sách admin sắp theo tên, lọc theo role và chuỗi tìm kiếm (tên, email, số điện thoại, accountId).
+     * Đọc từ AccountIndex trên Redis; index chưa sẵn sàng thì đọc từ DB.
+     */
+    public Page<AccountSummaryDTO> listAccounts(Role role, String query, Pageable pageable) {
+        String q = query == null || query.isBlank() ? null : query.trim().toLowerCase();
+        PageRequest page = PageRequest.of(pageable.getPageNumber(), pageable.getPageSize());
+        return accountIndex.find(role, q, page)
+                .orElseGet(() -> accountRepository.search(role, q == null ? null : "%" + q + "%",
+                                page.withSort(Sort.by("customerName", "accountId")))
+                        .map(AccountSummaryDTO::from));
     }
 
+    @CachePut(cacheNames = CacheConfig.ACCOUNT_CACHE, key = "#accountId")
     public Account updateAccount(String accountId, String customerName, String email, String phoneNumber, Role role) {
         Account acc = accountRepository.findById(accountId)
                 .orElseThrow(() -> new AppException("Account not found"));
@@ -108,10 +114,10 @@ public Account createAccount(Account account) {
         acc.setRole(role);
 
         Account updated = accountRepository.save(acc);
-
-        String key = ACCOUNT_KEY_PREFIX + accountId;
-        redisTemplate.opsForValue().set(key, updated, CACHE_TTL, TimeUnit.MINUTES);
-        redisTemplate.delete(ALL_ACCOUNTS_KEY);
+        requestMemo.remember(Account.class, accountId, updated);
+        accountIndex.refresh(accountId);
+        // Tên/email/sđt hiển thị trên view thẻ của admin
+        cardViewIndex.refreshAccount(accountId);
 
         return updated;
     }
@@ -135,9 +141,10 @@ public Account createAccount(Account account) {
         }
 
         accountRepository.deleteById(accountId);
-
-        redisTemplate.delete(ACCOUNT_KEY_PREFIX + accountId);
-        redisTemplate.delete(ALL_ACCOUNTS_KEY);
+        requestMemo.remember(Account.class, accountId, null);
+        accountIndex.refresh(accountId);
+        // Mọi cache theo tài khoản (account, balance, cards, categories) trong một round trip
+        cacheInvalidator.evictTag(CacheConfig.ACCOUNT_TAG, List.of(accountId));
     }
 
 }
@@ -1,5 +1,7 @@
 package bank_service.bank_service.service;
 
+import bank_service.bank_service.cache.CacheInvalidator;
+import bank_service.bank_service.config.CacheConfig;
 import bank_service.bank_service.dto.AuthResponse;
 import bank_service.bank_service.dto.LoginRequest;
 import bank_service.bank_service.exception.AppException;
@@ -14,6 +16,7 @@ import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 
@@ -26,6 +29,9 @@ public class AuthService {
     private final JwtService jwtService;
     private final StringRedisTemplate redis;
     private final CategoryService categoryService;
+    private final AccountIndex accountIndex;
+    private final CacheInvalidator cacheInvalidator;
+    private final CacheWarmupService cacheWarmupService;
 
 
     public AuthResponse register(RegisterRequest request) {
@@ -46,6 +52,9 @@ public class AuthService {
                 .build();
 
         Account savedAccount = accountRepository.save(account);
+        accountIndex.refresh(savedAccount.getAccountId());
+        // Xóa negative entry (nếu id từng được hỏi khi chưa tồn tại)
+        cacheInvalidator.evictTag(CacheConfig.ACCOUNT_TAG, List.of(savedAccount.getAccountId()));
 
         // Create default categories for the new user
         categoryService.createDefaultCategories(savedAccount.getAccountId());
@@ -69,6 +78,7 @@ public class AuthService {
         String token = jwtService.generateToken(account.getAccountId(), account.getRole());
 
         saveTokenToRedis(account.getAccountId(), token);
+        cacheWarmupService.prefetch(account.getAccountId());
         return AuthResponse.builder()
                 .token(token)
                 .build();
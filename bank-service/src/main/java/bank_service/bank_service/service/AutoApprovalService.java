@@ -0,0 +1,247 @@
+package bank_service.bank_service.service;
+
+import bank_service.bank_service.exception.AppException;
+import bank_service.bank_service.model.AutoApprovalRule;
+import bank_service.bank_service.model.Transaction;
+import bank_service.bank_service.model.TransactionStatus;
+import bank_service.bank_service.model.TransactionType;
+import bank_service.bank_service.repository.AutoApprovalRuleRepository;
+import bank_service.bank_service.repository.BalanceRepository;
+import bank_service.bank_service.repository.TransactionRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+
+/**
+ * Engine tự động duyệt giao dịch chuyển khoản rủi ro thấp.
+ * Rule trong DB được biên dịch thành cây predicate trong bộ nhớ; danh sách đã biên dịch
+ * được thay thế nguyên khối (volatile) nên có thể reload khi đang chạy mà không cần khóa.
+ *
+ * Dữ kiện hạn mức đọc từ bảng transaction (không phải transaction_history, vốn ghi trễ ở chế độ async)
+ * sau khi khóa balance của người gửi và người nhận, nên phải gọi trong transaction của lần duyệt:
+ * hai giao dịch cùng người gửi được xét lần lượt và lần sau thấy lần trước đã được duyệt.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AutoApprovalService {
+
+    private final AutoApprovalRuleRepository ruleRepository;
+    private final TransactionRepository transactionRepository;
+    private final BalanceRepository balanceRepository;
+
+    private volatile List<CompiledRule> compiledRules = List.of();
+    private volatile LocalDateTime loadedUpdatedAt;
+    private volatile long loadedRuleCount;
+    private final ReentrantLock reloadLock = new ReentrantLock();
+
+    @PostConstruct
+    public void init() {
+        reload();
+    }
+
+    /**
+     * Nạp lại và biên dịch toàn bộ rule đang bật
+     */
+    public void reload() {
+        // ReentrantLock thay vì synchronized: truy vấn DB bên trong không ghim carrier của virtual thread
+        reloadLock.lock();
+        try {
+            List<AutoApprovalRule> rules = ruleRepository.findByEnabledTrueOrderByPriorityAscIdAsc();
+            compiledRules = compile(rules);
+            loadedUpdatedAt = ruleRepository.findLastUpdatedAt();
+            loadedRuleCount = ruleRepository.count();
+            log.info("Loaded {} auto-approval rules", compiledRules.size());
+        } finally {
+            reloadLock.unlock();
+        }
+    }
+
+    // Phát hiện rule bị thay đổi bởi instance khác
+    @Scheduled(fixedDelayString = "${auto-approval.refresh-interval-ms:30000}")
+    public void refreshIfChanged() {
+        LocalDateTime lastUpdatedAt = ruleRepository.findLastUpdatedAt();
+        long count = ruleRepository.count();
+        if (!Objects.equals(lastUpdatedAt, loadedUpdatedAt) || count != loadedRuleCount) {
+            reload();
+        }
+    }
+
+    /**
+     * Trả về tên rule khớp đầu tiên, hoặc rỗng nếu giao dịch cần admin duyệt
+     */
+    public Optional<String> evaluate(Transaction tx) {
+        List<CompiledRule> rules = compiledRules;
+        if (rules.isEmpty() || tx.getTransactionType() != TransactionType.TRANSFER) {
+            return Optional.empty();
+        }
+        ApprovalFacts facts = new ApprovalFacts(tx, transactionRepository, balanceRepository);
+        for (CompiledRule rule : rules) {
+            if (rule.predicate().test(facts)) {
+                return Optional.of(rule.name());
+            }
+        }
+        return Optional.empty();
+    }
+
+    public List<AutoApprovalRule> getAllRules() {
+        return ruleRepository.findAll();
+    }
+
+    public AutoApprovalRule createRule(AutoApprovalRule rule) {
+        rule.setId(null);
+        validate(rule);
+        AutoApprovalRule saved = ruleRepository.save(rule);
+        reload();
+        return saved;
+    }
+
+    public AutoApprovalRule updateRule(Long id, AutoApprovalRule request) {
+        AutoApprovalRule rule = ruleRepository.findById(id)
+                .orElseThrow(() -> new AppException("Auto-approval rule not found"));
+        rule.setName(request.getName());
+        rule.setEnabled(request.getEnabled());
+        rule.setPriority(request.getPriority());
+        rule.setMaxAmount(request.getMaxAmount());
+        rule.setKnownCounterpartyOnly(request.getKnownCounterpartyOnly());
+        rule.setMaxDailyCount(request.getMaxDailyCount());
+        rule.setMaxDailyAmount(request.getMaxDailyAmount());
+        validate(rule);
+        AutoApprovalRule saved = ruleRepository.save(rule);
+        reload();
+        return saved;
+    }
+
+    public void deleteRule(Long id) {
+        if (!ruleRepository.existsById(id)) {
+            throw new AppException("Auto-approval rule not found");
+        }
+        ruleRepository.deleteById(id);
+        reload();
+    }
+
+    private void validate(AutoApprovalRule rule) {
+        if (rule.getName() == null || rule.getName().isBlank()) {
+            throw new AppException("Rule name is required");
+        }
+        if (rule.getEnabled() == null) {
+            rule.setEnabled(true);
+        }
+        if (rule.getPriority() == null) {
+            rule.setPriority(100);
+        }
+        if (rule.getKnownCounterpartyOnly() == null) {
+            rule.setKnownCounterpartyOnly(false);
+        }
+        if (rule.getMaxAmount() == null && rule.getMaxDailyAmount() == null) {
+            throw new AppException("Rule must limit maxAmount or maxDailyAmount");
+        }
+    }
+
+    // ==================== Biên dịch rule ====================
+
+    record CompiledRule(String name, Predicate<ApprovalFacts> predicate) {}
+
+    static List<CompiledRule> compile(List<AutoApprovalRule> rules) {
+        List<CompiledRule> compiled = new ArrayList<>();
+        for (AutoApprovalRule rule : rules) {
+            Predicate<ApprovalFacts> predicate = compile(rule);
+            if (predicate == null) {
+                log.warn("Skipping auto-approval rule '{}' without any condition", rule.getName());
+                continue;
+            }
+            compiled.add(new CompiledRule(rule.getName(), predicate));
+        }
+        return List.copyOf(compiled);
+    }
+
+    private static Predicate<ApprovalFacts> compile(AutoApprovalRule rule) {
+        // Điều kiện không cần I/O đứng trước để short-circuit trước khi tra DB
+        List<Predicate<ApprovalFacts>> conditions = new ArrayList<>();
+        if (rule.getMaxAmount() != null) {
+            BigDecimal maxAmount = rule.getMaxAmount();
+            conditions.add(f -> f.amount().compareTo(maxAmount) <= 0);
+        }
+        if (Boolean.TRUE.equals(rule.getKnownCounterpartyOnly())) {
+            conditions.add(ApprovalFacts::isKnownCounterparty);
+        }
+        if (rule.getMaxDailyCount() != null) {
+            int maxDailyCount = rule.getMaxDailyCount();
+            conditions.add(f -> f.dailyCount() + 1 <= maxDailyCount);
+        }
+        if (rule.getMaxDailyAmount() != null) {
+            BigDecimal maxDailyAmount = rule.getMaxDailyAmount();
+            conditions.add(f -> f.dailyAmount().add(f.amount()).compareTo(maxDailyAmount) <= 0);
+        }
+        return conditions.stream().reduce(Predicate::and).orElse(null);
+    }
+
+    /**
+     * Dữ kiện của một giao dịch. Các dữ kiện cần tra DB chỉ được tính khi rule cần và được nhớ lại;
+     * trước lần tra đầu tiên khóa balance hai bên (theo thứ tự accountId như settleHold để không deadlock).
+     */
+    static class ApprovalFacts {
+        private final Transaction tx;
+        private final TransactionRepository transactionRepository;
+        private final BalanceRepository balanceRepository;
+        private boolean locked;
+        private Boolean knownCounterparty;
+        private TransactionRepository.OutgoingTotals approvedToday;
+
+        ApprovalFacts(Transaction tx, TransactionRepository transactionRepository, BalanceRepository balanceRepository) {
+            this.tx = tx;
+            this.transactionRepository = transactionRepository;
+            this.balanceRepository = balanceRepository;
+        }
+
+        BigDecimal amount() {
+            return tx.getAmount();
+        }
+
+        boolean isKnownCounterparty() {
+            if (knownCounterparty == null) {
+                lock();
+                knownCounterparty = transactionRepository.existsByFromAccountIdAndToAccountIdAndStatus(
+                        tx.getFromAccountId(), tx.getToAccountId(), TransactionStatus.APPROVED);
+            }
+            return knownCounterparty;
+        }
+
+        int dailyCount() {
+            return (int) approvedToday().getCount();
+        }
+
+        BigDecimal dailyAmount() {
+            return approvedToday().getAmount();
+        }
+
+        // Giao dịch đi tạo hôm nay và đã được duyệt: một câu COUNT/SUM, không tải từng dòng
+        private TransactionRepository.OutgoingTotals approvedToday() {
+            if (approvedToday == null) {
+                lock();
+                approvedToday = transactionRepository.sumApprovedOutgoingForShare(tx.getFromAccountId(),
+                        LocalDate.now().atStartOfDay());
+            }
+            return approvedToday;
+        }
+
+        private void lock() {
+            if (!locked) {
+                balanceRepository.lockAll(List.of(tx.getFromAccountId(), tx.getToAccountId()));
+                locked = true;
+            }
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package bank_service.bank_service.service;
+
+import bank_service.bank_service.exception.AppException;
+import bank_service.bank_service.model.Balance;
+import bank_service.bank_service.model.BalanceHold;
+import bank_service.bank_service.repository.BalanceHoldRepository;
+import bank_service.bank_service.repository.BalanceRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tiền giữ cho giao dịch chuyển khoản, mỗi giao dịch một dòng balance_hold.
+ *
+ * Tạo hold: một câu UPDATE có điều kiện trừ available (không đọc-sửa-ghi) rồi INSERT dòng hold.
+ * Duyệt: xóa dòng hold (available của người gửi đã bị trừ từ lúc tạo).
+ * Hoàn tiền: cộng lại available theo tổng hold của các giao dịch rồi xóa các dòng hold, áp dụng được cho cả lô.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BalanceHoldService {
+
+    private static final String INSERT_HOLD_SQL = "INSERT INTO balance_hold " +
+            "(transaction_id, account_id, amount, expires_at, created_at) VALUES (?, ?, ?, ?, ?)";
+
+    private final BalanceHoldRepository balanceHoldRepository;
+    private final BalanceRepository balanceRepository;
+    private final BalanceService balanceService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @Transactional
+    public void placeHold(String accountId, String transactionId, BigDecimal amount, LocalDateTime expiresAt) {
+        debit(accountId, amount);
+        balanceHoldRepository.insertHold(transactionId, accountId, amount, expiresAt, LocalDateTime.now());
+        refreshCache(accountId);
+    }
+
+    /**
+     * Một lần trừ available cho tổng tiền, các dòng hold (theo transactionId) ghi bằng JDBC batch
+     */
+    @Transactional
+    public void placeHolds(String accountId, Map<String, BigDecimal> amountByTransactionId,
+                           LocalDateTime expiresAt, int batchSize) {
+        BigDecimal total = amountByTransactionId.values().stream().reduce(BigDecimal.ZERO, BigDecimal::add);
+        debit(accountId, total);
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        Timestamp expires = expiresAt != null ? Timestamp.valueOf(expiresAt) : null;
+        jdbcTemplate.batchUpdate(INSERT_HOLD_SQL, List.copyOf(amountByTransactionId.entrySet()), batchSize,
+                (ps, entry) -> {
+                    ps.setString(1, entry.getKey());
+                    ps.setString(2, accountId);
+                    ps.setBigDecimal(3, entry.getValue());
+                    ps.setTimestamp(4, expires);
+                    ps.setTimestamp(5, now);
+                });
+        refreshCache(accountId);
+    }
+
+    private void debit(String accountId, BigDecimal amount) {
+        if (balanceRepository.debitAvailable(accountId, amount) == 1) {
+            return;
+        }
+        if (!balanceRepository.existsById(accountId)) {
+            throw new AppException("Sender balance not found");
+        }
+        throw new AppException("Insufficient balance");
+    }
+
+    /**
+     * Hoàn tiền hold -> available cho các giao dịch (hết hạn, sai OTP, bị từ chối) và xóa dòng hold
+     */
+    @Transactional
+    public void releaseHolds(Collection<String> transactionIds) {
+        if (transactionIds.isEmpty()) {
+            return;
+        }
+        balanceRepository.creditHoldsForTransactions(transactionIds);
+        balanceHoldRepository.deleteByTransactionIds(transactionIds);
+    }
+
+    /**
+     * Giao dịch được duyệt: tiền đã rời available của người gửi từ lúc tạo hold nên chỉ cần xóa dòng hold
+     * (tăng version để cache nhận holdBalance mới) và cộng available cho người nhận.
+     * Hai dòng balance được cập nhật theo thứ tự accountId, giống findAllForUpdate, để hai giao dịch
+     * ngược chiều được duyệt cùng lúc không deadlock.
+     */
+    @Transactional
+    public void settleHold(String fromAccountId, String transactionId, String toAccountId, BigDecimal amount) {
+        balanceHoldRepository.deleteByTransactionIds(List.of(transactionId));
+        if (fromAccountId.compareTo(toAccountId) < 0) {
+            balanceRepository.bumpVersions(List.of(fromAccountId));
+            credit(toAccountId, amount);
+        } else {
+            credit(toAccountId, amount);
+            balanceRepository.bumpVersions(List.of(fromAccountId));
+        }
+        refreshCache(fromAccountId);
+        refreshCache(toAccountId);
+    }
+
+    private void credit(String accountId, BigDecimal amount) {
+        if (balanceRepository.creditAvailable(accountId, amount) == 1) {
+            return;
+        }
+        // Tự động tạo balance cho người nhận nếu chưa có
+        balanceRepository.save(Balance.builder()
+                .accountId(accountId)
+                .availableBalance(amount)
+                .holdBalance(BigDecimal.ZERO)
+                .build());
+    }
+
+    /**
+     * Xóa dòng hold mà không chạm vào balance; dùng khi balance đã được khóa và cập nhật trong bộ nhớ
+     * (duyệt/từ chối hàng loạt)
+     */
+    @Transactional
+    public void deleteHolds(Collection<String> transactionIds) {
+        if (!transactionIds.isEmpty()) {
+            balanceHoldRepository.deleteByTransactionIds(transactionIds);
+        }
+    }
+
+    @Transactional
+    public void clearExpiry(Collection<String> transactionIds) {
+        if (!transactionIds.isEmpty()) {
+            balanceHoldRepository.clearExpiry(transactionIds);
+        }
+    }
+
+    public List<BalanceHold> getHolds(String accountId) {
+        return balanceHoldRepository.findByAccountIdOrderByCreatedAtDesc(accountId);
+    }
+
+    public void refreshCache(String accountId) {
+        balanceRepository.findById(accountId).ifPresent(b -> balanceService.refreshCache(accountId, b));
+    }
+
+    /**
+     * Tạo dòng hold cho các giao dịch đang chờ được tạo trước khi có bảng balance_hold,
+     * để holdBalance (tính từ balance_hold) khớp với số tiền thực sự đang giữ
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillMissingHolds() {
+        Integer created = transactionTemplate.execute(status -> balanceHoldRepository.backfillMissingHolds());
+        if (created != null && created > 0) {
+            log.info("Created {} balance holds for pending transactions", created);
+        }
+    }
+}
@@ -1,48 +1,42 @@
 package bank_service.bank_service.service;
 
+import bank_service.bank_service.cache.CacheInvalidator;
+import bank_service.bank_service.cache.RequestMemo;
+import bank_service.bank_service.config.CacheConfig;
 import bank_service.bank_service.exception.AppException;
 import bank_service.bank_service.model.Balance;
 import bank_service.bank_service.repository.BalanceRepository;
 import bank_service.bank_service.repository.CardRepository;
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.Optional;
-import java.util.concurrent.TimeUnit;
 
+/**
+ * Cache "balance" (CacheConfig): L2 là hash BALANCE:{accountId} ghi bằng compare-and-set theo version,
+ * nên hai giao dịch hoàn tất theo thứ tự bất kỳ cũng không để lại số dư cũ trên cache.
+ * Cache là transaction-aware: put/evict trong transaction chỉ chạy sau commit, lúc đó version đã được tăng khi flush
+ * và người đọc khác không thể thấy số dư chưa commit.
+ */
 @Service
 @RequiredArgsConstructor
 public class BalanceService {
 
     private final BalanceRepository balanceRepository;
     private final CardRepository cardRepository;
-    private final RedisTemplate<String, Object> redisTemplate;
-
-    private static final String BALANCE_KEY_PREFIX = "BALANCE:";
-    private static final long CACHE_TTL = 5; // phút
+    private final CacheManager cacheManager;
+    private final CardViewIndex cardViewIndex;
+    private final CacheInvalidator cacheInvalidator;
+    private final RequestMemo requestMemo;
 
+    @Cacheable(cacheNames = CacheConfig.BALANCE_CACHE, key = "#accountId", sync = true)
     public Optional<Balance> getBalance(String accountId) {
-        String key = BALANCE_KEY_PREFIX + accountId;
-
-        // 1. Lấy từ Redis
-        Balance cached = (Balance) redisTemplate.opsForValue().get(key);
-        if (cached != null) {
-            System.out.println("Redis HIT for account: " + accountId);
-            return Optional.of(cached);
-        }
-        System.out.println("Redis MISS for account: " + accountId + " → Querying DB...");
-
-        // 2. Nếu không có → lấy từ DB
-        Optional<Balance> balanceOpt = balanceRepository.findById(accountId);
-
-        // 3. Lưu vào Redis nếu tồn tại
-        balanceOpt.ifPresent(b ->
-                redisTemplate.opsForValue().set(key, b, CACHE_TTL, TimeUnit.MINUTES)
-        );
-
-        return balanceOpt;
+        return balanceRepository.findById(accountId);
     }
 
     public Balance deposit(String accountId, BigDecimal amount) {
@@ -82,9 +76,11 @@ public class BalanceService {
 
         return saved;
     }
+    // Số dư cũng hiển thị trên view thẻ của admin: ghi lại các thẻ của tài khoản (sau commit)
     private void updateCache(String accountId, Balance balance) {
-        String key = BALANCE_KEY_PREFIX + accountId;
-        redisTemplate.opsForValue().set(key, balance, CACHE_TTL, TimeUnit.MINUTES);
+        balanceCache().put(accountId, balance);
+        requestMemo.remember(Balance.class, accountId, balance);
+        cardViewIndex.refreshAccount(accountId);
     }
 
     /**
@@ -95,11 +91,27 @@ public class BalanceService {
     }
 
     /**
-     * Xóa cache cho balance
+     * Xóa cache cho balance (dùng sau các câu UPDATE hàng loạt không đi qua entity)
      */
     public void invalidateCache(String accountId) {
-        String key = BALANCE_KEY_PREFIX + accountId;
-        redisTemplate.delete(key);
+        balanceCache().evict(accountId);
+        requestMemo.evict(Balance.class, accountId);
+        cardViewIndex.refreshAccount(accountId);
+    }
+
+    /**
+     * Như invalidateCache cho nhiều tài khoản, xóa cache trong một round trip
+     */
+    public void invalidateCache(Collection<String> accountIds) {
+        cacheInvalidator.evict(CacheConfig.BALANCE_CACHE, accountIds);
+        accountIds.forEach(accountId -> {
+            requestMemo.evict(Balance.class, accountId);
+            cardViewIndex.refreshAccount(accountId);
+        });
+    }
+
+    private Cache balanceCache() {
+        return cacheManager.getCache(CacheConfig.BALANCE_CACHE);
     }
 
     private void checkActiveCard(String accountId) {
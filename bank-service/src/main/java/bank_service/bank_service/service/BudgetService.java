@@ -1,7 +1,9 @@
 package bank_service.bank_service.service;
 
+import bank_service.bank_service.cache.RequestMemo;
 import bank_service.bank_service.dto.budget.*;
 import bank_service.bank_service.exception.AppException;
+import bank_service.bank_service.model.Account;
 import bank_service.bank_service.model.Budget;
 import bank_service.bank_service.model.Category;
 import bank_service.bank_service.model.TransactionStatus;
@@ -35,6 +37,7 @@ public class BudgetService {
     private final AccountRepository accountRepository;
     private final JmsTemplate jmsTemplate;
     private final ObjectMapper objectMapper;
+    private final RequestMemo requestMemo;
 
     private static final String BUDGET_ALERT_QUEUE = "budget-alert-queue";
 
@@ -58,7 +61,7 @@ public class BudgetService {
         Optional<Budget> existingBudget;
         if (request.getCategoryId() != null) {
             // Validate category exists and belongs to user
-            Category category = categoryRepository.findById(Long.parseLong(request.getCategoryId()))
+            Category category = findCategory(request.getCategoryId())
                     .orElseThrow(() -> new AppException("Category not found"));
             if (!category.getAccountId().equals(accountId)) {
                 throw new AppException("Category does not belong to this account");
@@ -282,7 +285,7 @@ public class BudgetService {
 
         String categoryName = null;
         if (budget.getCategoryId() != null) {
-            categoryName = categoryRepository.findById(Long.parseLong(budget.getCategoryId()))
+            categoryName = findCategory(budget.getCategoryId())
                     .map(Category::getCategoryName)
                     .orElse("Unknown");
         }
@@ -340,17 +343,23 @@ public class BudgetService {
     }
 
     private String getAccountEmail(String accountId) {
-        return accountRepository.findById(accountId)
+        return requestMemo.find(Account.class, accountId, () -> accountRepository.findById(accountId))
                 .map(account -> account.getEmail())
                 .orElse(null);
     }
 
+    // Nhiều budget cùng category (và cảnh báo của budget đó) chỉ đọc category một lần trong request
+    private Optional<Category> findCategory(String categoryId) {
+        Long id = Long.parseLong(categoryId);
+        return requestMemo.find(Category.class, id, () -> categoryRepository.findById(id));
+    }
+
     private BudgetAlertDTO createAndSendAlert(Budget budget, BigDecimal spentAmount, 
             double progressPercent, BudgetAlertDTO.AlertType alertType, String accountEmail) {
         
         String categoryName = null;
         if (budget.getCategoryId() != null) {
-            categoryName = categoryRepository.findById(Long.parseLong(budget.getCategoryId()))
+            categoryName = findCategory(budget.getCategoryId())
                     .map(Category::getCategoryName)
                     .orElse("Unknown");
         }
@@ -0,0 +1,238 @@
+package bank_service.bank_service.service;
+
+import bank_service.bank_service.cache.CacheInvalidator;
+import bank_service.bank_service.cache.CacheStore;
+import bank_service.bank_service.cache.NearCacheProperties;
+import bank_service.bank_service.config.CacheConfig;
+import bank_service.bank_service.model.Account;
+import bank_service.bank_service.model.Balance;
+import bank_service.bank_service.model.Card;
+import bank_service.bank_service.repository.AccountRepository;
+import bank_service.bank_service.repository.BalanceRepository;
+import bank_service.bank_service.repository.CardRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.support.NullValue;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Kiểm tra định kỳ cache trên Redis có khớp MySQL không: nhiều đường ghi cập nhật DB rồi mới cập nhật cache
+ * (không nguyên tử), entry lệch chỉ lộ ra khi khách hàng phản ánh.
+ *
+ * Mỗi lần chạy lấy mẫu tối đa sample-size key của từng cache (balance, account, cards) bằng SCAN tiếp từ con trỏ
+ * lần trước (cache:audit:cursor:{cache}), nên dần dần đi hết keyspace; đọc DB theo lô id của mẫu.
+ * Key lệch được kiểm tra lại sau recheck-delay (lần ghi cache sau commit có thể đang trên đường),
+ * còn lệch thì xóa khỏi L2 và L1 mọi instance (CacheInvalidator), lần đọc sau nạp lại từ DB.
+ * Khóa cache:audit:lock để mỗi chu kỳ chỉ một instance chạy.
+ *
+ * Metric: cache.audit.checked{cache}, cache.audit.divergent{cache} (đã xóa)
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CacheConsistencyAuditor {
+
+    static final String LOCK_KEY = "cache:audit:lock";
+    static final String CURSOR_KEY_PREFIX = "cache:audit:cursor:";
+
+    // KEYS: con trỏ SCAN đã lưu; ARGV: pattern, COUNT mỗi lần SCAN, số key cần lấy. Tối đa 10 lần SCAN mỗi lần gọi
+    @SuppressWarnings("rawtypes")
+    private static final DefaultRedisScript<List> SAMPLE_SCRIPT = new DefaultRedisScript<>("""
+            local cursor = redis.call('GET', KEYS[1]) or '0'
+            local keys = {}
+            for i = 1, 10 do
+                local result = redis.call('SCAN', cursor, 'MATCH', ARGV[1], 'COUNT', ARGV[2])
+                cursor = result[1]
+                for _, key in ipairs(result[2]) do
+                    keys[#keys + 1] = key
+                end
+                if #keys >= tonumber(ARGV[3]) or cursor == '0' then
+                    break
+                end
+            end
+            redis.call('SET', KEYS[1], cursor)
+            return keys
+            """, List.class);
+
+    private static final int SCAN_COUNT = 100;
+
+    private final CacheManager cacheManager;
+    private final NearCacheProperties properties;
+    private final CacheInvalidator cacheInvalidator;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final AccountRepository accountRepository;
+    private final BalanceRepository balanceRepository;
+    private final CardRepository cardRepository;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${cache.audit.enabled:true}")
+    private boolean enabled;
+
+    @Value("${cache.audit.interval-ms:60000}")
+    private long intervalMs;
+
+    @Value("${cache.audit.sample-size:50}")
+    private int sampleSize;
+
+    @Value("${cache.audit.recheck-delay-ms:500}")
+    private long recheckDelayMs;
+
+    // Một cache được kiểm tra: đọc DB theo lô id (id không có trên DB thì không có trong map), so sánh cache với DB
+    record Target(String cacheName, Function<List<String>, Map<String, ?>> loader, BiPredicate<Object, Object> matches) {}
+
+    List<Target> targets() {
+        return List.of(
+                new Target(CacheConfig.BALANCE_CACHE,
+                        ids -> balanceRepository.findAllById(ids).stream()
+                                .collect(Collectors.toMap(Balance::getAccountId, Function.identity())),
+                        (cached, db) -> sameBalance((Balance) cached, (Balance) db)),
+                new Target(CacheConfig.ACCOUNT_CACHE,
+                        ids -> accountRepository.findAllById(ids).stream()
+                                .collect(Collectors.toMap(Account::getAccountId, Function.identity())),
+                        (cached, db) -> sameAccount((Account) cached, (Account) db)),
+                // Tài khoản không có thẻ được cache là danh sách rỗng
+                new Target(CacheConfig.CARDS_CACHE,
+                        ids -> cardRepository.findByAccountIdIn(ids).stream()
+                                .collect(Collectors.groupingBy(Card::getAccountId)),
+                        (cached, db) -> sameCards(cast(cached), cast(db))));
+    }
+
+    @Scheduled(fixedDelayString = "${cache.audit.interval-ms:60000}", initialDelayString = "${cache.audit.interval-ms:60000}")
+    public void audit() {
+        if (!enabled || !tryLock()) {
+            return;
+        }
+        for (Target target : targets()) {
+            try {
+                audit(target);
+            } catch (DataAccessException e) {
+                log.warn("Cannot audit cache {}: {}", target.cacheName(), e.getMessage());
+            }
+        }
+    }
+
+    void audit(Target target) {
+        String prefix = properties.spec(target.cacheName()).keyPrefixFor(target.cacheName());
+        List<String> ids = sample(target.cacheName(), prefix).stream()
+                .map(key -> key.substring(prefix.length()))
+                .distinct()
+                .limit(sampleSize)
+                .toList();
+        if (ids.isEmpty()) {
+            return;
+        }
+        CacheStore store = (CacheStore) Objects.requireNonNull(cacheManager.getCache(target.cacheName())).getNativeCache();
+        List<String> divergent = divergent(target, store, prefix, ids);
+        if (!divergent.isEmpty()) {
+            sleep(recheckDelayMs);
+            divergent = divergent(target, store, prefix, divergent);
+        }
+        meterRegistry.counter("cache.audit.checked", "cache", target.cacheName()).increment(ids.size());
+        if (divergent.isEmpty()) {
+            return;
+        }
+        log.warn("Cache {} diverged from database for {} of {} sampled keys, evicting: {}",
+                target.cacheName(), divergent.size(), ids.size(), divergent);
+        meterRegistry.counter("cache.audit.divergent", "cache", target.cacheName()).increment(divergent.size());
+        cacheInvalidator.evict(target.cacheName(), divergent);
+    }
+
+    private List<String> divergent(Target target, CacheStore store, String prefix, List<String> ids) {
+        Map<String, ?> database = target.loader().apply(ids);
+        List<String> divergent = new ArrayList<>();
+        for (String id : ids) {
+            Object cached = store.read(prefix + id);
+            if (cached == null) {
+                // Hết hạn hoặc vừa bị xóa: lần đọc sau nạp lại từ DB
+                continue;
+            }
+            Object actual = database.get(id);
+            boolean matches = cached == NullValue.INSTANCE
+                    ? actual == null
+                    : target.matches().test(cached, actual != null ? actual : empty(target));
+            if (!matches) {
+                divergent.add(id);
+            }
+        }
+        return divergent;
+    }
+
+    // Giá trị tương ứng khi DB không có dòng nào: danh sách rỗng với cards, null với entity
+    private Object empty(Target target) {
+        return CacheConfig.CARDS_CACHE.equals(target.cacheName()) ? List.of() : null;
+    }
+
+    private List<String> sample(String cacheName, String prefix) {
+        @SuppressWarnings("unchecked")
+        List<String> keys = stringRedisTemplate.execute(SAMPLE_SCRIPT, List.of(CURSOR_KEY_PREFIX + cacheName),
+                prefix + "*", String.valueOf(SCAN_COUNT), String.valueOf(sampleSize));
+        return keys != null ? keys : List.of();
+    }
+
+    // Mỗi chu kỳ chỉ một instance; khóa hết hạn cùng chu kỳ, không xóa sau khi chạy
+    private boolean tryLock() {
+        try {
+            return Boolean.TRUE.equals(stringRedisTemplate.opsForValue()
+                    .setIfAbsent(LOCK_KEY, "1", Duration.ofMillis(intervalMs)));
+        } catch (DataAccessException e) {
+            log.warn("Cannot acquire cache audit lock: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    private void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Version khác nhưng cùng số tiền không ảnh hưởng người dùng (lần ghi sau vẫn thay được nhờ CAS)
+    static boolean sameBalance(Balance cached, Balance db) {
+        return db != null
+                && sameAmount(cached.getAvailableBalance(), db.getAvailableBalance())
+                && sameAmount(cached.getHoldBalance(), db.getHoldBalance());
+    }
+
+    private static boolean sameAmount(BigDecimal a, BigDecimal b) {
+        return a == null || b == null ? a == b : a.compareTo(b) == 0;
+    }
+
+    // Mật khẩu không được cache
+    static boolean sameAccount(Account cached, Account db) {
+        return db != null
+                && Objects.equals(cached.getCustomerName(), db.getCustomerName())
+                && Objects.equals(cached.getEmail(), db.getEmail())
+                && Objects.equals(cached.getPhoneNumber(), db.getPhoneNumber())
+                && cached.getRole() == db.getRole();
+    }
+
+    static boolean sameCards(List<Card> cached, List<Card> db) {
+        Comparator<Card> byId = Comparator.comparing(Card::getCardId);
+        return cached.stream().sorted(byId).toList().equals(db.stream().sorted(byId).toList());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Card> cast(Object cards) {
+        return (List<Card>) cards;
+    }
+}
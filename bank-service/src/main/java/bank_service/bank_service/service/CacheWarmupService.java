@@ -0,0 +1,130 @@
+package bank_service.bank_service.service;
+
+import bank_service.bank_service.repository.TransactionRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Nạp trước cache balance, cards, categories để request đầu tiên sau deploy hoặc sau khi Redis bị xóa
+ * không cùng lúc xuống MySQL:
+ *   - khi khởi động: các tài khoản có giao dịch gần nhất (cache.warmup.startup-accounts trong startup-window)
+ *   - khi đăng nhập: dữ liệu dashboard của tài khoản đó, bất đồng bộ
+ * Đi qua các method @Cacheable nên entry đã có trên Redis chỉ tốn một lần đọc cache; mọi việc chạy trên
+ * cacheWarmupExecutor (cache.warmup.parallelism luồng) để giới hạn số truy vấn DB đồng thời.
+ *
+ * Metric: cache.warmup.accounts{trigger=startup|login}, cache.warmup.dropped (hàng đợi đầy, bỏ qua lần nạp)
+ */
+@Service
+@Slf4j
+public class CacheWarmupService {
+
+    private final TransactionRepository transactionRepository;
+    private final BalanceService balanceService;
+    private final CardService cardService;
+    private final CategoryService categoryService;
+    private final Executor executor;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${cache.warmup.enabled:true}")
+    private boolean enabled;
+
+    @Value("${cache.warmup.parallelism:4}")
+    private int parallelism;
+
+    @Value("${cache.warmup.startup-accounts:1000}")
+    private int startupAccounts;
+
+    @Value("${cache.warmup.startup-window:7d}")
+    private Duration startupWindow;
+
+    public CacheWarmupService(TransactionRepository transactionRepository, BalanceService balanceService,
+                              CardService cardService, CategoryService categoryService,
+                              @Qualifier("cacheWarmupExecutor") Executor executor, MeterRegistry meterRegistry) {
+        this.transactionRepository = transactionRepository;
+        this.balanceService = balanceService;
+        this.cardService = cardService;
+        this.categoryService = categoryService;
+        this.executor = executor;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Chạy trên executor @Async mặc định để không giữ thread khởi động; tối đa parallelism tài khoản cùng lúc
+     */
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUpOnStartup() {
+        if (!enabled || startupAccounts <= 0) {
+            return;
+        }
+        long start = System.nanoTime();
+        List<String> accountIds = transactionRepository.findRecentlyActiveAccountIds(
+                LocalDateTime.now().minus(startupWindow), startupAccounts);
+        Semaphore permits = new Semaphore(parallelism);
+        try {
+            for (String accountId : accountIds) {
+                permits.acquire();
+                if (!submit(accountId, "startup", permits::release)) {
+                    permits.release();
+                }
+            }
+            // Chờ các tài khoản cuối cùng xong
+            permits.acquire(parallelism);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        log.info("Warmed caches for {} recently active accounts in {} ms",
+                accountIds.size(), Duration.ofNanos(System.nanoTime() - start).toMillis());
+    }
+
+    /**
+     * Nạp trước dữ liệu dashboard sau khi đăng nhập thành công; không chờ kết quả
+     */
+    public void prefetch(String accountId) {
+        if (enabled) {
+            submit(accountId, "login", () -> {});
+        }
+    }
+
+    private boolean submit(String accountId, String trigger, Runnable done) {
+        try {
+            executor.execute(() -> {
+                try {
+                    warm(accountId);
+                    meterRegistry.counter("cache.warmup.accounts", "trigger", trigger).increment();
+                } finally {
+                    done.run();
+                }
+            });
+            return true;
+        } catch (TaskRejectedException e) {
+            // Chỉ là tối ưu: hàng đợi đầy thì request đầu tiên tự nạp như bình thường
+            meterRegistry.counter("cache.warmup.dropped").increment();
+            return false;
+        }
+    }
+
+    void warm(String accountId) {
+        try {
+            balanceService.getBalance(accountId);
+            cardService.getCardsByAccountId(accountId);
+            categoryService.getCategoryByAccountId(accountId);
+        } catch (RuntimeException e) {
+            log.warn("Cannot warm caches for account {}: {}", accountId, e.getMessage());
+        }
+    }
+}
@@ -1,161 +1,65 @@
 package bank_service.bank_service.service;
 
+import bank_service.bank_service.cache.RequestMemo;
+import bank_service.bank_service.config.CacheConfig;
 import bank_service.bank_service.dto.CardFullInfoDTO;
 import bank_service.bank_service.dto.CardWithUsernameDTO;
 import bank_service.bank_service.exception.AppException;
 import bank_service.bank_service.model.Account;
-import bank_service.bank_service.model.Balance;
 import bank_service.bank_service.model.Card;
 import bank_service.bank_service.repository.AccountRepository;
-import bank_service.bank_service.repository.BalanceRepository;
 import bank_service.bank_service.repository.CardRepository;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
-import lombok.NoArgsConstructor;
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
-import java.util.concurrent.TimeUnit;
 
 @Service
 @RequiredArgsConstructor
 public class CardService {
     private final CardRepository cardRepository;
     private final AccountRepository accountRepository;
-    private final BalanceRepository balanceRepository;
-    private final RedisTemplate<String, Object> redisTemplate;
-
-    private static final String KEY_CARDS_BY_ACCOUNT = "CARDS:ACCOUNT:";
-    private static final String KEY_CARD_FULLINFO = "CARD:FULLINFO:";
-    private static final String CACHE_CARDS_WITH_USERNAME = "CARDS:WITH_USERNAME";
-    private static final String CACHE_CARDS_FULL_INFO = "CARDS:FULL_INFO";
-
+    private final CacheManager cacheManager;
+    private final CardViewIndex cardViewIndex;
+    private final RequestMemo requestMemo;
 
+    @Cacheable(cacheNames = CacheConfig.CARDS_CACHE, key = "#accountId", sync = true)
     public List<Card> getCardsByAccountId(String accountId) {
-        String redisKey = KEY_CARDS_BY_ACCOUNT + accountId;
-
-        // 1. Check Redis
-        List<Card> cachedCards = (List<Card>) redisTemplate.opsForValue().get(redisKey);
-        if (cachedCards != null) {
-            System.out.println("Redis HIT -> getCardsByAccountId({})" + accountId);
-            return cachedCards;
-        }
-
-        // 2. Query DB
-        System.out.println("Redis MISS -> getCardsByAccountId({})" + accountId);
-        List<Card> cards = cardRepository.findByAccountId(accountId);
-
-        // 3. Cache vào Redis (TTL 10 phút)
-        redisTemplate.opsForValue().set(redisKey, cards, 10, TimeUnit.MINUTES);
-
-        return cards;
+        return cardRepository.findByAccountId(accountId);
     }
-    public List<CardWithUsernameDTO> getAllCardsWithUsername() {
-        // Kiểm tra cache
-        List<CardWithUsernameDTO> cachedData =
-                (List<CardWithUsernameDTO>) redisTemplate.opsForValue().get(CACHE_CARDS_WITH_USERNAME);
-
-        if (cachedData != null) {
-            System.out.println("Redis HIT: getAllCardsWithUsername()");
-            return cachedData;
-        }
-
-        System.out.println("Redis MISS: getAllCardsWithUsername() - Query DB");
-        List<Card> cards = cardRepository.findAll();
 
-        List<CardWithUsernameDTO> result = cardRepository.findAllCardsWithUsername();
-
-        // Lưu cache TTL 5 phút
-        redisTemplate.opsForValue().set(CACHE_CARDS_WITH_USERNAME, result, 5, TimeUnit.MINUTES);
-
-        return result;
+    /**
+     * Danh sách cho admin đọc từ CardViewIndex (cập nhật theo từng tài khoản), DB chỉ khi view chưa sẵn sàng
+     */
+    public List<CardWithUsernameDTO> getAllCardsWithUsername() {
+        return getAllCardsFullInfo().stream()
+                .map(card -> new CardWithUsernameDTO(card.getCardId(), card.getAccountId(), card.getCustomerName(),
+                        card.getCardType(), card.getExpiryDate(), card.getStatus()))
+                .toList();
     }
 
     public List<CardFullInfoDTO> getAllCardsFullInfo() {
-        List<CardFullInfoDTO> cachedData =
-                (List<CardFullInfoDTO>) redisTemplate.opsForValue().get(CACHE_CARDS_FULL_INFO);
-
-        if (cachedData != null) {
-            System.out.println("Redis HIT: getAllCardsFullInfo()");
-            return cachedData;
-        }
-
-        System.out.println("Redis MISS: getAllCardsFullInfo() - Query DB");
-        List<Card> cards = cardRepository.findAll();
-
-        List<CardFullInfoDTO> result = cards.stream().map(card -> {
-            Account account = accountRepository.findById(card.getAccountId()).orElse(null);
-            Balance balance = balanceRepository.findById(card.getAccountId()).orElse(null);
-
-            return new CardFullInfoDTO(
-                    card.getCardId(),
-                    card.getAccountId(),
-                    account != null ? account.getCustomerName() : null,
-                    account != null ? account.getEmail() : null,
-                    account != null ? account.getPhoneNumber() : null,
-                    card.getCardType(),
-                    card.getExpiryDate(),
-                    card.getStatus(),
-                    balance != null ? balance.getAvailableBalance() : null,
-                    balance != null ? balance.getHoldBalance() : null
-            );
-        }).toList();
-
-        redisTemplate.opsForValue().set(CACHE_CARDS_FULL_INFO, result, 10, TimeUnit.MINUTES);
-
-        return result;
+        return cardViewIndex.findAll()
+                .orElseGet(() -> cardRepository.findFullInfo(Pageable.unpaged(Sort.by("cardId"))));
     }
-    public CardFullInfoDTO getCardFullInfoById(Long cardId) {
-        String redisKey = KEY_CARD_FULLINFO + cardId;
-
-// 1. Check Redis
-        Object cached = redisTemplate.opsForValue().get(redisKey);
-        if (cached != null) {
-            ObjectMapper mapper = new ObjectMapper().registerModule(new JavaTimeModule());
-            CardFullInfoDTO cachedCard = mapper.convertValue(cached, CardFullInfoDTO.class);
-
-            System.out.println("Redis HIT -> getCardFullInfoById(" + cardId + ")");
-            return cachedCard;
-        }
 
-        // 2. Query DB
-        System.out.println("Redis MISS -> getCardFullInfoById({})" + cardId);
-        Card card = cardRepository.findById(cardId)
+    /**
+     * View sẵn sàng thì cardId không có trong view là thẻ không tồn tại, không hỏi lại DB
+     */
+    public CardFullInfoDTO getCardFullInfoById(Long cardId) {
+        return cardViewIndex.find(cardId, () -> cardRepository.findFullInfoById(cardId))
                 .orElseThrow(() -> new RuntimeException("Card not found"));
-
-        Account account = accountRepository.findById(card.getAccountId())
-                .orElse(null);
-
-        Balance balance = balanceRepository.findById(card.getAccountId())
-                .orElse(null);
-
-        CardFullInfoDTO dto = new CardFullInfoDTO(
-                card.getCardId(),
-                card.getAccountId(),
-                account != null ? account.getCustomerName() : null,
-                account != null ? account.getEmail() : null,
-                account != null ? account.getPhoneNumber() : null,
-                card.getCardType(),
-                card.getExpiryDate(),
-                card.getStatus(),
-                balance != null ? balance.getAvailableBalance() : null,
-                balance != null ? balance.getHoldBalance() : null
-        );
-
-        // 3. Lưu vào Redis
-        redisTemplate.opsForValue().set(redisKey, dto, 10, TimeUnit.MINUTES);
-
-        return dto;
     }
 
-
-
     public Optional<Card> createCard(Card card) {
-        Optional<Account> account = accountRepository.findById(card.getAccountId());
+        Optional<Account> account = requestMemo.find(Account.class, card.getAccountId(),
+                () -> accountRepository.findById(card.getAccountId()));
         if (account.isEmpty()) return Optional.empty();
 
         // Nếu chưa set ngày hết hạn, tự động set 5 năm sau
@@ -166,19 +70,21 @@ public class CardService {
 
         Card saved = cardRepository.save(card);
 
-        clearCardCache(card.getAccountId(), card.getCardId());
+        clearCardCache(card.getAccountId());
 
         return Optional.of(saved);
     }
     public Card updateStatus(Long cardId, String status) {
+        // Đọc để sửa: đi thẳng DB, không qua RequestMemo
         Card card = cardRepository.findById(cardId)
                 .orElseThrow(() -> new AppException("Card not found"));
 
         card.setStatus(status);
 
         Card updated = cardRepository.save(card);
+        requestMemo.remember(Card.class, cardId, updated);
 
-        clearCardCache(card.getAccountId(), cardId);
+        clearCardCache(card.getAccountId());
 
         return updated;
     }
@@ -188,19 +94,15 @@ public class CardService {
         if (cardOpt.isEmpty()) return false;
 
         Card card = cardOpt.get();
-        if (!cardRepository.existsById(cardId)) return false;
-
         cardRepository.deleteById(cardId);
-        clearCardCache(card.getAccountId(), cardId);
+        requestMemo.remember(Card.class, cardId, null);
+        clearCardCache(card.getAccountId());
 
-        System.out.println("Cache cleared: after deleteCard()");
         return true;
     }
-    private void clearCardCache(String accountId, Long cardId) {
-        redisTemplate.delete(KEY_CARDS_BY_ACCOUNT + accountId);
-        redisTemplate.delete(KEY_CARD_FULLINFO + cardId);
-        redisTemplate.delete(CACHE_CARDS_WITH_USERNAME);
-        redisTemplate.delete(CACHE_CARDS_FULL_INFO);
+    private void clearCardCache(String accountId) {
+        cacheManager.getCache(CacheConfig.CARDS_CACHE).evict(accountId);
+        cardViewIndex.refreshAccount(accountId);
     }
 
 }
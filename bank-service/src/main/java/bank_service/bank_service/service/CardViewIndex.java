@@ -0,0 +1,226 @@
+package bank_service.bank_service.service;
+
+import bank_service.bank_service.cache.CompactValueSerializer;
+import bank_service.bank_service.dto.CardFullInfoDTO;
+import bank_service.bank_service.repository.CardRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.serializer.GenericToStringSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * View thẻ cho admin trên Redis (thay cho cache cả danh sách bị xóa mỗi khi có thẻ thay đổi):
+ *   cards:view               hash cardId -> CardFullInfoDTO (Smile), dựng từ một câu join card/account/balance
+ *   cards:view:account:{id}  set cardId của tài khoản, để cập nhật lại đúng các thẻ của tài khoản
+ * Thẻ, thông tin tài khoản hay số dư thay đổi thì chỉ các entry của tài khoản đó được ghi lại (sau commit),
+ * bằng một script Lua thay toàn bộ thẻ của tài khoản nên thẻ bị xóa cũng biến mất khỏi hash.
+ *
+ * Như AccountIndex: chỉ đọc khi có marker cards:view:ready, ghi lỗi thì xóa marker và đọc từ DB cho tới khi dựng lại.
+ * Khi sẵn sàng, view có mọi thẻ nên cũng là negative cache: cardId không có trong hash là thẻ không tồn tại.
+ *
+ * Metric: card.view.gets{result=hit|negative|fallback} cho lần đọc một thẻ
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CardViewIndex {
+
+    static final String HASH_KEY = "cards:view";
+    static final String ACCOUNT_KEY_PREFIX = "cards:view:account:";
+    static final String READY_KEY = "cards:view:ready";
+    static final String REBUILD_LOCK_KEY = "cards:view:rebuild";
+
+    private static final int REBUILD_PAGE_SIZE = 1000;
+
+    private static final CompactValueSerializer<CardFullInfoDTO> SERIALIZER =
+            CompactValueSerializer.of(CardFullInfoDTO.class, 0);
+
+    // KEYS: hash, set thẻ của tài khoản; ARGV: cardId1, dto1, cardId2, dto2, ... (rỗng = tài khoản không còn thẻ)
+    private static final DefaultRedisScript<Long> REPLACE_ACCOUNT_SCRIPT = new DefaultRedisScript<>("""
+            local old = redis.call('SMEMBERS', KEYS[2])
+            for _, id in ipairs(old) do
+                redis.call('HDEL', KEYS[1], id)
+            end
+            redis.call('DEL', KEYS[2])
+            for i = 1, #ARGV, 2 do
+                redis.call('HSET', KEYS[1], ARGV[i], ARGV[i + 1])
+                redis.call('SADD', KEYS[2], ARGV[i])
+            end
+            return #ARGV / 2
+            """, Long.class);
+
+    private final RedisTemplate<String, byte[]> binaryRedisTemplate;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final CardRepository cardRepository;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Ghi lại các thẻ của tài khoản theo DB sau khi transaction hiện tại commit
+     * (thẻ thêm/xóa/đổi trạng thái, đổi tên/email/sđt, số dư thay đổi)
+     */
+    public void refreshAccount(String accountId) {
+        afterCommit(() -> {
+            try {
+                replace(accountId, cardRepository.findFullInfoByAccountId(accountId));
+            } catch (DataAccessException e) {
+                log.warn("Cannot update card view for account {}: {}", accountId, e.getMessage());
+                markStale();
+            }
+        });
+    }
+
+    /**
+     * Toàn bộ thẻ theo cardId; empty nếu view chưa sẵn sàng (người gọi đọc từ DB)
+     */
+    public Optional<List<CardFullInfoDTO>> findAll() {
+        try {
+            if (!isReady()) {
+                return Optional.empty();
+            }
+            return Optional.of(binaryRedisTemplate.<String, byte[]>opsForHash().values(HASH_KEY).stream()
+                    .map(SERIALIZER::deserialize)
+                    .filter(Objects::nonNull)
+                    .sorted(Comparator.comparing(CardFullInfoDTO::getCardId))
+                    .toList());
+        } catch (DataAccessException | SerializationException e) {
+            log.warn("Cannot read card view: {}", e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Một thẻ: view sẵn sàng thì không có entry nghĩa là thẻ không tồn tại (không hỏi DB);
+     * view chưa sẵn sàng hoặc Redis lỗi thì đọc bằng fallback (DB)
+     */
+    public Optional<CardFullInfoDTO> find(Long cardId, Supplier<Optional<CardFullInfoDTO>> fallback) {
+        try {
+            if (isReady()) {
+                byte[] value = binaryRedisTemplate.<String, byte[]>opsForHash().get(HASH_KEY, String.valueOf(cardId));
+                count(value != null ? "hit" : "negative");
+                return Optional.ofNullable(value).map(SERIALIZER::deserialize);
+            }
+        } catch (DataAccessException | SerializationException e) {
+            log.warn("Cannot read card view: {}", e.getMessage());
+        }
+        count("fallback");
+        return fallback.get();
+    }
+
+    private void count(String result) {
+        meterRegistry.counter("card.view.gets", "result", result).increment();
+    }
+
+    private boolean isReady() {
+        return Boolean.TRUE.equals(stringRedisTemplate.hasKey(READY_KEY));
+    }
+
+    /**
+     * Dựng lại view từ DB khi chưa có marker; khóa trên Redis để chỉ một instance dựng lại
+     */
+    @Scheduled(fixedDelayString = "${card.view.check-interval-ms:60000}")
+    public void ensureReady() {
+        try {
+            if (isReady() || !Boolean.TRUE.equals(stringRedisTemplate.opsForValue()
+                    .setIfAbsent(REBUILD_LOCK_KEY, "1", Duration.ofMinutes(5)))) {
+                return;
+            }
+        } catch (DataAccessException e) {
+            log.warn("Cannot check card view: {}", e.getMessage());
+            return;
+        }
+        try {
+            rebuild();
+        } catch (DataAccessException | SerializationException e) {
+            log.warn("Cannot rebuild card view: {}", e.getMessage());
+        } finally {
+            stringRedisTemplate.delete(REBUILD_LOCK_KEY);
+        }
+    }
+
+    // Set của tài khoản không còn thẻ có thể còn lại, chỉ chứa cardId đã xóa (không dùng lại) nên vô hại
+    private void rebuild() {
+        binaryRedisTemplate.delete(HASH_KEY);
+
+        // Sắp theo tài khoản: thẻ của một tài khoản liền nhau (có thể qua hai trang), ghi khi sang tài khoản khác
+        Pageable pageable = PageRequest.of(0, REBUILD_PAGE_SIZE, Sort.by("accountId", "cardId"));
+        List<CardFullInfoDTO> page;
+        List<CardFullInfoDTO> accountCards = new ArrayList<>();
+        long total = 0;
+        do {
+            page = cardRepository.findFullInfo(pageable);
+            for (CardFullInfoDTO card : page) {
+                if (!accountCards.isEmpty() && !accountCards.get(0).getAccountId().equals(card.getAccountId())) {
+                    replace(accountCards.get(0).getAccountId(), accountCards);
+                    accountCards = new ArrayList<>();
+                }
+                accountCards.add(card);
+            }
+            total += page.size();
+            pageable = pageable.next();
+        } while (page.size() == REBUILD_PAGE_SIZE);
+        if (!accountCards.isEmpty()) {
+            replace(accountCards.get(0).getAccountId(), accountCards);
+        }
+        stringRedisTemplate.opsForValue().set(READY_KEY, "1");
+        log.info("Rebuilt card view with {} cards", total);
+    }
+
+    // Lỗi Redis được ném ra: refreshAccount đánh dấu stale, rebuild dừng và không đặt marker
+    void replace(String accountId, List<CardFullInfoDTO> cards) {
+        Object[] args = new Object[cards.size() * 2];
+        for (int i = 0; i < cards.size(); i++) {
+            args[2 * i] = String.valueOf(cards.get(i).getCardId()).getBytes(StandardCharsets.UTF_8);
+            args[2 * i + 1] = SERIALIZER.serialize(cards.get(i));
+        }
+        binaryRedisTemplate.execute(REPLACE_ACCOUNT_SCRIPT, RedisSerializer.byteArray(),
+                new GenericToStringSerializer<>(Long.class), List.of(HASH_KEY, accountKey(accountId)), args);
+    }
+
+    static String accountKey(String accountId) {
+        return ACCOUNT_KEY_PREFIX + accountId;
+    }
+
+    // View lệch với DB: bỏ marker để đọc từ DB và lần kiểm tra sau dựng lại
+    private void markStale() {
+        try {
+            stringRedisTemplate.delete(READY_KEY);
+        } catch (DataAccessException e) {
+            log.warn("Cannot mark card view stale: {}", e.getMessage());
+        }
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
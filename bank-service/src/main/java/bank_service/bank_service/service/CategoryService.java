@@ -1,76 +1,43 @@
 package bank_service.bank_service.service;
 
-import bank_service.bank_service.dto.CardFullInfoDTO;
-import bank_service.bank_service.dto.CardWithUsernameDTO;
-import bank_service.bank_service.exception.AppException;
+import bank_service.bank_service.cache.RequestMemo;
+import bank_service.bank_service.config.CacheConfig;
 import bank_service.bank_service.model.*;
 import bank_service.bank_service.repository.AccountRepository;
-import bank_service.bank_service.repository.BalanceRepository;
-import bank_service.bank_service.repository.CardRepository;
 import bank_service.bank_service.repository.CategoryRepository;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 
-import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
-import java.util.concurrent.TimeUnit;
 
 @Service
 @RequiredArgsConstructor
 public class CategoryService {
     private final CategoryRepository categoryRepository;
     private final AccountRepository accountRepository;
-    private final RedisTemplate<String, Object> redisTemplate;
-
-
-    private static final String KEY_CATEGORY_BY_ACCOUNT = "CATEGORY:ACCOUNT:";
-    private static final String KEY_CATEGORY_FULLINFO = "CATEGORY:FULLINFO:";
-    private static final String CACHE_CATEGORY_WITH_USERNAME = "CATEGORY:WITH_USERNAME";
-    private static final String CACHE_CATEGORY_FULL_INFO = "CATEGORY:FULL_INFO";
-
-    private void clearCategoryCache(String id, Long categoryId) {
-        redisTemplate.delete(KEY_CATEGORY_BY_ACCOUNT + id);
-        redisTemplate.delete(KEY_CATEGORY_FULLINFO + categoryId);
-        redisTemplate.delete(CACHE_CATEGORY_WITH_USERNAME);
-        redisTemplate.delete(CACHE_CATEGORY_FULL_INFO);
-    }
+    private final RequestMemo requestMemo;
 
     //tao category moi
+    @CacheEvict(cacheNames = CacheConfig.CATEGORIES_CACHE, key = "#category.accountId")
     public Optional<Category> createCategory(Category category) {
-        Optional<Account> account = accountRepository.findById(category.getAccountId());
+        Optional<Account> account = requestMemo.find(Account.class, category.getAccountId(),
+                () -> accountRepository.findById(category.getAccountId()));
         if (account.isEmpty()) return Optional.empty();
 
         Category saved = categoryRepository.save(category);
 
-        clearCategoryCache(category.getAccountId(), category.getCategoryId());
-
         return Optional.of(saved);
     }
     //lay all category cua account co id
+    @Cacheable(cacheNames = CacheConfig.CATEGORIES_CACHE, key = "#id", sync = true)
     public List<Category> getCategoryByAccountId(String id) {
-        String redisKey = KEY_CATEGORY_BY_ACCOUNT + id;
-
-        // 1. Check Redis
-        List<Category> cachedCategory = (List<Category>) redisTemplate.opsForValue().get(redisKey);
-        if (cachedCategory != null) {
-            System.out.println("Redis HIT -> getCardsByid({})" + id);
-            return cachedCategory;
-        }
-
-        // 2. Query DB
-        System.out.println("Redis MISS -> getCardsByid({})" + id);
-        List<Category> category = categoryRepository.findByAccountId(id);
-
-        // 3. Cache vào Redis (TTL 10 phút)
-        redisTemplate.opsForValue().set(redisKey, category, 10, TimeUnit.MINUTES);
-
-        return category;
+        return categoryRepository.findByAccountId(id);
     }
 
+    @CacheEvict(cacheNames = CacheConfig.CATEGORIES_CACHE, key = "#accountId")
     public void createDefaultCategories(String accountId) {
         List<Category> defaultCategories = List.of(
                 Category.builder().categoryName("Ăn uống").categoryType(CategoryType.EXPENSE).accountId(accountId).build(),
@@ -81,6 +48,5 @@ public class CategoryService {
         );
 
         categoryRepository.saveAll(defaultCategories);
-        clearCategoryCache(accountId, null); // Clear cache for this account
     }
 }
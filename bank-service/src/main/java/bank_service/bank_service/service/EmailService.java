@@ -1,17 +1,52 @@
 package bank_service.bank_service.service;
 
+import bank_service.bank_service.event.VerificationEmailEvent;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.mail.MessagingException;
 import jakarta.mail.internet.MimeMessage;
-import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.scheduling.TaskScheduler;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
 
+import java.time.Instant;
+import java.util.concurrent.Executor;
+
+/**
+ * Gửi email OTP. Thread request (hoặc thread commit) chỉ đưa việc gửi vào pool SMTP và không bao giờ tự gửi:
+ * pool đầy thì bỏ email đó và đếm mail.otp.rejected (giao dịch vẫn được sweeper cho hết hạn và hoàn hold).
+ * Lần thử lại được hẹn giờ trên TaskScheduler thay vì sleep, nên không giữ worker SMTP trong lúc chờ backoff.
+ *
+ * Metric: mail.otp.sent, mail.otp.retries, mail.otp.failed (hết lượt thử), mail.otp.rejected (pool đầy)
+ */
 @Service
-@RequiredArgsConstructor
+@Slf4j
 public class EmailService {
 
     private final JavaMailSender mailSender;
+    private final Executor mailExecutor;
+    private final TaskScheduler taskScheduler;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${mail.otp.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${mail.otp.backoff-ms:1000}")
+    private long backoffMs;
+
+    public EmailService(JavaMailSender mailSender, @Qualifier("mailExecutor") Executor mailExecutor,
+                        TaskScheduler taskScheduler, MeterRegistry meterRegistry) {
+        this.mailSender = mailSender;
+        this.mailExecutor = mailExecutor;
+        this.taskScheduler = taskScheduler;
+        this.meterRegistry = meterRegistry;
+    }
 
     public void sendVerificationEmail(String toEmail, String subject, String verificationCode) {
         try {
@@ -31,4 +66,42 @@ public class EmailService {
             throw new RuntimeException("Gửi email thất bại: " + e.getMessage());
         }
     }
+
+    /**
+     * Gửi OTP sau khi transaction tạo giao dịch đã commit; chỉ đưa vào pool SMTP rồi trả về ngay
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onVerificationEmailRequested(VerificationEmailEvent event) {
+        dispatch(event, 1);
+    }
+
+    private void dispatch(VerificationEmailEvent event, int attempt) {
+        try {
+            mailExecutor.execute(() -> send(event, attempt));
+        } catch (TaskRejectedException e) {
+            meterRegistry.counter("mail.otp.rejected").increment();
+            log.error("Mail queue full, dropped OTP email for transaction {} (attempt {})",
+                    event.transactionId(), attempt);
+        }
+    }
+
+    // Chạy trên pool SMTP; lỗi thì hẹn lần thử sau với backoff gấp đôi mỗi lần
+    private void send(VerificationEmailEvent event, int attempt) {
+        try {
+            sendVerificationEmail(event.toEmail(), event.subject(), event.verificationCode());
+            meterRegistry.counter("mail.otp.sent").increment();
+            log.info("Sent OTP email for transaction {} (attempt {})", event.transactionId(), attempt);
+        } catch (Exception e) {
+            log.warn("Failed to send OTP email for transaction {} (attempt {}/{}): {}",
+                    event.transactionId(), attempt, maxAttempts, e.getMessage());
+            if (attempt >= maxAttempts) {
+                meterRegistry.counter("mail.otp.failed").increment();
+                log.error("Giving up OTP email for transaction {} after {} attempts", event.transactionId(), maxAttempts);
+                return;
+            }
+            meterRegistry.counter("mail.otp.retries").increment();
+            long delay = backoffMs << (attempt - 1);
+            taskScheduler.schedule(() -> dispatch(event, attempt + 1), Instant.now().plusMillis(delay));
+        }
+    }
 }
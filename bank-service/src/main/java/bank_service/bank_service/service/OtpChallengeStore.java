@@ -0,0 +1,114 @@
+package bank_service.bank_service.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Lưu OTP của giao dịch trên Redis (hash OTP:{transactionId} gồm mã đã băm và số lần thử, có TTL).
+ * Tạo và verify đều là một lần gọi Lua: tạo ghi mã, attempts và TTL cùng lúc (không có khoảnh khắc key
+ * tồn tại mà chưa có TTL); verify so mã, tăng attempts và xóa khi thành công/bị khóa.
+ */
+@Service
+@RequiredArgsConstructor
+public class OtpChallengeStore {
+
+    private static final String OTP_KEY_PREFIX = "OTP:";
+    public static final int MAX_ATTEMPTS = 3;
+
+    // Ghi mã đã băm, reset attempts và đặt TTL (ms) trong cùng một lần gọi
+    private static final DefaultRedisScript<Long> CREATE_SCRIPT = new DefaultRedisScript<>("""
+            redis.call('HSET', KEYS[1], 'code', ARGV[1], 'attempts', '0')
+            return redis.call('PEXPIRE', KEYS[1], ARGV[2])
+            """, Long.class);
+
+    // Trả về {kết quả, attempts}: 1 = đúng, 0 = sai (còn lượt), -1 = bị khóa, -2 = không tồn tại/hết hạn
+    private static final DefaultRedisScript<List> VERIFY_SCRIPT = new DefaultRedisScript<>("""
+            local code = redis.call('HGET', KEYS[1], 'code')
+            if not code then return {-2, 0} end
+            local maxAttempts = tonumber(ARGV[2])
+            local attempts = tonumber(redis.call('HGET', KEYS[1], 'attempts'))
+            if attempts >= maxAttempts then
+                redis.call('DEL', KEYS[1])
+                return {-1, attempts}
+            end
+            if code == ARGV[1] then
+                redis.call('DEL', KEYS[1])
+                return {1, attempts}
+            end
+            attempts = redis.call('HINCRBY', KEYS[1], 'attempts', 1)
+            if attempts >= maxAttempts then
+                redis.call('DEL', KEYS[1])
+                return {-1, attempts}
+            end
+            return {0, attempts}
+            """, List.class);
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final SecureRandom secureRandom = new SecureRandom();
+
+    public enum Outcome {
+        MATCHED,
+        INVALID,
+        LOCKED,
+        MISSING
+    }
+
+    public record VerifyResult(Outcome outcome, int attempts) {}
+
+    /**
+     * Sinh OTP 6 chữ số bằng SecureRandom
+     */
+    public String generateCode() {
+        return String.valueOf(100000 + secureRandom.nextInt(900000));
+    }
+
+    public void create(String transactionId, String code, Duration ttl) {
+        stringRedisTemplate.execute(
+                CREATE_SCRIPT,
+                List.of(OTP_KEY_PREFIX + transactionId),
+                hash(transactionId, code),
+                String.valueOf(ttl.toMillis()));
+    }
+
+    public VerifyResult verify(String transactionId, String inputCode) {
+        List<?> result = stringRedisTemplate.execute(
+                VERIFY_SCRIPT,
+                List.of(OTP_KEY_PREFIX + transactionId),
+                hash(transactionId, inputCode == null ? "" : inputCode),
+                String.valueOf(MAX_ATTEMPTS));
+        int code = ((Number) result.get(0)).intValue();
+        int attempts = ((Number) result.get(1)).intValue();
+        Outcome outcome = switch (code) {
+            case 1 -> Outcome.MATCHED;
+            case 0 -> Outcome.INVALID;
+            case -1 -> Outcome.LOCKED;
+            default -> Outcome.MISSING;
+        };
+        return new VerifyResult(outcome, attempts);
+    }
+
+    public void delete(String transactionId) {
+        stringRedisTemplate.delete(OTP_KEY_PREFIX + transactionId);
+    }
+
+    // Không lưu OTP dạng rõ trên Redis
+    private String hash(String transactionId, String code) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] bytes = digest.digest((transactionId + ":" + code).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(bytes);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -1,11 +1,14 @@
 package bank_service.bank_service.service;
 
+import bank_service.bank_service.dto.PaymentBatchResult;
 import bank_service.bank_service.dto.PaymentRequest;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 
+import java.util.List;
+
 @Service
 @RequiredArgsConstructor
 public class PaymentClient {
@@ -18,4 +21,12 @@ public class PaymentClient {
     public void createPayment(PaymentRequest request) {
         restTemplate.postForObject(paymentServiceUrl + "/payments", request, String.class);
     }
+
+    /**
+     * Gửi nhiều payment trong một request, payment-service giữ nguyên thứ tự danh sách
+     * và trả về những payment đã gửi được (dừng ở phần tử lỗi đầu tiên).
+     */
+    public PaymentBatchResult createPayments(List<PaymentRequest> requests) {
+        return restTemplate.postForObject(paymentServiceUrl + "/payments/batch", requests, PaymentBatchResult.class);
+    }
 }
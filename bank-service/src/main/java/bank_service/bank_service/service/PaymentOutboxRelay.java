@@ -0,0 +1,256 @@
+package bank_service.bank_service.service;
+
+import bank_service.bank_service.dto.PaymentBatchResult;
+import bank_service.bank_service.dto.PaymentRequest;
+import bank_service.bank_service.model.OutboxStatus;
+import bank_service.bank_service.model.PaymentOutbox;
+import bank_service.bank_service.repository.PaymentOutboxRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Relay đọc payment_outbox và gửi sang payment-service theo lô.
+ * - Chỉ một instance relay tại một thời điểm (lease trên Redis) để giữ thứ tự.
+ * - Trong một lô, nếu một bản ghi của account chưa đến hạn gửi lại thì các bản ghi sau của account đó bị giữ lại.
+ * - Gửi thất bại -> tăng attempts và backoff theo cấp số nhân, không bao giờ bỏ qua bản ghi.
+ * - payment-service báo từng phần tử đã gửi; chỉ các bản ghi đó được đánh dấu SENT, nên lỗi giữa lô không làm gửi lại
+ *   các phần tử trước. Lỗi mạng (không rõ phần tử nào đã gửi) thì gửi lại cả lô: payment-service đặt id chống trùng
+ *   của Artemis theo paymentId và notification-service bỏ qua paymentId đã xử lý.
+ * - Bản ghi đang backoff không chặn các bản ghi phía sau của account khác: đọc tiếp tối đa max-scan-pages trang.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PaymentOutboxRelay {
+
+    private static final String LEASE_KEY = "LOCK:payment-outbox-relay";
+    private static final String SYSTEM_ACCOUNT_ID = "0";
+    private static final DefaultRedisScript<Long> RELEASE_LEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('DEL', KEYS[1]) else return 0 end",
+            Long.class);
+
+    private final PaymentOutboxRepository paymentOutboxRepository;
+    private final PaymentClient paymentClient;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${payment.outbox.batch-size:100}")
+    private int batchSize;
+
+    @Value("${payment.outbox.max-backoff-seconds:300}")
+    private long maxBackoffSeconds;
+
+    @Value("${payment.outbox.lease-seconds:30}")
+    private long leaseSeconds;
+
+    @Value("${payment.outbox.max-scan-pages:10}")
+    private int maxScanPages;
+
+    @Value("${payment.outbox.retention-days:7}")
+    private int retentionDays;
+
+    private final String instanceId = UUID.randomUUID().toString();
+    private final AtomicLong pendingCount = new AtomicLong();
+    private final AtomicLong lagSeconds = new AtomicLong();
+
+    private Counter publishedCounter;
+    private Counter failureCounter;
+    private Timer batchTimer;
+
+    @PostConstruct
+    void registerMetrics() {
+        publishedCounter = Counter.builder("payment.outbox.published")
+                .description("Số sự kiện outbox đã gửi sang payment-service")
+                .register(meterRegistry);
+        failureCounter = Counter.builder("payment.outbox.failures")
+                .description("Số lô gửi thất bại")
+                .register(meterRegistry);
+        batchTimer = Timer.builder("payment.outbox.batch")
+                .description("Thời gian gửi một lô sang payment-service")
+                .register(meterRegistry);
+        Gauge.builder("payment.outbox.pending", pendingCount, AtomicLong::get)
+                .description("Số sự kiện outbox đang chờ gửi")
+                .register(meterRegistry);
+        Gauge.builder("payment.outbox.lag.seconds", lagSeconds, AtomicLong::get)
+                .description("Tuổi của sự kiện outbox cũ nhất chưa gửi")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${payment.outbox.poll-interval-ms:500}")
+    public void relay() {
+        Boolean acquired = stringRedisTemplate.opsForValue()
+                .setIfAbsent(LEASE_KEY, instanceId, leaseSeconds, TimeUnit.SECONDS);
+        if (!Boolean.TRUE.equals(acquired)) {
+            return;
+        }
+        try {
+            // Gửi liên tục khi còn lô đầy, dừng trước khi lease hết hạn
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(leaseSeconds) / 2;
+            while (System.nanoTime() < deadline && relayBatch()) {
+                // tiếp tục
+            }
+        } catch (Exception e) {
+            log.error("Payment outbox relay failed: {}", e.getMessage(), e);
+        } finally {
+            stringRedisTemplate.execute(RELEASE_LEASE_SCRIPT, List.of(LEASE_KEY), instanceId);
+            refreshLagMetrics();
+        }
+    }
+
+    /**
+     * Gửi một lô. Trả về true nếu lô đầy và toàn bộ đã gửi (có thể còn bản ghi phía sau).
+     */
+    boolean relayBatch() {
+        List<PaymentOutbox> due = collectDue();
+        if (due.isEmpty()) {
+            return false;
+        }
+
+        List<PaymentRequest> requests = due.stream().map(this::toPaymentRequest).toList();
+        PaymentBatchResult result;
+        try {
+            result = batchTimer.record(() -> paymentClient.createPayments(requests));
+        } catch (Exception e) {
+            failureCounter.increment();
+            log.warn("Failed to relay {} payment events: {}", due.size(), e.getMessage());
+            scheduleRetry(due, e.getMessage());
+            return false;
+        }
+
+        Set<String> sentIds = result == null || result.getSentPaymentIds() == null
+                ? Set.of() : new HashSet<>(result.getSentPaymentIds());
+        List<PaymentOutbox> sent = due.stream().filter(entry -> sentIds.contains(entry.getPaymentId())).toList();
+        if (!sent.isEmpty()) {
+            List<Long> ids = sent.stream().map(PaymentOutbox::getId).toList();
+            transactionTemplate.executeWithoutResult(status ->
+                    paymentOutboxRepository.markSent(ids, OutboxStatus.SENT, LocalDateTime.now()));
+            publishedCounter.increment(sent.size());
+            log.debug("Relayed {} payment events", sent.size());
+        }
+        if (sent.size() < due.size()) {
+            // Chỉ phần tử lỗi bị backoff; các phần tử sau chưa gửi vẫn PENDING và bị giữ lại nếu cùng account
+            failureCounter.increment();
+            String failedId = result == null ? null : result.getFailedPaymentId();
+            List<PaymentOutbox> failed = due.stream()
+                    .filter(entry -> !sentIds.contains(entry.getPaymentId()))
+                    .filter(entry -> failedId == null || failedId.equals(entry.getPaymentId()))
+                    .toList();
+            log.warn("Payment service accepted {} of {} payment events: {}", sent.size(), due.size(),
+                    result == null ? null : result.getError());
+            scheduleRetry(failed, result == null ? "Empty response from payment service" : result.getError());
+            return false;
+        }
+        return due.size() == batchSize;
+    }
+
+    /**
+     * Tối đa batchSize bản ghi đến hạn theo thứ tự id. Bản ghi chưa đến hạn giữ lại các bản ghi sau của cùng account;
+     * khi cả trang đang backoff thì đọc trang kế tiếp thay vì dừng.
+     */
+    private List<PaymentOutbox> collectDue() {
+        LocalDateTime now = LocalDateTime.now();
+        Set<String> blockedAccounts = new HashSet<>();
+        List<PaymentOutbox> due = new ArrayList<>();
+        long afterId = 0;
+        for (int page = 0; page < maxScanPages && due.size() < batchSize; page++) {
+            List<PaymentOutbox> rows = paymentOutboxRepository.findByStatusAndIdGreaterThanOrderByIdAsc(
+                    OutboxStatus.PENDING, afterId, PageRequest.of(0, batchSize));
+            for (PaymentOutbox entry : rows) {
+                if (due.size() == batchSize) {
+                    break;
+                }
+                boolean notDue = entry.getNextAttemptAt() != null && entry.getNextAttemptAt().isAfter(now);
+                if (notDue || isBlocked(blockedAccounts, entry)) {
+                    block(blockedAccounts, entry);
+                    continue;
+                }
+                due.add(entry);
+            }
+            if (rows.size() < batchSize) {
+                break;
+            }
+            afterId = rows.get(rows.size() - 1).getId();
+        }
+        return due;
+    }
+
+    private void scheduleRetry(List<PaymentOutbox> entries, String error) {
+        LocalDateTime now = LocalDateTime.now();
+        for (PaymentOutbox entry : entries) {
+            int attempts = entry.getAttempts() + 1;
+            long backoff = Math.min(maxBackoffSeconds, 1L << Math.min(attempts, 16));
+            entry.setAttempts(attempts);
+            entry.setNextAttemptAt(now.plusSeconds(backoff));
+            entry.setLastError(error != null && error.length() > 255 ? error.substring(0, 255) : error);
+        }
+        transactionTemplate.executeWithoutResult(status -> paymentOutboxRepository.saveAll(entries));
+    }
+
+    // Dọn các bản ghi đã gửi quá hạn lưu giữ
+    @Scheduled(cron = "${payment.outbox.purge-cron:0 0 3 * * *}")
+    public void purgeSent() {
+        LocalDateTime before = LocalDateTime.now().minusDays(retentionDays);
+        Integer deleted = transactionTemplate.execute(status ->
+                paymentOutboxRepository.deleteSentBefore(OutboxStatus.SENT, before));
+        log.info("Purged {} sent payment outbox entries", deleted);
+    }
+
+    private void refreshLagMetrics() {
+        pendingCount.set(paymentOutboxRepository.countByStatus(OutboxStatus.PENDING));
+        LocalDateTime oldest = paymentOutboxRepository.findOldestCreatedAt(OutboxStatus.PENDING);
+        lagSeconds.set(oldest == null ? 0 : Duration.between(oldest, LocalDateTime.now()).getSeconds());
+    }
+
+    private boolean isBlocked(Set<String> blockedAccounts, PaymentOutbox entry) {
+        return isOrderedAccount(entry.getFromAccountId()) && blockedAccounts.contains(entry.getFromAccountId())
+                || isOrderedAccount(entry.getToAccountId()) && blockedAccounts.contains(entry.getToAccountId());
+    }
+
+    private void block(Set<String> blockedAccounts, PaymentOutbox entry) {
+        if (isOrderedAccount(entry.getFromAccountId())) {
+            blockedAccounts.add(entry.getFromAccountId());
+        }
+        if (isOrderedAccount(entry.getToAccountId())) {
+            blockedAccounts.add(entry.getToAccountId());
+        }
+    }
+
+    // Account hệ thống "0" (nạp/rút) không cần giữ thứ tự
+    private boolean isOrderedAccount(String accountId) {
+        return accountId != null && !SYSTEM_ACCOUNT_ID.equals(accountId);
+    }
+
+    private PaymentRequest toPaymentRequest(PaymentOutbox entry) {
+        PaymentRequest request = new PaymentRequest();
+        request.setPaymentId(entry.getPaymentId());
+        request.setFromAccountId(entry.getFromAccountId());
+        request.setToAccountId(entry.getToAccountId());
+        request.setFromCardId(entry.getFromCardId());
+        request.setToCardId(entry.getToCardId());
+        request.setAmount(entry.getAmount());
+        return request;
+    }
+}
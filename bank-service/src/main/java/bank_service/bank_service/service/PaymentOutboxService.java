@@ -0,0 +1,48 @@
+package bank_service.bank_service.service;
+
+import bank_service.bank_service.model.OutboxStatus;
+import bank_service.bank_service.model.PaymentOutbox;
+import bank_service.bank_service.model.Transaction;
+import bank_service.bank_service.repository.PaymentOutboxRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Service
+@RequiredArgsConstructor
+public class PaymentOutboxService {
+
+    private final PaymentOutboxRepository paymentOutboxRepository;
+
+    /**
+     * Ghi sự kiện thanh toán vào outbox, bắt buộc chạy trong transaction nghiệp vụ
+     * để bản ghi chỉ tồn tại khi giao dịch commit.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public PaymentOutbox enqueue(Transaction tx) {
+        return paymentOutboxRepository.save(toOutbox(tx));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public List<PaymentOutbox> enqueueAll(List<Transaction> txs) {
+        return paymentOutboxRepository.saveAll(txs.stream().map(this::toOutbox).toList());
+    }
+
+    private PaymentOutbox toOutbox(Transaction tx) {
+        return PaymentOutbox.builder()
+                .paymentId(tx.getId())
+                .fromAccountId(tx.getFromAccountId())
+                .toAccountId(tx.getToAccountId())
+                .fromCardId(tx.getFromCardId())
+                .toCardId(tx.getToCardId())
+                .amount(tx.getAmount())
+                .status(OutboxStatus.PENDING)
+                .attempts(0)
+                .nextAttemptAt(LocalDateTime.now())
+                .build();
+    }
+}
@@ -0,0 +1,94 @@
+package bank_service.bank_service.service;
+
+import bank_service.bank_service.model.TransactionStatus;
+import bank_service.bank_service.repository.TransactionRepository;
+import bank_service.bank_service.repository.TransferBatchRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Định kỳ chuyển các giao dịch PENDING đã hết hạn OTP sang EXPIRED và hoàn tiền hold.
+ * Mỗi lô chạy trong một transaction riêng; các dòng được nhận bằng FOR UPDATE SKIP LOCKED
+ * nên nhiều instance bank-service có thể chạy đồng thời mà không xử lý trùng.
+ * Lô chuyển khoản (TransferBatch) có dòng hết hạn được chuyển EXPIRED cùng transaction với dòng đó.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PendingTransactionSweeper {
+
+    private final TransactionRepository transactionRepository;
+    private final TransferBatchRepository transferBatchRepository;
+    private final BalanceHoldService balanceHoldService;
+    private final BalanceService balanceService;
+    private final OtpChallengeStore otpChallengeStore;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${transaction.sweeper.chunk-size:500}")
+    private int chunkSize;
+
+    @Value("${transaction.sweeper.max-chunks-per-run:20}")
+    private int maxChunksPerRun;
+
+    @Scheduled(fixedDelayString = "${transaction.sweeper.interval-ms:60000}")
+    public void sweepExpired() {
+        int total = 0;
+        for (int i = 0; i < maxChunksPerRun; i++) {
+            int expired = sweepChunk();
+            total += expired;
+            if (expired < chunkSize) {
+                break;
+            }
+        }
+        if (total > 0) {
+            log.info("Expired {} pending transactions and released their holds", total);
+        }
+    }
+
+    private int sweepChunk() {
+        List<String> ids = new ArrayList<>();
+        Set<String> accountIds = new HashSet<>();
+        Set<String> batchIds = new HashSet<>();
+
+        Integer expired = transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<Object[]> claimed = transactionRepository.claimExpiredPending(now, chunkSize);
+            if (claimed.isEmpty()) {
+                return 0;
+            }
+            for (Object[] row : claimed) {
+                ids.add((String) row[0]);
+                accountIds.add((String) row[1]);
+                if (row[2] != null) {
+                    batchIds.add((String) row[2]);
+                }
+            }
+            balanceHoldService.releaseHolds(ids);
+            int count = transactionRepository.updateStatusByIds(ids, TransactionStatus.PENDING, TransactionStatus.EXPIRED);
+            // Dòng của lô hết hạn thì lô cũng hết hạn, trong cùng transaction
+            if (!batchIds.isEmpty()) {
+                int batches = transferBatchRepository.expirePendingByIds(batchIds, now);
+                if (batches > 0) {
+                    log.info("Expired {} pending transfer batches", batches);
+                }
+            }
+            return count;
+        });
+
+        // Sau commit: dọn OTP (của giao dịch lẻ và của lô) và cache balance đã cũ
+        ids.forEach(otpChallengeStore::delete);
+        batchIds.forEach(otpChallengeStore::delete);
+        balanceService.invalidateCache(accountIds);
+        return expired == null ? 0 : expired;
+    }
+}
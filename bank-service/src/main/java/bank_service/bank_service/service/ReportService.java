@@ -1,5 +1,6 @@
 package bank_service.bank_service.service;
 
+import bank_service.bank_service.cache.RequestMemo;
 import bank_service.bank_service.dto.report.*;
 import bank_service.bank_service.exception.AppException;
 import bank_service.bank_service.model.*;
@@ -22,6 +23,7 @@ public class ReportService {
     private final BalanceRepository balanceRepository;
     private final AccountRepository accountRepository;
     private final CategoryRepository categoryRepository;
+    private final RequestMemo requestMemo;
 
     /**
      * 1. Báo cáo thu/chi theo tháng
@@ -174,12 +176,7 @@ public class ReportService {
         }
 
         // Lấy số dư hiện tại - xử lý null
-        Balance balance = balanceRepository.findByAccountId(accountId)
-                .orElse(Balance.builder()
-                        .accountId(accountId)
-                        .availableBalance(BigDecimal.ZERO)
-                        .holdBalance(BigDecimal.ZERO)
-                        .build());
+        Balance balance = currentBalance(accountId);
 
         BigDecimal availableBalance = balance.getAvailableBalance() != null 
                 ? balance.getAvailableBalance() 
@@ -313,16 +310,11 @@ public class ReportService {
      * Trả về thông tin số dư của tài khoản hoặc tất cả tài khoản (admin)
      */
     public WalletBalanceDTO getWalletBalance(String accountId) {
-        Account account = accountRepository.findById(accountId)
+        Account account = requestMemo.find(Account.class, accountId, () -> accountRepository.findById(accountId))
                 .orElseThrow(() -> new AppException("Account not found"));
 
         // Xử lý null cho Balance
-        Balance balance = balanceRepository.findByAccountId(accountId)
-                .orElse(Balance.builder()
-                        .accountId(accountId)
-                        .availableBalance(BigDecimal.ZERO)
-                        .holdBalance(BigDecimal.ZERO)
-                        .build());
+        Balance balance = currentBalance(accountId);
 
         BigDecimal availableBalance = balance.getAvailableBalance() != null 
                 ? balance.getAvailableBalance() 
@@ -389,12 +381,7 @@ public class ReportService {
         LocalDateTime endDate = LocalDateTime.of(year, 12, 31, 23, 59, 59);
 
         // Lấy số dư hiện tại - xử lý null
-        Balance balance = balanceRepository.findByAccountId(accountId)
-                .orElse(Balance.builder()
-                        .accountId(accountId)
-                        .availableBalance(BigDecimal.ZERO)
-                        .holdBalance(BigDecimal.ZERO)
-                        .build());
+        Balance balance = currentBalance(accountId);
 
         BigDecimal availableBalance = balance.getAvailableBalance() != null 
                 ? balance.getAvailableBalance() 
@@ -435,4 +422,14 @@ public class ReportService {
                 .monthlyTrend(monthlyTrend)
                 .build();
     }
+
+    // Số dư hiện tại (0 nếu chưa có dòng balance), đọc một lần cho mỗi request
+    private Balance currentBalance(String accountId) {
+        return requestMemo.find(Balance.class, accountId, () -> balanceRepository.findById(accountId))
+                .orElse(Balance.builder()
+                        .accountId(accountId)
+                        .availableBalance(BigDecimal.ZERO)
+                        .holdBalance(BigDecimal.ZERO)
+                        .build());
+    }
 }
@@ -0,0 +1,216 @@
+package bank_service.bank_service.service;
+
+import bank_service.bank_service.model.StandingOrder;
+import bank_service.bank_service.model.StandingOrderFrequency;
+import bank_service.bank_service.model.StandingOrderStatus;
+import bank_service.bank_service.model.Transaction;
+import bank_service.bank_service.repository.StandingOrderRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Chạy lệnh chuyển khoản định kỳ / hẹn giờ.
+ *
+ * Các lệnh sắp đến hạn (trong horizon) được nạp định kỳ vào một timing wheel trong bộ nhớ;
+ * mỗi tick chỉ kiểm tra các ô vừa đi qua, không truy vấn DB khi không có lệnh đến hạn.
+ * Khi wheel báo có lệnh đến hạn, instance nhận một lô lệnh bằng FOR UPDATE SKIP LOCKED và ghi claimedBy,
+ * nên nhiều instance chia nhau xử lý mà không chạy trùng. Mỗi lệnh chạy trong transaction riêng,
+ * cùng transaction với giao dịch được tạo, nên lịch chạy tiếp theo chỉ được cập nhật khi chuyển khoản đã commit.
+ * Lệnh được đọc lại với khóa dòng trước khi chạy; tạm dừng / hủy cũng khóa dòng và xóa claim,
+ * nên lệnh vừa bị hủy không bị chạy hay ghi đè lại thành ACTIVE.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StandingOrderScheduler {
+
+    private final StandingOrderRepository standingOrderRepository;
+    private final TransactionService transactionService;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+
+    private final String instanceId = UUID.randomUUID().toString();
+
+    @Value("${standing-order.tick-ms:1000}")
+    private long tickMs;
+
+    @Value("${standing-order.wheel-size:512}")
+    private int wheelSize;
+
+    @Value("${standing-order.horizon-seconds:120}")
+    private long horizonSeconds;
+
+    @Value("${standing-order.claim-batch-size:50}")
+    private int claimBatchSize;
+
+    @Value("${standing-order.claim-ttl-seconds:300}")
+    private long claimTtlSeconds;
+
+    @Value("${standing-order.max-batches-per-tick:20}")
+    private int maxBatchesPerTick;
+
+    private TimingWheel<Long> wheel;
+    private Counter executedCounter;
+    private Counter failedCounter;
+
+    @PostConstruct
+    void init() {
+        wheel = new TimingWheel<>(tickMs, wheelSize, System.currentTimeMillis());
+        executedCounter = meterRegistry.counter("standing.order.executed");
+        failedCounter = meterRegistry.counter("standing.order.failed");
+        Gauge.builder("standing.order.wheel.size", wheel, TimingWheel::size).register(meterRegistry);
+    }
+
+    /**
+     * Nạp các lệnh đến hạn trong horizon vào wheel (kể cả lệnh quá hạn do instance khác dừng giữa chừng)
+     */
+    @Scheduled(fixedDelayString = "${standing-order.load-interval-ms:30000}")
+    public void loadUpcoming() {
+        LocalDateTime until = LocalDateTime.now().plusSeconds(horizonSeconds);
+        for (Object[] row : standingOrderRepository.findUpcoming(StandingOrderStatus.ACTIVE, until)) {
+            wheel.schedule((Long) row[0], toMillis((LocalDateTime) row[1]));
+        }
+    }
+
+    /**
+     * Đưa lệnh vừa tạo / tiếp tục vào wheel nếu đến hạn trong horizon
+     */
+    public void schedule(StandingOrder order) {
+        if (order.getStatus() != StandingOrderStatus.ACTIVE || order.getNextRunAt() == null) {
+            wheel.cancel(order.getId());
+            return;
+        }
+        if (order.getNextRunAt().isBefore(LocalDateTime.now().plusSeconds(horizonSeconds))) {
+            wheel.schedule(order.getId(), toMillis(order.getNextRunAt()));
+        }
+    }
+
+    public void unschedule(Long orderId) {
+        wheel.cancel(orderId);
+    }
+
+    @Scheduled(fixedRateString = "${standing-order.tick-ms:1000}")
+    public void tick() {
+        if (wheel.advance(System.currentTimeMillis()).isEmpty()) {
+            return;
+        }
+        for (int i = 0; i < maxBatchesPerTick; i++) {
+            List<Long> claimed = claimBatch();
+            claimed.forEach(this::execute);
+            if (claimed.size() < claimBatchSize) {
+                break;
+            }
+        }
+    }
+
+    private List<Long> claimBatch() {
+        List<Long> ids = transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<Long> due = standingOrderRepository.lockDue(now, claimBatchSize);
+            if (!due.isEmpty()) {
+                standingOrderRepository.claim(due, instanceId, now.plusSeconds(claimTtlSeconds));
+            }
+            return due;
+        });
+        return ids == null ? List.of() : ids;
+    }
+
+    void execute(Long orderId) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                StandingOrder order = findClaimed(orderId);
+                if (order == null) {
+                    return;
+                }
+                Transaction tx = transactionService.createPreAuthorizedTransaction(
+                        order.getFromAccountId(), order.getToAccountId(), order.getAmount(),
+                        order.getCategoryId(), order.getFromCardId(), order.getToCardId());
+                order.setLastTransactionId(tx.getId());
+                order.setSuccessCount(order.getSuccessCount() + 1);
+                order.setLastError(null);
+                advance(order, LocalDateTime.now());
+                standingOrderRepository.save(order);
+            });
+            executedCounter.increment();
+        } catch (Exception e) {
+            failedCounter.increment();
+            log.warn("Standing order {} failed: {}", orderId, e.getMessage());
+            recordFailure(orderId, e.getMessage());
+        }
+    }
+
+    // Chuyển khoản thất bại (VD: không đủ số dư): bỏ qua lần này, lệnh ONCE chuyển sang FAILED
+    private void recordFailure(Long orderId, String error) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                StandingOrder order = findClaimed(orderId);
+                if (order == null) {
+                    return;
+                }
+                order.setFailureCount(order.getFailureCount() + 1);
+                order.setLastError(error);
+                advance(order, LocalDateTime.now());
+                if (order.getFrequency() == StandingOrderFrequency.ONCE) {
+                    order.setStatus(StandingOrderStatus.FAILED);
+                }
+                standingOrderRepository.save(order);
+            });
+        } catch (Exception e) {
+            // Claim sẽ hết hạn và lệnh được chạy lại ở lần sau
+            log.error("Could not record failure of standing order {}: {}", orderId, e.getMessage());
+        }
+    }
+
+    // Khóa dòng đến hết transaction: pause/cancel chờ lần chạy này xong, hoặc đã xóa claim nếu commit trước
+    private StandingOrder findClaimed(Long orderId) {
+        return standingOrderRepository.findByIdForUpdate(orderId)
+                .filter(order -> instanceId.equals(order.getClaimedBy()))
+                .filter(order -> order.getStatus() == StandingOrderStatus.ACTIVE)
+                .orElse(null);
+    }
+
+    /**
+     * Tính lần chạy kế tiếp và trả claim. Các lần đã lỡ (instance dừng lâu) bị bỏ qua,
+     * chỉ chạy bù một lần thay vì dồn nhiều chuyển khoản cùng lúc.
+     */
+    static void advance(StandingOrder order, LocalDateTime now) {
+        order.setLastRunAt(now);
+        order.setClaimedBy(null);
+        order.setClaimedUntil(null);
+        order.setOccurrence(order.getOccurrence() + 1);
+
+        if (order.getFrequency() == StandingOrderFrequency.ONCE) {
+            order.setStatus(StandingOrderStatus.COMPLETED);
+            order.setNextRunAt(null);
+            return;
+        }
+        LocalDateTime next = order.getFrequency().occurrence(order.getStartAt(), order.getOccurrence());
+        while (!next.isAfter(now)) {
+            order.setOccurrence(order.getOccurrence() + 1);
+            next = order.getFrequency().occurrence(order.getStartAt(), order.getOccurrence());
+        }
+        if (order.getEndAt() != null && next.isAfter(order.getEndAt())) {
+            order.setStatus(StandingOrderStatus.COMPLETED);
+            order.setNextRunAt(null);
+            return;
+        }
+        order.setNextRunAt(next);
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return Timestamp.valueOf(time).getTime();
+    }
+}
@@ -0,0 +1,158 @@
+package bank_service.bank_service.service;
+
+import bank_service.bank_service.dto.standingorder.StandingOrderRequest;
+import bank_service.bank_service.exception.AppException;
+import bank_service.bank_service.model.StandingOrder;
+import bank_service.bank_service.model.StandingOrderFrequency;
+import bank_service.bank_service.model.StandingOrderStatus;
+import bank_service.bank_service.repository.AccountRepository;
+import bank_service.bank_service.repository.StandingOrderRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * Quản lý lệnh chuyển khoản định kỳ / hẹn giờ của người dùng. Việc thực thi do StandingOrderScheduler đảm nhận.
+ */
+@Service
+@RequiredArgsConstructor
+public class StandingOrderService {
+
+    private final StandingOrderRepository standingOrderRepository;
+    private final AccountRepository accountRepository;
+    private final StandingOrderScheduler standingOrderScheduler;
+
+    @Transactional
+    public StandingOrder createStandingOrder(String fromAccountId, StandingOrderRequest request) {
+        validate(fromAccountId, request);
+
+        StandingOrder order = standingOrderRepository.save(StandingOrder.builder()
+                .fromAccountId(fromAccountId)
+                .toAccountId(request.getToAccountId())
+                .fromCardId(request.getFromCardId())
+                .toCardId(request.getToCardId())
+                .amount(request.getAmount())
+                .categoryId(request.getCategoryId())
+                .frequency(request.getFrequency())
+                .status(StandingOrderStatus.ACTIVE)
+                .startAt(request.getStartAt())
+                .endAt(request.getEndAt())
+                .nextRunAt(request.getStartAt())
+                .occurrence(0)
+                .build());
+
+        standingOrderScheduler.schedule(order);
+        return order;
+    }
+
+    private void validate(String fromAccountId, StandingOrderRequest request) {
+        if (request.getToAccountId() == null || request.getFrequency() == null || request.getStartAt() == null) {
+            throw new AppException("Target account, frequency and start time are required");
+        }
+        if (request.getAmount() == null || request.getAmount().compareTo(BigDecimal.ZERO) <= 0) {
+            throw new AppException("Amount must be positive");
+        }
+        if (request.getCategoryId() == null || request.getCategoryId().isEmpty()) {
+            throw new AppException("Category is required");
+        }
+        if (fromAccountId.equals(request.getToAccountId())) {
+            throw new AppException("Cannot transfer to the same account");
+        }
+        if (request.getStartAt().isBefore(LocalDateTime.now().minusMinutes(1))) {
+            throw new AppException("Start time must be in the future");
+        }
+        if (request.getEndAt() != null && request.getEndAt().isBefore(request.getStartAt())) {
+            throw new AppException("End time must be after start time");
+        }
+        if (!accountRepository.existsById(request.getToAccountId())) {
+            throw new AppException("Target account not found");
+        }
+    }
+
+    public Page<StandingOrder> getMyStandingOrders(String accountId, Pageable pageable) {
+        return standingOrderRepository.findByFromAccountId(accountId, pageable);
+    }
+
+    public StandingOrder getStandingOrder(Long id, String accountId) {
+        return findOwned(id, accountId);
+    }
+
+    @Transactional
+    public StandingOrder pauseStandingOrder(Long id, String accountId) {
+        StandingOrder order = findOwnedForUpdate(id, accountId);
+        if (order.getStatus() != StandingOrderStatus.ACTIVE) {
+            throw new AppException("Standing order is not active");
+        }
+        order.setStatus(StandingOrderStatus.PAUSED);
+        releaseClaim(order);
+        standingOrderScheduler.unschedule(id);
+        return standingOrderRepository.save(order);
+    }
+
+    @Transactional
+    public StandingOrder resumeStandingOrder(Long id, String accountId) {
+        StandingOrder order = findOwnedForUpdate(id, accountId);
+        if (order.getStatus() != StandingOrderStatus.PAUSED) {
+            throw new AppException("Standing order is not paused");
+        }
+        // Bỏ qua các lần đến hạn trong thời gian tạm dừng
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime next = order.getFrequency().occurrence(order.getStartAt(), order.getOccurrence());
+        while (next.isBefore(now) && order.getFrequency() != StandingOrderFrequency.ONCE) {
+            order.setOccurrence(order.getOccurrence() + 1);
+            next = order.getFrequency().occurrence(order.getStartAt(), order.getOccurrence());
+        }
+        if (order.getEndAt() != null && next.isAfter(order.getEndAt())) {
+            order.setStatus(StandingOrderStatus.COMPLETED);
+            order.setNextRunAt(null);
+        } else {
+            order.setStatus(StandingOrderStatus.ACTIVE);
+            order.setNextRunAt(next);
+        }
+        StandingOrder saved = standingOrderRepository.save(order);
+        standingOrderScheduler.schedule(saved);
+        return saved;
+    }
+
+    @Transactional
+    public StandingOrder cancelStandingOrder(Long id, String accountId) {
+        StandingOrder order = findOwnedForUpdate(id, accountId);
+        if (order.getStatus() != StandingOrderStatus.ACTIVE && order.getStatus() != StandingOrderStatus.PAUSED) {
+            throw new AppException("Standing order is already finished");
+        }
+        order.setStatus(StandingOrderStatus.CANCELLED);
+        order.setNextRunAt(null);
+        releaseClaim(order);
+        standingOrderScheduler.unschedule(id);
+        return standingOrderRepository.save(order);
+    }
+
+    private StandingOrder findOwned(Long id, String accountId) {
+        return checkOwner(standingOrderRepository.findById(id), accountId);
+    }
+
+    // Khóa dòng: chờ lần chạy đang diễn ra (nếu có) commit rồi mới đổi trạng thái
+    private StandingOrder findOwnedForUpdate(Long id, String accountId) {
+        return checkOwner(standingOrderRepository.findByIdForUpdate(id), accountId);
+    }
+
+    private StandingOrder checkOwner(Optional<StandingOrder> found, String accountId) {
+        StandingOrder order = found.orElseThrow(() -> new AppException("Standing order not found"));
+        if (!order.getFromAccountId().equals(accountId)) {
+            throw new AppException("Standing order not found");
+        }
+        return order;
+    }
+
+    // Instance đã nhận lệnh nhưng chưa chạy sẽ không tìm thấy claim của mình và bỏ qua
+    private void releaseClaim(StandingOrder order) {
+        order.setClaimedBy(null);
+        order.setClaimedUntil(null);
+    }
+}
@@ -0,0 +1,85 @@
+package bank_service.bank_service.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hashed timing wheel: mỗi ô ứng với một tick, phần tử được đặt vào ô (deadlineTick % wheelSize).
+ * Phần tử có hạn xa hơn một vòng vẫn nằm trong ô và chỉ được lấy ra khi đã tới deadlineTick,
+ * nên mỗi tick chỉ duyệt các ô vừa đi qua thay vì toàn bộ lịch.
+ */
+class TimingWheel<T> {
+
+    private final long tickMs;
+    private final List<Map<T, Long>> slots;
+    private final Map<T, Long> deadlines = new HashMap<>();
+    private long currentTick;
+
+    TimingWheel(long tickMs, int wheelSize, long startMillis) {
+        this.tickMs = tickMs;
+        this.slots = new ArrayList<>(wheelSize);
+        for (int i = 0; i < wheelSize; i++) {
+            slots.add(new HashMap<>());
+        }
+        this.currentTick = startMillis / tickMs;
+    }
+
+    /**
+     * Đặt lịch (hoặc dời lịch) cho key. Hạn đã qua sẽ được trả về ở lần advance kế tiếp.
+     */
+    synchronized void schedule(T key, long dueMillis) {
+        long deadlineTick = Math.max((dueMillis + tickMs - 1) / tickMs, currentTick + 1);
+        Long previous = deadlines.put(key, deadlineTick);
+        if (previous != null) {
+            if (previous == deadlineTick) {
+                return;
+            }
+            slotOf(previous).remove(key);
+        }
+        slotOf(deadlineTick).put(key, deadlineTick);
+    }
+
+    synchronized void cancel(T key) {
+        Long previous = deadlines.remove(key);
+        if (previous != null) {
+            slotOf(previous).remove(key);
+        }
+    }
+
+    /**
+     * Quay bánh xe tới nowMillis, trả về các key đã đến hạn
+     */
+    synchronized List<T> advance(long nowMillis) {
+        long nowTick = nowMillis / tickMs;
+        List<T> due = new ArrayList<>();
+        if (nowTick <= currentTick) {
+            return due;
+        }
+        // Bị trễ hơn một vòng (VD: GC dài) thì duyệt mỗi ô một lần là đủ
+        long steps = Math.min(nowTick - currentTick, slots.size());
+        for (long tick = nowTick - steps + 1; tick <= nowTick; tick++) {
+            Iterator<Map.Entry<T, Long>> it = slotOf(tick).entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<T, Long> entry = it.next();
+                if (entry.getValue() <= nowTick) {
+                    due.add(entry.getKey());
+                    deadlines.remove(entry.getKey());
+                    it.remove();
+                }
+            }
+        }
+        currentTick = nowTick;
+        return due;
+    }
+
+    synchronized int size() {
+        return deadlines.size();
+    }
+
+    private Map<T, Long> slotOf(long tick) {
+        return slots.get((int) Math.floorMod(tick, (long) slots.size()));
+    }
+}
@@ -0,0 +1,253 @@
+package bank_service.bank_service.service;
+
+import bank_service.bank_service.event.TransactionCompletedEvent;
+import bank_service.bank_service.exception.HistoryNotCaughtUpException;
+import bank_service.bank_service.model.Transaction;
+import bank_service.bank_service.model.TransactionHistory;
+import bank_service.bank_service.model.TransactionStatus;
+import bank_service.bank_service.model.TransactionType;
+import bank_service.bank_service.repository.TransactionRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Ghi TransactionHistory theo lô JDBC ở chế độ transaction.history.mode=async.
+ *
+ * Mỗi sự kiện nhận sau commit được gán một số thứ tự tăng dần (watermark).
+ * appliedWatermark là số thứ tự lớn nhất đã ghi xuống DB; người đọc cần read-your-writes
+ * gọi requireCaughtUp() trước khi đọc báo cáo, ngoài transaction (không giữ connection DB trong lúc chờ).
+ *
+ * Giới hạn của watermark:
+ *   - Chỉ trong một instance: giao dịch commit trên instance khác và còn trong hàng đợi của instance đó không được chờ,
+ *     nên read-your-writes chỉ đúng khi request đọc tới cùng instance với request ghi.
+ *   - Hàng đợi nằm trong bộ nhớ: instance dừng đột ngột thì các dòng chưa ghi bị mất cho tới khi
+ *     reconcileMissingHistory() chạy lúc khởi động lại (chỉ xét reconcile-window-hours gần nhất).
+ * Dùng ReentrantLock thay cho synchronized/wait: virtual thread chờ watermark hay ghi DB không giữ chặt carrier thread.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TransactionHistoryProjector {
+
+    private static final String INSERT_SQL = "INSERT IGNORE INTO transaction_history " +
+            "(id, from_account_id, to_account_id, from_card_id, to_card_id, amount, " +
+            "transaction_type, status, created_at, completed_at, category_id) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionHistoryRecorder recorder;
+    private final TransactionRepository transactionRepository;
+    private final BudgetService budgetService;
+
+    @Value("${transaction.history.batch-size:200}")
+    private int batchSize;
+
+    @Value("${transaction.history.consistency-timeout:5s}")
+    private Duration consistencyTimeout;
+
+    @Value("${transaction.history.reconcile-window-hours:24}")
+    private int reconcileWindowHours;
+
+    private record Entry(long watermark, TransactionHistory history) {}
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition applied = lock.newCondition();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final List<Entry> queue = new ArrayList<>();
+    private long publishedWatermark;
+    private long appliedWatermark;
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onTransactionCompleted(TransactionCompletedEvent event) {
+        enqueue(event.history());
+    }
+
+    private void enqueue(TransactionHistory history) {
+        lock.lock();
+        try {
+            queue.add(new Entry(++publishedWatermark, history));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${transaction.history.flush-interval-ms:200}")
+    public void flush() {
+        flushLock.lock();
+        try {
+            List<Entry> batch;
+            while (!(batch = peekBatch()).isEmpty()) {
+                try {
+                    writeBatch(batch);
+                } catch (Exception e) {
+                    // Giữ nguyên hàng đợi, thử lại ở lần flush sau
+                    log.error("Failed to project {} transaction histories: {}", batch.size(), e.getMessage());
+                    return;
+                }
+                markApplied(batch);
+                checkBudgetAlerts(batch);
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private List<Entry> peekBatch() {
+        lock.lock();
+        try {
+            return new ArrayList<>(queue.subList(0, Math.min(batchSize, queue.size())));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void markApplied(List<Entry> batch) {
+        lock.lock();
+        try {
+            queue.subList(0, batch.size()).clear();
+            appliedWatermark = batch.get(batch.size() - 1).watermark();
+            applied.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void writeBatch(List<Entry> batch) {
+        jdbcTemplate.batchUpdate(INSERT_SQL, batch, batch.size(), (ps, entry) -> {
+            TransactionHistory h = entry.history();
+            ps.setString(1, h.getId());
+            ps.setString(2, h.getFromAccountId());
+            ps.setString(3, h.getToAccountId());
+            ps.setString(4, h.getFromCardId());
+            ps.setString(5, h.getToCardId());
+            ps.setBigDecimal(6, h.getAmount());
+            ps.setString(7, h.getTransactionType() != null ? h.getTransactionType().name() : null);
+            ps.setString(8, h.getStatus().name());
+            ps.setTimestamp(9, h.getCreatedAt() != null ? Timestamp.valueOf(h.getCreatedAt()) : null);
+            ps.setTimestamp(10, h.getCompletedAt() != null ? Timestamp.valueOf(h.getCompletedAt()) : null);
+            ps.setString(11, h.getCategoryId());
+        });
+    }
+
+    // Ở chế độ async, cảnh báo ngân sách chỉ chính xác sau khi lịch sử đã được ghi
+    private void checkBudgetAlerts(List<Entry> batch) {
+        batch.stream()
+                .map(Entry::history)
+                .filter(h -> h.getTransactionType() == TransactionType.TRANSFER
+                        && h.getStatus() == TransactionStatus.APPROVED)
+                .map(TransactionHistory::getFromAccountId)
+                .distinct()
+                .forEach(accountId -> {
+                    try {
+                        budgetService.checkAndSendAlerts(accountId);
+                    } catch (Exception e) {
+                        log.error("Error checking budget alerts for {}: {}", accountId, e.getMessage());
+                    }
+                });
+    }
+
+    /**
+     * Watermark lớn nhất đã phát (đã commit) trên instance này
+     */
+    public long currentWatermark() {
+        lock.lock();
+        try {
+            return publishedWatermark;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Chờ tới khi lịch sử có watermark <= target đã được ghi. Trả về false nếu hết thời gian chờ.
+     */
+    public boolean awaitWatermark(long target, Duration timeout) {
+        long remainingNanos = timeout.toNanos();
+        lock.lock();
+        try {
+            while (appliedWatermark < target) {
+                if (remainingNanos <= 0) {
+                    return false;
+                }
+                remainingNanos = applied.awaitNanos(remainingNanos);
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Chờ mọi giao dịch đã commit trên instance này được ghi vào lịch sử (read-your-writes)
+     */
+    public boolean awaitCaughtUp(Duration timeout) {
+        if (!recorder.isAsync()) {
+            return true;
+        }
+        return awaitWatermark(currentWatermark(), timeout);
+    }
+
+    /**
+     * Như awaitCaughtUp() với transaction.history.consistency-timeout; hết thời gian thì báo lỗi (503) thay vì để
+     * người gọi đọc lịch sử cũ. Gọi trước khi mở transaction đọc.
+     */
+    public void requireCaughtUp() {
+        if (!awaitCaughtUp(consistencyTimeout)) {
+            throw new HistoryNotCaughtUpException("Transaction history is still being updated, please retry");
+        }
+    }
+
+    /**
+     * Khi khởi động ở chế độ async: bổ sung lịch sử còn thiếu do instance trước dừng khi hàng đợi chưa ghi hết
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconcileMissingHistory() {
+        if (!recorder.isAsync()) {
+            return;
+        }
+        LocalDateTime since = LocalDateTime.now().minusHours(reconcileWindowHours);
+        List<Transaction> missing = transactionRepository.findCompletedWithoutHistory(
+                List.of(TransactionStatus.APPROVED, TransactionStatus.REJECTED), since);
+        for (Transaction tx : missing) {
+            enqueue(TransactionHistoryRecorder.toHistory(tx, tx.getUpdatedAt()));
+        }
+        if (!missing.isEmpty()) {
+            log.warn("Re-queued {} transactions missing from history", missing.size());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    public Map<String, Long> watermarks() {
+        lock.lock();
+        try {
+            return Map.of("published", publishedWatermark, "applied", appliedWatermark);
+        } finally {
+            lock.unlock();
+        }
+    }
+}
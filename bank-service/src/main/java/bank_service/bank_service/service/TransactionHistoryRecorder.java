@@ -0,0 +1,67 @@
+package bank_service.bank_service.service;
+
+import bank_service.bank_service.event.TransactionCompletedEvent;
+import bank_service.bank_service.model.Transaction;
+import bank_service.bank_service.model.TransactionHistory;
+import bank_service.bank_service.repository.TransactionHistoryRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Ghi TransactionHistory cho giao dịch đã hoàn tất.
+ * - sync (mặc định): insert ngay trong transaction nghiệp vụ
+ * - async: phát TransactionCompletedEvent, TransactionHistoryProjector ghi theo lô sau commit
+ */
+@Service
+@RequiredArgsConstructor
+public class TransactionHistoryRecorder {
+
+    private final TransactionHistoryRepository transactionHistoryRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${transaction.history.mode:sync}")
+    private String mode;
+
+    public boolean isAsync() {
+        return "async".equalsIgnoreCase(mode);
+    }
+
+    public void record(Transaction tx) {
+        TransactionHistory history = toHistory(tx, LocalDateTime.now());
+        if (isAsync()) {
+            eventPublisher.publishEvent(new TransactionCompletedEvent(history));
+        } else {
+            transactionHistoryRepository.save(history);
+        }
+    }
+
+    public void recordAll(List<Transaction> txs) {
+        LocalDateTime now = LocalDateTime.now();
+        List<TransactionHistory> histories = txs.stream().map(tx -> toHistory(tx, now)).toList();
+        if (isAsync()) {
+            histories.forEach(h -> eventPublisher.publishEvent(new TransactionCompletedEvent(h)));
+        } else {
+            transactionHistoryRepository.saveAll(histories);
+        }
+    }
+
+    public static TransactionHistory toHistory(Transaction tx, LocalDateTime completedAt) {
+        TransactionHistory history = new TransactionHistory();
+        history.setId(tx.getId());
+        history.setFromAccountId(tx.getFromAccountId());
+        history.setToAccountId(tx.getToAccountId());
+        history.setFromCardId(tx.getFromCardId());
+        history.setToCardId(tx.getToCardId());
+        history.setAmount(tx.getAmount());
+        history.setStatus(tx.getStatus());
+        history.setCompletedAt(completedAt);
+        history.setTransactionType(tx.getTransactionType());
+        history.setCategoryId(tx.getCategoryId());
+        return history;
+    }
+}
@@ -1,38 +1,63 @@
 package bank_service.bank_service.service;
 
-import bank_service.bank_service.dto.PaymentRequest;
+import bank_service.bank_service.cache.RequestMemo;
+import bank_service.bank_service.event.VerificationEmailEvent;
+import bank_service.bank_service.dto.transaction.BulkDecisionResult;
 import bank_service.bank_service.exception.AppException;
+import bank_service.bank_service.exception.NotFoundException;
 import bank_service.bank_service.model.*;
 import bank_service.bank_service.repository.AccountRepository;
 import bank_service.bank_service.repository.BalanceRepository;
 import bank_service.bank_service.repository.TransactionHistoryRepository;
 import bank_service.bank_service.repository.TransactionRepository;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.beans.factory.annotation.Autowired;
 import java.util.UUID;
 
 @Service
 @RequiredArgsConstructor
+@Slf4j
 public class TransactionService {
 
     private final TransactionRepository transactionRepository;
     private final AccountRepository accountRepository;
     private final BalanceRepository balanceRepository;
-    private final EmailService emailService;
-    private final PaymentClient paymentClient;
+    private final ApplicationEventPublisher eventPublisher;
+    private final PaymentOutboxService paymentOutboxService;
+    private final AutoApprovalService autoApprovalService;
+    private final OtpChallengeStore otpChallengeStore;
+    private final TransactionStateMachine transactionStateMachine;
+    private final TransactionHistoryRecorder transactionHistoryRecorder;
     private final TransactionHistoryRepository transactionHistoryRepository;
     private final BalanceService balanceService;
+    private final BalanceHoldService balanceHoldService;
+    private final RequestMemo requestMemo;
     
     private BudgetService budgetService;
+
+    private static final int MAX_BULK_SIZE = 500;
+    static final Duration OTP_TTL = Duration.ofMinutes(5);
     
     @Autowired
     public void setBudgetService(@Lazy BudgetService budgetService) {
@@ -41,29 +66,57 @@ public class TransactionService {
 
     @Transactional
     public Transaction createTransaction(String fromAccountId, String toAccountId, BigDecimal amount, String categoryId, String fromCardId, String toCardId) {
+        Account fromAccount = validateTransfer(fromAccountId, toAccountId);
+        Transaction saved = holdAndCreatePending(fromAccountId, toAccountId, amount, categoryId, fromCardId, toCardId);
+
+        // OTP chỉ lưu trên Redis (có TTL), không lưu trong bảng transaction
+        String verificationCode = otpChallengeStore.generateCode();
+        otpChallengeStore.create(saved.getId(), verificationCode, OTP_TTL);
+
+        // gửi OTP qua email sau khi commit (EmailService xử lý bất đồng bộ)
+        eventPublisher.publishEvent(new VerificationEmailEvent(
+                saved.getId(),
+                fromAccount.getEmail(),
+                "Xác nhận giao dịch",
+                verificationCode
+        ));
+
+        return saved;
+    }
+
+    /**
+     * Tạo giao dịch đã được người dùng ủy quyền trước (VD: lệnh chuyển khoản định kỳ), không cần OTP.
+     * Vẫn hold tiền và đi qua rule tự động duyệt như giao dịch thường; không khớp rule thì chờ admin duyệt.
+     */
+    @Transactional
+    public Transaction createPreAuthorizedTransaction(String fromAccountId, String toAccountId, BigDecimal amount, String categoryId, String fromCardId, String toCardId) {
+        validateTransfer(fromAccountId, toAccountId);
+        Transaction tx = holdAndCreatePending(fromAccountId, toAccountId, amount, categoryId, fromCardId, toCardId);
+
+        Optional<String> matchedRule = autoApprovalService.evaluate(tx);
+        if (matchedRule.isPresent() && transactionStateMachine.autoApprove(tx, matchedRule.get())) {
+            return completeApproval(tx);
+        }
+        if (!transactionStateMachine.transition(tx, TransactionStatus.PENDING, TransactionStatus.AWAITING_APPROVAL)) {
+            throw new AppException("Transaction is not pending");
+        }
+        balanceHoldService.clearExpiry(List.of(tx.getId()));
+        return tx;
+    }
+
+    private Account validateTransfer(String fromAccountId, String toAccountId) {
         if (fromAccountId.equals(toAccountId)) {
             throw new AppException("Cannot transfer to the same account");
         }
 
-        Account fromAccount = accountRepository.findById(fromAccountId)
+        Account fromAccount = requestMemo.find(Account.class, fromAccountId, () -> accountRepository.findById(fromAccountId))
                 .orElseThrow(() -> new AppException("Source account not found"));
-        accountRepository.findById(toAccountId)
+        requestMemo.find(Account.class, toAccountId, () -> accountRepository.findById(toAccountId))
                 .orElseThrow(() -> new AppException("Target account not found"));
+        return fromAccount;
+    }
 
-        Balance fromBalance = balanceRepository.findById(fromAccountId)
-                .orElseThrow(() -> new AppException("Sender balance not found"));
-
-        if (fromBalance.getAvailableBalance().compareTo(amount) < 0) {
-            throw new AppException("Insufficient balance");
-        }
-
-        // chuyển từ available -> hold
-        fromBalance.setAvailableBalance(fromBalance.getAvailableBalance().subtract(amount));
-        fromBalance.setHoldBalance(fromBalance.getHoldBalance().add(amount));
-        Balance savedFromBalance = balanceRepository.save(fromBalance);
-        // Cập nhật Redis cache
-        balanceService.refreshCache(fromAccountId, savedFromBalance);
-
+    private Transaction holdAndCreatePending(String fromAccountId, String toAccountId, BigDecimal amount, String categoryId, String fromCardId, String toCardId) {
         // tạo transaction
         Transaction transaction = Transaction.builder()
                 .fromAccountId(fromAccountId)
@@ -76,152 +129,313 @@ public class TransactionService {
                 .categoryId(categoryId)
                 .build();
 
-        String verificationCode = generateOtp();
-        transaction.setVerificationCode(verificationCode);
-        transaction.setExpiredAt(LocalDateTime.now().plusMinutes(5));
+        transaction.setExpiredAt(LocalDateTime.now().plus(OTP_TTL));
         transaction.setAttempts(0);
 
         Transaction saved = transactionRepository.save(transaction);
 
-        // gửi OTP qua email
-        emailService.sendVerificationEmail(
-                fromAccount.getEmail(),
-                "Xác nhận giao dịch",
-                verificationCode
-        );
+        // chuyển từ available -> hold (một dòng balance_hold cho giao dịch này)
+        balanceHoldService.placeHold(fromAccountId, saved.getId(), amount, saved.getExpiredAt());
 
         return saved;
     }
 
     @Transactional
     public Transaction verifyTransaction(String transactionId, String inputCode) {
-        Transaction tx = transactionRepository.findById(transactionId)
-                .orElseThrow(() -> new AppException("Transaction not found"));
+        // Kiểm tra OTP trên Redis trước; nhập sai khi còn lượt chỉ kiểm tra giao dịch tồn tại, không ghi DB
+        OtpChallengeStore.VerifyResult result = otpChallengeStore.verify(transactionId, inputCode);
+        if (result.outcome() == OtpChallengeStore.Outcome.INVALID) {
+            // Challenge còn sót của giao dịch đã rollback sau khi ghi Redis
+            if (!transactionRepository.existsById(transactionId)) {
+                throw new NotFoundException("Transaction not found");
+            }
+            return Transaction.builder()
+                    .id(transactionId)
+                    .status(TransactionStatus.PENDING)
+                    .attempts(result.attempts())
+                    .build();
+        }
 
-        if (tx.getStatus() == TransactionStatus.FAILED || tx.getAttempts() >= 3) {
+        // Không có challenge: giao dịch sẽ bị hết hạn hoặc kiểm tra mã cũ trong bảng, nên khóa dòng ngay khi đọc
+        Transaction tx = (result.outcome() == OtpChallengeStore.Outcome.MISSING
+                ? transactionRepository.findAllForUpdate(List.of(transactionId)).stream().findFirst()
+                : transactionRepository.findById(transactionId))
+                .orElseThrow(() -> new NotFoundException("Transaction not found"));
+
+        // Dòng của lô có OTP theo batchId: xác thực qua lô, không được hết hạn/nhả hold từng dòng ở đây
+        if (tx.getBatchId() != null) {
+            throw new AppException(TransactionStateMachine.BATCH_LINE_MESSAGE);
+        }
+        if (tx.getStatus() == TransactionStatus.FAILED) {
             throw new AppException("Transaction is locked due to too many failed attempts");
         }
         if (tx.getStatus() != TransactionStatus.PENDING) {
             throw new AppException("Transaction is not pending and cannot be verified");
         }
 
-        Balance fromBalance = balanceRepository.findById(tx.getFromAccountId())
-                .orElseThrow(() -> new AppException("Sender balance not found"));
-
-        // 1. Kiểm tra hết hạn OTP
-        if (tx.getExpiredAt().isBefore(LocalDateTime.now())) {
-            tx.setStatus(TransactionStatus.EXPIRED);
-            rollbackFunds(fromBalance, tx);
-            return transactionRepository.save(tx);
+        // Giao dịch PENDING tạo trước khi OTP chuyển sang Redis: kiểm tra mã còn lưu trong bảng
+        if (result.outcome() == OtpChallengeStore.Outcome.MISSING && tx.getVerificationCode() != null
+                && !tx.getExpiredAt().isBefore(LocalDateTime.now())) {
+            result = verifyLegacyCode(tx, inputCode);
+            if (result.outcome() == OtpChallengeStore.Outcome.INVALID) {
+                return tx;
+            }
         }
 
-        // 2. Kiểm tra sai OTP
-        if (!tx.getVerificationCode().equals(inputCode)) {
-            tx.setAttempts(tx.getAttempts() + 1);
+        // Các bước dưới đều chuyển trạng thái bằng compare-and-set: nếu sweeper hoặc request khác
+        // đã chuyển giao dịch trước thì không hoàn tiền/duyệt lần hai
+        // 1. OTP hết hạn (key Redis đã hết TTL)
+        if (result.outcome() == OtpChallengeStore.Outcome.MISSING
+                || tx.getExpiredAt().isBefore(LocalDateTime.now())) {
+            otpChallengeStore.delete(transactionId);
+            if (!transactionStateMachine.transition(tx, TransactionStatus.PENDING, TransactionStatus.EXPIRED)) {
+                throw new AppException("Transaction is not pending and cannot be verified");
+            }
+            rollbackFunds(tx);
+            return tx;
+        }
 
-            if (tx.getAttempts() >= 3) {
-                tx.setStatus(TransactionStatus.FAILED);
-                rollbackFunds(fromBalance, tx);
+        // 2. Sai OTP quá số lần cho phép
+        if (result.outcome() == OtpChallengeStore.Outcome.LOCKED) {
+            if (!transactionStateMachine.lockOut(tx, result.attempts())) {
+                throw new AppException("Transaction is not pending and cannot be verified");
             }
+            rollbackFunds(tx);
+            return tx;
+        }
 
-            return transactionRepository.save(tx);
+        // 3. Giao dịch rủi ro thấp khớp rule -> tự động duyệt
+        Optional<String> matchedRule = autoApprovalService.evaluate(tx);
+        if (matchedRule.isPresent()) {
+            if (!transactionStateMachine.autoApprove(tx, matchedRule.get())) {
+                throw new AppException("Transaction is not pending and cannot be verified");
+            }
+            return completeApproval(tx);
         }
 
-        // 3. OTP đúng -> chờ admin duyệt
-        tx.setStatus(TransactionStatus.AWAITING_APPROVAL);
-//        return transactionRepository.save(tx);
-        Transaction savedTx = transactionRepository.save(tx);
+        // 4. OTP đúng -> chờ admin duyệt (hold không còn hết hạn theo OTP)
+        if (!transactionStateMachine.transition(tx, TransactionStatus.PENDING, TransactionStatus.AWAITING_APPROVAL)) {
+            throw new AppException("Transaction is not pending and cannot be verified");
+        }
+        balanceHoldService.clearExpiry(List.of(tx.getId()));
+        return tx;
+    }
 
-        return savedTx;
+    // Mã dùng một lần; nhập sai thì tăng attempts trên dòng đã khóa, đủ MAX_ATTEMPTS lần thì khóa giao dịch như OTP trên Redis
+    private OtpChallengeStore.VerifyResult verifyLegacyCode(Transaction tx, String inputCode) {
+        if (tx.getVerificationCode().equals(inputCode)) {
+            tx.setVerificationCode(null);
+            return new OtpChallengeStore.VerifyResult(OtpChallengeStore.Outcome.MATCHED, tx.getAttempts());
+        }
+        int attempts = tx.getAttempts() + 1;
+        if (attempts >= OtpChallengeStore.MAX_ATTEMPTS) {
+            return new OtpChallengeStore.VerifyResult(OtpChallengeStore.Outcome.LOCKED, attempts);
+        }
+        tx.setAttempts(attempts);
+        return new OtpChallengeStore.VerifyResult(OtpChallengeStore.Outcome.INVALID, attempts);
     }
 
     @Transactional
     public Transaction approveTransaction(String transactionId) {
+        if (!transactionStateMachine.transition(transactionId,
+                TransactionStatus.AWAITING_APPROVAL, TransactionStatus.APPROVED)) {
+            throw transactionStateMachine.failure(transactionId, "Transaction is not awaiting approval");
+        }
         Transaction tx = transactionRepository.findById(transactionId)
                 .orElseThrow(() -> new AppException("Transaction not found"));
 
-        if (tx.getStatus() != TransactionStatus.AWAITING_APPROVAL) {
-            throw new AppException("Transaction is not awaiting approval");
-        }
+        return completeApproval(tx);
+    }
 
-        Balance fromBalance = balanceRepository.findById(tx.getFromAccountId())
-                .orElseThrow(() -> new AppException("Sender balance not found"));
-        
-        // Tự động tạo balance cho người nhận nếu chưa có
-        Balance toBalance = balanceRepository.findById(tx.getToAccountId())
-                .orElseGet(() -> {
-                    Balance newBalance = new Balance();
-                    newBalance.setAccountId(tx.getToAccountId());
-                    newBalance.setAvailableBalance(BigDecimal.ZERO);
-                    newBalance.setHoldBalance(BigDecimal.ZERO);
-                    return balanceRepository.save(newBalance);
-                });
-
-        // từ hold -> available của người nhận
-        fromBalance.setHoldBalance(fromBalance.getHoldBalance().subtract(tx.getAmount()));
-        Balance savedFromBalance = balanceRepository.save(fromBalance);
-        // Cập nhật Redis cache cho người gửi
-        balanceService.refreshCache(tx.getFromAccountId(), savedFromBalance);
-
-        toBalance.setAvailableBalance(toBalance.getAvailableBalance().add(tx.getAmount()));
-        Balance savedToBalance = balanceRepository.save(toBalance);
-        // Cập nhật Redis cache cho người nhận
-        balanceService.refreshCache(tx.getToAccountId(), savedToBalance);
-
-        tx.setStatus(TransactionStatus.APPROVED);
-        //return transactionRepository.save(tx);
-        Transaction savedTx = transactionRepository.save(tx);
-        saveTransactionHistory(savedTx);
+    // Chuyển tiền sau khi giao dịch đã ở trạng thái APPROVED
+    private Transaction completeApproval(Transaction tx) {
+        // từ hold của người gửi -> available của người nhận (cập nhật cache cả hai bên trong)
+        balanceHoldService.settleHold(tx.getFromAccountId(), tx.getId(), tx.getToAccountId(), tx.getAmount());
+
+        saveTransactionHistory(tx);
 
         // Kiểm tra và gửi cảnh báo ngân sách cho người gửi
-        try {
-            budgetService.checkAndSendAlerts(tx.getFromAccountId());
-        } catch (Exception e) {
-            // Log error but don't fail the transaction
-            System.err.println("Error checking budget alerts: " + e.getMessage());
+        // (chế độ lịch sử async: TransactionHistoryProjector kiểm tra sau khi ghi lịch sử)
+        if (!transactionHistoryRecorder.isAsync()) {
+            try {
+                budgetService.checkAndSendAlerts(tx.getFromAccountId());
+            } catch (Exception e) {
+                // Log error but don't fail the transaction
+                log.warn("Error checking budget alerts: {}", e.getMessage());
+            }
         }
 
-        PaymentRequest paymentRequest = new PaymentRequest();
-        paymentRequest.setPaymentId(tx.getId());
-        paymentRequest.setFromAccountId(tx.getFromAccountId());
-        paymentRequest.setToAccountId(tx.getToAccountId());
-        paymentRequest.setAmount(tx.getAmount());
-
-        paymentClient.createPayment(paymentRequest);
+        // Ghi sự kiện thanh toán vào outbox, relay sẽ gửi sang payment-service sau commit
+        paymentOutboxService.enqueue(tx);
 
-        return savedTx;
+        return tx;
     }
 
     @Transactional
     public Transaction rejectTransaction(String transactionId) {
-        Transaction tx = transactionRepository.findById(transactionId)
+        if (!transactionStateMachine.transition(transactionId,
+                TransactionStatus.AWAITING_APPROVAL, TransactionStatus.REJECTED)) {
+            throw transactionStateMachine.failure(transactionId, "Transaction is not awaiting approval");
+        }
+        Transaction savedTx = transactionRepository.findById(transactionId)
                 .orElseThrow(() -> new AppException("Transaction not found"));
 
-        if (tx.getStatus() != TransactionStatus.AWAITING_APPROVAL) {
-            throw new AppException("Transaction is not awaiting approval");
+        // hoàn tiền từ hold -> available
+        rollbackFunds(savedTx);
+
+        saveTransactionHistory(savedTx);
+
+        // Ghi sự kiện thanh toán vào outbox, relay sẽ gửi sang payment-service sau commit
+        paymentOutboxService.enqueue(savedTx);
+
+        return savedTx;
+    }
+    /**
+     * Duyệt hàng loạt giao dịch AWAITING_APPROVAL.
+     * Khóa giao dịch và balance theo thứ tự id cố định, áp dụng thay đổi trong bộ nhớ
+     * rồi ghi theo lô (saveAll). Giao dịch không hợp lệ chỉ bị bỏ qua, không rollback các giao dịch khác.
+     */
+    @Transactional
+    public List<BulkDecisionResult> bulkApproveTransactions(List<String> transactionIds) {
+        return bulkDecide(transactionIds, true);
+    }
+
+    /**
+     * Từ chối hàng loạt giao dịch AWAITING_APPROVAL, hoàn tiền hold -> available cho người gửi.
+     */
+    @Transactional
+    public List<BulkDecisionResult> bulkRejectTransactions(List<String> transactionIds) {
+        return bulkDecide(transactionIds, false);
+    }
+
+    private List<BulkDecisionResult> bulkDecide(List<String> transactionIds, boolean approve) {
+        if (transactionIds == null || transactionIds.isEmpty()) {
+            throw new AppException("Transaction ids are required");
+        }
+        List<String> ids = transactionIds.stream().distinct().toList();
+        if (ids.size() > MAX_BULK_SIZE) {
+            throw new AppException("Too many transactions in one request (max " + MAX_BULK_SIZE + ")");
         }
 
-        Balance fromBalance = balanceRepository.findById(tx.getFromAccountId())
-                .orElseThrow(() -> new AppException("Sender balance not found"));
+        // 1. Khóa các giao dịch theo thứ tự id
+        Map<String, Transaction> txById = transactionRepository.findAllForUpdate(new TreeSet<>(ids)).stream()
+                .collect(Collectors.toMap(Transaction::getId, Function.identity()));
+
+        Map<String, BulkDecisionResult> results = new LinkedHashMap<>();
+        List<Transaction> candidates = new ArrayList<>();
+        for (String id : ids) {
+            Transaction tx = txById.get(id);
+            if (tx == null) {
+                results.put(id, failedResult(id, null, "Transaction not found"));
+            } else if (tx.getBatchId() != null) {
+                results.put(id, failedResult(id, tx.getStatus(), TransactionStateMachine.BATCH_LINE_MESSAGE));
+            } else if (tx.getStatus() != TransactionStatus.AWAITING_APPROVAL) {
+                results.put(id, failedResult(id, tx.getStatus(), "Transaction is not awaiting approval"));
+            } else {
+                candidates.add(tx);
+            }
+        }
 
-        // hoàn tiền từ hold -> available
-        rollbackFunds(fromBalance, tx);
+        // 2. Khóa tất cả balance liên quan theo thứ tự accountId
+        Set<String> accountIds = new TreeSet<>();
+        for (Transaction tx : candidates) {
+            accountIds.add(tx.getFromAccountId());
+            if (approve) {
+                accountIds.add(tx.getToAccountId());
+            }
+        }
+        Map<String, Balance> balances = accountIds.isEmpty() ? new HashMap<>()
+                : balanceRepository.findAllForUpdate(accountIds).stream()
+                        .collect(Collectors.toMap(Balance::getAccountId, Function.identity()));
+
+        // Hold còn lại của từng người gửi sau các giao dịch đã nhận, để hold không bị trừ xuống âm
+        Map<String, BigDecimal> remainingHold = new HashMap<>();
+        List<Transaction> accepted = new ArrayList<>();
+        for (Transaction tx : candidates) {
+            Balance fromBalance = balances.get(tx.getFromAccountId());
+            if (fromBalance == null) {
+                results.put(tx.getId(), failedResult(tx.getId(), tx.getStatus(), "Sender balance not found"));
+                continue;
+            }
+            BigDecimal hold = remainingHold.getOrDefault(fromBalance.getAccountId(), fromBalance.getHoldBalance());
+            if (hold.compareTo(tx.getAmount()) < 0) {
+                results.put(tx.getId(), failedResult(tx.getId(), tx.getStatus(), "Insufficient hold balance"));
+            } else {
+                remainingHold.put(fromBalance.getAccountId(), hold.subtract(tx.getAmount()));
+                accepted.add(tx);
+            }
+        }
 
-        tx.setStatus(TransactionStatus.REJECTED);
-        //return transactionRepository.save(tx);
-        Transaction savedTx = transactionRepository.save(tx);
-        saveTransactionHistory(savedTx);
+        if (!accepted.isEmpty()) {
+            applyBulkDecision(accepted, balances, approve);
+            for (Transaction tx : accepted) {
+                results.put(tx.getId(), BulkDecisionResult.builder()
+                        .transactionId(tx.getId())
+                        .success(true)
+                        .status(tx.getStatus())
+                        .build());
+            }
+        }
+
+        // Giữ đúng thứ tự id đầu vào
+        return ids.stream().map(results::get).toList();
+    }
 
-        PaymentRequest paymentRequest = new PaymentRequest();
-        paymentRequest.setPaymentId(tx.getId());
-        paymentRequest.setFromAccountId(tx.getFromAccountId());
-        paymentRequest.setToAccountId(tx.getToAccountId());
-        paymentRequest.setAmount(tx.getAmount());
+    // Dùng chung với TransferBatchService; balances phải đã được khóa (findAllForUpdate)
+    void applyBulkDecision(List<Transaction> accepted, Map<String, Balance> balances, boolean approve) {
+        // 3. Áp dụng thay đổi trong bộ nhớ
+        Map<String, Balance> touched = new LinkedHashMap<>();
+        for (Transaction tx : accepted) {
+            Balance fromBalance = balances.get(tx.getFromAccountId());
+            // holdBalance tính từ balance_hold; chỉ cập nhật trong bộ nhớ để cache đúng, dòng hold bị xóa bên dưới
+            fromBalance.setHoldBalance(fromBalance.getHoldBalance().subtract(tx.getAmount()));
+            if (approve) {
+                // Tự động tạo balance cho người nhận nếu chưa có
+                Balance toBalance = balances.computeIfAbsent(tx.getToAccountId(), id -> Balance.builder()
+                        .accountId(id)
+                        .availableBalance(BigDecimal.ZERO)
+                        .holdBalance(BigDecimal.ZERO)
+                        .build());
+                toBalance.setAvailableBalance(toBalance.getAvailableBalance().add(tx.getAmount()));
+                touched.put(toBalance.getAccountId(), toBalance);
+                tx.setStatus(TransactionStatus.APPROVED);
+            } else {
+                fromBalance.setAvailableBalance(fromBalance.getAvailableBalance().add(tx.getAmount()));
+                tx.setStatus(TransactionStatus.REJECTED);
+            }
+            touched.put(fromBalance.getAccountId(), fromBalance);
+        }
 
-        paymentClient.createPayment(paymentRequest);
+        // 4. Ghi theo lô
+        List<Balance> savedBalances = balanceRepository.saveAll(touched.values());
+        balanceHoldService.deleteHolds(accepted.stream().map(Transaction::getId).toList());
+        List<Transaction> savedTxs = transactionRepository.saveAll(accepted);
+        transactionHistoryRecorder.recordAll(savedTxs);
+        paymentOutboxService.enqueueAll(savedTxs);
+
+        savedBalances.forEach(b -> balanceService.refreshCache(b.getAccountId(), b));
+
+        if (approve && !transactionHistoryRecorder.isAsync()) {
+            // Kiểm tra cảnh báo ngân sách một lần cho mỗi người gửi
+            savedTxs.stream().map(Transaction::getFromAccountId).distinct().forEach(accountId -> {
+                try {
+                    budgetService.checkAndSendAlerts(accountId);
+                } catch (Exception e) {
+                    log.warn("Error checking budget alerts: {}", e.getMessage());
+                }
+            });
+        }
+    }
 
-        return savedTx;
+    private BulkDecisionResult failedResult(String id, TransactionStatus status, String message) {
+        return BulkDecisionResult.builder()
+                .transactionId(id)
+                .success(false)
+                .status(status)
+                .message(message)
+                .build();
     }
+
     @Transactional
     public Transaction recordDepositTransaction(String accountId, BigDecimal amount, String categoryId) {
         // Gọi BalanceService để thực hiện nạp tiền
@@ -242,13 +456,8 @@ public class TransactionService {
         Transaction savedTx = transactionRepository.save(transaction);
         saveTransactionHistory(savedTx);
 
-        PaymentRequest paymentRequest = new PaymentRequest();
-        paymentRequest.setPaymentId(transaction.getId());
-        paymentRequest.setFromAccountId(transaction.getFromAccountId());
-        paymentRequest.setToAccountId(transaction.getToAccountId());
-        paymentRequest.setAmount(transaction.getAmount());
-
-        paymentClient.createPayment(paymentRequest);
+        // Ghi sự kiện thanh toán vào outbox, relay sẽ gửi sang payment-service sau commit
+        paymentOutboxService.enqueue(savedTx);
 
         return savedTx;
 
@@ -273,13 +482,8 @@ public class TransactionService {
         Transaction savedTx = transactionRepository.save(transaction);
         saveTransactionHistory(savedTx);
 
-        PaymentRequest paymentRequest = new PaymentRequest();
-        paymentRequest.setPaymentId(transaction.getId());
-        paymentRequest.setFromAccountId(transaction.getFromAccountId());
-        paymentRequest.setToAccountId(transaction.getToAccountId());
-        paymentRequest.setAmount(transaction.getAmount());
-
-        paymentClient.createPayment(paymentRequest);
+        // Ghi sự kiện thanh toán vào outbox, relay sẽ gửi sang payment-service sau commit
+        paymentOutboxService.enqueue(savedTx);
 
         return savedTx;
     }
@@ -303,31 +507,19 @@ public class TransactionService {
         }
     }
 
-    private void rollbackFunds(Balance fromBalance, Transaction tx) {
-        fromBalance.setHoldBalance(fromBalance.getHoldBalance().subtract(tx.getAmount()));
-        fromBalance.setAvailableBalance(fromBalance.getAvailableBalance().add(tx.getAmount()));
-        Balance saved = balanceRepository.save(fromBalance);
+    private void rollbackFunds(Transaction tx) {
+        // hoàn tiền hold -> available và xóa dòng hold
+        balanceHoldService.releaseHolds(List.of(tx.getId()));
         // Cập nhật Redis cache
-        balanceService.refreshCache(tx.getFromAccountId(), saved);
+        balanceHoldService.refreshCache(tx.getFromAccountId());
     }
 
-    private String generateOtp() {
-        return String.valueOf((int) (Math.random() * 900000) + 100000);
-    }
     private void saveTransactionHistory(Transaction tx) {
-        TransactionHistory history = new TransactionHistory();
-        history.setId(tx.getId());
-        history.setFromAccountId(tx.getFromAccountId());
-        history.setToAccountId(tx.getToAccountId());
-        history.setFromCardId(tx.getFromCardId());
-        history.setToCardId(tx.getToCardId());
-        history.setAmount(tx.getAmount());
-        history.setStatus(tx.getStatus());
-        history.setCompletedAt(LocalDateTime.now());
-        history.setTransactionType(tx.getTransactionType());
-        history.setCategoryId(tx.getCategoryId());
-        transactionHistoryRepository.save(history);
+        transactionHistoryRecorder.record(tx);
     }
+    /**
+     * Cần read-your-writes với lịch sử async thì gọi TransactionHistoryProjector.requireCaughtUp() trước (ngoài transaction)
+     */
     @Transactional(readOnly = true)
     public Page<TransactionHistory> getMyTransactionHistory(String userId, Pageable pageable) {
         return transactionHistoryRepository.findByFromAccountIdOrToAccountId(userId, userId, pageable);
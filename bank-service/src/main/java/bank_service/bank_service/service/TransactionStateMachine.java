@@ -0,0 +1,101 @@
+package bank_service.bank_service.service;
+
+import bank_service.bank_service.exception.AppException;
+import bank_service.bank_service.model.Transaction;
+import bank_service.bank_service.model.TransactionStatus;
+import bank_service.bank_service.repository.TransactionRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Chuyển trạng thái giao dịch bằng một câu UPDATE ... WHERE id = ? AND status = ?.
+ * Chỉ một request thắng khi nhiều request cùng chuyển một giao dịch (VD: hai admin cùng duyệt),
+ * không cần SELECT kiểm tra trước hay khóa dòng. Dòng thuộc lô chuyển khoản không bao giờ khớp (xem TransferBatchService).
+ */
+@Component
+@RequiredArgsConstructor
+public class TransactionStateMachine {
+
+    static final String BATCH_LINE_MESSAGE = "Transaction belongs to a transfer batch and is decided with the batch";
+
+    private static final Map<TransactionStatus, Set<TransactionStatus>> ALLOWED = new EnumMap<>(TransactionStatus.class);
+
+    static {
+        ALLOWED.put(TransactionStatus.PENDING, EnumSet.of(
+                TransactionStatus.AWAITING_APPROVAL,
+                TransactionStatus.APPROVED,      // tự động duyệt
+                TransactionStatus.EXPIRED,
+                TransactionStatus.FAILED));
+        ALLOWED.put(TransactionStatus.AWAITING_APPROVAL, EnumSet.of(
+                TransactionStatus.APPROVED,
+                TransactionStatus.REJECTED));
+    }
+
+    private final TransactionRepository transactionRepository;
+
+    /**
+     * Chuyển trạng thái theo id. Trả về false nếu giao dịch không ở trạng thái mong đợi.
+     */
+    public boolean transition(String transactionId, TransactionStatus from, TransactionStatus to) {
+        checkAllowed(from, to);
+        return transactionRepository.compareAndSetStatus(transactionId, from, to, LocalDateTime.now()) == 1;
+    }
+
+    /**
+     * Chuyển trạng thái và cập nhật đối tượng trong bộ nhớ nếu thành công
+     */
+    public boolean transition(Transaction tx, TransactionStatus from, TransactionStatus to) {
+        if (!transition(tx.getId(), from, to)) {
+            return false;
+        }
+        tx.setStatus(to);
+        return true;
+    }
+
+    // PENDING -> FAILED, lưu lại số lần nhập sai
+    public boolean lockOut(Transaction tx, int attempts) {
+        checkAllowed(TransactionStatus.PENDING, TransactionStatus.FAILED);
+        int updated = transactionRepository.compareAndSetStatusWithAttempts(tx.getId(),
+                TransactionStatus.PENDING, TransactionStatus.FAILED, attempts, LocalDateTime.now());
+        if (updated != 1) {
+            return false;
+        }
+        tx.setStatus(TransactionStatus.FAILED);
+        tx.setAttempts(attempts);
+        return true;
+    }
+
+    // PENDING -> APPROVED bởi rule tự động duyệt
+    public boolean autoApprove(Transaction tx, String ruleName) {
+        checkAllowed(TransactionStatus.PENDING, TransactionStatus.APPROVED);
+        int updated = transactionRepository.compareAndSetStatusWithRule(tx.getId(),
+                TransactionStatus.PENDING, TransactionStatus.APPROVED, ruleName, LocalDateTime.now());
+        if (updated != 1) {
+            return false;
+        }
+        tx.setStatus(TransactionStatus.APPROVED);
+        tx.setAutoApprovalRule(ruleName);
+        return true;
+    }
+
+    /**
+     * Lỗi khi chuyển trạng thái thất bại; chỉ tra DB ở nhánh lỗi để phân biệt không tồn tại
+     */
+    public AppException failure(String transactionId, String message) {
+        return transactionRepository.findById(transactionId)
+                .map(tx -> new AppException(tx.getBatchId() != null ? BATCH_LINE_MESSAGE : message))
+                .orElseGet(() -> new AppException("Transaction not found"));
+    }
+
+    private void checkAllowed(TransactionStatus from, TransactionStatus to) {
+        if (!ALLOWED.getOrDefault(from, Set.of()).contains(to)) {
+            throw new IllegalStateException("Transition " + from + " -> " + to + " is not allowed");
+        }
+    }
+}
@@ -0,0 +1,358 @@
+package bank_service.bank_service.service;
+
+import bank_service.bank_service.dto.transaction.BatchTransferItem;
+import bank_service.bank_service.dto.transaction.BatchTransferRequest;
+import bank_service.bank_service.dto.transaction.TransferBatchSummary;
+import bank_service.bank_service.event.VerificationEmailEvent;
+import bank_service.bank_service.exception.AppException;
+import bank_service.bank_service.exception.NotFoundException;
+import bank_service.bank_service.model.Account;
+import bank_service.bank_service.model.Balance;
+import bank_service.bank_service.model.Transaction;
+import bank_service.bank_service.model.TransactionStatus;
+import bank_service.bank_service.model.TransactionType;
+import bank_service.bank_service.model.TransferBatch;
+import bank_service.bank_service.repository.AccountRepository;
+import bank_service.bank_service.repository.BalanceRepository;
+import bank_service.bank_service.repository.TransactionRepository;
+import bank_service.bank_service.repository.TransferBatchRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Lô chuyển khoản (trả lương, chi hộ...).
+ *
+ * Tạo lô: trừ available của người gửi một lần cho tổng tiền (mỗi dòng một bản ghi hold),
+ * ghi các dòng bằng JDBC batch và gửi một OTP cho cả lô.
+ * Xác nhận OTP chuyển cả lô sang AWAITING_APPROVAL; admin duyệt/từ chối ở mức lô,
+ * mỗi dòng vẫn giữ trạng thái riêng (có thể từ chối một số dòng khi duyệt).
+ */
+@Service
+@RequiredArgsConstructor
+public class TransferBatchService {
+
+    private static final String INSERT_LINE_SQL = "INSERT INTO `transaction` " +
+            "(id, batch_id, from_account_id, to_account_id, from_card_id, to_card_id, amount, " +
+            "transaction_type, status, expired_at, attempts, category_id, created_at, updated_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final TransferBatchRepository transferBatchRepository;
+    private final TransactionRepository transactionRepository;
+    private final AccountRepository accountRepository;
+    private final BalanceRepository balanceRepository;
+    private final BalanceHoldService balanceHoldService;
+    private final TransactionService transactionService;
+    private final OtpChallengeStore otpChallengeStore;
+    private final ApplicationEventPublisher eventPublisher;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${transaction.batch.max-items:5000}")
+    private int maxItems;
+
+    @Value("${transaction.batch.jdbc-batch-size:500}")
+    private int jdbcBatchSize;
+
+    @Transactional
+    public TransferBatch submitBatch(String fromAccountId, BatchTransferRequest request) {
+        List<BatchTransferItem> items = request.getItems();
+        if (items == null || items.isEmpty()) {
+            throw new AppException("Batch items are required");
+        }
+        if (items.size() > maxItems) {
+            throw new AppException("Too many items in one batch (max " + maxItems + ")");
+        }
+        if (request.getCategoryId() == null || request.getCategoryId().isEmpty()) {
+            throw new AppException("Category is required");
+        }
+
+        BigDecimal total = BigDecimal.ZERO;
+        Set<String> recipientIds = new HashSet<>();
+        for (BatchTransferItem item : items) {
+            if (item.getToAccountId() == null || item.getAmount() == null
+                    || item.getAmount().compareTo(BigDecimal.ZERO) <= 0) {
+                throw new AppException("Each item needs a target account and a positive amount");
+            }
+            if (item.getToAccountId().equals(fromAccountId)) {
+                throw new AppException("Cannot transfer to the same account");
+            }
+            recipientIds.add(item.getToAccountId());
+            total = total.add(item.getAmount());
+        }
+
+        Account fromAccount = accountRepository.findById(fromAccountId)
+                .orElseThrow(() -> new AppException("Source account not found"));
+        // Một câu COUNT thay vì kiểm tra từng người nhận
+        if (accountRepository.countByAccountIdIn(recipientIds) != recipientIds.size()) {
+            throw new AppException("Target account not found");
+        }
+
+        // 1. Lưu lô
+        LocalDateTime now = LocalDateTime.now();
+        TransferBatch batch = transferBatchRepository.save(TransferBatch.builder()
+                .fromAccountId(fromAccountId)
+                .fromCardId(request.getFromCardId())
+                .categoryId(request.getCategoryId())
+                .totalAmount(total)
+                .itemCount(items.size())
+                .status(TransactionStatus.PENDING)
+                .expiredAt(now.plus(TransactionService.OTP_TTL))
+                .attempts(0)
+                .build());
+
+        // 2. Ghi các dòng bằng JDBC batch (không qua persistence context)
+        Map<String, BigDecimal> amountByLine = insertLines(batch, items, now);
+
+        // 3. Trừ available một lần cho tổng tiền, mỗi dòng một bản ghi hold
+        balanceHoldService.placeHolds(fromAccountId, amountByLine, batch.getExpiredAt(), jdbcBatchSize);
+
+        // 4. Một OTP cho cả lô, gửi email sau commit
+        String verificationCode = otpChallengeStore.generateCode();
+        otpChallengeStore.create(batch.getId(), verificationCode, TransactionService.OTP_TTL);
+        eventPublisher.publishEvent(new VerificationEmailEvent(
+                batch.getId(),
+                fromAccount.getEmail(),
+                "Xác nhận lô chuyển khoản (" + items.size() + " giao dịch)",
+                verificationCode
+        ));
+
+        return batch;
+    }
+
+    // Trả về số tiền theo id của từng dòng vừa ghi
+    private Map<String, BigDecimal> insertLines(TransferBatch batch, List<BatchTransferItem> items, LocalDateTime now) {
+        Timestamp createdAt = Timestamp.valueOf(now);
+        Timestamp expiredAt = Timestamp.valueOf(batch.getExpiredAt());
+        Map<String, BatchTransferItem> lines = new LinkedHashMap<>();
+        items.forEach(item -> lines.put(UUID.randomUUID().toString(), item));
+        jdbcTemplate.batchUpdate(INSERT_LINE_SQL, List.copyOf(lines.entrySet()), jdbcBatchSize, (ps, line) -> {
+            BatchTransferItem item = line.getValue();
+            ps.setString(1, line.getKey());
+            ps.setString(2, batch.getId());
+            ps.setString(3, batch.getFromAccountId());
+            ps.setString(4, item.getToAccountId());
+            ps.setString(5, batch.getFromCardId());
+            ps.setString(6, item.getToCardId());
+            ps.setBigDecimal(7, item.getAmount());
+            ps.setString(8, TransactionType.TRANSFER.name());
+            ps.setString(9, TransactionStatus.PENDING.name());
+            ps.setTimestamp(10, expiredAt);
+            ps.setInt(11, 0);
+            ps.setString(12, batch.getCategoryId());
+            ps.setTimestamp(13, createdAt);
+            ps.setTimestamp(14, createdAt);
+        });
+        Map<String, BigDecimal> amountByLine = new LinkedHashMap<>();
+        lines.forEach((id, item) -> amountByLine.put(id, item.getAmount()));
+        return amountByLine;
+    }
+
+    @Transactional
+    public TransferBatch verifyBatch(String batchId, String inputCode) {
+        OtpChallengeStore.VerifyResult result = otpChallengeStore.verify(batchId, inputCode);
+        if (result.outcome() == OtpChallengeStore.Outcome.INVALID) {
+            // Challenge còn sót của batch đã rollback sau khi ghi Redis
+            if (!transferBatchRepository.existsById(batchId)) {
+                throw new NotFoundException("Batch not found");
+            }
+            return TransferBatch.builder()
+                    .id(batchId)
+                    .status(TransactionStatus.PENDING)
+                    .attempts(result.attempts())
+                    .build();
+        }
+
+        TransferBatch batch = transferBatchRepository.findById(batchId)
+                .orElseThrow(() -> new NotFoundException("Batch not found"));
+        if (batch.getStatus() == TransactionStatus.FAILED) {
+            throw new AppException("Batch is locked due to too many failed attempts");
+        }
+        if (batch.getStatus() != TransactionStatus.PENDING) {
+            throw new AppException("Batch is not pending and cannot be verified");
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        // 1. OTP hết hạn
+        if (result.outcome() == OtpChallengeStore.Outcome.MISSING || batch.getExpiredAt().isBefore(now)) {
+            otpChallengeStore.delete(batchId);
+            if (transferBatchRepository.compareAndSetStatus(batchId,
+                    TransactionStatus.PENDING, TransactionStatus.EXPIRED, now) != 1) {
+                throw new AppException("Batch is not pending and cannot be verified");
+            }
+            releasePendingLines(batch, TransactionStatus.EXPIRED);
+            batch.setStatus(TransactionStatus.EXPIRED);
+            return batch;
+        }
+
+        // 2. Sai OTP quá số lần cho phép
+        if (result.outcome() == OtpChallengeStore.Outcome.LOCKED) {
+            if (transferBatchRepository.compareAndSetStatusWithAttempts(batchId,
+                    TransactionStatus.PENDING, TransactionStatus.FAILED, result.attempts(), now) != 1) {
+                throw new AppException("Batch is not pending and cannot be verified");
+            }
+            releasePendingLines(batch, TransactionStatus.FAILED);
+            batch.setStatus(TransactionStatus.FAILED);
+            batch.setAttempts(result.attempts());
+            return batch;
+        }
+
+        // 3. OTP đúng -> cả lô chờ admin duyệt
+        if (transferBatchRepository.compareAndSetStatus(batchId,
+                TransactionStatus.PENDING, TransactionStatus.AWAITING_APPROVAL, now) != 1) {
+            throw new AppException("Batch is not pending and cannot be verified");
+        }
+        List<String> lineIds = lockLines(batchId, TransactionStatus.PENDING).stream()
+                .map(Transaction::getId)
+                .toList();
+        if (!lineIds.isEmpty()) {
+            transactionRepository.updateStatusByIds(lineIds, TransactionStatus.PENDING, TransactionStatus.AWAITING_APPROVAL);
+            balanceHoldService.clearExpiry(lineIds);
+        }
+        batch.setStatus(TransactionStatus.AWAITING_APPROVAL);
+        return batch;
+    }
+
+    // Hoàn tiền hold của các dòng còn PENDING (dòng đã được sweeper xử lý thì bỏ qua)
+    private void releasePendingLines(TransferBatch batch, TransactionStatus newStatus) {
+        List<String> lineIds = lockLines(batch.getId(), TransactionStatus.PENDING).stream()
+                .map(Transaction::getId)
+                .toList();
+        if (lineIds.isEmpty()) {
+            return;
+        }
+        balanceHoldService.releaseHolds(lineIds);
+        transactionRepository.updateStatusByIds(lineIds, TransactionStatus.PENDING, newStatus);
+        balanceHoldService.refreshCache(batch.getFromAccountId());
+    }
+
+    /**
+     * Admin duyệt lô. Các dòng trong rejectTransactionIds bị từ chối và hoàn tiền,
+     * các dòng còn lại được chuyển tiền; tất cả ghi theo lô trong một transaction.
+     */
+    @Transactional
+    public TransferBatchSummary approveBatch(String batchId, Collection<String> rejectTransactionIds) {
+        TransferBatch batch = decide(batchId, TransactionStatus.APPROVED);
+        Set<String> rejectIds = rejectTransactionIds == null ? Set.of() : new HashSet<>(rejectTransactionIds);
+
+        List<Transaction> lines = lockLines(batchId, TransactionStatus.AWAITING_APPROVAL);
+        List<Transaction> approved = new ArrayList<>();
+        List<Transaction> rejected = new ArrayList<>();
+        for (Transaction line : lines) {
+            if (rejectIds.contains(line.getId())) {
+                rejected.add(line);
+            } else {
+                approved.add(line);
+            }
+        }
+
+        Map<String, Balance> balances = lockBalances(batch.getFromAccountId(), approved);
+        if (!rejected.isEmpty()) {
+            transactionService.applyBulkDecision(rejected, balances, false);
+        }
+        if (!approved.isEmpty()) {
+            transactionService.applyBulkDecision(approved, balances, true);
+        }
+        return summarize(batch);
+    }
+
+    @Transactional
+    public TransferBatchSummary rejectBatch(String batchId) {
+        TransferBatch batch = decide(batchId, TransactionStatus.REJECTED);
+        List<Transaction> lines = lockLines(batchId, TransactionStatus.AWAITING_APPROVAL);
+        if (!lines.isEmpty()) {
+            transactionService.applyBulkDecision(lines, lockBalances(batch.getFromAccountId(), List.of()), false);
+        }
+        return summarize(batch);
+    }
+
+    private TransferBatch decide(String batchId, TransactionStatus newStatus) {
+        if (transferBatchRepository.compareAndSetStatus(batchId,
+                TransactionStatus.AWAITING_APPROVAL, newStatus, LocalDateTime.now()) != 1) {
+            if (!transferBatchRepository.existsById(batchId)) {
+                throw new AppException("Batch not found");
+            }
+            throw new AppException("Batch is not awaiting approval");
+        }
+        return transferBatchRepository.findById(batchId)
+                .orElseThrow(() -> new AppException("Batch not found"));
+    }
+
+    private List<Transaction> lockLines(String batchId, TransactionStatus status) {
+        return transactionRepository.findByBatchIdForUpdate(batchId).stream()
+                .filter(line -> line.getStatus() == status)
+                .toList();
+    }
+
+    // Khóa balance người gửi và người nhận theo thứ tự accountId (cùng thứ tự với duyệt hàng loạt)
+    private Map<String, Balance> lockBalances(String fromAccountId, List<Transaction> approvedLines) {
+        Set<String> accountIds = new TreeSet<>();
+        accountIds.add(fromAccountId);
+        approvedLines.forEach(line -> accountIds.add(line.getToAccountId()));
+        Map<String, Balance> balances = balanceRepository.findAllForUpdate(accountIds).stream()
+                .collect(Collectors.toMap(Balance::getAccountId, Function.identity()));
+        if (!balances.containsKey(fromAccountId)) {
+            throw new AppException("Sender balance not found");
+        }
+        return balances;
+    }
+
+    @Transactional(readOnly = true)
+    public TransferBatchSummary getBatch(String batchId, String requesterId, boolean isAdmin) {
+        return summarize(findAccessible(batchId, requesterId, isAdmin));
+    }
+
+    @Transactional(readOnly = true)
+    public Page<Transaction> getBatchItems(String batchId, String requesterId, boolean isAdmin, Pageable pageable) {
+        findAccessible(batchId, requesterId, isAdmin);
+        return transactionRepository.findByBatchId(batchId, pageable);
+    }
+
+    public Page<TransferBatch> getMyBatches(String accountId, Pageable pageable) {
+        return transferBatchRepository.findByFromAccountId(accountId, pageable);
+    }
+
+    public Page<TransferBatch> getAwaitingApprovalBatches(Pageable pageable) {
+        return transferBatchRepository.findByStatus(TransactionStatus.AWAITING_APPROVAL, pageable);
+    }
+
+    private TransferBatch findAccessible(String batchId, String requesterId, boolean isAdmin) {
+        TransferBatch batch = transferBatchRepository.findById(batchId)
+                .orElseThrow(() -> new AppException("Batch not found"));
+        if (!isAdmin && !batch.getFromAccountId().equals(requesterId)) {
+            throw new AppException("You are not allowed to view this batch");
+        }
+        return batch;
+    }
+
+    private TransferBatchSummary summarize(TransferBatch batch) {
+        Map<TransactionStatus, Long> counts = new EnumMap<>(TransactionStatus.class);
+        for (Object[] row : transactionRepository.countStatusesByBatchId(batch.getId())) {
+            counts.put((TransactionStatus) row[0], (Long) row[1]);
+        }
+        return TransferBatchSummary.builder()
+                .batch(batch)
+                .lineStatusCounts(counts)
+                .build();
+    }
+}
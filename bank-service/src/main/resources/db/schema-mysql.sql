@@ -0,0 +1,13 @@
+-- Chạy sau khi Hibernate cập nhật schema (spring.jpa.defer-datasource-initialization) ở mỗi lần khởi động,
+-- nên mọi câu lệnh phải chạy lại được nhiều lần.
+
+-- Cột balance.hold_balance cũ không còn được ghi (holdBalance tính từ balance_hold):
+-- bỏ NOT NULL để INSERT balance mới không lỗi. Database tạo mới không có cột này nên bỏ qua.
+SET @relax_hold_balance = (
+    SELECT IF(COUNT(*) > 0, 'ALTER TABLE balance MODIFY hold_balance DECIMAL(38,2) NULL DEFAULT 0', 'DO 0')
+    FROM information_schema.columns
+    WHERE table_schema = DATABASE() AND table_name = 'balance'
+      AND column_name = 'hold_balance' AND column_default IS NULL);
+PREPARE relax_hold_balance FROM @relax_hold_balance;
+EXECUTE relax_hold_balance;
+DEALLOCATE PREPARE relax_hold_balance;
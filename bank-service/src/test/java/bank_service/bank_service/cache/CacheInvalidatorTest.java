@@ -0,0 +1,73 @@
+package bank_service.bank_service.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CacheInvalidatorTest {
+
+    @Mock
+    private StringRedisTemplate stringRedisTemplate;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private NearCache nearCache;
+    private CacheInvalidator invalidator;
+
+    @BeforeEach
+    void setUp() {
+        NearCacheProperties properties = new NearCacheProperties();
+        properties.getSpecs().put("account", spec("account:", "account"));
+        properties.getSpecs().put("balance", spec("BALANCE:", "account"));
+        properties.getSpecs().put("other", spec("OTHER:"));
+        nearCache = new NearCache(properties, stringRedisTemplate, meterRegistry);
+        invalidator = new CacheInvalidator(properties, nearCache, stringRedisTemplate, meterRegistry);
+    }
+
+    private NearCacheProperties.Spec spec(String keyPrefix, String... tags) {
+        NearCacheProperties.Spec spec = new NearCacheProperties.Spec();
+        spec.setKeyPrefix(keyPrefix);
+        spec.setTags(Set.of(tags));
+        return spec;
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void evictTag_DeletesEveryTaggedCacheInOneCallAndBroadcasts() {
+        nearCache.get("balance", "BALANCE:1", () -> "cached");
+
+        invalidator.evictTag("account", List.of("1", "2"));
+
+        ArgumentCaptor<List<String>> keys = ArgumentCaptor.forClass(List.class);
+        ArgumentCaptor<String> message = ArgumentCaptor.forClass(String.class);
+        verify(stringRedisTemplate, times(1)).execute(any(RedisScript.class), keys.capture(),
+                eq("cache:invalidate"), message.capture());
+        assertEquals(Set.of("account:1", "account:2", "BALANCE:1", "BALANCE:2"), Set.copyOf(keys.getValue()));
+        assertEquals(Set.of("account|account:1", "account|account:2", "balance|BALANCE:1", "balance|BALANCE:2"),
+                Set.of(message.getValue().split("\n")));
+        // L1 của instance này cũng bị xóa
+        assertEquals("fresh", nearCache.get("balance", "BALANCE:1", () -> "fresh"));
+        assertEquals(2, meterRegistry.get("cache.tiered.evictions").tag("cache", "balance").counter().count());
+    }
+
+    @Test
+    void evict_EmptyKeys_NoRedisCall() {
+        invalidator.evict("balance", List.of());
+
+        verifyNoInteractions(stringRedisTemplate);
+    }
+}
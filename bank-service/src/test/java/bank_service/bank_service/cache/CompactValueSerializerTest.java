@@ -0,0 +1,94 @@
+package bank_service.bank_service.cache;
+
+import bank_service.bank_service.config.RedisConfig;
+import bank_service.bank_service.dto.CardFullInfoDTO;
+import bank_service.bank_service.model.Account;
+import bank_service.bank_service.model.Balance;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.support.NullValue;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompactValueSerializerTest {
+
+    private final Balance balance = Balance.builder()
+            .accountId("acc-1")
+            .availableBalance(new BigDecimal("1250.50"))
+            .holdBalance(BigDecimal.ZERO)
+            .version(7)
+            .build();
+
+    private static List<CardFullInfoDTO> cards(int count) {
+        return IntStream.range(0, count).mapToObj(i -> new CardFullInfoDTO((long) i, "acc-" + i, "Nguyen Van " + i,
+                "user" + i + "@gmail.com", "09000000" + i, "DEBIT", LocalDate.of(2030, 1, 1), "active",
+                BigDecimal.valueOf(1000L * i), BigDecimal.ZERO)).toList();
+    }
+
+    @Test
+    void roundTrip_SmallerThanCurrentJson() {
+        CompactValueSerializer<Balance> serializer = CompactValueSerializer.of(Balance.class, 0);
+
+        byte[] bytes = serializer.serialize(balance);
+
+        assertEquals(balance, serializer.deserialize(bytes));
+        assertTrue(bytes.length < RedisConfig.jsonValueSerializer().serialize(balance).length);
+    }
+
+    @Test
+    void largeList_CompressedAboveThreshold() {
+        List<CardFullInfoDTO> cards = cards(200);
+        CompactValueSerializer<List<CardFullInfoDTO>> plain = CompactValueSerializer.listOf(CardFullInfoDTO.class, 0);
+        CompactValueSerializer<List<CardFullInfoDTO>> compressed = CompactValueSerializer.listOf(CardFullInfoDTO.class, 2048);
+
+        byte[] plainBytes = plain.serialize(cards);
+        byte[] compressedBytes = compressed.serialize(cards);
+
+        assertEquals(1, compressedBytes[0]);
+        assertTrue(compressedBytes.length < plainBytes.length);
+        assertEquals(cards, compressed.deserialize(compressedBytes));
+        // Đọc được cả bản không nén khi đổi ngưỡng
+        assertEquals(cards, compressed.deserialize(plainBytes));
+    }
+
+    @Test
+    void smallValue_NotCompressed() {
+        byte[] bytes = CompactValueSerializer.listOf(CardFullInfoDTO.class, 2048).serialize(cards(1));
+
+        assertEquals(0, bytes[0]);
+    }
+
+    @Test
+    void account_PasswordNeverSerialized() {
+        Account account = Account.builder().accountId("acc-1").email("a@gmail.com").password("$2a$10$hash").build();
+
+        Account cached = CompactValueSerializer.of(Account.class, 0).deserialize(
+                CompactValueSerializer.of(Account.class, 0).serialize(account));
+
+        assertEquals("acc-1", cached.getAccountId());
+        assertNull(cached.getPassword());
+    }
+
+    @Test
+    void legacyJson_Rejected() {
+        byte[] legacy = RedisConfig.jsonValueSerializer().serialize(balance);
+
+        assertThrows(SerializationException.class,
+                () -> CompactValueSerializer.of(Balance.class, 0).deserialize(legacy));
+    }
+
+    @Test
+    void absentMarker_RoundTripsInStoreAndNotValidSerializerOutput() {
+        RedisValueStore store = new RedisValueStore(null, CompactValueSerializer.of(Balance.class, 0));
+
+        assertArrayEquals(RedisValueStore.ABSENT, store.serialize(NullValue.INSTANCE));
+        assertSame(NullValue.INSTANCE, store.deserialize("BALANCE:acc-1", RedisValueStore.ABSENT));
+        assertThrows(SerializationException.class,
+                () -> CompactValueSerializer.of(Balance.class, 0).deserialize(RedisValueStore.ABSENT));
+    }
+}
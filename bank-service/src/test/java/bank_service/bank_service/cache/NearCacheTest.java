@@ -0,0 +1,93 @@
+package bank_service.bank_service.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class NearCacheTest {
+
+    @Mock
+    private StringRedisTemplate stringRedisTemplate;
+
+    private NearCache nearCache;
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        nearCache = new NearCache(new NearCacheProperties(), stringRedisTemplate, new SimpleMeterRegistry());
+    }
+
+    private String load(String value) {
+        loads.incrementAndGet();
+        return value;
+    }
+
+    @Test
+    void get_SecondReadServedFromL1() {
+        assertEquals("v1", nearCache.get("account", "account:1", () -> load("v1")));
+        assertEquals("v1", nearCache.get("account", "account:1", () -> load("v2")));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void evict_DropsLocalEntryAndPublishes() {
+        nearCache.get("account", "account:1", () -> load("v1"));
+
+        nearCache.evict("account", "account:1");
+
+        assertEquals("v2", nearCache.get("account", "account:1", () -> load("v2")));
+        verify(stringRedisTemplate).convertAndSend("cache:invalidate", "account|account:1");
+    }
+
+    @Test
+    void evictDuringLoad_ResultNotCached() {
+        String loaded = nearCache.get("account", "account:1", () -> {
+            // instance khác ghi bản mới trong lúc đang đọc L2
+            nearCache.onMessage(message("account|account:1"), null);
+            return load("stale");
+        });
+
+        assertEquals("stale", loaded);
+        assertEquals("fresh", nearCache.get("account", "account:1", () -> load("fresh")));
+    }
+
+    @Test
+    void onMessage_WildcardClearsWholeCache() {
+        nearCache.get("card-lists", "A", () -> load("a"));
+        nearCache.get("card-lists", "B", () -> load("b"));
+
+        nearCache.onMessage(message("card-lists|*"), null);
+
+        nearCache.get("card-lists", "A", () -> load("a"));
+        nearCache.get("card-lists", "B", () -> load("b"));
+        assertEquals(4, loads.get());
+    }
+
+    @Test
+    void onMessage_MultipleKeysPerMessage() {
+        nearCache.get("account", "account:1", () -> load("a"));
+        nearCache.get("balance", "BALANCE:1", () -> load("b"));
+
+        nearCache.onMessage(message("account|account:1\nbalance|BALANCE:1"), null);
+
+        nearCache.get("account", "account:1", () -> load("a"));
+        nearCache.get("balance", "BALANCE:1", () -> load("b"));
+        assertEquals(4, loads.get());
+    }
+
+    private DefaultMessage message(String body) {
+        return new DefaultMessage("cache:invalidate".getBytes(StandardCharsets.UTF_8), body.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,93 @@
+package bank_service.bank_service.cache;
+
+import bank_service.bank_service.model.Account;
+import bank_service.bank_service.model.Category;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RequestMemoTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final EntityManager entityManager = mock(EntityManager.class);
+    private final RequestMemo requestMemo = new RequestMemo(meterRegistry, entityManager);
+
+    private final Account account = Account.builder().accountId("acc1").email("a@example.com").build();
+
+    @AfterEach
+    void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    private ServletRequestAttributes startRequest() {
+        ServletRequestAttributes attributes = new ServletRequestAttributes(new MockHttpServletRequest());
+        RequestContextHolder.setRequestAttributes(attributes);
+        return attributes;
+    }
+
+    @Test
+    void find_OutsideRequest_AlwaysLoads() {
+        int[] loads = {0};
+
+        requestMemo.find(Account.class, "acc1", () -> { loads[0]++; return Optional.of(account); });
+        requestMemo.find(Account.class, "acc1", () -> { loads[0]++; return Optional.of(account); });
+
+        assertEquals(2, loads[0]);
+    }
+
+    @Test
+    void find_SameEntityTwiceInRequest_LoadsOnceAndRecordsSaved() {
+        ServletRequestAttributes attributes = startRequest();
+        int[] loads = {0};
+
+        assertSame(account, requestMemo.find(Account.class, "acc1", () -> { loads[0]++; return Optional.of(account); }).get());
+        assertSame(account, requestMemo.find(Account.class, "acc1", () -> { loads[0]++; return Optional.of(account); }).get());
+        // Cùng id nhưng khác loại entity là entry khác; kết quả rỗng cũng được nhớ
+        assertTrue(requestMemo.find(Category.class, "acc1", () -> { loads[0]++; return Optional.empty(); }).isEmpty());
+        assertTrue(requestMemo.find(Category.class, "acc1", () -> { loads[0]++; return Optional.empty(); }).isEmpty());
+        attributes.requestCompleted();
+
+        assertEquals(2, loads[0]);
+        assertEquals(1, meterRegistry.counter("request.memo.lookups", "entity", "Account", "result", "hit").count());
+        assertEquals(2, meterRegistry.get("request.memo.saved").summary().totalAmount());
+    }
+
+    @Test
+    void rememberAndEvict_LaterReadsSeeWrite() {
+        startRequest();
+        Account updated = Account.builder().accountId("acc1").email("new@example.com").build();
+        requestMemo.find(Account.class, "acc1", () -> Optional.of(account));
+
+        requestMemo.remember(Account.class, "acc1", updated);
+        assertSame(updated, requestMemo.find(Account.class, "acc1", () -> Optional.of(account)).get());
+
+        requestMemo.evict(Account.class, "acc1");
+        assertSame(account, requestMemo.find(Account.class, "acc1", () -> Optional.of(account)).get());
+    }
+
+    @Test
+    void find_EntityStillInPersistenceContext_HitNotCountedAsSaved() {
+        ServletRequestAttributes attributes = startRequest();
+        requestMemo.find(Account.class, "acc1", () -> Optional.of(account));
+        // Chưa có câu @Modifying nào clear persistence context: findById cũng không chạy SQL
+        when(entityManager.contains(account)).thenReturn(true);
+        requestMemo.find(Account.class, "acc1", () -> Optional.of(account));
+        // Sau clearAutomatically entity bị detach: lần hit này mới tiết kiệm một câu SELECT
+        when(entityManager.contains(account)).thenReturn(false);
+        requestMemo.find(Account.class, "acc1", () -> Optional.of(account));
+        attributes.requestCompleted();
+
+        assertEquals(2, meterRegistry.counter("request.memo.lookups", "entity", "Account", "result", "hit").count());
+        assertEquals(1, meterRegistry.get("request.memo.saved").summary().totalAmount());
+    }
+}
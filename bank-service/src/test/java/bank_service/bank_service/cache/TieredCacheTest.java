@@ -0,0 +1,214 @@
+package bank_service.bank_service.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.NullValue;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TieredCacheTest {
+
+    @Mock
+    private CacheStore store;
+
+    @Mock
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Mock
+    private CacheLoadLock loadLock;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private NearCache nearCache;
+    private TieredCache cache;
+
+    @BeforeEach
+    void setUp() {
+        nearCache = new NearCache(new NearCacheProperties(), stringRedisTemplate, meterRegistry);
+        cache = cache(1.0);
+        lenient().when(loadLock.tryAcquire(anyString(), any())).thenReturn("token");
+    }
+
+    private TieredCache cache(double earlyRefreshBeta) {
+        return cache(earlyRefreshBeta, Duration.ZERO);
+    }
+
+    private TieredCache cache(double earlyRefreshBeta, Duration negativeTtl) {
+        NearCacheProperties.Spec spec = new NearCacheProperties.Spec();
+        spec.setNegativeTtl(negativeTtl);
+        spec.setKeyPrefix("account:");
+        spec.setRedisTtl(Duration.ofMinutes(5));
+        spec.setLoadLockTtl(Duration.ofSeconds(1));
+        spec.setEarlyRefreshBeta(earlyRefreshBeta);
+        return new TieredCache("account", spec, store, nearCache, loadLock, meterRegistry);
+    }
+
+    private double gets(String tier, String result) {
+        return meterRegistry.get("cache.tiered.gets").tag("cache", "account")
+                .tag("tier", tier).tag("result", result).counter().count();
+    }
+
+    @Test
+    void get_MissLoadsOnceAndWritesL2WithPrefixAndTtl() {
+        int[] loads = {0};
+
+        assertEquals("v1", cache.get("1", () -> { loads[0]++; return "v1"; }));
+
+        verify(store).write("account:1", "v1", Duration.ofMinutes(5));
+        verify(loadLock).release("account:1", "token");
+        assertEquals(1, loads[0]);
+        assertEquals(1, gets("none", "miss"));
+        assertEquals(1, meterRegistry.get("cache.tiered.load").tag("cache", "account").timer().count());
+    }
+
+    @Test
+    void get_L2HitThenL1Hit() {
+        when(store.readEntry("account:1")).thenReturn(new CacheStore.Entry("v1", 60_000));
+
+        assertEquals("v1", cache.get("1", () -> "db"));
+        assertEquals("v1", cache.get("1", () -> "db"));
+
+        verify(store, times(1)).readEntry("account:1");
+        verify(store, never()).write(anyString(), any(), any());
+        assertEquals(1, gets("l2", "hit"));
+        assertEquals(1, gets("l1", "hit"));
+    }
+
+    @Test
+    void putNull_Evicts() {
+        cache.put("1", null);
+
+        verify(store).delete("account:1");
+        verify(store, never()).write(anyString(), any(), any());
+        verify(stringRedisTemplate).convertAndSend("cache:invalidate", "account|account:1");
+    }
+
+    @Test
+    void get_NegativeTtl_CachesAbsentKeyWithShortTtl() {
+        cache = cache(1.0, Duration.ofSeconds(30));
+        when(store.readEntry("account:404")).thenReturn(null, new CacheStore.Entry(NullValue.INSTANCE, 30_000));
+        int[] loads = {0};
+
+        assertNull(cache.get("404", () -> { loads[0]++; return null; }));
+        verify(store).write("account:404", NullValue.INSTANCE, Duration.ofSeconds(30));
+
+        // Lần sau: L2 rồi L1, không chạy method
+        assertNull(cache.get("404", () -> { loads[0]++; return null; }));
+        Cache.ValueWrapper wrapper = cache.get("404");
+        assertNotNull(wrapper);
+        assertNull(wrapper.get());
+
+        assertEquals(1, loads[0]);
+        assertEquals(1, gets("l2", "negative"));
+        assertEquals(1, gets("l1", "negative"));
+    }
+
+    @Test
+    void clear_DeletesByPrefixAndBroadcasts() {
+        cache.clear();
+
+        verify(store).deleteByPrefix("account:");
+        verify(stringRedisTemplate).convertAndSend("cache:invalidate", "account|*");
+    }
+
+    @Test
+    void get_LoaderFailure_WrappedAndNothingCached() {
+        assertThrows(Cache.ValueRetrievalException.class,
+                () -> cache.get("1", () -> { throw new IllegalStateException("db down"); }));
+
+        verify(store, never()).write(anyString(), any(), any());
+        assertNull(cache.get("1"));
+    }
+
+    @Test
+    void get_ConcurrentMisses_LoadOnce() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<String> first = executor.submit(() -> cache.get("1", () -> {
+                loads.incrementAndGet();
+                loading.countDown();
+                release.await();
+                return "v1";
+            }));
+            loading.await();
+            List<Future<String>> others = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                others.add(executor.submit(() -> cache.get("1", () -> { loads.incrementAndGet(); return "other"; })));
+            }
+            // chờ các request sau vào hàng đợi của lần load đang chạy
+            while (meterRegistry.get("cache.tiered.coalesced").tag("scope", "local").counter().count() < 3) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+
+            assertEquals("v1", first.get(5, TimeUnit.SECONDS));
+            for (Future<String> other : others) {
+                assertEquals("v1", other.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, loads.get());
+            verify(store, times(1)).write(anyString(), any(), any());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void get_OtherInstanceLoading_WaitsForL2Value() {
+        when(loadLock.tryAcquire(anyString(), any())).thenReturn(null);
+        when(store.read("account:1")).thenReturn(null, "remote");
+
+        assertEquals("remote", cache.get("1", () -> { throw new IllegalStateException("must not load"); }));
+
+        verify(store, never()).write(anyString(), any(), any());
+        assertEquals(1, meterRegistry.get("cache.tiered.coalesced").tag("scope", "remote").counter().count());
+    }
+
+    @Test
+    void get_EntryAboutToExpire_RefreshedEarly() {
+        TieredCache eager = cache(1e9);
+        // lần load đầu để có thời gian load trung bình
+        eager.get("2", () -> "warm");
+        when(store.readEntry("account:1")).thenReturn(new CacheStore.Entry("old", 1));
+
+        assertEquals("new", eager.get("1", () -> "new"));
+
+        verify(store).write("account:1", "new", Duration.ofMinutes(5));
+        assertEquals(1, meterRegistry.get("cache.tiered.early.refreshes").counter().count());
+    }
+
+    @Test
+    void get_EarlyRefreshDisabled_ReturnsCachedValue() {
+        TieredCache plain = cache(0);
+        plain.get("2", () -> "warm");
+        when(store.readEntry("account:1")).thenReturn(new CacheStore.Entry("old", 1));
+
+        assertEquals("old", plain.get("1", () -> "new"));
+        verify(store, never()).write(eq("account:1"), any(), any());
+    }
+}
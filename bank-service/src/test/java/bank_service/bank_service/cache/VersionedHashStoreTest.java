@@ -0,0 +1,130 @@
+package bank_service.bank_service.cache;
+
+import bank_service.bank_service.model.Balance;
+import com.github.fppt.jedismock.RedisServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.support.NullValue;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Chạy CAS_WRITE_SCRIPT thật trên jedis-mock, cấu hình template giống binaryRedisTemplate.
+ */
+class VersionedHashStoreTest {
+
+    private static final String KEY = "balance::acc1";
+    private static final Duration TTL = Duration.ofMinutes(10);
+
+    private static RedisServer redis;
+    private static LettuceConnectionFactory connectionFactory;
+    private static RedisTemplate<String, byte[]> redisTemplate;
+
+    private VersionedHashStore store;
+
+    @BeforeAll
+    static void startRedis() throws IOException {
+        redis = RedisServer.newRedisServer();
+        redis.start();
+        connectionFactory = new LettuceConnectionFactory(
+                new RedisStandaloneConfiguration(redis.getHost(), redis.getBindPort()));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        redisTemplate = new RedisTemplate<>();
+        redisTemplate.setConnectionFactory(connectionFactory);
+        redisTemplate.setKeySerializer(new StringRedisSerializer());
+        redisTemplate.setValueSerializer(RedisSerializer.byteArray());
+        redisTemplate.setHashKeySerializer(new StringRedisSerializer());
+        redisTemplate.setHashValueSerializer(RedisSerializer.byteArray());
+        redisTemplate.afterPropertiesSet();
+    }
+
+    @AfterAll
+    static void stopRedis() throws IOException {
+        connectionFactory.destroy();
+        redis.stop();
+    }
+
+    @BeforeEach
+    void setUp() {
+        redisTemplate.execute(connection -> {
+            connection.serverCommands().flushAll();
+            return null;
+        }, true);
+        store = new VersionedHashStore(redisTemplate,
+                CompactValueSerializer.of(Balance.class, Integer.MAX_VALUE),
+                value -> ((Balance) value).getVersion());
+    }
+
+    private Balance balance(long available, long version) {
+        return Balance.builder()
+                .accountId("acc1")
+                .availableBalance(BigDecimal.valueOf(available))
+                .holdBalance(BigDecimal.ZERO)
+                .version(version)
+                .build();
+    }
+
+    private long cachedAvailable() {
+        return ((Balance) store.read(KEY)).getAvailableBalance().longValueExact();
+    }
+
+    @Test
+    void write_NewerVersion_Replaces() {
+        store.write(KEY, balance(100, 1), TTL);
+        store.write(KEY, balance(80, 2), TTL);
+
+        assertEquals(80, cachedAvailable());
+        long ttl = redisTemplate.getExpire(KEY);
+        assertTrue(ttl > 0 && ttl <= TTL.toSeconds());
+    }
+
+    @Test
+    void write_OlderOrEqualVersion_Rejected() {
+        store.write(KEY, balance(80, 2), TTL);
+
+        // Giao dịch commit trước nhưng ghi cache sau: không được đè bản mới hơn
+        store.write(KEY, balance(100, 1), TTL);
+        assertEquals(80, cachedAvailable());
+
+        store.write(KEY, balance(50, 2), TTL);
+        assertEquals(80, cachedAvailable());
+    }
+
+    @Test
+    void write_OverNullValue_RealEntryReplacesIt() {
+        store.write(KEY, NullValue.INSTANCE, TTL);
+        assertEquals(NullValue.INSTANCE, store.read(KEY));
+
+        // Balance mới tạo có version 0, vẫn lớn hơn version -1 của negative entry
+        store.write(KEY, balance(0, 0), TTL);
+
+        assertEquals(0, cachedAvailable());
+    }
+
+    @Test
+    void write_LegacyStringKey_ConvertedToHash() {
+        redisTemplate.opsForValue().set(KEY, "legacy".getBytes(StandardCharsets.UTF_8));
+
+        // Key dạng string cũ: đọc là miss, không ném lỗi
+        assertNull(store.read(KEY));
+        assertNull(store.readEntry(KEY));
+
+        store.write(KEY, balance(100, 0), TTL);
+
+        assertEquals("hash", redisTemplate.type(KEY).code());
+        assertEquals(100, cachedAvailable());
+    }
+}
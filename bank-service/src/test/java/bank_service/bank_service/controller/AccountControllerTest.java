@@ -227,13 +227,19 @@
 //}
 package bank_service.bank_service.controller;
 
+import bank_service.bank_service.dto.AccountSummaryDTO;
 import bank_service.bank_service.model.Account;
+import bank_service.bank_service.model.Role;
 import bank_service.bank_service.service.AccountService;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
@@ -311,23 +317,25 @@ class AccountControllerTest {
     // --- GET ALL API Tests ---
 
     @Test
-    void getAllAccounts_Success_ReturnsAllAccountsList() {
-        List<Account> mockAccountList = List.of(new Account(), new Account());
-        when(accountService.getAllAccounts()).thenReturn(mockAccountList);
-        ResponseEntity<List<Account>> response = accountController.getAllAccounts();
+    void getAllAccounts_Success_ReturnsPageFromService() {
+        Pageable pageable = PageRequest.of(0, 20);
+        Page<AccountSummaryDTO> page = new PageImpl<>(List.of(new AccountSummaryDTO(), new AccountSummaryDTO()), pageable, 2);
+        when(accountService.listAccounts(Role.USER, "nguyen", pageable)).thenReturn(page);
+        ResponseEntity<Page<AccountSummaryDTO>> response = accountController.getAllAccounts(Role.USER, "nguyen", pageable);
         assertEquals(HttpStatus.OK, response.getStatusCode());
-        assertEquals(mockAccountList, response.getBody());
-        verify(accountService, times(1)).getAllAccounts();
+        assertEquals(page, response.getBody());
+        verify(accountService, times(1)).listAccounts(Role.USER, "nguyen", pageable);
     }
 
     @Test
-    void getAllAccounts_ReturnsEmptyList() {
-        List<Account> mockAccountList = Collections.emptyList();
-        when(accountService.getAllAccounts()).thenReturn(mockAccountList);
-        ResponseEntity<List<Account>> response = accountController.getAllAccounts();
+    void getAllAccounts_ReturnsEmptyPage() {
+        Pageable pageable = PageRequest.of(0, 20);
+        Page<AccountSummaryDTO> page = Page.empty(pageable);
+        when(accountService.listAccounts(null, null, pageable)).thenReturn(page);
+        ResponseEntity<Page<AccountSummaryDTO>> response = accountController.getAllAccounts(null, null, pageable);
         assertEquals(HttpStatus.OK, response.getStatusCode());
-        assertEquals(mockAccountList, response.getBody());
-        verify(accountService, times(1)).getAllAccounts();
+        assertEquals(0, response.getBody().getTotalElements());
+        verify(accountService, times(1)).listAccounts(null, null, pageable);
     }
 
     // --- UPDATE API Tests ---
@@ -0,0 +1,70 @@
+package bank_service.bank_service.service;
+
+import bank_service.bank_service.dto.AccountSummaryDTO;
+import bank_service.bank_service.model.Role;
+import bank_service.bank_service.repository.AccountRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AccountIndexTest {
+
+    @Mock
+    private RedisTemplate<String, byte[]> binaryRedisTemplate;
+
+    @Mock
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Mock
+    private AccountRepository accountRepository;
+
+    private AccountIndex accountIndex;
+
+    @BeforeEach
+    void setUp() {
+        // StringRedisTemplate cũng là RedisTemplate: tạo trực tiếp để không bị inject nhầm mock
+        accountIndex = new AccountIndex(binaryRedisTemplate, stringRedisTemplate, accountRepository);
+    }
+
+    @Test
+    void member_SortsByNameThenEmailAndEndsWithAccountId() {
+        AccountSummaryDTO summary = AccountSummaryDTO.builder()
+                .accountId("id-1").customerName(" Nguyen An ").email("An@Gmail.com").phoneNumber("0912").role(Role.USER)
+                .build();
+
+        String member = AccountIndex.member(summary);
+
+        assertTrue(member.startsWith("nguyen an\u001fan@gmail.com\u001f0912"));
+        assertEquals("id-1", AccountIndex.accountIdOf(member.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    void escapeGlob_EscapesPatternCharacters() {
+        assertEquals("a\\*b\\?\\[c\\]\\\\", AccountIndex.escapeGlob("a*b?[c]\\"));
+    }
+
+    @Test
+    void find_NotReady_ReturnsEmptyWithoutReadingIndex() {
+        when(stringRedisTemplate.hasKey(AccountIndex.READY_KEY)).thenReturn(false);
+
+        assertTrue(accountIndex.find(Role.USER, null, PageRequest.of(0, 20)).isEmpty());
+        verifyNoInteractions(binaryRedisTemplate);
+    }
+
+    @Test
+    void orderKey_PerRole() {
+        assertEquals("accounts:index:order", AccountIndex.orderKey(null));
+        assertEquals("accounts:index:order:ADMIN", AccountIndex.orderKey(Role.ADMIN));
+    }
+}
@@ -0,0 +1,195 @@
+package bank_service.bank_service.service;
+
+import bank_service.bank_service.model.AutoApprovalRule;
+import bank_service.bank_service.model.Transaction;
+import bank_service.bank_service.model.TransactionStatus;
+import bank_service.bank_service.model.TransactionType;
+import bank_service.bank_service.repository.AutoApprovalRuleRepository;
+import bank_service.bank_service.repository.BalanceRepository;
+import bank_service.bank_service.repository.TransactionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AutoApprovalServiceTest {
+
+    @Mock
+    private AutoApprovalRuleRepository ruleRepository;
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    @Mock
+    private BalanceRepository balanceRepository;
+
+    @InjectMocks
+    private AutoApprovalService autoApprovalService;
+
+    private Transaction tx;
+
+    @BeforeEach
+    void setUp() {
+        tx = Transaction.builder()
+                .id("tx1")
+                .fromAccountId("user1")
+                .toAccountId("user2")
+                .amount(BigDecimal.valueOf(100))
+                .transactionType(TransactionType.TRANSFER)
+                .status(TransactionStatus.AWAITING_APPROVAL)
+                .build();
+    }
+
+    private Transaction approved(String id, long amount) {
+        return Transaction.builder()
+                .id(id)
+                .fromAccountId("user1")
+                .toAccountId("user3")
+                .amount(BigDecimal.valueOf(amount))
+                .transactionType(TransactionType.TRANSFER)
+                .status(TransactionStatus.APPROVED)
+                .build();
+    }
+
+    // Kết quả COUNT/SUM mà DB trả về cho các dòng đã duyệt
+    private TransactionRepository.OutgoingTotals totals(List<Transaction> rows) {
+        long count = rows.size();
+        BigDecimal amount = rows.stream().map(Transaction::getAmount).reduce(BigDecimal.ZERO, BigDecimal::add);
+        return new TransactionRepository.OutgoingTotals() {
+            @Override
+            public long getCount() {
+                return count;
+            }
+
+            @Override
+            public BigDecimal getAmount() {
+                return amount;
+            }
+        };
+    }
+
+    private void loadRules(AutoApprovalRule... rules) {
+        when(ruleRepository.findByEnabledTrueOrderByPriorityAscIdAsc()).thenReturn(List.of(rules));
+        autoApprovalService.reload();
+    }
+
+    @Test
+    void evaluate_AmountUnderCap_Approves() {
+        loadRules(AutoApprovalRule.builder().name("small").maxAmount(BigDecimal.valueOf(500)).build());
+
+        assertEquals(Optional.of("small"), autoApprovalService.evaluate(tx));
+        verifyNoInteractions(transactionRepository, balanceRepository);
+    }
+
+    @Test
+    void evaluate_AmountOverCap_SkipsDatabaseFacts() {
+        loadRules(AutoApprovalRule.builder().name("small").maxAmount(BigDecimal.valueOf(50))
+                .knownCounterpartyOnly(true).maxDailyCount(5).build());
+
+        assertTrue(autoApprovalService.evaluate(tx).isEmpty());
+        verifyNoInteractions(transactionRepository, balanceRepository);
+    }
+
+    @Test
+    void evaluate_UnknownCounterparty_NotApproved() {
+        loadRules(AutoApprovalRule.builder().name("known").maxAmount(BigDecimal.valueOf(500))
+                .knownCounterpartyOnly(true).build());
+        when(transactionRepository.existsByFromAccountIdAndToAccountIdAndStatus(
+                "user1", "user2", TransactionStatus.APPROVED)).thenReturn(false);
+
+        assertTrue(autoApprovalService.evaluate(tx).isEmpty());
+    }
+
+    @Test
+    void evaluate_DailyAmountExceeded_FallsThroughToNextRule() {
+        loadRules(
+                AutoApprovalRule.builder().name("velocity").maxDailyAmount(BigDecimal.valueOf(1000)).build(),
+                AutoApprovalRule.builder().name("tiny").maxAmount(BigDecimal.valueOf(100)).build());
+        when(transactionRepository.sumApprovedOutgoingForShare(eq("user1"), any()))
+                .thenReturn(totals(List.of(approved("old1", 950))));
+
+        assertEquals(Optional.of("tiny"), autoApprovalService.evaluate(tx));
+    }
+
+    @Test
+    void evaluate_RuleWithoutConditions_IsIgnored() {
+        loadRules(AutoApprovalRule.builder().name("everything").build());
+
+        assertTrue(autoApprovalService.evaluate(tx).isEmpty());
+    }
+
+    @Test
+    void evaluate_NonTransfer_NotApproved() {
+        loadRules(AutoApprovalRule.builder().name("small").maxAmount(BigDecimal.valueOf(500)).build());
+        tx.setTransactionType(TransactionType.DEPOSIT);
+
+        assertTrue(autoApprovalService.evaluate(tx).isEmpty());
+    }
+
+    @Test
+    void evaluate_DatabaseFacts_ReadAfterLockingBothBalances() {
+        loadRules(AutoApprovalRule.builder().name("velocity").maxDailyCount(3).build());
+        when(transactionRepository.sumApprovedOutgoingForShare(eq("user1"), any())).thenReturn(totals(List.of()));
+
+        assertEquals(Optional.of("velocity"), autoApprovalService.evaluate(tx));
+
+        InOrder order = inOrder(balanceRepository, transactionRepository);
+        order.verify(balanceRepository).lockAll(List.of("user1", "user2"));
+        order.verify(transactionRepository).sumApprovedOutgoingForShare(eq("user1"), any());
+    }
+
+    @Test
+    void evaluate_TwoConcurrentApprovalsAtCap_OnlyOneApproved() throws Exception {
+        loadRules(AutoApprovalRule.builder().name("velocity").maxDailyAmount(BigDecimal.valueOf(1000)).build());
+        // 900 đã duyệt hôm nay: chỉ còn chỗ cho một giao dịch 100
+        List<Transaction> committed = Collections.synchronizedList(new ArrayList<>(List.of(approved("old1", 900))));
+        // Khóa balance giữ tới khi "commit", như khóa dòng trong DB
+        ReentrantLock balanceLock = new ReentrantLock();
+        doAnswer(inv -> {
+            balanceLock.lock();
+            return List.of();
+        }).when(balanceRepository).lockAll(any());
+        when(transactionRepository.sumApprovedOutgoingForShare(eq("user1"), any()))
+                .thenAnswer(inv -> totals(List.copyOf(committed)));
+
+        Transaction other = approved("tx2", 100);
+        other.setToAccountId("user2");
+        other.setStatus(TransactionStatus.AWAITING_APPROVAL);
+        CompletableFuture<Boolean> first = CompletableFuture.supplyAsync(() -> approveAndCommit(tx, committed, balanceLock));
+        CompletableFuture<Boolean> second = CompletableFuture.supplyAsync(() -> approveAndCommit(other, committed, balanceLock));
+
+        assertEquals(1, (first.get() ? 1 : 0) + (second.get() ? 1 : 0));
+        assertEquals(2, committed.size());
+    }
+
+    private boolean approveAndCommit(Transaction candidate, List<Transaction> committed, ReentrantLock balanceLock) {
+        try {
+            boolean approved = autoApprovalService.evaluate(candidate).isPresent();
+            if (approved) {
+                candidate.setStatus(TransactionStatus.APPROVED);
+                committed.add(candidate);
+            }
+            return approved;
+        } finally {
+            balanceLock.unlock();
+        }
+    }
+}
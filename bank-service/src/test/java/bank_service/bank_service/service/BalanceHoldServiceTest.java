@@ -0,0 +1,136 @@
+package bank_service.bank_service.service;
+
+import bank_service.bank_service.exception.AppException;
+import bank_service.bank_service.model.Balance;
+import bank_service.bank_service.repository.BalanceHoldRepository;
+import bank_service.bank_service.repository.BalanceRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BalanceHoldServiceTest {
+
+    @Mock
+    private BalanceHoldRepository balanceHoldRepository;
+
+    @Mock
+    private BalanceRepository balanceRepository;
+
+    @Mock
+    private BalanceService balanceService;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    private BalanceHoldService balanceHoldService;
+
+    @BeforeEach
+    void setUp() {
+        balanceHoldService = new BalanceHoldService(balanceHoldRepository, balanceRepository, balanceService,
+                jdbcTemplate, transactionTemplate);
+    }
+
+    private Balance balance(String accountId, String available) {
+        return Balance.builder().accountId(accountId).availableBalance(new BigDecimal(available))
+                .holdBalance(BigDecimal.ZERO).build();
+    }
+
+    @Test
+    void placeHold_EnoughAvailable_DebitsAndInsertsHold() {
+        LocalDateTime expiresAt = LocalDateTime.now().plusMinutes(5);
+        Balance after = balance("acc1", "90");
+        when(balanceRepository.debitAvailable("acc1", BigDecimal.TEN)).thenReturn(1);
+        when(balanceRepository.findById("acc1")).thenReturn(Optional.of(after));
+
+        balanceHoldService.placeHold("acc1", "tx1", BigDecimal.TEN, expiresAt);
+
+        verify(balanceHoldRepository).insertHold(eq("tx1"), eq("acc1"), eq(BigDecimal.TEN), eq(expiresAt), any());
+        verify(balanceService).refreshCache("acc1", after);
+    }
+
+    @Test
+    void placeHold_InsufficientAvailable_ThrowsWithoutInsertingHold() {
+        when(balanceRepository.debitAvailable("acc1", BigDecimal.TEN)).thenReturn(0);
+        when(balanceRepository.existsById("acc1")).thenReturn(true);
+
+        AppException e = assertThrows(AppException.class,
+                () -> balanceHoldService.placeHold("acc1", "tx1", BigDecimal.TEN, null));
+
+        assertEquals("Insufficient balance", e.getMessage());
+        verifyNoInteractions(balanceHoldRepository, balanceService);
+    }
+
+    @Test
+    void settleHold_DeletesHoldAndCreditsReceiverInAccountOrder() {
+        when(balanceRepository.creditAvailable("acc1", BigDecimal.TEN)).thenReturn(1);
+
+        balanceHoldService.settleHold("acc2", "tx1", "acc1", BigDecimal.TEN);
+
+        // acc1 < acc2 nên dòng của người nhận được khóa trước
+        InOrder order = inOrder(balanceHoldRepository, balanceRepository);
+        order.verify(balanceHoldRepository).deleteByTransactionIds(List.of("tx1"));
+        order.verify(balanceRepository).creditAvailable("acc1", BigDecimal.TEN);
+        order.verify(balanceRepository).bumpVersions(List.of("acc2"));
+        verify(balanceRepository, never()).debitAvailable(anyString(), any());
+    }
+
+    @Test
+    void settleHold_ReceiverWithoutBalance_CreatesBalance() {
+        when(balanceRepository.creditAvailable("acc2", BigDecimal.TEN)).thenReturn(0);
+
+        balanceHoldService.settleHold("acc1", "tx1", "acc2", BigDecimal.TEN);
+
+        verify(balanceRepository).save(argThat(b -> b.getAccountId().equals("acc2")
+                && b.getAvailableBalance().compareTo(BigDecimal.TEN) == 0));
+    }
+
+    @Test
+    void releaseHolds_CreditsHeldAmountBackAndDeletesHolds() {
+        when(balanceRepository.creditHoldsForTransactions(List.of("tx1", "tx2"))).thenReturn(1);
+
+        balanceHoldService.releaseHolds(List.of("tx1", "tx2"));
+
+        InOrder order = inOrder(balanceRepository, balanceHoldRepository);
+        order.verify(balanceRepository).creditHoldsForTransactions(List.of("tx1", "tx2"));
+        order.verify(balanceHoldRepository).deleteByTransactionIds(List.of("tx1", "tx2"));
+    }
+
+    @Test
+    void releaseHolds_HoldAlreadyGone_CreditsNothingAndDoesNotFail() {
+        // Hold đã được duyệt/hoàn trước đó: câu UPDATE không khớp dòng balance nào
+        when(balanceRepository.creditHoldsForTransactions(List.of("tx1"))).thenReturn(0);
+        when(balanceHoldRepository.deleteByTransactionIds(List.of("tx1"))).thenReturn(0);
+
+        assertDoesNotThrow(() -> balanceHoldService.releaseHolds(List.of("tx1")));
+
+        verify(balanceRepository, never()).creditAvailable(anyString(), any());
+        verify(balanceRepository, never()).save(any());
+        verifyNoInteractions(balanceService);
+    }
+
+    @Test
+    void releaseHolds_NoTransactions_NoQueries() {
+        balanceHoldService.releaseHolds(List.of());
+
+        verifyNoInteractions(balanceRepository, balanceHoldRepository);
+    }
+}
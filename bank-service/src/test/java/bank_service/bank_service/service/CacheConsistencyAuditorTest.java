@@ -0,0 +1,160 @@
+package bank_service.bank_service.service;
+
+import bank_service.bank_service.cache.CacheInvalidator;
+import bank_service.bank_service.cache.CacheStore;
+import bank_service.bank_service.cache.NearCacheProperties;
+import bank_service.bank_service.config.CacheConfig;
+import bank_service.bank_service.model.Account;
+import bank_service.bank_service.model.Balance;
+import bank_service.bank_service.model.Card;
+import bank_service.bank_service.repository.AccountRepository;
+import bank_service.bank_service.repository.BalanceRepository;
+import bank_service.bank_service.repository.CardRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.support.NullValue;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CacheConsistencyAuditorTest {
+
+    @Mock
+    private CacheManager cacheManager;
+
+    @Mock
+    private CacheInvalidator cacheInvalidator;
+
+    @Mock
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Mock
+    private ValueOperations<String, String> valueOperations;
+
+    @Mock
+    private AccountRepository accountRepository;
+
+    @Mock
+    private BalanceRepository balanceRepository;
+
+    @Mock
+    private CardRepository cardRepository;
+
+    @Mock
+    private Cache cache;
+
+    @Mock
+    private CacheStore store;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private CacheConsistencyAuditor auditor;
+
+    @BeforeEach
+    void setUp() {
+        NearCacheProperties properties = new NearCacheProperties();
+        properties.getSpecs().put(CacheConfig.BALANCE_CACHE, spec("BALANCE:"));
+        properties.getSpecs().put(CacheConfig.ACCOUNT_CACHE, spec("account:"));
+        properties.getSpecs().put(CacheConfig.CARDS_CACHE, spec("CARDS:ACCOUNT:"));
+        auditor = new CacheConsistencyAuditor(cacheManager, properties, cacheInvalidator, stringRedisTemplate,
+                accountRepository, balanceRepository, cardRepository, meterRegistry);
+        ReflectionTestUtils.setField(auditor, "enabled", true);
+        ReflectionTestUtils.setField(auditor, "intervalMs", 60000L);
+        ReflectionTestUtils.setField(auditor, "sampleSize", 50);
+        ReflectionTestUtils.setField(auditor, "recheckDelayMs", 0L);
+    }
+
+    private NearCacheProperties.Spec spec(String keyPrefix) {
+        NearCacheProperties.Spec spec = new NearCacheProperties.Spec();
+        spec.setKeyPrefix(keyPrefix);
+        return spec;
+    }
+
+    private CacheConsistencyAuditor.Target target(String cacheName) {
+        return auditor.targets().stream().filter(t -> t.cacheName().equals(cacheName)).findFirst().orElseThrow();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void sampled(String cacheName, List<String> keys) {
+        when(stringRedisTemplate.execute(any(RedisScript.class), eq(List.of("cache:audit:cursor:" + cacheName)),
+                any(Object[].class))).thenReturn(keys);
+        when(cacheManager.getCache(cacheName)).thenReturn(cache);
+        when(cache.getNativeCache()).thenReturn(store);
+    }
+
+    private Balance balance(String accountId, String available) {
+        return Balance.builder().accountId(accountId).availableBalance(new BigDecimal(available))
+                .holdBalance(BigDecimal.ZERO).build();
+    }
+
+    @Test
+    void audit_StaleBalanceStillDifferentOnRecheck_EvictedAndCounted() {
+        sampled(CacheConfig.BALANCE_CACHE, List.of("BALANCE:1", "BALANCE:2"));
+        when(store.read("BALANCE:1")).thenReturn(balance("1", "100.00"));
+        when(store.read("BALANCE:2")).thenReturn(balance("2", "50"));
+        // Cùng số tiền khác scale vẫn là khớp
+        when(balanceRepository.findAllById(anyList())).thenReturn(List.of(balance("1", "100"), balance("2", "80")));
+
+        auditor.audit(target(CacheConfig.BALANCE_CACHE));
+
+        verify(cacheInvalidator).evict(CacheConfig.BALANCE_CACHE, List.of("2"));
+        assertEquals(2, meterRegistry.counter("cache.audit.checked", "cache", "balance").count());
+        assertEquals(1, meterRegistry.counter("cache.audit.divergent", "cache", "balance").count());
+    }
+
+    @Test
+    void audit_DivergenceGoneOnRecheck_NothingEvicted() {
+        sampled(CacheConfig.BALANCE_CACHE, List.of("BALANCE:1"));
+        when(store.read("BALANCE:1")).thenReturn(balance("1", "50"));
+        // Lần ghi cache sau commit chưa tới ở lần đọc đầu
+        when(balanceRepository.findAllById(anyList()))
+                .thenReturn(List.of(balance("1", "80")))
+                .thenReturn(List.of(balance("1", "50")));
+
+        auditor.audit(target(CacheConfig.BALANCE_CACHE));
+
+        verifyNoInteractions(cacheInvalidator);
+        assertEquals(0, meterRegistry.counter("cache.audit.divergent", "cache", "balance").count());
+    }
+
+    @Test
+    void audit_NegativeAndEmptyEntries_ComparedWithMissingRows() {
+        sampled(CacheConfig.CARDS_CACHE, List.of("CARDS:ACCOUNT:1", "CARDS:ACCOUNT:2", "CARDS:ACCOUNT:3"));
+        Card card = Card.builder().cardId(7L).accountId("2").status("ACTIVE").build();
+        when(store.read("CARDS:ACCOUNT:1")).thenReturn(List.of());
+        when(store.read("CARDS:ACCOUNT:2")).thenReturn(List.of());
+        when(store.read("CARDS:ACCOUNT:3")).thenReturn(NullValue.INSTANCE);
+        when(cardRepository.findByAccountIdIn(anyList())).thenReturn(List.of(card));
+
+        auditor.audit(target(CacheConfig.CARDS_CACHE));
+
+        // Tài khoản 1 không có thẻ: khớp danh sách rỗng; tài khoản 2 thiếu thẻ mới trong cache
+        verify(cacheInvalidator).evict(CacheConfig.CARDS_CACHE, List.of("2"));
+    }
+
+    @Test
+    void audit_AnotherInstanceHoldsLock_Skipped() {
+        when(stringRedisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.setIfAbsent("cache:audit:lock", "1", Duration.ofMillis(60000))).thenReturn(false);
+
+        auditor.audit();
+
+        verifyNoInteractions(balanceRepository, accountRepository, cardRepository, cacheInvalidator);
+        verify(stringRedisTemplate, never()).execute(any(RedisScript.class), anyList(), any(Object[].class));
+    }
+}
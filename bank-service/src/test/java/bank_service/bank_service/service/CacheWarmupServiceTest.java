@@ -0,0 +1,87 @@
+package bank_service.bank_service.service;
+
+import bank_service.bank_service.repository.TransactionRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CacheWarmupServiceTest {
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    @Mock
+    private BalanceService balanceService;
+
+    @Mock
+    private CardService cardService;
+
+    @Mock
+    private CategoryService categoryService;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private CacheWarmupService service;
+
+    private CacheWarmupService service(Executor executor) {
+        CacheWarmupService service = new CacheWarmupService(transactionRepository, balanceService, cardService,
+                categoryService, executor, meterRegistry);
+        ReflectionTestUtils.setField(service, "enabled", true);
+        ReflectionTestUtils.setField(service, "parallelism", 2);
+        ReflectionTestUtils.setField(service, "startupAccounts", 100);
+        ReflectionTestUtils.setField(service, "startupWindow", Duration.ofDays(7));
+        return service;
+    }
+
+    @BeforeEach
+    void setUp() {
+        service = service(Runnable::run);
+    }
+
+    @Test
+    void warmUpOnStartup_LoadsDashboardCachesOfRecentAccounts() {
+        when(transactionRepository.findRecentlyActiveAccountIds(any(), eq(100))).thenReturn(List.of("acc1", "acc2", "acc3"));
+
+        service.warmUpOnStartup();
+
+        verify(balanceService).getBalance("acc1");
+        verify(cardService).getCardsByAccountId("acc2");
+        verify(categoryService).getCategoryByAccountId("acc3");
+        assertEquals(3, meterRegistry.counter("cache.warmup.accounts", "trigger", "startup").count());
+    }
+
+    @Test
+    void warmUpOnStartup_OneAccountFails_OthersStillWarmed() {
+        when(transactionRepository.findRecentlyActiveAccountIds(any(), eq(100))).thenReturn(List.of("acc1", "acc2"));
+        when(balanceService.getBalance("acc1")).thenThrow(new IllegalStateException("db down"));
+
+        service.warmUpOnStartup();
+
+        verify(balanceService).getBalance("acc2");
+        verify(categoryService).getCategoryByAccountId("acc2");
+    }
+
+    @Test
+    void prefetch_QueueFull_DroppedWithoutThrowing() {
+        service = service(task -> { throw new TaskRejectedException("full"); });
+
+        service.prefetch("acc1");
+
+        verifyNoInteractions(balanceService, cardService, categoryService);
+        assertEquals(1, meterRegistry.counter("cache.warmup.dropped").count());
+    }
+}
@@ -0,0 +1,104 @@
+package bank_service.bank_service.service;
+
+import bank_service.bank_service.dto.CardFullInfoDTO;
+import bank_service.bank_service.repository.CardRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CardViewIndexTest {
+
+    @Mock
+    private RedisTemplate<String, byte[]> binaryRedisTemplate;
+
+    @Mock
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Mock
+    private CardRepository cardRepository;
+
+    @Mock
+    private HashOperations<String, Object, Object> hashOperations;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private CardViewIndex cardViewIndex;
+
+    @BeforeEach
+    void setUp() {
+        // StringRedisTemplate cũng là RedisTemplate: tạo trực tiếp để không bị inject nhầm mock
+        meterRegistry = new SimpleMeterRegistry();
+        cardViewIndex = new CardViewIndex(binaryRedisTemplate, stringRedisTemplate, cardRepository, meterRegistry);
+    }
+
+    private CardFullInfoDTO card(long id) {
+        return new CardFullInfoDTO(id, "acc1", "John", "john@example.com", "0912", "VISA",
+                LocalDate.now().plusYears(5), "active", BigDecimal.TEN, BigDecimal.ZERO);
+    }
+
+    @Test
+    void findAll_NotReady_ReturnsEmptyWithoutReadingView() {
+        when(stringRedisTemplate.hasKey(CardViewIndex.READY_KEY)).thenReturn(false);
+
+        assertTrue(cardViewIndex.findAll().isEmpty());
+        assertEquals(Optional.of(card(1)), cardViewIndex.find(1L, () -> Optional.of(card(1))));
+        verifyNoInteractions(binaryRedisTemplate);
+        assertEquals(1, meterRegistry.counter("card.view.gets", "result", "fallback").count());
+    }
+
+    @Test
+    void find_ReadyAndMissing_IsNegativeWithoutFallback() {
+        when(stringRedisTemplate.hasKey(CardViewIndex.READY_KEY)).thenReturn(true);
+        when(binaryRedisTemplate.opsForHash()).thenReturn(hashOperations);
+        when(hashOperations.get(CardViewIndex.HASH_KEY, "404")).thenReturn(null);
+
+        assertTrue(cardViewIndex.find(404L, () -> fail("view sẵn sàng thì không đọc DB")).isEmpty());
+        assertEquals(1, meterRegistry.counter("card.view.gets", "result", "negative").count());
+    }
+
+    @Test
+    void refreshAccount_ReplacesOnlyThatAccountsCards() {
+        when(cardRepository.findFullInfoByAccountId("acc1")).thenReturn(List.of(card(1), card(2)));
+
+        cardViewIndex.refreshAccount("acc1");
+
+        ArgumentCaptor<Object[]> args = ArgumentCaptor.forClass(Object[].class);
+        verify(binaryRedisTemplate).execute(any(RedisScript.class), any(RedisSerializer.class), any(RedisSerializer.class),
+                eq(List.of(CardViewIndex.HASH_KEY, "cards:view:account:acc1")), args.capture());
+        // cardId, dto cho từng thẻ
+        assertEquals(4, args.getValue().length);
+        verify(cardRepository, never()).findFullInfo(any());
+    }
+
+    @Test
+    void refreshAccount_RedisError_MarksStale() {
+        when(cardRepository.findFullInfoByAccountId("acc1")).thenReturn(List.of(card(1)));
+        when(binaryRedisTemplate.execute(any(RedisScript.class), any(RedisSerializer.class), any(RedisSerializer.class),
+                anyList(), any(Object[].class)))
+                .thenThrow(new QueryTimeoutException("timeout"));
+
+        cardViewIndex.refreshAccount("acc1");
+
+        verify(stringRedisTemplate).delete(CardViewIndex.READY_KEY);
+    }
+}
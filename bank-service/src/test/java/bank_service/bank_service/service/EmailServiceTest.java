@@ -0,0 +1,160 @@
+package bank_service.bank_service.service;
+
+import bank_service.bank_service.event.VerificationEmailEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.mail.Session;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.event.TransactionalEventListenerFactory;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class EmailServiceTest {
+
+    @Mock
+    private JavaMailSender mailSender;
+
+    @Mock
+    private TaskScheduler taskScheduler;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final VerificationEmailEvent event =
+            new VerificationEmailEvent("tx1", "user@example.com", "Xác nhận giao dịch", "123456");
+
+    private EmailService emailService;
+    private AnnotationConfigApplicationContext context;
+
+    @BeforeEach
+    void setUp() {
+        // Executor chạy ngay trên thread gọi để kiểm tra đồng bộ
+        emailService = new EmailService(mailSender, Runnable::run, taskScheduler, meterRegistry);
+        ReflectionTestUtils.setField(emailService, "maxAttempts", 3);
+        ReflectionTestUtils.setField(emailService, "backoffMs", 100L);
+        lenient().when(mailSender.createMimeMessage()).thenAnswer(inv -> new MimeMessage((Session) null));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        TransactionSynchronizationManager.setActualTransactionActive(false);
+        if (context != null) {
+            context.close();
+        }
+    }
+
+    private void publishInTransaction(int completionStatus) {
+        context = new AnnotationConfigApplicationContext();
+        context.registerBean(TransactionalEventListenerFactory.class);
+        context.registerBean(EmailService.class, () -> emailService);
+        context.refresh();
+
+        TransactionSynchronizationManager.initSynchronization();
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        context.publishEvent(event);
+        // Chưa commit: chưa gửi gì
+        verifyNoInteractions(mailSender);
+
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        if (completionStatus == TransactionSynchronization.STATUS_COMMITTED) {
+            TransactionSynchronizationUtils.invokeAfterCommit(synchronizations);
+        }
+        TransactionSynchronizationUtils.invokeAfterCompletion(synchronizations, completionStatus);
+    }
+
+    @Test
+    void onVerificationEmailRequested_SentOnlyAfterCommit() {
+        publishInTransaction(TransactionSynchronization.STATUS_COMMITTED);
+
+        verify(mailSender, times(1)).send(any(MimeMessage.class));
+        assertEquals(1, meterRegistry.counter("mail.otp.sent").count());
+    }
+
+    @Test
+    void onVerificationEmailRequested_RolledBack_NothingSent() {
+        publishInTransaction(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        verify(mailSender, never()).send(any(MimeMessage.class));
+    }
+
+    @Test
+    void onVerificationEmailRequested_SendFails_RetryScheduledWithoutBlocking() {
+        doThrow(new MailSendException("smtp down")).doNothing().when(mailSender).send(any(MimeMessage.class));
+        Instant before = Instant.now();
+
+        emailService.onVerificationEmailRequested(event);
+
+        ArgumentCaptor<Runnable> retry = ArgumentCaptor.forClass(Runnable.class);
+        ArgumentCaptor<Instant> at = ArgumentCaptor.forClass(Instant.class);
+        verify(taskScheduler).schedule(retry.capture(), at.capture());
+        assertFalse(at.getValue().isBefore(before.plusMillis(100)));
+        verify(mailSender, times(1)).send(any(MimeMessage.class));
+
+        retry.getValue().run();
+
+        verify(mailSender, times(2)).send(any(MimeMessage.class));
+        assertEquals(1, meterRegistry.counter("mail.otp.retries").count());
+        assertEquals(1, meterRegistry.counter("mail.otp.sent").count());
+    }
+
+    @Test
+    void onVerificationEmailRequested_AlwaysFails_BackoffDoublesThenGivesUp() {
+        doThrow(new MailSendException("smtp down")).when(mailSender).send(any(MimeMessage.class));
+        ArgumentCaptor<Runnable> retry = ArgumentCaptor.forClass(Runnable.class);
+        ArgumentCaptor<Instant> at = ArgumentCaptor.forClass(Instant.class);
+
+        Instant first = Instant.now();
+        emailService.onVerificationEmailRequested(event);
+        verify(taskScheduler).schedule(retry.capture(), at.capture());
+        Duration firstDelay = Duration.between(first, at.getValue());
+
+        Instant second = Instant.now();
+        retry.getValue().run();
+        verify(taskScheduler, times(2)).schedule(retry.capture(), at.capture());
+        Duration secondDelay = Duration.between(second, at.getValue());
+
+        retry.getValue().run();
+
+        assertTrue(firstDelay.toMillis() >= 100 && firstDelay.toMillis() < 200);
+        assertTrue(secondDelay.toMillis() >= 200 && secondDelay.toMillis() < 300);
+        // Lần thứ 3 lỗi: không hẹn thêm
+        verify(taskScheduler, times(2)).schedule(any(Runnable.class), any(Instant.class));
+        verify(mailSender, times(3)).send(any(MimeMessage.class));
+        assertEquals(1, meterRegistry.counter("mail.otp.failed").count());
+    }
+
+    @Test
+    void onVerificationEmailRequested_QueueFull_RejectedWithoutSendingOnCaller() {
+        emailService = new EmailService(mailSender, task -> {
+            throw new TaskRejectedException("queue full");
+        }, taskScheduler, meterRegistry);
+
+        assertDoesNotThrow(() -> emailService.onVerificationEmailRequested(event));
+
+        verifyNoInteractions(mailSender, taskScheduler);
+        assertEquals(1, meterRegistry.counter("mail.otp.rejected").count());
+    }
+}
@@ -0,0 +1,118 @@
+package bank_service.bank_service.service;
+
+import com.github.fppt.jedismock.RedisServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.io.IOException;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Chạy Lua thật trên jedis-mock: kết quả verify và cách đếm attempts nằm trong script, không mock được.
+ */
+class OtpChallengeStoreTest {
+
+    private static RedisServer redis;
+    private static LettuceConnectionFactory connectionFactory;
+    private static StringRedisTemplate stringRedisTemplate;
+
+    private OtpChallengeStore store;
+
+    @BeforeAll
+    static void startRedis() throws IOException {
+        redis = RedisServer.newRedisServer();
+        redis.start();
+        connectionFactory = new LettuceConnectionFactory(
+                new RedisStandaloneConfiguration(redis.getHost(), redis.getBindPort()));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        stringRedisTemplate = new StringRedisTemplate(connectionFactory);
+    }
+
+    @AfterAll
+    static void stopRedis() throws IOException {
+        connectionFactory.destroy();
+        redis.stop();
+    }
+
+    @BeforeEach
+    void setUp() {
+        stringRedisTemplate.execute(connection -> {
+            connection.serverCommands().flushAll();
+            return null;
+        }, true);
+        store = new OtpChallengeStore(stringRedisTemplate);
+    }
+
+    private OtpChallengeStore.VerifyResult verify(String code) {
+        return store.verify("tx1", code);
+    }
+
+    @Test
+    void create_WritesHashedCodeAndTtlTogether() {
+        store.create("tx1", "123456", Duration.ofMinutes(5));
+
+        assertEquals("0", stringRedisTemplate.opsForHash().get("OTP:tx1", "attempts"));
+        String stored = (String) stringRedisTemplate.opsForHash().get("OTP:tx1", "code");
+        assertNotNull(stored);
+        assertNotEquals("123456", stored);
+        Long ttl = stringRedisTemplate.getExpire("OTP:tx1");
+        assertTrue(ttl > 0 && ttl <= 300);
+    }
+
+    @Test
+    void verify_CorrectCode_MatchedAndDeleted() {
+        store.create("tx1", "123456", Duration.ofMinutes(5));
+
+        assertEquals(new OtpChallengeStore.VerifyResult(OtpChallengeStore.Outcome.MATCHED, 0), verify("123456"));
+        assertFalse(stringRedisTemplate.hasKey("OTP:tx1"));
+    }
+
+    @Test
+    void verify_WrongCode_InvalidAndAttemptCounted() {
+        store.create("tx1", "123456", Duration.ofMinutes(5));
+
+        assertEquals(new OtpChallengeStore.VerifyResult(OtpChallengeStore.Outcome.INVALID, 1), verify("000000"));
+        assertEquals(new OtpChallengeStore.VerifyResult(OtpChallengeStore.Outcome.INVALID, 2), verify(null));
+        assertEquals("2", stringRedisTemplate.opsForHash().get("OTP:tx1", "attempts"));
+        // Còn lượt: mã đúng vẫn qua, kèm số lần đã sai
+        assertEquals(new OtpChallengeStore.VerifyResult(OtpChallengeStore.Outcome.MATCHED, 2), verify("123456"));
+    }
+
+    @Test
+    void verify_MaxAttemptsReached_LockedAndDeleted() {
+        store.create("tx1", "123456", Duration.ofMinutes(5));
+        verify("000000");
+        verify("000000");
+
+        assertEquals(new OtpChallengeStore.VerifyResult(OtpChallengeStore.Outcome.LOCKED, OtpChallengeStore.MAX_ATTEMPTS),
+                verify("000000"));
+        assertFalse(stringRedisTemplate.hasKey("OTP:tx1"));
+        // Đã khóa thì mã đúng cũng không còn gì để so
+        assertEquals(OtpChallengeStore.Outcome.MISSING, verify("123456").outcome());
+    }
+
+    @Test
+    void verify_NoChallenge_Missing() {
+        assertEquals(new OtpChallengeStore.VerifyResult(OtpChallengeStore.Outcome.MISSING, 0), verify("123456"));
+    }
+
+    @Test
+    void create_AgainAfterWrongAttempts_ResetsAttempts() {
+        store.create("tx1", "123456", Duration.ofMinutes(5));
+        verify("000000");
+        verify("000000");
+
+        store.create("tx1", "654321", Duration.ofMinutes(5));
+
+        assertEquals(new OtpChallengeStore.VerifyResult(OtpChallengeStore.Outcome.INVALID, 1), verify("123456"));
+        assertEquals(new OtpChallengeStore.VerifyResult(OtpChallengeStore.Outcome.MATCHED, 1), verify("654321"));
+    }
+}
@@ -0,0 +1,113 @@
+package bank_service.bank_service.service;
+
+import bank_service.bank_service.dto.PaymentBatchResult;
+import bank_service.bank_service.dto.PaymentRequest;
+import bank_service.bank_service.model.OutboxStatus;
+import bank_service.bank_service.model.PaymentOutbox;
+import bank_service.bank_service.repository.PaymentOutboxRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PaymentOutboxRelayTest {
+
+    @Mock
+    private PaymentOutboxRepository paymentOutboxRepository;
+
+    @Mock
+    private PaymentClient paymentClient;
+
+    @Mock
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    private PaymentOutboxRelay relay;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        relay = new PaymentOutboxRelay(paymentOutboxRepository, paymentClient, stringRedisTemplate,
+                transactionTemplate, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(relay, "batchSize", 2);
+        ReflectionTestUtils.setField(relay, "maxScanPages", 10);
+        ReflectionTestUtils.setField(relay, "maxBackoffSeconds", 300L);
+        relay.registerMetrics();
+        lenient().doAnswer(inv -> {
+            ((Consumer<Object>) inv.getArgument(0)).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+    }
+
+    private PaymentOutbox entry(long id, String from, LocalDateTime nextAttemptAt) {
+        return PaymentOutbox.builder()
+                .id(id)
+                .paymentId("p" + id)
+                .fromAccountId(from)
+                .toAccountId("to" + id)
+                .amount(BigDecimal.ONE)
+                .status(OutboxStatus.PENDING)
+                .nextAttemptAt(nextAttemptAt)
+                .build();
+    }
+
+    private void page(long afterId, PaymentOutbox... rows) {
+        when(paymentOutboxRepository.findByStatusAndIdGreaterThanOrderByIdAsc(eq(OutboxStatus.PENDING), eq(afterId),
+                any(Pageable.class))).thenReturn(List.of(rows));
+    }
+
+    @Test
+    void relayBatch_PartialFailure_MarksOnlySentAndBacksOffFailedEntry() {
+        PaymentOutbox first = entry(1, "acc1", null);
+        PaymentOutbox second = entry(2, "acc2", null);
+        page(0, first, second);
+        when(paymentClient.createPayments(any()))
+                .thenReturn(new PaymentBatchResult(List.of("p1"), "p2", "broker unavailable"));
+
+        assertFalse(relay.relayBatch());
+
+        verify(paymentOutboxRepository).markSent(eq(List.of(1L)), eq(OutboxStatus.SENT), any());
+        assertEquals(0, first.getAttempts());
+        assertEquals(1, second.getAttempts());
+        assertNotNull(second.getNextAttemptAt());
+        verify(paymentOutboxRepository).saveAll(List.of(second));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void relayBatch_HeadPageInBackoff_SendsLaterEntriesOfOtherAccounts() {
+        LocalDateTime later = LocalDateTime.now().plusMinutes(1);
+        page(0, entry(1, "acc1", later), entry(2, "acc2", later));
+        // acc1 đang backoff nên bản ghi 3 bị giữ lại để giữ thứ tự
+        page(2, entry(3, "acc1", null), entry(4, "acc3", null));
+        page(4, entry(5, "acc4", null));
+        when(paymentClient.createPayments(any()))
+                .thenReturn(new PaymentBatchResult(List.of("p4", "p5"), null, null));
+
+        assertTrue(relay.relayBatch());
+
+        ArgumentCaptor<List<PaymentRequest>> sent = ArgumentCaptor.forClass(List.class);
+        verify(paymentClient).createPayments(sent.capture());
+        assertEquals(List.of("p4", "p5"), sent.getValue().stream().map(PaymentRequest::getPaymentId).toList());
+        verify(paymentOutboxRepository).markSent(eq(List.of(4L, 5L)), eq(OutboxStatus.SENT), any());
+    }
+}
@@ -0,0 +1,174 @@
+package bank_service.bank_service.service;
+
+import bank_service.bank_service.model.TransactionStatus;
+import bank_service.bank_service.repository.TransactionRepository;
+import bank_service.bank_service.repository.TransferBatchRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PendingTransactionSweeperTest {
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    @Mock
+    private TransferBatchRepository transferBatchRepository;
+
+    @Mock
+    private BalanceHoldService balanceHoldService;
+
+    @Mock
+    private BalanceService balanceService;
+
+    @Mock
+    private OtpChallengeStore otpChallengeStore;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @InjectMocks
+    private PendingTransactionSweeper sweeper;
+
+    private boolean inTransaction;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(sweeper, "chunkSize", 500);
+        ReflectionTestUtils.setField(sweeper, "maxChunksPerRun", 20);
+        when(transactionTemplate.execute(any())).thenAnswer(inv -> {
+            inTransaction = true;
+            try {
+                return inv.<TransactionCallback<?>>getArgument(0).doInTransaction(null);
+            } finally {
+                inTransaction = false;
+            }
+        });
+    }
+
+    private Object[] row(String id, String accountId, String batchId) {
+        return new Object[]{id, accountId, batchId};
+    }
+
+    private void claim(Object[]... rows) {
+        when(transactionRepository.claimExpiredPending(any(), eq(500))).thenReturn(List.of(rows));
+    }
+
+    @Test
+    void sweepExpired_ExpiredRows_HoldsReleasedOnceAndMarkedExpired() {
+        claim(row("tx1", "acc1", null), row("tx2", "acc1", null), row("tx3", "acc2", null));
+        when(transactionRepository.updateStatusByIds(List.of("tx1", "tx2", "tx3"),
+                TransactionStatus.PENDING, TransactionStatus.EXPIRED)).thenReturn(3);
+        LocalDateTime before = LocalDateTime.now();
+
+        sweeper.sweepExpired();
+
+        // Chỉ những dòng câu claim (PENDING, expired_at < now) trả về mới bị xử lý
+        ArgumentCaptor<LocalDateTime> now = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(transactionRepository, times(1)).claimExpiredPending(now.capture(), eq(500));
+        assertFalse(now.getValue().isBefore(before));
+        verify(balanceHoldService, times(1)).releaseHolds(List.of("tx1", "tx2", "tx3"));
+        verifyNoMoreInteractions(balanceHoldService);
+        verify(otpChallengeStore).delete("tx1");
+        verify(otpChallengeStore).delete("tx2");
+        verify(otpChallengeStore).delete("tx3");
+        verify(balanceService).invalidateCache(Set.of("acc1", "acc2"));
+        verifyNoInteractions(transferBatchRepository);
+    }
+
+    @Test
+    void sweepExpired_NothingExpired_NoWrites() {
+        claim();
+
+        sweeper.sweepExpired();
+
+        verifyNoInteractions(balanceHoldService, transferBatchRepository, otpChallengeStore);
+        verify(transactionRepository, never()).updateStatusByIds(any(), any(), any());
+    }
+
+    @Test
+    void sweepExpired_FullChunk_NextChunkReleasesOnlyItsOwnRows() {
+        ReflectionTestUtils.setField(sweeper, "chunkSize", 2);
+        when(transactionRepository.claimExpiredPending(any(), eq(2)))
+                .thenReturn(List.of(row("tx1", "acc1", null), row("tx2", "acc2", null)))
+                .thenReturn(List.<Object[]>of(row("tx3", "acc1", null)));
+        when(transactionRepository.updateStatusByIds(any(), eq(TransactionStatus.PENDING), eq(TransactionStatus.EXPIRED)))
+                .thenReturn(2, 1);
+
+        sweeper.sweepExpired();
+
+        verify(transactionRepository, times(2)).claimExpiredPending(any(), anyInt());
+        verify(balanceHoldService, times(1)).releaseHolds(List.of("tx1", "tx2"));
+        verify(balanceHoldService, times(1)).releaseHolds(List.of("tx3"));
+        verify(balanceService).invalidateCache(Set.of("acc1", "acc2"));
+        verify(balanceService).invalidateCache(Set.of("acc1"));
+    }
+
+    @Test
+    void sweepExpired_BatchLines_BatchExpiredInSameTransaction() {
+        claim(row("line1", "acc1", "batch1"), row("line2", "acc1", "batch1"), row("tx1", "acc2", null));
+        when(transactionRepository.updateStatusByIds(any(), eq(TransactionStatus.PENDING), eq(TransactionStatus.EXPIRED)))
+                .thenReturn(3);
+        when(transferBatchRepository.expirePendingByIds(eq(Set.of("batch1")), any())).thenAnswer(inv -> {
+            assertTrue(inTransaction);
+            return 1;
+        });
+
+        sweeper.sweepExpired();
+
+        verify(transactionTemplate, times(1)).execute(any());
+        verify(transferBatchRepository).expirePendingByIds(eq(Set.of("batch1")), any());
+        verify(balanceHoldService).releaseHolds(List.of("line1", "line2", "tx1"));
+        // OTP của lô lưu theo batchId
+        verify(otpChallengeStore).delete("batch1");
+    }
+
+    @Test
+    void sweepExpired_OtpAndCacheCleanedOnlyAfterCommit() {
+        claim(row("tx1", "acc1", null));
+        when(transactionRepository.updateStatusByIds(any(), any(), any())).thenReturn(1);
+        doAnswer(inv -> {
+            assertFalse(inTransaction);
+            return null;
+        }).when(otpChallengeStore).delete(any());
+        doAnswer(inv -> {
+            assertFalse(inTransaction);
+            return null;
+        }).when(balanceService).invalidateCache(anyCollection());
+
+        sweeper.sweepExpired();
+
+        verify(otpChallengeStore).delete("tx1");
+        verify(balanceService).invalidateCache(Set.of("acc1"));
+    }
+
+    @Test
+    void sweepExpired_TransactionFails_OtpAndCacheUntouched() {
+        claim(row("tx1", "acc1", null));
+        when(transactionRepository.updateStatusByIds(any(), any(), any()))
+                .thenThrow(new QueryTimeoutException("lock wait timeout"));
+
+        assertThrows(QueryTimeoutException.class, () -> sweeper.sweepExpired());
+
+        verifyNoInteractions(otpChallengeStore, balanceService);
+    }
+}
@@ -0,0 +1,173 @@
+package bank_service.bank_service.service;
+
+import bank_service.bank_service.exception.AppException;
+import bank_service.bank_service.model.StandingOrder;
+import bank_service.bank_service.model.StandingOrderFrequency;
+import bank_service.bank_service.model.StandingOrderStatus;
+import bank_service.bank_service.repository.AccountRepository;
+import bank_service.bank_service.repository.StandingOrderRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class StandingOrderSchedulerTest {
+
+    private final StandingOrderRepository standingOrderRepository = mock(StandingOrderRepository.class);
+    private final TransactionService transactionService = mock(TransactionService.class);
+    private final TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+
+    @SuppressWarnings("unchecked")
+    private StandingOrderScheduler scheduler() {
+        StandingOrderScheduler scheduler = new StandingOrderScheduler(standingOrderRepository, transactionService,
+                transactionTemplate, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(scheduler, "tickMs", 1000L);
+        ReflectionTestUtils.setField(scheduler, "wheelSize", 8);
+        scheduler.init();
+        doAnswer(inv -> {
+            ((Consumer<Object>) inv.getArgument(0)).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+        return scheduler;
+    }
+
+    // Lệnh đã được instance này nhận (claim) và đang chờ chạy
+    private StandingOrder claimedBy(StandingOrderScheduler scheduler) {
+        StandingOrder order = order(StandingOrderFrequency.DAILY, LocalDateTime.now().minusMinutes(1), null);
+        order.setFromAccountId("acc1");
+        order.setToAccountId("acc2");
+        order.setAmount(BigDecimal.TEN);
+        order.setClaimedBy((String) ReflectionTestUtils.getField(scheduler, "instanceId"));
+        when(standingOrderRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(order));
+        when(standingOrderRepository.findById(1L)).thenReturn(Optional.of(order));
+        when(standingOrderRepository.save(any())).thenAnswer(inv -> inv.getArgument(0));
+        return order;
+    }
+
+    @Test
+    void execute_CancelledAfterClaim_NoTransferAndStaysCancelled() {
+        StandingOrderScheduler scheduler = scheduler();
+        StandingOrder order = claimedBy(scheduler);
+        StandingOrderService service = new StandingOrderService(standingOrderRepository, mock(AccountRepository.class), scheduler);
+
+        service.cancelStandingOrder(1L, "acc1");
+        scheduler.execute(1L);
+
+        verifyNoInteractions(transactionService);
+        verify(standingOrderRepository, times(1)).save(order);
+        assertEquals(StandingOrderStatus.CANCELLED, order.getStatus());
+        assertNull(order.getNextRunAt());
+        assertNull(order.getClaimedBy());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void execute_TransferFailsThenCancelled_FailureNotWrittenBack() {
+        StandingOrderScheduler scheduler = scheduler();
+        StandingOrder order = claimedBy(scheduler);
+        StandingOrderService service = new StandingOrderService(standingOrderRepository, mock(AccountRepository.class), scheduler);
+        // Người dùng hủy ngay sau khi lần chuyển khoản thất bại rollback
+        when(transactionService.createPreAuthorizedTransaction(any(), any(), any(), any(), any(), any()))
+                .thenThrow(new AppException("Insufficient balance"));
+        doAnswer(inv -> {
+            ((Consumer<Object>) inv.getArgument(0)).accept(null);
+            return null;
+        }).doAnswer(inv -> {
+            service.cancelStandingOrder(1L, "acc1");
+            ((Consumer<Object>) inv.getArgument(0)).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+
+        scheduler.execute(1L);
+
+        assertEquals(StandingOrderStatus.CANCELLED, order.getStatus());
+        assertEquals(0, order.getFailureCount());
+        assertNull(order.getNextRunAt());
+    }
+
+    private StandingOrder order(StandingOrderFrequency frequency, LocalDateTime startAt, LocalDateTime endAt) {
+        return StandingOrder.builder()
+                .id(1L)
+                .frequency(frequency)
+                .status(StandingOrderStatus.ACTIVE)
+                .startAt(startAt)
+                .endAt(endAt)
+                .nextRunAt(startAt)
+                .claimedBy("me")
+                .build();
+    }
+
+    @Test
+    void advance_Monthly_KeepsDayOfMonthFromStart() {
+        LocalDateTime start = LocalDateTime.of(2025, 1, 31, 9, 0);
+        StandingOrder order = order(StandingOrderFrequency.MONTHLY, start, null);
+
+        StandingOrderScheduler.advance(order, start.plusMinutes(1));
+        assertEquals(LocalDateTime.of(2025, 2, 28, 9, 0), order.getNextRunAt());
+
+        StandingOrderScheduler.advance(order, order.getNextRunAt().plusMinutes(1));
+        assertEquals(LocalDateTime.of(2025, 3, 31, 9, 0), order.getNextRunAt());
+        assertNull(order.getClaimedBy());
+    }
+
+    @Test
+    void advance_SkipsMissedOccurrences() {
+        LocalDateTime start = LocalDateTime.of(2025, 1, 1, 8, 0);
+        StandingOrder order = order(StandingOrderFrequency.DAILY, start, null);
+
+        StandingOrderScheduler.advance(order, LocalDateTime.of(2025, 1, 5, 10, 0));
+
+        assertEquals(LocalDateTime.of(2025, 1, 6, 8, 0), order.getNextRunAt());
+        assertEquals(StandingOrderStatus.ACTIVE, order.getStatus());
+    }
+
+    @Test
+    void advance_OnceAndPastEnd_Complete() {
+        LocalDateTime start = LocalDateTime.of(2025, 1, 1, 8, 0);
+        StandingOrder once = order(StandingOrderFrequency.ONCE, start, null);
+        StandingOrderScheduler.advance(once, start);
+        assertEquals(StandingOrderStatus.COMPLETED, once.getStatus());
+        assertNull(once.getNextRunAt());
+
+        StandingOrder weekly = order(StandingOrderFrequency.WEEKLY, start, start.plusDays(3));
+        StandingOrderScheduler.advance(weekly, start);
+        assertEquals(StandingOrderStatus.COMPLETED, weekly.getStatus());
+    }
+
+    @Test
+    void timingWheel_ReturnsOnlyDueKeys() {
+        TimingWheel<Long> wheel = new TimingWheel<>(1000, 8, 0);
+        wheel.schedule(1L, 2_000);
+        wheel.schedule(2L, 5_000);
+        wheel.schedule(3L, 20_000); // xa hơn một vòng
+
+        assertEquals(List.of(), wheel.advance(1_000));
+        assertEquals(List.of(1L), wheel.advance(3_000));
+        assertEquals(List.of(2L), wheel.advance(12_000));
+        assertEquals(1, wheel.size());
+        assertEquals(List.of(3L), wheel.advance(20_000));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void timingWheel_RescheduleAndCancel() {
+        TimingWheel<Long> wheel = new TimingWheel<>(1000, 8, 0);
+        wheel.schedule(1L, 2_000);
+        wheel.schedule(1L, 6_000);
+        wheel.schedule(2L, 3_000);
+        wheel.cancel(2L);
+
+        assertTrue(wheel.advance(4_000).isEmpty());
+        assertEquals(List.of(1L), wheel.advance(6_000));
+    }
+}
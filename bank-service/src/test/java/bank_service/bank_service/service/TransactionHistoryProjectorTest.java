@@ -0,0 +1,68 @@
+package bank_service.bank_service.service;
+
+import bank_service.bank_service.event.TransactionCompletedEvent;
+import bank_service.bank_service.exception.HistoryNotCaughtUpException;
+import bank_service.bank_service.model.TransactionHistory;
+import bank_service.bank_service.model.TransactionStatus;
+import bank_service.bank_service.model.TransactionType;
+import bank_service.bank_service.repository.TransactionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class TransactionHistoryProjectorTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private TransactionHistoryRecorder recorder;
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    @Mock
+    private BudgetService budgetService;
+
+    private TransactionHistoryProjector projector;
+
+    @BeforeEach
+    void setUp() {
+        projector = new TransactionHistoryProjector(jdbcTemplate, recorder, transactionRepository, budgetService);
+        ReflectionTestUtils.setField(projector, "batchSize", 200);
+        ReflectionTestUtils.setField(projector, "consistencyTimeout", Duration.ofMillis(20));
+        when(recorder.isAsync()).thenReturn(true);
+        projector.onTransactionCompleted(new TransactionCompletedEvent(TransactionHistory.builder()
+                .id("tx1")
+                .fromAccountId("acc1")
+                .toAccountId("acc2")
+                .amount(BigDecimal.TEN)
+                .transactionType(TransactionType.DEPOSIT)
+                .status(TransactionStatus.APPROVED)
+                .build()));
+    }
+
+    @Test
+    void requireCaughtUp_QueueNotFlushedInTime_ThrowsInsteadOfReadingStaleHistory() {
+        assertThrows(HistoryNotCaughtUpException.class, projector::requireCaughtUp);
+    }
+
+    @Test
+    void requireCaughtUp_AfterFlush_Returns() {
+        projector.flush();
+
+        assertDoesNotThrow(projector::requireCaughtUp);
+        assertEquals(1, projector.currentWatermark());
+    }
+}
@@ -0,0 +1,339 @@
+package bank_service.bank_service.service;
+
+import bank_service.bank_service.cache.RequestMemo;
+import bank_service.bank_service.dto.transaction.BulkDecisionResult;
+import bank_service.bank_service.exception.AppException;
+import bank_service.bank_service.exception.NotFoundException;
+import bank_service.bank_service.model.Balance;
+import bank_service.bank_service.model.Transaction;
+import bank_service.bank_service.model.TransactionStatus;
+import bank_service.bank_service.repository.AccountRepository;
+import bank_service.bank_service.repository.BalanceRepository;
+import bank_service.bank_service.repository.TransactionHistoryRepository;
+import bank_service.bank_service.repository.TransactionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TransactionServiceTest {
+
+    @Mock private TransactionRepository transactionRepository;
+    @Mock private AccountRepository accountRepository;
+    @Mock private BalanceRepository balanceRepository;
+    @Mock private ApplicationEventPublisher eventPublisher;
+    @Mock private PaymentOutboxService paymentOutboxService;
+    @Mock private AutoApprovalService autoApprovalService;
+    @Mock private OtpChallengeStore otpChallengeStore;
+    @Mock private TransactionHistoryRecorder transactionHistoryRecorder;
+    @Mock private TransactionHistoryRepository transactionHistoryRepository;
+    @Mock private BalanceService balanceService;
+    @Mock private BalanceHoldService balanceHoldService;
+    @Mock private RequestMemo requestMemo;
+
+    private TransactionService transactionService;
+
+    @BeforeEach
+    void setUp() {
+        // State machine thật trên repository mock: câu compare-and-set của dòng thuộc lô trả về 0
+        TransactionStateMachine stateMachine = new TransactionStateMachine(transactionRepository);
+        transactionService = new TransactionService(transactionRepository, accountRepository, balanceRepository,
+                eventPublisher, paymentOutboxService, autoApprovalService, otpChallengeStore, stateMachine,
+                transactionHistoryRecorder, transactionHistoryRepository,
+                balanceService, balanceHoldService, requestMemo);
+    }
+
+    private void otp(String transactionId, OtpChallengeStore.Outcome outcome, int attempts) {
+        when(otpChallengeStore.verify(eq(transactionId), any()))
+                .thenReturn(new OtpChallengeStore.VerifyResult(outcome, attempts));
+    }
+
+    // Giao dịch PENDING tạo trước khi OTP chuyển sang Redis: mã nằm trong bảng, Redis không có challenge
+    private Transaction legacyPending(int attempts) {
+        Transaction tx = Transaction.builder()
+                .id("tx1")
+                .fromAccountId("acc1")
+                .toAccountId("acc2")
+                .amount(BigDecimal.TEN)
+                .status(TransactionStatus.PENDING)
+                .verificationCode("654321")
+                .attempts(attempts)
+                .expiredAt(LocalDateTime.now().plusMinutes(5))
+                .build();
+        otp("tx1", OtpChallengeStore.Outcome.MISSING, 0);
+        when(transactionRepository.findAllForUpdate(List.of("tx1"))).thenReturn(List.of(tx));
+        return tx;
+    }
+
+    private Transaction batchLine(TransactionStatus status) {
+        return Transaction.builder()
+                .id("line1")
+                .batchId("batch1")
+                .fromAccountId("acc1")
+                .toAccountId("acc2")
+                .amount(BigDecimal.TEN)
+                .status(status)
+                .expiredAt(LocalDateTime.now().plusMinutes(5))
+                .build();
+    }
+
+    @Test
+    void verifyTransaction_BatchLine_RejectedWithoutExpiringOrReleasingHold() {
+        // OTP của lô lưu theo batchId nên id của dòng không có challenge
+        when(otpChallengeStore.verify("line1", "123456"))
+                .thenReturn(new OtpChallengeStore.VerifyResult(OtpChallengeStore.Outcome.MISSING, 0));
+        when(transactionRepository.findAllForUpdate(List.of("line1"))).thenReturn(List.of(batchLine(TransactionStatus.PENDING)));
+
+        AppException e = assertThrows(AppException.class, () -> transactionService.verifyTransaction("line1", "123456"));
+
+        assertEquals(TransactionStateMachine.BATCH_LINE_MESSAGE, e.getMessage());
+        verify(transactionRepository, never()).compareAndSetStatus(anyString(), any(), any(), any());
+        verifyNoInteractions(balanceHoldService);
+    }
+
+    @Test
+    void approveTransaction_BatchLine_RejectedWithBatchMessage() {
+        when(transactionRepository.compareAndSetStatus(eq("line1"), eq(TransactionStatus.AWAITING_APPROVAL),
+                eq(TransactionStatus.APPROVED), any())).thenReturn(0);
+        when(transactionRepository.findById("line1")).thenReturn(Optional.of(batchLine(TransactionStatus.AWAITING_APPROVAL)));
+
+        AppException e = assertThrows(AppException.class, () -> transactionService.approveTransaction("line1"));
+
+        assertEquals(TransactionStateMachine.BATCH_LINE_MESSAGE, e.getMessage());
+        verifyNoInteractions(balanceHoldService, paymentOutboxService);
+    }
+
+    @Test
+    void bulkApproveTransactions_BatchLine_SkippedAndNotSettled() {
+        when(transactionRepository.findAllForUpdate(Set.of("line1")))
+                .thenReturn(List.of(batchLine(TransactionStatus.AWAITING_APPROVAL)));
+
+        List<BulkDecisionResult> results = transactionService.bulkApproveTransactions(List.of("line1"));
+
+        assertEquals(1, results.size());
+        assertFalse(results.get(0).isSuccess());
+        assertEquals(TransactionStateMachine.BATCH_LINE_MESSAGE, results.get(0).getMessage());
+        verifyNoInteractions(balanceRepository, balanceHoldService, paymentOutboxService);
+    }
+
+    @Test
+    void verifyTransaction_WrongCodeForUnknownId_NotFound() {
+        otp("missing", OtpChallengeStore.Outcome.INVALID, 1);
+        when(transactionRepository.existsById("missing")).thenReturn(false);
+
+        assertThrows(NotFoundException.class, () -> transactionService.verifyTransaction("missing", "000000"));
+    }
+
+    @Test
+    void verifyTransaction_NoChallengeForUnknownId_NotFound() {
+        otp("missing", OtpChallengeStore.Outcome.MISSING, 0);
+        when(transactionRepository.findAllForUpdate(List.of("missing"))).thenReturn(List.of());
+
+        assertThrows(NotFoundException.class, () -> transactionService.verifyTransaction("missing", "000000"));
+        verifyNoInteractions(balanceHoldService);
+    }
+
+    @Test
+    void verifyTransaction_LegacyCodeMatches_AwaitsApprovalInsteadOfExpiring() {
+        Transaction tx = legacyPending(0);
+        when(autoApprovalService.evaluate(tx)).thenReturn(Optional.empty());
+        when(transactionRepository.compareAndSetStatus(eq("tx1"), eq(TransactionStatus.PENDING),
+                eq(TransactionStatus.AWAITING_APPROVAL), any())).thenReturn(1);
+
+        Transaction result = transactionService.verifyTransaction("tx1", "654321");
+
+        assertEquals(TransactionStatus.AWAITING_APPROVAL, result.getStatus());
+        assertNull(result.getVerificationCode());
+        verify(balanceHoldService).clearExpiry(List.of("tx1"));
+        verify(balanceHoldService, never()).releaseHolds(any());
+    }
+
+    @Test
+    void verifyTransaction_LegacyCodeWrong_CountsAttemptWithoutExpiring() {
+        Transaction tx = legacyPending(0);
+
+        Transaction result = transactionService.verifyTransaction("tx1", "000000");
+
+        assertEquals(TransactionStatus.PENDING, result.getStatus());
+        assertEquals(1, tx.getAttempts());
+        assertEquals("654321", tx.getVerificationCode());
+        verify(transactionRepository, never()).compareAndSetStatus(anyString(), any(), any(), any());
+        verifyNoInteractions(balanceHoldService);
+    }
+
+    @Test
+    void verifyTransaction_LegacyCodeWrongOnLastAttempt_LocksOutAndReleasesHold() {
+        legacyPending(OtpChallengeStore.MAX_ATTEMPTS - 1);
+        when(transactionRepository.compareAndSetStatusWithAttempts(eq("tx1"), eq(TransactionStatus.PENDING),
+                eq(TransactionStatus.FAILED), eq(OtpChallengeStore.MAX_ATTEMPTS), any())).thenReturn(1);
+
+        Transaction result = transactionService.verifyTransaction("tx1", "000000");
+
+        assertEquals(TransactionStatus.FAILED, result.getStatus());
+        verify(balanceHoldService).releaseHolds(List.of("tx1"));
+    }
+
+    private Transaction awaiting(String id, String from, String to, long amount) {
+        return Transaction.builder()
+                .id(id)
+                .fromAccountId(from)
+                .toAccountId(to)
+                .amount(BigDecimal.valueOf(amount))
+                .status(TransactionStatus.AWAITING_APPROVAL)
+                .build();
+    }
+
+    private Balance balance(String accountId, long available, long hold) {
+        return Balance.builder()
+                .accountId(accountId)
+                .availableBalance(BigDecimal.valueOf(available))
+                .holdBalance(BigDecimal.valueOf(hold))
+                .build();
+    }
+
+    // saveAll trả lại đúng các entity được ghi
+    private void echoSaveAll() {
+        when(balanceRepository.saveAll(anyCollection())).thenAnswer(inv -> new ArrayList<>(inv.<Collection<?>>getArgument(0)));
+        when(transactionRepository.saveAll(anyList())).thenAnswer(inv -> inv.getArgument(0));
+    }
+
+    @Test
+    void bulkApproveTransactions_AllAwaiting_MovesHoldToRecipientsInOneWrite() {
+        Transaction tx1 = awaiting("tx1", "acc1", "acc2", 10);
+        Transaction tx2 = awaiting("tx2", "acc1", "acc3", 20);
+        Balance sender = balance("acc1", 100, 30);
+        Balance recipient = balance("acc2", 5, 0);
+        when(transactionRepository.findAllForUpdate(Set.of("tx1", "tx2"))).thenReturn(List.of(tx1, tx2));
+        // acc3 chưa có balance: được tạo khi duyệt
+        when(balanceRepository.findAllForUpdate(Set.of("acc1", "acc2", "acc3"))).thenReturn(List.of(sender, recipient));
+        when(transactionHistoryRecorder.isAsync()).thenReturn(true);
+        echoSaveAll();
+
+        List<BulkDecisionResult> results = transactionService.bulkApproveTransactions(List.of("tx1", "tx2"));
+
+        assertTrue(results.stream().allMatch(BulkDecisionResult::isSuccess));
+        assertTrue(results.stream().allMatch(r -> r.getStatus() == TransactionStatus.APPROVED));
+        assertEquals(0, sender.getHoldBalance().compareTo(BigDecimal.ZERO));
+        assertEquals(0, sender.getAvailableBalance().compareTo(BigDecimal.valueOf(100)));
+        assertEquals(0, recipient.getAvailableBalance().compareTo(BigDecimal.valueOf(15)));
+        ArgumentCaptor<Collection<Balance>> saved = ArgumentCaptor.forClass(Collection.class);
+        verify(balanceRepository).saveAll(saved.capture());
+        Balance created = saved.getValue().stream().filter(b -> b.getAccountId().equals("acc3")).findFirst().orElseThrow();
+        assertEquals(0, created.getAvailableBalance().compareTo(BigDecimal.valueOf(20)));
+        verify(balanceHoldService).deleteHolds(List.of("tx1", "tx2"));
+        verify(paymentOutboxService).enqueueAll(List.of(tx1, tx2));
+        verify(balanceService, times(3)).refreshCache(anyString(), any(Balance.class));
+    }
+
+    @Test
+    void bulkRejectTransactions_AllAwaiting_RefundsHoldToSender() {
+        Transaction tx1 = awaiting("tx1", "acc1", "acc2", 10);
+        Balance sender = balance("acc1", 70, 10);
+        when(transactionRepository.findAllForUpdate(Set.of("tx1"))).thenReturn(List.of(tx1));
+        // Từ chối không chạm balance người nhận
+        when(balanceRepository.findAllForUpdate(Set.of("acc1"))).thenReturn(List.of(sender));
+        echoSaveAll();
+
+        List<BulkDecisionResult> results = transactionService.bulkRejectTransactions(List.of("tx1"));
+
+        assertTrue(results.get(0).isSuccess());
+        assertEquals(TransactionStatus.REJECTED, tx1.getStatus());
+        assertEquals(0, sender.getAvailableBalance().compareTo(BigDecimal.valueOf(80)));
+        assertEquals(0, sender.getHoldBalance().compareTo(BigDecimal.ZERO));
+        verify(balanceHoldService).deleteHolds(List.of("tx1"));
+        verify(transactionHistoryRecorder, never()).isAsync();
+    }
+
+    @Test
+    void bulkApproveTransactions_MixedIds_EachReportedInInputOrder() {
+        Transaction ok = awaiting("tx1", "acc1", "acc2", 10);
+        Transaction done = awaiting("tx2", "acc1", "acc2", 10);
+        done.setStatus(TransactionStatus.APPROVED);
+        // Hold của acc9 chỉ đủ cho giao dịch đứng trước trong request
+        Transaction first = awaiting("tx3", "acc9", "acc2", 5);
+        Transaction tooMuch = awaiting("tx4", "acc9", "acc2", 5);
+        when(transactionRepository.findAllForUpdate(Set.of("tx1", "tx2", "tx3", "tx4", "missing")))
+                .thenReturn(List.of(ok, done, first, tooMuch));
+        when(balanceRepository.findAllForUpdate(Set.of("acc1", "acc2", "acc9")))
+                .thenReturn(List.of(balance("acc1", 0, 10), balance("acc2", 0, 0), balance("acc9", 0, 5)));
+        when(transactionHistoryRecorder.isAsync()).thenReturn(true);
+        echoSaveAll();
+
+        List<BulkDecisionResult> results = transactionService.bulkApproveTransactions(
+                List.of("tx3", "missing", "tx2", "tx1", "tx4"));
+
+        assertEquals(List.of("tx3", "missing", "tx2", "tx1", "tx4"),
+                results.stream().map(BulkDecisionResult::getTransactionId).toList());
+        assertTrue(results.get(0).isSuccess());
+        assertEquals("Transaction not found", results.get(1).getMessage());
+        assertNull(results.get(1).getStatus());
+        assertEquals("Transaction is not awaiting approval", results.get(2).getMessage());
+        assertEquals(TransactionStatus.APPROVED, results.get(2).getStatus());
+        assertTrue(results.get(3).isSuccess());
+        assertEquals("Insufficient hold balance", results.get(4).getMessage());
+        assertEquals(TransactionStatus.AWAITING_APPROVAL, results.get(4).getStatus());
+        verify(balanceHoldService).deleteHolds(List.of("tx3", "tx1"));
+        assertEquals(TransactionStatus.AWAITING_APPROVAL, tooMuch.getStatus());
+    }
+
+    @Test
+    void bulkApproveTransactions_LocksTransactionsThenBalancesInSortedOrder() {
+        when(transactionRepository.findAllForUpdate(anyCollection())).thenReturn(List.of(
+                awaiting("a", "zed", "amy", 1), awaiting("b", "bob", "kim", 1), awaiting("c", "kim", "bob", 1)));
+        when(balanceRepository.findAllForUpdate(anyCollection())).thenReturn(List.of());
+
+        transactionService.bulkApproveTransactions(List.of("c", "a", "b", "a"));
+
+        ArgumentCaptor<Collection<String>> txIds = ArgumentCaptor.forClass(Collection.class);
+        ArgumentCaptor<Collection<String>> accountIds = ArgumentCaptor.forClass(Collection.class);
+        InOrder order = inOrder(transactionRepository, balanceRepository);
+        order.verify(transactionRepository).findAllForUpdate(txIds.capture());
+        order.verify(balanceRepository).findAllForUpdate(accountIds.capture());
+        assertEquals(List.of("a", "b", "c"), List.copyOf(txIds.getValue()));
+        assertEquals(List.of("amy", "bob", "kim", "zed"), List.copyOf(accountIds.getValue()));
+    }
+
+    @Test
+    void bulkApproveTransactions_OverMaxBulkSize_RejectedBeforeLocking() {
+        List<String> ids = IntStream.rangeClosed(1, 501).mapToObj(i -> "tx" + i).toList();
+
+        AppException e = assertThrows(AppException.class, () -> transactionService.bulkApproveTransactions(ids));
+
+        assertEquals("Too many transactions in one request (max 500)", e.getMessage());
+        verifyNoInteractions(transactionRepository, balanceRepository);
+    }
+
+    @Test
+    void bulkRejectTransactions_DuplicatesWithinMaxBulkSize_Accepted() {
+        List<String> ids = new ArrayList<>(IntStream.rangeClosed(1, 500).mapToObj(i -> "tx" + i).toList());
+        ids.add("tx1");
+        when(transactionRepository.findAllForUpdate(anyCollection())).thenReturn(List.of());
+
+        List<BulkDecisionResult> results = transactionService.bulkRejectTransactions(ids);
+
+        assertEquals(500, results.size());
+        assertTrue(results.stream().noneMatch(BulkDecisionResult::isSuccess));
+        verifyNoInteractions(balanceRepository);
+    }
+}
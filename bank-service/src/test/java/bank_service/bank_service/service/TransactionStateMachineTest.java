@@ -0,0 +1,114 @@
+package bank_service.bank_service.service;
+
+import bank_service.bank_service.model.Transaction;
+import bank_service.bank_service.model.TransactionStatus;
+import bank_service.bank_service.repository.TransactionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TransactionStateMachineTest {
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    private TransactionStateMachine stateMachine;
+
+    // Trạng thái của dòng trong DB; compareAndSetStatus chỉ cập nhật khi status đang đúng như mong đợi
+    private final AtomicReference<TransactionStatus> row = new AtomicReference<>(TransactionStatus.AWAITING_APPROVAL);
+
+    @BeforeEach
+    void setUp() {
+        stateMachine = new TransactionStateMachine(transactionRepository);
+    }
+
+    private void casOnRow() {
+        when(transactionRepository.compareAndSetStatus(eq("tx1"), any(), any(), any())).thenAnswer(inv ->
+                row.compareAndSet(inv.getArgument(1), inv.getArgument(2)) ? 1 : 0);
+    }
+
+    // Hai request cùng bắt đầu, như hai admin bấm cùng lúc
+    private boolean[] race(TransactionStatus first, TransactionStatus second) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        CompletableFuture<Boolean> a = CompletableFuture.supplyAsync(() -> {
+            await(start);
+            return stateMachine.transition("tx1", TransactionStatus.AWAITING_APPROVAL, first);
+        });
+        CompletableFuture<Boolean> b = CompletableFuture.supplyAsync(() -> {
+            await(start);
+            return stateMachine.transition("tx1", TransactionStatus.AWAITING_APPROVAL, second);
+        });
+        start.countDown();
+        return new boolean[]{a.get(), b.get()};
+    }
+
+    private void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Test
+    void transition_ApproveRacingApprove_OnlyOneWins() throws Exception {
+        casOnRow();
+
+        boolean[] won = race(TransactionStatus.APPROVED, TransactionStatus.APPROVED);
+
+        assertTrue(won[0] ^ won[1]);
+        assertEquals(TransactionStatus.APPROVED, row.get());
+        verify(transactionRepository, times(2)).compareAndSetStatus(eq("tx1"),
+                eq(TransactionStatus.AWAITING_APPROVAL), eq(TransactionStatus.APPROVED), any());
+    }
+
+    @Test
+    void transition_ApproveRacingReject_OnlyOneWinsAndStatusMatchesWinner() throws Exception {
+        casOnRow();
+
+        boolean[] won = race(TransactionStatus.APPROVED, TransactionStatus.REJECTED);
+
+        assertTrue(won[0] ^ won[1]);
+        assertEquals(won[0] ? TransactionStatus.APPROVED : TransactionStatus.REJECTED, row.get());
+    }
+
+    @Test
+    void transition_SecondCasReturnsZero_RefusedAndEntityUntouched() {
+        when(transactionRepository.compareAndSetStatus(eq("tx1"), eq(TransactionStatus.AWAITING_APPROVAL),
+                eq(TransactionStatus.APPROVED), any())).thenReturn(1, 0);
+        Transaction first = Transaction.builder().id("tx1").amount(BigDecimal.TEN)
+                .status(TransactionStatus.AWAITING_APPROVAL).build();
+        Transaction second = Transaction.builder().id("tx1").amount(BigDecimal.TEN)
+                .status(TransactionStatus.AWAITING_APPROVAL).build();
+
+        assertTrue(stateMachine.transition(first, TransactionStatus.AWAITING_APPROVAL, TransactionStatus.APPROVED));
+        assertFalse(stateMachine.transition(second, TransactionStatus.AWAITING_APPROVAL, TransactionStatus.APPROVED));
+
+        assertEquals(TransactionStatus.APPROVED, first.getStatus());
+        assertEquals(TransactionStatus.AWAITING_APPROVAL, second.getStatus());
+    }
+
+    @Test
+    void transition_IllegalTransition_RejectedWithoutTouchingDatabase() {
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> stateMachine.transition("tx1", TransactionStatus.APPROVED, TransactionStatus.REJECTED));
+
+        assertEquals("Transition APPROVED -> REJECTED is not allowed", e.getMessage());
+        assertThrows(IllegalStateException.class,
+                () -> stateMachine.transition("tx1", TransactionStatus.AWAITING_APPROVAL, TransactionStatus.EXPIRED));
+        verifyNoInteractions(transactionRepository);
+    }
+}
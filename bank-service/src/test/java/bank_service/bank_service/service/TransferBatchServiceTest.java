@@ -0,0 +1,218 @@
+package bank_service.bank_service.service;
+
+import bank_service.bank_service.dto.transaction.BatchTransferItem;
+import bank_service.bank_service.dto.transaction.BatchTransferRequest;
+import bank_service.bank_service.event.VerificationEmailEvent;
+import bank_service.bank_service.exception.AppException;
+import bank_service.bank_service.exception.NotFoundException;
+import bank_service.bank_service.model.Account;
+import bank_service.bank_service.model.Balance;
+import bank_service.bank_service.model.Transaction;
+import bank_service.bank_service.model.TransactionStatus;
+import bank_service.bank_service.model.TransferBatch;
+import bank_service.bank_service.repository.AccountRepository;
+import bank_service.bank_service.repository.BalanceRepository;
+import bank_service.bank_service.repository.TransactionRepository;
+import bank_service.bank_service.repository.TransferBatchRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TransferBatchServiceTest {
+
+    @Mock
+    private TransferBatchRepository transferBatchRepository;
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    @Mock
+    private AccountRepository accountRepository;
+
+    @Mock
+    private BalanceRepository balanceRepository;
+
+    @Mock
+    private BalanceHoldService balanceHoldService;
+
+    @Mock
+    private TransactionService transactionService;
+
+    @Mock
+    private OtpChallengeStore otpChallengeStore;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @InjectMocks
+    private TransferBatchService transferBatchService;
+
+    private Balance senderBalance;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(transferBatchService, "maxItems", 5000);
+        ReflectionTestUtils.setField(transferBatchService, "jdbcBatchSize", 500);
+        senderBalance = Balance.builder()
+                .accountId("payer")
+                .availableBalance(BigDecimal.valueOf(1000))
+                .holdBalance(BigDecimal.ZERO)
+                .build();
+    }
+
+    private BatchTransferRequest request(BatchTransferItem... items) {
+        return BatchTransferRequest.builder()
+                .categoryId("1")
+                .items(List.of(items))
+                .build();
+    }
+
+    private BatchTransferItem item(String to, long amount) {
+        return BatchTransferItem.builder().toAccountId(to).amount(BigDecimal.valueOf(amount)).build();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void submitBatch_HoldsTotalOnceAndSendsSingleOtp() {
+        when(accountRepository.findById("payer")).thenReturn(Optional.of(Account.builder().email("p@x.com").build()));
+        when(accountRepository.countByAccountIdIn(anyCollection())).thenReturn(2L);
+        when(transferBatchRepository.save(any(TransferBatch.class))).thenAnswer(inv -> {
+            TransferBatch b = inv.getArgument(0);
+            b.setId("batch1");
+            return b;
+        });
+        when(otpChallengeStore.generateCode()).thenReturn("123456");
+
+        TransferBatch batch = transferBatchService.submitBatch("payer",
+                request(item("e1", 300), item("e2", 200), item("e1", 100)));
+
+        assertEquals(0, BigDecimal.valueOf(600).compareTo(batch.getTotalAmount()));
+        assertEquals(3, batch.getItemCount());
+        assertEquals(TransactionStatus.PENDING, batch.getStatus());
+        ArgumentCaptor<Map<String, BigDecimal>> holds = ArgumentCaptor.forClass(Map.class);
+        verify(balanceHoldService, times(1)).placeHolds(eq("payer"), holds.capture(), any(), eq(500));
+        assertEquals(3, holds.getValue().size());
+        assertEquals(0, BigDecimal.valueOf(600).compareTo(
+                holds.getValue().values().stream().reduce(BigDecimal.ZERO, BigDecimal::add)));
+        verify(jdbcTemplate).batchUpdate(anyString(), anyList(), eq(500), any(ParameterizedPreparedStatementSetter.class));
+        verify(otpChallengeStore).create(eq("batch1"), eq("123456"), any());
+        verify(eventPublisher, times(1)).publishEvent(any(VerificationEmailEvent.class));
+    }
+
+    @Test
+    void submitBatch_InsufficientBalance_Throws() {
+        when(accountRepository.findById("payer")).thenReturn(Optional.of(new Account()));
+        when(accountRepository.countByAccountIdIn(anyCollection())).thenReturn(1L);
+        when(transferBatchRepository.save(any(TransferBatch.class))).thenAnswer(inv -> inv.getArgument(0));
+        doThrow(new AppException("Insufficient balance"))
+                .when(balanceHoldService).placeHolds(eq("payer"), anyMap(), any(), anyInt());
+
+        AppException ex = assertThrows(AppException.class,
+                () -> transferBatchService.submitBatch("payer", request(item("e1", 1500))));
+        assertEquals("Insufficient balance", ex.getMessage());
+        verifyNoInteractions(otpChallengeStore, eventPublisher);
+    }
+
+    @Test
+    void submitBatch_UnknownRecipient_Throws() {
+        when(accountRepository.findById("payer")).thenReturn(Optional.of(new Account()));
+        when(accountRepository.countByAccountIdIn(anyCollection())).thenReturn(1L);
+
+        assertThrows(AppException.class,
+                () -> transferBatchService.submitBatch("payer", request(item("e1", 10), item("ghost", 10))));
+        verifyNoInteractions(transferBatchRepository, balanceHoldService);
+    }
+
+    @Test
+    void submitBatch_SelfTransfer_Throws() {
+        assertThrows(AppException.class,
+                () -> transferBatchService.submitBatch("payer", request(item("payer", 10))));
+        verifyNoInteractions(accountRepository, balanceHoldService);
+    }
+
+    @Test
+    void approveBatch_RejectsSelectedLinesAndApprovesRest() {
+        when(transferBatchRepository.compareAndSetStatus(eq("batch1"),
+                eq(TransactionStatus.AWAITING_APPROVAL), eq(TransactionStatus.APPROVED), any())).thenReturn(1);
+        when(transferBatchRepository.findById("batch1")).thenReturn(Optional.of(
+                TransferBatch.builder().id("batch1").fromAccountId("payer").status(TransactionStatus.APPROVED).build()));
+        Transaction l1 = Transaction.builder().id("l1").fromAccountId("payer").toAccountId("e1")
+                .amount(BigDecimal.TEN).status(TransactionStatus.AWAITING_APPROVAL).build();
+        Transaction l2 = Transaction.builder().id("l2").fromAccountId("payer").toAccountId("e2")
+                .amount(BigDecimal.TEN).status(TransactionStatus.AWAITING_APPROVAL).build();
+        Transaction expired = Transaction.builder().id("l3").fromAccountId("payer").toAccountId("e3")
+                .amount(BigDecimal.TEN).status(TransactionStatus.EXPIRED).build();
+        when(transactionRepository.findByBatchIdForUpdate("batch1")).thenReturn(List.of(l1, l2, expired));
+        when(balanceRepository.findAllForUpdate(anyCollection())).thenReturn(List.of(senderBalance));
+
+        transferBatchService.approveBatch("batch1", List.of("l2"));
+
+        verify(transactionService).applyBulkDecision(eq(List.of(l2)), anyMap(), eq(false));
+        verify(transactionService).applyBulkDecision(eq(List.of(l1)), anyMap(), eq(true));
+    }
+
+    @Test
+    void approveBatch_NotAwaiting_Throws() {
+        when(transferBatchRepository.compareAndSetStatus(eq("batch1"), any(), any(), any())).thenReturn(0);
+        when(transferBatchRepository.existsById("batch1")).thenReturn(true);
+
+        AppException ex = assertThrows(AppException.class,
+                () -> transferBatchService.approveBatch("batch1", null));
+        assertEquals("Batch is not awaiting approval", ex.getMessage());
+        verify(transactionService, never()).applyBulkDecision(anyList(), anyMap(), anyBoolean());
+    }
+
+    @Test
+    void verifyBatch_WrongCode_ReturnsAttemptsWithoutWriting() {
+        when(otpChallengeStore.verify("batch1", "000000"))
+                .thenReturn(new OtpChallengeStore.VerifyResult(OtpChallengeStore.Outcome.INVALID, 1));
+        when(transferBatchRepository.existsById("batch1")).thenReturn(true);
+
+        TransferBatch result = transferBatchService.verifyBatch("batch1", "000000");
+
+        assertEquals(TransactionStatus.PENDING, result.getStatus());
+        assertEquals(1, result.getAttempts());
+        verify(transferBatchRepository, never()).compareAndSetStatus(any(), any(), any(), any());
+    }
+
+    @Test
+    void verifyBatch_WrongCodeForUnknownId_NotFound() {
+        when(otpChallengeStore.verify("missing", "000000"))
+                .thenReturn(new OtpChallengeStore.VerifyResult(OtpChallengeStore.Outcome.INVALID, 1));
+        when(transferBatchRepository.existsById("missing")).thenReturn(false);
+
+        assertThrows(NotFoundException.class, () -> transferBatchService.verifyBatch("missing", "000000"));
+    }
+
+    @Test
+    void verifyBatch_NoChallengeForUnknownId_NotFound() {
+        when(otpChallengeStore.verify("missing", "000000"))
+                .thenReturn(new OtpChallengeStore.VerifyResult(OtpChallengeStore.Outcome.MISSING, 0));
+        when(transferBatchRepository.findById("missing")).thenReturn(Optional.empty());
+
+        assertThrows(NotFoundException.class, () -> transferBatchService.verifyBatch("missing", "000000"));
+        verify(otpChallengeStore, never()).delete(any());
+    }
+}
@@ -1,5 +1,6 @@
 import React, { useEffect, useState } from "react";
 import { useSearchParams } from "react-router-dom";
+import { fetchAllAccounts } from "../../services/AccountService";
 import {
   Container,
   Typography,
@@ -74,16 +75,9 @@ export default function AdminFinancialReports() {
 
   // Fetch all accounts
   useEffect(() => {
-    fetch(`${BANK_SERVICE_API}/api/accounts`, {
-      headers: {
-        Authorization: `Bearer ${token}`,
-        "Content-Type": "application/json",
-      },
-    })
-      .then((res) => res.json())
-      .then((data) => {
-        // Filter only USER accounts
-        const userAccounts = data.filter((acc) => acc.role === "USER");
+    // Chỉ tài khoản USER, lọc phía server
+    fetchAllAccounts(token, { role: "USER" })
+      .then((userAccounts) => {
         setAccounts(userAccounts);
         // Nếu có accountId từ URL, sử dụng nó; nếu không, chọn account đầu tiên
         if (accountIdFromUrl && userAccounts.find(acc => acc.accountId === accountIdFromUrl)) {
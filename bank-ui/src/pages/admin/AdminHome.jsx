@@ -3,6 +3,7 @@ import AppBar from "./AppBar";
 import Sidebar from "./Sidebar";
 import "./AdminHome.css";
 import { BANK_SERVICE_API } from '../../config/api';
+import { fetchAccountPage } from '../../services/AccountService';
 
 export default function AdminHome() {
   const [sidebarOpen, setSidebarOpen] = useState(true);
@@ -18,42 +19,42 @@ export default function AdminHome() {
   const [isModalOpen, setIsModalOpen] = useState(false);
   const [error, setError] = useState("");
   const [searchTerm, setSearchTerm] = useState("");
+  const [page, setPage] = useState(0);
+  const [totalPages, setTotalPages] = useState(0);
 
   const API_BASE = `${BANK_SERVICE_API}/api/accounts`;
   const token = localStorage.getItem("token");
 
-  const fetchAccounts = () => {
+  // Tìm kiếm và phân trang phía server
+  const fetchAccounts = async (pageToLoad = page) => {
     if (!token) {
       setError("Bạn chưa đăng nhập.");
       return;
     }
 
-    fetch(API_BASE, {
-      headers: {
-        "Authorization": `Bearer ${token.trim()}`,
-        "Content-Type": "application/json"
-      }
-    })
-      .then(async (res) => {
-        if (!res.ok) {
-          const msg = await res.text();
-          throw new Error(msg || `Lỗi ${res.status}`);
-        }
-        return res.json();
-      })
-      .then(data => {
-        setAccounts(data);
-        setError("");
-      })
-      .catch(err => {
-        console.error(err);
-        setError("Không thể tải danh sách tài khoản. Hãy đăng nhập lại.");
-      });
+    try {
+      const data = await fetchAccountPage(token, { q: searchTerm, page: pageToLoad });
+      setAccounts(data.content);
+      setTotalPages(data.totalPages);
+      setError("");
+    } catch (err) {
+      console.error(err);
+      setError("Không thể tải danh sách tài khoản. Hãy đăng nhập lại.");
+    }
   };
 
   useEffect(() => {
-    fetchAccounts();
-  }, []);
+    const timer = setTimeout(() => {
+      setPage(0);
+      fetchAccounts(0);
+    }, 300);
+    return () => clearTimeout(timer);
+  }, [searchTerm]);
+
+  const goToPage = (next) => {
+    setPage(next);
+    fetchAccounts(next);
+  };
 
   const openModal = (account = null) => {
     if (account) {
@@ -131,10 +132,6 @@ export default function AdminHome() {
     }
   };
 
-  const filteredAccounts = accounts.filter(acc =>
-    acc.customerName?.toLowerCase().includes(searchTerm.toLowerCase())
-  );
-
   return (
     <div className="admin-home">
       <AppBar onToggleSidebar={() => setSidebarOpen(!sidebarOpen)} />
@@ -146,7 +143,7 @@ export default function AdminHome() {
 
         <input
           type="text"
-          placeholder="🔍 Tìm kiếm theo Customer Name..."
+          placeholder="🔍 Tìm kiếm theo tên, email..."
           value={searchTerm}
           onChange={(e) => setSearchTerm(e.target.value)}
           style={{ marginBottom: "10px", padding: "5px", width: "250px" }}
@@ -168,7 +165,7 @@ export default function AdminHome() {
             </tr>
           </thead>
           <tbody>
-            {filteredAccounts.map(acc => (
+            {accounts.map(acc => (
               <tr key={acc.accountId}>
                 <td>{acc.accountId}</td>
                 <td>{acc.customerName}</td>
@@ -184,6 +181,14 @@ export default function AdminHome() {
           </tbody>
         </table>
 
+        {totalPages > 1 && (
+          <div style={{ marginTop: "10px" }}>
+            <button disabled={page === 0} onClick={() => goToPage(page - 1)}>◀ Trước</button>
+            <span style={{ margin: "0 10px" }}>Trang {page + 1} / {totalPages}</span>
+            <button disabled={page + 1 >= totalPages} onClick={() => goToPage(page + 1)}>Sau ▶</button>
+          </div>
+        )}
+
         {isModalOpen && (
           <div className="modal">
             <div className="modal-content">
@@ -3,6 +3,7 @@ import { useSearchParams } from 'react-router-dom';
 import AppBar from './AppBar';
 import Sidebar from './Sidebar'; 
 import axios from 'axios';
+import { fetchAllAccounts } from '../../services/AccountService';
 import {
   Box,
   Container,
@@ -73,13 +74,7 @@ const Transactions = () => {
   useEffect(() => {
     const fetchAccounts = async () => {
       try {
-        const response = await axios.get(`${BANK_SERVICE_API}/api/accounts`, {
-          headers: {
-            "Authorization": `Bearer ${token}`,
-            "Content-Type": "application/json"
-          }
-        });
-        setAccounts(response.data);
+        setAccounts(await fetchAllAccounts(token));
       } catch (err) {
         console.error("Error fetching accounts:", err);
       }
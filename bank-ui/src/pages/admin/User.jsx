@@ -29,6 +29,7 @@ import {
   Alert,
   CircularProgress,
   Tooltip,
+  Pagination,
 } from "@mui/material";
 import {
   Add as AddIcon,
@@ -46,6 +47,7 @@ import AppBar from "./AppBar";
 import Sidebar from "./Sidebar";
 import "./AdminHome.css";
 import { BANK_SERVICE_API } from '../../config/api';
+import { fetchAccountPage, countAccounts } from '../../services/AccountService';
 
 export default function AdminHome() {
   const navigate = useNavigate();
@@ -67,47 +69,72 @@ export default function AdminHome() {
   const [balanceModalOpen, setBalanceModalOpen] = useState(false);
   const [selectedUserBalance, setSelectedUserBalance] = useState(null);
   const [loadingBalance, setLoadingBalance] = useState(false);
+  const [page, setPage] = useState(0);
+  const [totalPages, setTotalPages] = useState(0);
+  const [stats, setStats] = useState({ total: 0, admin: 0, user: 0 });
 
   const API_BASE = `${BANK_SERVICE_API}/api/accounts`;
   const token = localStorage.getItem("token");
 
-  const fetchAccounts = () => {
+  // Lọc theo tên/email và role, phân trang phía server
+  const fetchAccounts = async (pageToLoad = page) => {
     if (!token) {
       setError("You are not logged in.");
       return;
     }
 
     setLoading(true);
-    fetch(API_BASE, {
-      headers: {
-        "Authorization": `Bearer ${token.trim()}`,
-        "Content-Type": "application/json"
-      }
-    })
-      .then(async (res) => {
-        if (!res.ok) {
-          const msg = await res.text();
-          throw new Error(msg || `Error ${res.status}`);
-        }
-        return res.json();
-      })
-      .then(data => {
-        setAccounts(data);
-        setError("");
-      })
-      .catch(err => {
-        console.error(err);
-        setError("Unable to load account list. Please log in again.");
-      })
-      .finally(() => {
-        setLoading(false);
-      });
+    try {
+      const data = await fetchAccountPage(token, { role: roleFilter, q: searchTerm, page: pageToLoad });
+      setAccounts(data.content);
+      setTotalPages(data.totalPages);
+      setError("");
+    } catch (err) {
+      console.error(err);
+      setError("Unable to load account list. Please log in again.");
+    } finally {
+      setLoading(false);
+    }
   };
 
-  useEffect(() => {
+  const fetchStats = async () => {
+    try {
+      const [total, admin, user] = await Promise.all([
+        countAccounts(token),
+        countAccounts(token, "ADMIN"),
+        countAccounts(token, "USER"),
+      ]);
+      setStats({ total, admin, user });
+    } catch (err) {
+      console.error("Error fetching account stats:", err);
+    }
+  };
+
+  const refresh = () => {
     fetchAccounts();
+    fetchStats();
+  };
+
+  useEffect(() => {
+    if (token) {
+      fetchStats();
+    }
   }, []);
 
+  // Đổi bộ lọc thì về trang đầu; chờ người dùng gõ xong mới gọi API
+  useEffect(() => {
+    const timer = setTimeout(() => {
+      setPage(0);
+      fetchAccounts(0);
+    }, 300);
+    return () => clearTimeout(timer);
+  }, [searchTerm, roleFilter]);
+
+  const handlePageChange = (event, value) => {
+    setPage(value - 1);
+    fetchAccounts(value - 1);
+  };
+
   const openModal = (account = null) => {
     if (account) {
       setEditingAccount(account.accountId);
@@ -150,7 +177,7 @@ export default function AdminHome() {
         return res.text();
       })
       .then(() => {
-        fetchAccounts();
+        refresh();
         setIsModalOpen(false);
       })
       .catch(err => {
@@ -167,7 +194,7 @@ export default function AdminHome() {
           "Authorization": `Bearer ${token}`
         }
       })
-        .then(() => fetchAccounts())
+        .then(() => refresh())
         .catch(err => {
           console.error(err);
           alert("Unable to delete account.");
@@ -238,19 +265,6 @@ export default function AdminHome() {
     }
   };
 
-  const filteredAccounts = accounts.filter(acc => {
-    const matchesSearch = acc.customerName?.toLowerCase().includes(searchTerm.toLowerCase()) ||
-                         acc.email?.toLowerCase().includes(searchTerm.toLowerCase());
-    const matchesRole = roleFilter === "ALL" || acc.role === roleFilter;
-    return matchesSearch && matchesRole;
-  });
-
-  const stats = {
-    total: accounts.length,
-    admin: accounts.filter(acc => acc.role === "ADMIN").length,
-    user: accounts.filter(acc => acc.role === "USER").length
-  };
-
   return (
     <div className="admin-home">
       <AppBar onToggleSidebar={() => setSidebarOpen(!sidebarOpen)} />
@@ -390,10 +404,10 @@ export default function AdminHome() {
                 <Box sx={{ display: "flex", justifyContent: "center", p: 4 }}>
                   <CircularProgress />
                 </Box>
-              ) : filteredAccounts.length === 0 ? (
+              ) : accounts.length === 0 ? (
                 <Box sx={{ textAlign: "center", p: 6 }}>
                   <Typography variant="h6" color="text.secondary">
-                    {accounts.length === 0
+                    {stats.total === 0
                       ? "No accounts yet"
                       : "No matching accounts found"}
                   </Typography>
@@ -413,7 +427,7 @@ export default function AdminHome() {
                     </TableRow>
                   </TableHead>
                   <TableBody>
-                    {filteredAccounts.map((acc) => (
+                    {accounts.map((acc) => (
                       <TableRow
                         key={acc.accountId}
                         sx={{
@@ -530,6 +544,16 @@ export default function AdminHome() {
                 </Table>
               )}
             </TableContainer>
+            {totalPages > 1 && (
+              <Box sx={{ display: "flex", justifyContent: "center", p: 2 }}>
+                <Pagination
+                  count={totalPages}
+                  page={page + 1}
+                  onChange={handlePageChange}
+                  color="primary"
+                />
+              </Box>
+            )}
           </Card>
 
           {/* Modal */}
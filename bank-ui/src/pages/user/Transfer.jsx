@@ -450,7 +450,8 @@ const handleVerifyOtp = () => {
   })
   .then((data) => {
       // Kiểm tra status từ dữ liệu trả về
-      if (data.status === "AWAITING_APPROVAL") {
+      if (data.status === "AWAITING_APPROVAL" || data.status === "APPROVED") {
+          // APPROVED: giao dịch được rule tự động duyệt
           alert("Chuyển khoản thành công!");
           // Cập nhật số dư ngay lập tức
           fetchBalances();
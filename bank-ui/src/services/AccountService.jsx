@@ -0,0 +1,34 @@
+import axios from 'axios';
+import { BANK_SERVICE_API } from '../config/api';
+
+const API_BASE = `${BANK_SERVICE_API}/api/accounts`;
+
+// Danh sách tài khoản cho admin, phân trang phía server: trả về { content, totalElements, totalPages, number }
+export const fetchAccountPage = async (token, { role, q, page = 0, size = 20 } = {}) => {
+  const params = { page, size };
+  if (role && role !== 'ALL') params.role = role;
+  if (q && q.trim()) params.q = q.trim();
+  const res = await axios.get(API_BASE, {
+    params,
+    headers: { Authorization: `Bearer ${token.trim()}` },
+  });
+  return res.data;
+};
+
+// Số tài khoản (theo role nếu có) mà không tải danh sách
+export const countAccounts = async (token, role) => {
+  const data = await fetchAccountPage(token, { role, size: 1 });
+  return data.totalElements;
+};
+
+// Đọc lần lượt mọi trang: cho danh sách chọn tài khoản và tra email theo accountId
+export const fetchAllAccounts = async (token, { role, q } = {}) => {
+  const accounts = [];
+  for (let page = 0; ; page++) {
+    const data = await fetchAccountPage(token, { role, q, page, size: 200 });
+    accounts.push(...data.content);
+    if (page + 1 >= data.totalPages) {
+      return accounts;
+    }
+  }
+};
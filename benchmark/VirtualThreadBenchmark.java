@@ -0,0 +1,132 @@
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Đo throughput và độ trễ p50/p99 của bank-service với số client đồng thời cố định (closed-loop).
+ *
+ * Chạy trực tiếp bằng Java 21, không cần build:
+ *   java benchmark/VirtualThreadBenchmark.java --label=platform --concurrency=200 --duration=60
+ *
+ * Tham số (--key=value):
+ *   base-url     mặc định http://localhost:8080/bankservice
+ *   email/password  tài khoản đăng nhập lấy JWT
+ *   paths        danh sách endpoint GET, phân cách bằng dấu phẩy, các client chạy xoay vòng
+ *   concurrency  số client đồng thời; duration, warmup tính bằng giây
+ */
+public class VirtualThreadBenchmark {
+
+    private static final Pattern TOKEN = Pattern.compile("\"token\"\\s*:\\s*\"([^\"]+)\"");
+
+    public static void main(String[] args) throws Exception {
+        String baseUrl = arg(args, "base-url", "http://localhost:8080/bankservice");
+        String email = arg(args, "email", "admin@gmail.com");
+        String password = arg(args, "password", "admin123");
+        String label = arg(args, "label", "run");
+        List<String> paths = Arrays.asList(arg(args, "paths", "/api/balances,/transactions/my-history?page=0&size=20").split(","));
+        int concurrency = Integer.parseInt(arg(args, "concurrency", "200"));
+        int durationSeconds = Integer.parseInt(arg(args, "duration", "60"));
+        int warmupSeconds = Integer.parseInt(arg(args, "warmup", "10"));
+
+        // Client dùng virtual thread để phía tạo tải không trở thành nút thắt
+        HttpClient client = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        String token = login(client, baseUrl, email, password);
+
+        run(client, baseUrl, token, paths, concurrency, warmupSeconds, null);
+        List<long[]> samples = new ArrayList<>();
+        Result result = run(client, baseUrl, token, paths, concurrency, durationSeconds, samples);
+
+        long[] latencies = samples.stream().flatMapToLong(Arrays::stream).filter(v -> v >= 0).sorted().toArray();
+        System.out.printf("%-10s requests=%d errors=%d throughput=%.1f req/s p50=%.1f ms p99=%.1f ms max=%.1f ms%n",
+                label, latencies.length, result.errors,
+                latencies.length / (double) durationSeconds,
+                percentile(latencies, 0.50), percentile(latencies, 0.99),
+                latencies.length == 0 ? 0 : latencies[latencies.length - 1] / 1_000_000.0);
+    }
+
+    private record Result(long errors) {}
+
+    private static Result run(HttpClient client, String baseUrl, String token, List<String> paths,
+                              int concurrency, int seconds, List<long[]> samples) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(seconds).toNanos();
+        AtomicLong errors = new AtomicLong();
+        List<long[]> perClient = new ArrayList<>();
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int c = 0; c < concurrency; c++) {
+                // Mỗi client ghi vào mảng riêng, -1 là ô chưa dùng
+                long[] latencies = new long[Math.max(1024, seconds * 2000)];
+                Arrays.fill(latencies, -1);
+                perClient.add(latencies);
+                int offset = c;
+                clients.submit(() -> {
+                    int n = 0;
+                    while (System.nanoTime() < deadline && n < latencies.length) {
+                        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + paths.get((offset + n) % paths.size())))
+                                .header("Authorization", "Bearer " + token)
+                                .timeout(Duration.ofSeconds(30))
+                                .GET()
+                                .build();
+                        long start = System.nanoTime();
+                        try {
+                            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                            if (response.statusCode() >= 400) {
+                                errors.incrementAndGet();
+                            }
+                        } catch (Exception e) {
+                            errors.incrementAndGet();
+                        }
+                        latencies[n++] = System.nanoTime() - start;
+                    }
+                });
+            }
+        }
+        if (samples != null) {
+            samples.addAll(perClient);
+        }
+        return new Result(errors.get());
+    }
+
+    private static String login(HttpClient client, String baseUrl, String email, String password) throws Exception {
+        String body = "{\"email\":\"" + email + "\",\"password\":\"" + password + "\"}";
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(baseUrl + "/api/auth/login"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build(), HttpResponse.BodyHandlers.ofString());
+        Matcher m = TOKEN.matcher(response.body());
+        if (response.statusCode() != 200 || !m.find()) {
+            throw new IllegalStateException("Login failed: " + response.statusCode() + " " + response.body());
+        }
+        return m.group(1);
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1_000_000.0;
+    }
+
+    private static String arg(String[] args, String key, String defaultValue) {
+        String prefix = "--" + key + "=";
+        for (String a : args) {
+            if (a.startsWith(prefix)) {
+                return a.substring(prefix.length());
+            }
+        }
+        return defaultValue;
+    }
+}
@@ -0,0 +1,11 @@
+#!/usr/bin/env bash
+# So sánh kích thước (byte) và ns/op của serializer cache: JSON hiện tại vs CompactValueSerializer (Smile, LZ4).
+# Không cần Redis/MySQL. Tham số bổ sung được chuyển cho JMH, VD: ./benchmark/run-serialization.sh -p payload=BALANCE
+set -euo pipefail
+
+ROOT="$(cd "$(dirname "$0")/.." && pwd)"
+(cd "$ROOT/bank-service" && mvn -B -q install -DskipTests)
+cd "$ROOT/load-test"
+mvn -B -q test-compile dependency:build-classpath -Dmdep.includeScope=test -Dmdep.outputFile=target/classpath.txt
+java -cp "target/test-classes:$(cat target/classpath.txt)" \
+  bank_service.loadtest.RedisSerializationBenchmark RedisSerializationBenchmark "$@"
@@ -0,0 +1,22 @@
+#!/usr/bin/env bash
+# So sánh bank-service khi tắt/bật virtual thread (VIRTUAL_THREADS_ENABLED).
+# Yêu cầu: MySQL, Redis, Artemis đang chạy (docker compose up -d mysql redis artemis) và đã build jar:
+#   (cd bank-service && ./mvnw -q package -DskipTests)
+# Tham số bổ sung được chuyển cho VirtualThreadBenchmark, VD: ./benchmark/run-virtual-threads.sh --concurrency=500
+set -euo pipefail
+
+ROOT="$(cd "$(dirname "$0")/.." && pwd)"
+JAR="$ROOT/bank-service/target/bank-service-0.0.1-SNAPSHOT-exec.jar"
+BASE_URL="${BASE_URL:-http://localhost:8080/bankservice}"
+
+for mode in false true; do
+  VIRTUAL_THREADS_ENABLED=$mode java -jar "$JAR" > "/tmp/bank-service-vt-$mode.log" 2>&1 &
+  pid=$!
+  trap 'kill $pid 2>/dev/null || true' EXIT
+  until curl -s -o /dev/null -X POST "$BASE_URL/api/auth/login"; do sleep 1; done
+
+  label=$([ "$mode" = true ] && echo virtual || echo platform)
+  java "$ROOT/benchmark/VirtualThreadBenchmark.java" --base-url="$BASE_URL" --label="$label" "$@"
+
+  kill $pid && wait $pid 2>/dev/null || true
+done
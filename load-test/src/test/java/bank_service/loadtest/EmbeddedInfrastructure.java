@@ -0,0 +1,116 @@
+package bank_service.loadtest;
+
+import bank_service.bank_service.event.VerificationEmailEvent;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.fppt.jedismock.RedisServer;
+import com.sun.net.httpserver.HttpServer;
+import jakarta.mail.internet.MimeMessage;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.event.EventListener;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.test.context.DynamicPropertyRegistry;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Các bản thay thế chạy trong tiến trình cho hạ tầng ngoài của bank-service:
+ * Redis (jedis-mock, nói giao thức RESP và chạy được Lua), endpoint payment-service giả,
+ * mail sender không gửi thật. H2 và Artemis nhúng được cấu hình trong application-loadtest.yaml.
+ * OTP được lấy từ VerificationEmailEvent thay cho hộp thư.
+ */
+@TestConfiguration
+public class EmbeddedInfrastructure {
+
+    private static RedisServer redis;
+    private static HttpServer paymentStub;
+    static final AtomicLong PAYMENT_REQUESTS = new AtomicLong();
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    static synchronized void start(DynamicPropertyRegistry registry) {
+        try {
+            if (redis == null) {
+                redis = RedisServer.newRedisServer();
+                redis.start();
+
+                paymentStub = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+                paymentStub.createContext("/payments", exchange -> {
+                    JsonNode request = JSON.readTree(exchange.getRequestBody());
+                    PAYMENT_REQUESTS.incrementAndGet();
+                    // /payments/batch: báo mọi phần tử đã gửi
+                    List<String> sent = new ArrayList<>();
+                    request.forEach(item -> sent.add(item.path("paymentId").asText()));
+                    byte[] body = JSON.writeValueAsBytes(Map.of("sentPaymentIds", sent));
+                    exchange.getResponseHeaders().add("Content-Type", "application/json");
+                    exchange.sendResponseHeaders(200, body.length);
+                    exchange.getResponseBody().write(body);
+                    exchange.close();
+                });
+                paymentStub.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+                paymentStub.start();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        registry.add("spring.data.redis.host", () -> redis.getHost());
+        registry.add("spring.data.redis.port", () -> redis.getBindPort());
+        registry.add("payment.service.url", () -> "http://localhost:" + paymentStub.getAddress().getPort());
+    }
+
+    static synchronized void stop() throws IOException {
+        if (paymentStub != null) {
+            paymentStub.stop(0);
+        }
+        if (redis != null) {
+            redis.stop();
+        }
+    }
+
+    @Bean
+    @Primary
+    JavaMailSender noopMailSender() {
+        return new JavaMailSenderImpl() {
+            @Override
+            public void send(MimeMessage... mimeMessages) {
+            }
+
+            @Override
+            public void send(SimpleMailMessage... simpleMessages) {
+            }
+        };
+    }
+
+    @Bean
+    OtpInbox otpInbox() {
+        return new OtpInbox();
+    }
+
+    /**
+     * Hộp thư OTP: transactionId -> mã, ghi lại khi giao dịch phát sự kiện gửi email
+     */
+    public static class OtpInbox {
+
+        private final Map<String, String> codes = new ConcurrentHashMap<>();
+
+        @EventListener
+        public void onVerificationEmail(VerificationEmailEvent event) {
+            codes.put(event.transactionId(), event.verificationCode());
+        }
+
+        public String take(String transactionId) {
+            return codes.remove(transactionId);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package bank_service.loadtest;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Gom độ trễ (nano giây) theo từng bước và in percentile
+ */
+class LatencyRecorder {
+
+    private final Map<String, ConcurrentLinkedQueue<Long>> samples = new ConcurrentHashMap<>();
+
+    void record(String step, long nanos) {
+        samples.computeIfAbsent(step, k -> new ConcurrentLinkedQueue<>()).add(nanos);
+    }
+
+    int count(String step) {
+        ConcurrentLinkedQueue<Long> values = samples.get(step);
+        return values == null ? 0 : values.size();
+    }
+
+    String report(String step, double elapsedSeconds) {
+        long[] sorted = samples.getOrDefault(step, new ConcurrentLinkedQueue<>()).stream()
+                .mapToLong(Long::longValue).sorted().toArray();
+        return String.format("%-10s n=%6d  %8.1f ops/s  p50=%7.2f ms  p90=%7.2f ms  p99=%7.2f ms  max=%7.2f ms",
+                step, sorted.length, sorted.length / elapsedSeconds,
+                percentile(sorted, 0.50), percentile(sorted, 0.90), percentile(sorted, 0.99),
+                sorted.length == 0 ? 0 : sorted[sorted.length - 1] / 1e6);
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(samples.keySet().toArray());
+    }
+}
@@ -0,0 +1,117 @@
+package bank_service.loadtest;
+
+import bank_service.bank_service.cache.CompactValueSerializer;
+import bank_service.bank_service.config.RedisConfig;
+import bank_service.bank_service.dto.CardFullInfoDTO;
+import bank_service.bank_service.model.Account;
+import bank_service.bank_service.model.Balance;
+import bank_service.bank_service.model.Card;
+import bank_service.bank_service.model.Role;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * So sánh serializer giá trị cache: JSON hiện tại (GenericJackson2JsonRedisSerializer, default typing)
+ * với CompactValueSerializer (Smile theo kiểu, có/không nén LZ4).
+ *
+ * Chạy: ./benchmark/run-serialization.sh (in bảng kích thước byte trước, sau đó là kết quả JMH ns/op)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RedisSerializationBenchmark {
+
+    public enum Payload {
+        BALANCE, ACCOUNT, CARDS_20, CARDS_FULL_INFO_1000
+    }
+
+    public enum Format {
+        JSON, COMPACT, COMPACT_LZ4
+    }
+
+    private static final int COMPRESS_ABOVE = 2048;
+
+    @Param
+    public Payload payload;
+
+    @Param
+    public Format format;
+
+    private RedisSerializer<Object> serializer;
+    private Object value;
+    private byte[] bytes;
+
+    @Setup
+    public void setUp() {
+        value = value(payload);
+        serializer = serializer(format, payload);
+        bytes = serializer.serialize(value);
+    }
+
+    @Benchmark
+    public byte[] serialize() {
+        return serializer.serialize(value);
+    }
+
+    @Benchmark
+    public Object deserialize() {
+        return serializer.deserialize(bytes);
+    }
+
+    // Danh sách dạng ArrayList như kết quả từ repository (JSON có default typing không đọc lại được List.of/toList)
+    static Object value(Payload payload) {
+        return switch (payload) {
+            case BALANCE -> Balance.builder().accountId("3f1c2a9e-7d41-4b8e-9a0b-6c5d2e1f0a11")
+                    .availableBalance(new BigDecimal("15250000.00")).holdBalance(new BigDecimal("250000.00"))
+                    .version(42).build();
+            case ACCOUNT -> Account.builder().accountId("3f1c2a9e-7d41-4b8e-9a0b-6c5d2e1f0a11")
+                    .customerName("Nguyễn Văn An").email("an.nguyen@gmail.com").phoneNumber("0912345678")
+                    .password("$2a$10$7EqJtq98hPqEX7fNZaFWoOhi5BWX4Z1ZS4Y8Z6fQvQZ9bW2Qf3d1e").role(Role.USER).build();
+            case CARDS_20 -> IntStream.range(0, 20).mapToObj(i -> Card.builder().cardId((long) i)
+                    .accountId("3f1c2a9e-7d41-4b8e-9a0b-6c5d2e1f0a11").cardType(i % 2 == 0 ? "DEBIT" : "CREDIT")
+                    .expiryDate(LocalDate.of(2030, 1 + i % 12, 1)).status("active").build()).collect(Collectors.toCollection(ArrayList::new));
+            case CARDS_FULL_INFO_1000 -> IntStream.range(0, 1000).mapToObj(i -> new CardFullInfoDTO((long) i,
+                    "acc-" + i, "Khách hàng " + i, "user" + i + "@gmail.com", "09" + (10_000_000 + i),
+                    i % 2 == 0 ? "DEBIT" : "CREDIT", LocalDate.of(2030, 1 + i % 12, 1), "active",
+                    BigDecimal.valueOf(1_000L * i, 2), BigDecimal.ZERO)).collect(Collectors.toCollection(ArrayList::new));
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    static RedisSerializer<Object> serializer(Format format, Payload payload) {
+        if (format == Format.JSON) {
+            return RedisConfig.jsonValueSerializer();
+        }
+        int compressAbove = format == Format.COMPACT_LZ4 ? COMPRESS_ABOVE : 0;
+        return (RedisSerializer<Object>) (RedisSerializer<?>) switch (payload) {
+            case BALANCE -> CompactValueSerializer.of(Balance.class, compressAbove);
+            case ACCOUNT -> CompactValueSerializer.of(Account.class, compressAbove);
+            case CARDS_20 -> CompactValueSerializer.listOf(Card.class, compressAbove);
+            case CARDS_FULL_INFO_1000 -> CompactValueSerializer.listOf(CardFullInfoDTO.class, compressAbove);
+        };
+    }
+
+    public static void main(String[] args) throws Exception {
+        System.out.printf("%-22s %10s %10s %12s%n", "payload", "json", "compact", "compact-lz4");
+        for (Payload payload : Payload.values()) {
+            Object value = value(payload);
+            System.out.printf("%-22s %10d %10d %12d%n", payload,
+                    serializer(Format.JSON, payload).serialize(value).length,
+                    serializer(Format.COMPACT, payload).serialize(value).length,
+                    serializer(Format.COMPACT_LZ4, payload).serialize(value).length);
+        }
+        new Runner(new CommandLineOptions(args)).run();
+    }
+}
@@ -0,0 +1,244 @@
+package bank_service.loadtest;
+
+import bank_service.bank_service.BankServiceApplication;
+import bank_service.bank_service.model.Account;
+import bank_service.bank_service.model.Balance;
+import bank_service.bank_service.model.Role;
+import bank_service.bank_service.model.TransactionStatus;
+import bank_service.bank_service.repository.AccountRepository;
+import bank_service.bank_service.repository.BalanceHoldRepository;
+import bank_service.bank_service.repository.BalanceRepository;
+import bank_service.bank_service.repository.TransactionRepository;
+import bank_service.bank_service.security.JwtService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Chạy N giao dịch chuyển khoản đồng thời giữa M tài khoản qua HTTP, đủ vòng đời
+ * create -> verify (OTP) -> approve/reject, rồi kiểm tra tổng tiền trong hệ thống không đổi.
+ *
+ * Tham số: -Dload.transfers, -Dload.accounts, -Dload.concurrency (mặc định trong pom.xml).
+ * Một phần giao dịch nhập sai OTP một lần, một phần bị admin từ chối để đi qua nhánh hoàn tiền.
+ */
+@SpringBootTest(classes = BankServiceApplication.class, webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@Import(EmbeddedInfrastructure.class)
+@ActiveProfiles("loadtest")
+@Slf4j
+class TransferLoadTest {
+
+    private static final BigDecimal INITIAL_BALANCE = BigDecimal.valueOf(10_000);
+    private static final double WRONG_OTP_RATE = 0.05;
+    private static final double REJECT_RATE = 0.10;
+
+    @DynamicPropertySource
+    static void infrastructure(DynamicPropertyRegistry registry) {
+        EmbeddedInfrastructure.start(registry);
+    }
+
+    @AfterAll
+    static void stopInfrastructure() throws IOException {
+        EmbeddedInfrastructure.stop();
+    }
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private AccountRepository accountRepository;
+    @Autowired
+    private BalanceRepository balanceRepository;
+    @Autowired
+    private BalanceHoldRepository balanceHoldRepository;
+    @Autowired
+    private TransactionRepository transactionRepository;
+    @Autowired
+    private JwtService jwtService;
+    @Autowired
+    private StringRedisTemplate redis;
+    @Autowired
+    private EmbeddedInfrastructure.OtpInbox otpInbox;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final HttpClient http = HttpClient.newBuilder()
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    private final LatencyRecorder latencies = new LatencyRecorder();
+    private final AtomicLong businessErrors = new AtomicLong();
+    private final AtomicLong unexpectedErrors = new AtomicLong();
+
+    private record Party(String accountId, String token) {}
+
+    @Test
+    void concurrentTransfers_ConserveMoney() throws Exception {
+        int transfers = Integer.getInteger("load.transfers", 2000);
+        int accountCount = Integer.getInteger("load.accounts", 50);
+        int concurrency = Integer.getInteger("load.concurrency", 64);
+
+        List<Party> accounts = createAccounts(accountCount);
+        Account admin = accountRepository.save(Account.builder()
+                .customerName("load-admin").email("admin@load.test").role(Role.ADMIN).build());
+        String adminToken = issueToken(admin.getAccountId(), Role.ADMIN);
+        BigDecimal expectedTotal = INITIAL_BALANCE.multiply(BigDecimal.valueOf(accountCount));
+
+        Semaphore inFlight = new Semaphore(concurrency);
+        long start = System.nanoTime();
+        try (ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < transfers; i++) {
+                inFlight.acquire();
+                workers.submit(() -> {
+                    try {
+                        runTransfer(accounts, adminToken);
+                    } catch (Exception e) {
+                        unexpectedErrors.incrementAndGet();
+                        log.warn("Transfer failed: {}", e.toString());
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            }
+        }
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+
+        log.info("=== {} transfers, {} accounts, concurrency {}, {} s ===",
+                transfers, accountCount, concurrency, String.format("%.2f", elapsedSeconds));
+        for (String step : List.of("create", "verify", "approve", "reject", "lifecycle")) {
+            log.info(latencies.report(step, elapsedSeconds));
+        }
+        log.info("business errors (e.g. insufficient balance): {}, unexpected errors: {}, payment calls: {}",
+                businessErrors.get(), unexpectedErrors.get(), EmbeddedInfrastructure.PAYMENT_REQUESTS.get());
+
+        assertInvariants(expectedTotal);
+        assertEquals(0, unexpectedErrors.get(), "unexpected errors during load");
+    }
+
+    private List<Party> createAccounts(int count) {
+        List<Party> parties = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Account account = accountRepository.save(Account.builder()
+                    .customerName("load-" + i).email("load" + i + "@load.test").role(Role.USER).build());
+            balanceRepository.save(Balance.builder()
+                    .accountId(account.getAccountId())
+                    .availableBalance(INITIAL_BALANCE)
+                    .holdBalance(BigDecimal.ZERO)
+                    .build());
+            parties.add(new Party(account.getAccountId(), issueToken(account.getAccountId(), Role.USER)));
+        }
+        return parties;
+    }
+
+    // Giống AuthService.login: JwtAuthenticationFilter chỉ chấp nhận token đang lưu trên Redis
+    private String issueToken(String accountId, Role role) {
+        String token = jwtService.generateToken(accountId, role);
+        redis.opsForValue().set("token:" + accountId, token, Duration.ofHours(1));
+        return token;
+    }
+
+    private void runTransfer(List<Party> accounts, String adminToken) throws Exception {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Party from = accounts.get(random.nextInt(accounts.size()));
+        Party to = accounts.get(random.nextInt(accounts.size()));
+        while (to == from) {
+            to = accounts.get(random.nextInt(accounts.size()));
+        }
+        BigDecimal amount = BigDecimal.valueOf(random.nextInt(1, 500));
+        long lifecycleStart = System.nanoTime();
+
+        JsonNode created = call("create", from.token(), "/transactions/create", Map.of(
+                "fromAccountId", from.accountId(),
+                "toAccountId", to.accountId(),
+                "amount", amount,
+                "categoryId", "1"));
+        if (created == null) {
+            return;
+        }
+        String txId = created.get("id").asText();
+        String code = otpInbox.take(txId);
+        if (random.nextDouble() < WRONG_OTP_RATE) {
+            // Nhập sai một lần trước: giao dịch vẫn PENDING và còn lượt thử
+            call("verify", from.token(), "/transactions/" + txId + "/verify",
+                    Map.of("verificationCode", "000000".equals(code) ? "111111" : "000000"));
+        }
+
+        JsonNode verified = call("verify", from.token(), "/transactions/" + txId + "/verify",
+                Map.of("verificationCode", code));
+        if (verified == null || !TransactionStatus.AWAITING_APPROVAL.name().equals(verified.get("status").asText())) {
+            throw new IllegalStateException("Transaction " + txId + " not awaiting approval after OTP: " + verified);
+        }
+
+        String decision = random.nextDouble() < REJECT_RATE ? "reject" : "approve";
+        if (call(decision, adminToken, "/transactions/" + txId + "/" + decision, Map.of()) != null) {
+            latencies.record("lifecycle", System.nanoTime() - lifecycleStart);
+        }
+    }
+
+    /**
+     * Gọi API và ghi độ trễ; lỗi 4xx nghiệp vụ (không đủ số dư...) trả về null
+     */
+    private JsonNode call(String step, String token, String path, Map<String, ?> body) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/bankservice" + path))
+                .header("Authorization", "Bearer " + token)
+                .header("Content-Type", "application/json")
+                .timeout(Duration.ofSeconds(60))
+                .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(body)))
+                .build();
+        long start = System.nanoTime();
+        HttpResponse<String> response = http.send(request, HttpResponse.BodyHandlers.ofString());
+        latencies.record(step, System.nanoTime() - start);
+        if (response.statusCode() >= 500) {
+            throw new IllegalStateException(step + " -> " + response.statusCode() + " " + response.body());
+        }
+        if (response.statusCode() >= 400) {
+            businessErrors.incrementAndGet();
+            return null;
+        }
+        return objectMapper.readTree(response.body());
+    }
+
+    private void assertInvariants(BigDecimal expectedTotal) {
+        List<Balance> balances = balanceRepository.findAll();
+        BigDecimal available = balances.stream().map(Balance::getAvailableBalance).reduce(BigDecimal.ZERO, BigDecimal::add);
+        BigDecimal held = balances.stream().map(Balance::getHoldBalance).reduce(BigDecimal.ZERO, BigDecimal::add);
+        log.info("available={} held={} expected total={}", available, held, expectedTotal);
+
+        assertEquals(0, expectedTotal.compareTo(available.add(held)), "money was created or destroyed");
+        assertTrue(balances.stream().allMatch(b -> b.getAvailableBalance().signum() >= 0), "negative available balance");
+
+        // Giao dịch đã kết thúc không được còn giữ tiền
+        long pending = transactionRepository.findAll().stream()
+                .filter(t -> t.getStatus() == TransactionStatus.PENDING || t.getStatus() == TransactionStatus.AWAITING_APPROVAL)
+                .count();
+        assertEquals(pending, balanceHoldRepository.count(), "holds do not match unfinished transactions");
+    }
+}
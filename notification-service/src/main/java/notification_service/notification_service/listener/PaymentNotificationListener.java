@@ -5,6 +5,7 @@ import lombok.RequiredArgsConstructor;
 import notification_service.notification_service.repository.NotificationRepository;
 import notification_service.notification_service.model.Notification;
 import notification_service.notification_service.model.PaymentMessage;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.jms.annotation.JmsListener;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
@@ -23,6 +24,12 @@ public class PaymentNotificationListener {
         try {
             PaymentMessage msg = objectMapper.readValue(messageJson, PaymentMessage.class);
 
+            // Outbox relay gửi lại payment chưa được xác nhận: đã có thông báo thì bỏ qua
+            if (notificationRepository.existsByPaymentId(msg.paymentId())) {
+                System.out.println("Duplicate payment message ignored for paymentId: " + msg.paymentId());
+                return;
+            }
+
             Notification notificationToSave = Notification.builder()
                     .paymentId(msg.paymentId())
                     .fromAccountId(msg.fromAccountId())
@@ -32,8 +39,13 @@ public class PaymentNotificationListener {
                     .amount(msg.amount())
                     .build();
 
-            // Lưu vào database
-            notificationRepository.save(notificationToSave);
+            // Lưu vào database; unique paymentId chặn hai bản trùng xử lý đồng thời
+            try {
+                notificationRepository.saveAndFlush(notificationToSave);
+            } catch (DataIntegrityViolationException e) {
+                System.out.println("Duplicate payment message ignored for paymentId: " + msg.paymentId());
+                return;
+            }
             System.out.println("Notification saved to database for paymentId: " + msg.paymentId());
 
             // Gửi thông báo tới client qua WebSocket
@@ -17,6 +17,8 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 @Builder
 @EntityListeners(AuditingEntityListener.class)
+// Mỗi payment chỉ một thông báo: bank-service có thể gửi lại cùng paymentId
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_notification_payment_id", columnNames = "paymentId"))
 public class Notification {
     @Id
     @GeneratedValue(strategy = GenerationType.UUID)
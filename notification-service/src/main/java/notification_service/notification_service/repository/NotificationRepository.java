@@ -6,6 +6,8 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import java.util.List;
 
 public interface NotificationRepository extends JpaRepository<Notification, Long> {
+    boolean existsByPaymentId(String paymentId);
+
     List<Notification> findByToAccountIdOrderByCreatedAtDesc(String toAccountId);
     List<Notification> findByFromAccountIdOrderByCreatedAtDesc(String fromAccountId);
 }
@@ -6,9 +6,12 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import payment_service.payment_service.dto.PaymentBatchResult;
 import payment_service.payment_service.dto.PaymentRequest;
 import payment_service.payment_service.service.PaymentService;
 
+import java.util.List;
+
 @RestController
 @RequestMapping("/payments")
 @RequiredArgsConstructor
@@ -21,4 +24,10 @@ public class PaymentController {
         paymentService.sendPayment(request);
         return ResponseEntity.ok("Payment request sent for id: " + request.getPaymentId());
     }
+
+    // Nhận một lô payment từ outbox relay của bank-service, gửi theo đúng thứ tự; trả về phần tử nào đã gửi
+    @PostMapping("/batch")
+    public ResponseEntity<PaymentBatchResult> createPayments(@RequestBody List<PaymentRequest> requests) {
+        return ResponseEntity.ok(paymentService.sendPayments(requests));
+    }
 }
@@ -0,0 +1,13 @@
+package payment_service.payment_service.dto;
+
+import java.util.List;
+
+/**
+ * Kết quả gửi một lô: các payment đã gửi theo thứ tự; gửi dừng ở phần tử lỗi đầu tiên (failedPaymentId),
+ * các phần tử sau chưa được gửi
+ */
+public record PaymentBatchResult(
+        List<String> sentPaymentIds,
+        String failedPaymentId,
+        String error
+) {}
@@ -4,13 +4,20 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import org.springframework.jms.core.JmsTemplate;
 import org.springframework.stereotype.Service;
+import payment_service.payment_service.dto.PaymentBatchResult;
 import payment_service.payment_service.dto.PaymentMessage;
 import payment_service.payment_service.dto.PaymentRequest;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @Service
 @RequiredArgsConstructor
 public class PaymentService {
 
+    // Artemis bỏ message trùng _AMQ_DUPL_ID trong id-cache của queue: bank-service gửi lại cùng paymentId không tạo payment mới
+    static final String DUPLICATE_DETECTION_ID = "_AMQ_DUPL_ID";
+
     private final JmsTemplate jmsTemplate;
     private final ObjectMapper objectMapper;
 
@@ -26,11 +33,32 @@ public class PaymentService {
             );
             String json = objectMapper.writeValueAsString(message);
 
-            jmsTemplate.convertAndSend("payment-queue", json);
+            jmsTemplate.convertAndSend("payment-queue", json, jmsMessage -> {
+                jmsMessage.setStringProperty(DUPLICATE_DETECTION_ID, request.getPaymentId());
+                return jmsMessage;
+            });
             System.out.println("Sent payment message: " + json);
 
         } catch (Exception e) {
             throw new RuntimeException("Failed to send payment", e);
         }
     }
+
+    /**
+     * Gửi lần lượt theo thứ tự; dừng ở phần tử lỗi đầu tiên để các payment sau của cùng tài khoản không vượt lên trước.
+     * Bên gọi chỉ đánh dấu đã gửi các phần tử trong sentPaymentIds.
+     */
+    public PaymentBatchResult sendPayments(List<PaymentRequest> requests) {
+        List<String> sent = new ArrayList<>();
+        for (PaymentRequest request : requests) {
+            try {
+                sendPayment(request);
+            } catch (RuntimeException e) {
+                String error = e.getCause() != null ? e.getCause().getMessage() : e.getMessage();
+                return new PaymentBatchResult(sent, request.getPaymentId(), error);
+            }
+            sent.add(request.getPaymentId());
+        }
+        return new PaymentBatchResult(sent, null, null);
+    }
 }